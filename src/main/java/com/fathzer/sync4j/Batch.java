@@ -0,0 +1,74 @@
+package com.fathzer.sync4j;
+
+import java.io.IOException;
+import java.util.List;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * A batch of write operations executed as one unit by a provider.
+ * <br>Operations are added to the batch, then {@link #execute()} performs all of them, typically with a single request to a remote
+ * storage that has a batch endpoint, and returns the result of each operation.
+ * <br>A batch is not thread-safe and can be executed only once.
+ * @see FileProvider#batch()
+ */
+public interface Batch {
+    /**
+     * The result of an operation of a batch.
+     * @param entry the entry created by the operation (the created folder or the copied file), or null if the operation is a deletion or failed
+     * @param error the error that made the operation fail, or null if the operation succeeded
+     */
+    record Result(@Nullable Entry entry, @Nullable Exception error) {
+        /**
+         * Tests whether the operation failed.
+         * @return true if the operation failed
+         */
+        public boolean failed() {
+            return error != null;
+        }
+    }
+
+    /**
+     * Adds the deletion of a file to this batch.
+     * @param file the file to delete
+     * @throws IllegalArgumentException if the file does not belong to the provider of the batch
+     * @see Entry#delete()
+     */
+    void delete(@Nonnull File file);
+
+    /**
+     * Adds the creation of a folder to this batch.
+     * @param parent the folder where the folder is created
+     * @param folderName the name of the folder to create
+     * @throws IllegalArgumentException if the folder does not belong to the provider of the batch
+     * @see Folder#mkdir(String)
+     */
+    void mkdir(@Nonnull Folder parent, @Nonnull String folderName);
+
+    /**
+     * Adds the copy of a file to this batch.
+     * <br>As the content of the file is copied in a single request with the other operations, this is intended to be used with small files.
+     * @param parent the folder where the file is copied
+     * @param fileName the name of the file to write
+     * @param content the file to copy
+     * @throws IllegalArgumentException if the folder does not belong to the provider of the batch
+     * @see Folder#copy(String, File, java.util.function.LongConsumer)
+     */
+    void copy(@Nonnull Folder parent, @Nonnull String fileName, @Nonnull File content);
+
+    /**
+     * Gets the number of operations of this batch.
+     * @return a positive or null integer
+     */
+    int size();
+
+    /**
+     * Executes the operations of this batch.
+     * <br>An operation that fails does not prevent the other operations to be executed, its error is reported in its result.
+     * @return the results of the operations, in the order the operations were added
+     * @throws IOException if the batch as a whole failed (in such a case, the operations may have been partially executed)
+     */
+    @Nonnull
+    List<Result> execute() throws IOException;
+}
@@ -104,6 +104,21 @@ public interface Entry {
      */
     void delete() throws IOException;
 
+    /**
+     * Moves this entry to the trash of its provider.
+     * <br>Once in the trash, the entry no longer exists at its path. It will be deleted by the next
+     * {@link FileProvider#purgeTrash(java.util.function.LongConsumer, java.util.function.BooleanSupplier)} call.
+     * <br>For non existing entries, the method does nothing.
+     * <br>The default implementation throws an {@link UnsupportedOperationException} which is the expected behavior
+     * if the provider does not support the trash feature.
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the provider does not support the trash feature
+     * @see FileProvider#isTrashSupported()
+     */
+    default void moveToTrash() throws IOException {
+        throw new UnsupportedOperationException("Trash is not supported");
+    }
+
     /**
      * Returns the provider that created this entry.
      * @return a FileProvider
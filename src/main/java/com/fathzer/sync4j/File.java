@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 
 /**
  * A generic file, whatever is its provider.
@@ -35,6 +36,18 @@ public interface File extends Entry {
      */
     long getLastModifiedTime() throws IOException;
 
+    /**
+     * Returns a key that uniquely identifies this file in its provider (for instance an inode number).
+     * <br>Unlike the path, this key does not change when the file is moved, and it changes when a file is replaced by another one.
+     * <br>The default implementation returns null, which is the expected behavior if the provider has no such key.
+     * @return a key or null if the provider has no file key
+     * @throws IOException if an I/O error occurs
+     */
+    @Nullable
+    default String getFileKey() throws IOException {
+        return null;
+    }
+
     /**
      * Returns the hash of this file.
      * @param hashAlgorithm the hash algorithm to use
@@ -4,7 +4,10 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 
+import com.fathzer.sync4j.helper.SequentialBatch;
 import com.fathzer.sync4j.sync.parameters.SyncParameters;
 
 import jakarta.annotation.Nonnull;
@@ -53,6 +56,93 @@ public interface FileProvider extends AutoCloseable {
         return false;
     }
 
+    /**
+     * Returns true if the provider supports the watch feature.
+     * <br>The watch feature allows to be notified of the changes in a folder tree.
+     * <br>By default, this method returns false.
+     * @return a boolean
+     * @see Folder#watch(Folder.ChangeListener)
+     */
+    default boolean isWatchSupported() {
+        return false;
+    }
+
+    /**
+     * Returns true if the provider supports the trash feature.
+     * <br>The trash feature allows to delete an entry by moving it, in constant time, to a trash area of the provider
+     * that is later purged by {@link #purgeTrash(LongConsumer, BooleanSupplier)}.
+     * <br>By default, this method returns false.
+     * @return a boolean
+     * @see Entry#moveToTrash()
+     */
+    default boolean isTrashSupported() {
+        return false;
+    }
+
+    /**
+     * Returns true if the provider supports the move feature.
+     * <br>The move feature allows to move a file to another folder of the same provider without copying its content.
+     * <br>By default, this method returns false.
+     * @return a boolean
+     * @see Folder#move(String, File)
+     */
+    default boolean isMoveSupported() {
+        return false;
+    }
+
+    /**
+     * Returns true if this provider can directly copy the files of another provider.
+     * <br>A direct copy creates a copy of a file without streaming its content through the JVM (for instance, a copy performed by the
+     * file system, or a server-side copy of a cloud storage).
+     * <br>By default, this method returns false.
+     * @param source the provider of the files to copy (may be this provider)
+     * @return a boolean
+     * @see Folder#directCopy(String, File, LongConsumer)
+     */
+    default boolean isDirectCopySupported(@Nonnull FileProvider source) {
+        return false;
+    }
+
+    /**
+     * Returns true if the provider supports the batch feature.
+     * <br>The batch feature allows to perform many small write operations (deletions, folder creations and small copies) with a
+     * single request, typically using the batch endpoint of a remote storage. The synchronizer only groups the operations of the
+     * providers that support it.
+     * <br>By default, this method returns false.
+     * @return a boolean
+     * @see #batch()
+     */
+    default boolean isBatchSupported() {
+        return false;
+    }
+
+    /**
+     * Creates a batch of write operations.
+     * <br>The default implementation returns a {@link SequentialBatch} that executes the operations one by one, which is the expected
+     * behavior if the provider does not support the batch feature.
+     * @return a new batch
+     * @see #isBatchSupported()
+     */
+    @Nonnull
+    default Batch batch() {
+        return new SequentialBatch();
+    }
+
+    /**
+     * Deletes all the entries in the trash of this provider.
+     * <br>The trash is persistent, so this method also deletes the entries moved to the trash by a previous run
+     * that was not followed by a purge.
+     * <br>The default implementation does nothing, which is the expected behavior if the provider does not support the trash feature.
+     * @param deletedFilesListener a listener called with the number of files deleted since its previous call.
+     * <br>It may be called concurrently by multiple threads.
+     * @param cancelled a supplier that returns true when the purge should be stopped
+     * @throws IOException if an I/O error occurs or if the purge was stopped before its end
+     * @see #isTrashSupported()
+     */
+    default void purgeTrash(@Nonnull LongConsumer deletedFilesListener, @Nonnull BooleanSupplier cancelled) throws IOException {
+        // Does nothing by default
+    }
+
     /**
      * Returns true if the provider supports read-only operations.
      * <br>By default, this method returns true.
@@ -86,6 +176,20 @@ public interface FileProvider extends AutoCloseable {
         }
     }
 
+    /**
+     * Returns a stable identifier of the storage exposed by this provider.
+     * <br>Providers of the same storage should return the same identifier, even across runs, and it should not depend on the state
+     * of the provider (for instance, its read-only flag). The synchronizer uses it to check that the data it persists between runs
+     * (state index, checkpoint) were written for the same folders.
+     * <br>By default, this method returns the class name of the provider, which is only suitable for providers that always expose
+     * the same storage.
+     * @return a non null string
+     */
+    @Nonnull
+    default String getId() {
+        return getClass().getName();
+    }
+
     /**
      * Returns the file or folder at the given path.
      * @param path the path of the file. <br>
@@ -121,6 +225,28 @@ public interface FileProvider extends AutoCloseable {
         return result;
     }
 
+    /**
+     * Returns the maximum number of operations that can be performed concurrently on this provider.
+     * <br>The synchronizer queues the operations that exceed this limit, whatever the kind of task (listing, comparison, copy, ...) they belong to.
+     * <br>By default, this method returns 0 which means there is no limit.
+     * @return a positive or null integer
+     * @see SyncParameters#performance()
+     */
+    default int getMaxConcurrentOperations() {
+        return 0;
+    }
+
+    /**
+     * Returns the maximum number of operations per second that can be performed on this provider.
+     * <br>The synchronizer delays the operations that exceed this budget, whatever the kind of task (listing, comparison, copy, ...) they belong to.
+     * <br>By default, this method returns 0 which means there is no limit.
+     * @return a positive or null number
+     * @see SyncParameters#performance()
+     */
+    default double getMaxOperationsPerSecond() {
+        return 0;
+    }
+
     /**
      * Returns the precision of the last modified time.
      * <br>By default, this method returns 0 which means the last modified time is precise to the millisecond.
@@ -1,7 +1,10 @@
 package com.fathzer.sync4j;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 import java.util.function.LongConsumer;
 
 import jakarta.annotation.Nonnull;
@@ -10,6 +13,21 @@ import jakarta.annotation.Nonnull;
  * A folder.
  */
 public interface Folder extends Entry {
+    /**
+     * A listener of the changes in a folder tree.
+     * @see Folder#watch(ChangeListener)
+     */
+    @FunctionalInterface
+    interface ChangeListener {
+        /**
+         * Called when a change is detected.
+         * @param path the path (as accepted by {@link FileProvider#get(String)}) of a folder whose content changed.
+         * @param subtree true if changes may have been missed in the whole subtree of the folder (all its sub-folders should be checked),
+         * false if only the direct children of the folder have changed.
+         */
+        void changed(@Nonnull String path, boolean subtree);
+    }
+
     /**
      * List the direct children of this file.
      * @return the list of children
@@ -34,6 +52,40 @@ public interface Folder extends Entry {
         throw new UnsupportedOperationException("Preload (fast list) is not supported");
     }
 
+    /**
+     * Preload the tree structure of this folder in files of a work directory instead of memory.
+     * <br>This allows to preload trees that do not fit in memory. The files are created in the work directory, which should be deleted
+     * once the returned folder is no more used.
+     * <br>The default implementation ignores the work directory and calls {@link #preload()}.
+     * @param workDirectory the directory where the files are created
+     * @return this folder or a new folder with the same path but with the tree structure preloaded.
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the provider does not support the fast-list feature
+     * @see com.fathzer.sync4j.helper.DiskTree
+     */
+    @Nonnull
+    default Folder preload(@Nonnull Path workDirectory) throws IOException {
+        return preload();
+    }
+
+    /**
+     * Watches the changes in the tree of this folder.
+     * <br>Once this method returns, the listener is called, from a provider's thread, each time a change is detected in the tree
+     * (including in the sub-folders created after this method returned).
+     * Changes are reported as soon as they are detected, without any coalescing.
+     * <br>The default implementation throws an {@link UnsupportedOperationException} which is the expected behavior
+     * if the provider does not support the watch feature.
+     * @param listener the listener to call when a change is detected
+     * @return a closeable that stops the watch when closed
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the provider does not support the watch feature
+     * @see FileProvider#isWatchSupported()
+     */
+    @Nonnull
+    default Closeable watch(@Nonnull ChangeListener listener) throws IOException {
+        throw new UnsupportedOperationException("Watch is not supported");
+    }
+
     /**
      * Copy a file in this folder.
      * <br>
@@ -49,6 +101,46 @@ public interface Folder extends Entry {
     @Nonnull
     File copy(@Nonnull String fileName, @Nonnull File content, LongConsumer progressListener) throws IOException;
     
+    /**
+     * Copy a file in this folder without streaming its content through the JVM.
+     * <br>The result is the same as {@link #copy(String, File, LongConsumer)}, but the copy is performed by the provider.
+     * <br>The default implementation throws an {@link UnsupportedOperationException} which is the expected behavior
+     * if the provider does not support the direct copy feature. An implementation may also throw this exception if a particular file
+     * can't be directly copied, the caller should then fall back to {@link #copy(String, File, LongConsumer)}.
+     * @param fileName the name of the file to write (can't be empty or null, can't contain path separator)
+     * @param content the file to copy. Its provider should be one accepted by {@link FileProvider#isDirectCopySupported(FileProvider)}.
+     * @param progressListener an optional listener to track copy progress (can be null).
+     * <br>As the copy is performed by the provider, the progress may only be reported once the copy is done.
+     * @return the copied file
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the file can't be directly copied
+     * @throws IllegalArgumentException if the file belongs to a provider not supported by this folder
+     * @see FileProvider#isDirectCopySupported(FileProvider)
+     */
+    @Nonnull
+    default File directCopy(@Nonnull String fileName, @Nonnull File content, LongConsumer progressListener) throws IOException {
+        throw new UnsupportedOperationException("Direct copy is not supported");
+    }
+
+    /**
+     * Moves a file to this folder.
+     * <br>The file is moved (and renamed if <code>fileName</code> is not its name) without copying its content. Its content,
+     * last modified time and creation time are preserved. If an entry with the same name already exists in this folder, it is replaced.
+     * <br>The default implementation throws an {@link UnsupportedOperationException} which is the expected behavior
+     * if the provider does not support the move feature.
+     * @param fileName the name of the file in this folder (can't be empty or null, can't contain path separator)
+     * @param file the file to move. It should belong to the same provider as this folder.
+     * @return the moved file
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the provider does not support the move feature
+     * @throws IllegalArgumentException if the file does not belong to the provider of this folder
+     * @see FileProvider#isMoveSupported()
+     */
+    @Nonnull
+    default File move(@Nonnull String fileName, @Nonnull File file) throws IOException {
+        throw new UnsupportedOperationException("Move is not supported");
+    }
+
     /**
      * Create a new folder in this folder.
      * @param folderName the name of the folder to create (can't be empty or null, can't contain path separator)
@@ -58,6 +150,22 @@ public interface Folder extends Entry {
     @Nonnull
     Folder mkdir(@Nonnull String folderName) throws IOException; 
 
+    /**
+     * Deletes this folder and all its content, reporting progress and honoring a cancellation request.
+     * <br>This method is intended for deleting large trees: Implementations can delete the content in parallel and should
+     * check <code>cancelled</code> regularly to stop as soon as possible when it returns true.
+     * <br>The default implementation ignores the cancellation request, calls {@link #delete()} and reports nothing.
+     * @param deletedFilesListener a listener called with the number of files deleted since its previous call.
+     * <br>It may be called concurrently by multiple threads.
+     * @param cancelled a supplier that returns true when the deletion should be stopped
+     * @throws IOException if an I/O error occurs or if the deletion was stopped before its end
+     * (in such a case, the folder may be partially deleted)
+     * @see #delete()
+     */
+    default void delete(@Nonnull LongConsumer deletedFilesListener, @Nonnull BooleanSupplier cancelled) throws IOException {
+        delete();
+    }
+
     /**
      * Check if a file name is valid.
      * @param fileName the file name to check
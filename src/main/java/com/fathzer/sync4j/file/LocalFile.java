@@ -1,16 +1,20 @@
 package com.fathzer.sync4j.file;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.FileVisitResult;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
 import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 
@@ -26,7 +30,9 @@ import com.fathzer.sync4j.util.ProgressInputStream;
  */
 class LocalFile implements File, Folder {
     private static final String CREATION_TIME = "creationTime";
-	private final Path path;
+    /** The number of bytes transferred between two progress notifications of a direct copy. */
+    static final long DIRECT_COPY_CHUNK_SIZE = 1024L * 1024;
+    final Path path;
     private final LocalProvider provider;
 
     /**
@@ -91,6 +97,12 @@ class LocalFile implements File, Folder {
         return Files.getLastModifiedTime(path).toMillis();
     }
 
+    @Override
+    public String getFileKey() throws IOException {
+        final Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        return key == null ? null : key.toString();
+    }
+
     @Override
     public String getHash(HashAlgorithm hashAlgorithm) throws IOException {
         return hashAlgorithm.computeHash(path);
@@ -99,40 +111,63 @@ class LocalFile implements File, Folder {
     @Override
     public List<Entry> list() throws IOException {
         try (Stream<Path> stream = Files.list(path)) {
-            return stream.map(p -> (Entry) new LocalFile(p, provider)).toList();
+            final Stream<Path> visible = isRoot() ? stream.filter(p -> !p.equals(provider.trashPath)) : stream;
+            return visible.map(p -> (Entry) new LocalFile(p, provider)).toList();
         }
     }
 
+    @Override
+    public Folder preload() throws IOException {
+        return LocalTreeScanner.scan(path, provider);
+    }
+
+    @Override
+    public Folder preload(Path workDirectory) throws IOException {
+        return LocalTreeScanner.scan(path, provider, workDirectory);
+    }
+
     @Override
     public void delete() throws IOException {
+        delete(n -> {}, () -> false);
+    }
+
+    @Override
+    public void delete(LongConsumer deletedFilesListener, BooleanSupplier cancelled) throws IOException {
         provider.checkWriteable();
-        if (isFolder()) {
+        final BasicFileAttributes attributes;
+        try {
+            // Do not follow links, deleting a link to a folder should not delete the folder's content
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (attributes.isDirectory()) {
             if (isRoot()) {
                 throw new IOException("Cannot delete root folder");
             }
-            deletedFolder(path);
-        } else if (exists()) {
+            new ParallelDeleter(provider.deletePool(), deletedFilesListener, cancelled).delete(path);
+        } else {
             Files.delete(path);
         }
     }
 
-    private void deletedFolder(Path pathToBeDeleted) throws IOException {
-        Files.walkFileTree(pathToBeDeleted, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                if (exc != null) {
-                    throw exc;
-                }
-                Files.delete(dir);
-                return FileVisitResult.CONTINUE;
-            }
+    @Override
+    public void moveToTrash() throws IOException {
+        provider.checkWriteable();
+        if (isRoot()) {
+            throw new IOException("Cannot delete root folder");
+        }
+        if (exists()) {
+            provider.moveToTrash(path);
+        }
+    }
 
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Files.delete(file);
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    @Override
+    public Closeable watch(ChangeListener listener) throws IOException {
+        if (!isFolder()) {
+            throw new IOException("Folder does not exist: " + path);
+        }
+        return new LocalWatcher(provider, path, listener);
     }
 
     @Override
@@ -166,6 +201,67 @@ class LocalFile implements File, Folder {
         return new LocalFile(targetPath, provider);
     }
 
+    @Override
+    public File directCopy(String fileName, File content, LongConsumer progressListener) throws IOException {
+        provider.checkWriteable();
+        checkFileName(fileName);
+        if (!(content.getFileProvider() instanceof LocalProvider contentProvider)) {
+            throw new IllegalArgumentException("File is not a local file: " + content);
+        }
+        final LocalFile local = toLocalFile(contentProvider, content);
+        final Path targetPath = path.resolve(fileName);
+        // The content is transferred by the file system, in chunks in order to report the progress (and let the caller pause the copy)
+        try (FileChannel in = FileChannel.open(local.path, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(targetPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            long position = 0;
+            if (progressListener != null) {
+                progressListener.accept(0);
+            }
+            while (position < size) {
+                final long count = in.transferTo(position, Math.min(DIRECT_COPY_CHUNK_SIZE, size - position), out);
+                if (count <= 0) {
+                    // The file was truncated during the copy
+                    break;
+                }
+                position += count;
+                if (progressListener != null) {
+                    progressListener.accept(position);
+                }
+            }
+        }
+        final BasicFileAttributes attributes = Files.readAttributes(local.path, BasicFileAttributes.class);
+        Files.setLastModifiedTime(targetPath, attributes.lastModifiedTime());
+        try {
+            Files.setAttribute(targetPath, CREATION_TIME, attributes.creationTime());
+        } catch (UnsupportedOperationException | IOException e) {
+            // Ignore if setting creation time is not supported
+        }
+        return new LocalFile(targetPath, provider);
+    }
+
+    @Override
+    public File move(String fileName, File file) throws IOException {
+        provider.checkWriteable();
+        checkFileName(fileName);
+        if (file.getFileProvider() != provider) {
+            throw new IllegalArgumentException("File does not belong to this provider: " + file);
+        }
+        final LocalFile local = toLocalFile(provider, file);
+        final Path targetPath = path.resolve(fileName);
+        // Moving a file to another directory of the same file system is atomic and preserves its attributes
+        Files.move(local.path, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        return new LocalFile(targetPath, provider);
+    }
+
+    /**
+     * Gets the local file of a file of a local provider.
+     * <br>The file may be a view of the entry (for instance a preloaded entry).
+     */
+    private static LocalFile toLocalFile(LocalProvider provider, File file) throws IOException {
+        return file instanceof LocalFile local ? local : (LocalFile) provider.get(file.getPath());
+    }
+
     @Override
     public Folder mkdir(String folderName) throws IOException {
         provider.checkWriteable();
@@ -2,23 +2,51 @@ package com.fathzer.sync4j.file;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.FileTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 
 import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.FileProvider;
 import com.fathzer.sync4j.HashAlgorithm;
 import com.fathzer.sync4j.helper.AbstractFileProvider;
 
 /**
  * A local file provider.
+ * <br>This provider supports the fast-list feature: {@link com.fathzer.sync4j.Folder#preload()} scans the whole tree in parallel
+ * and captures the attributes of all its entries, so that walking the preloaded tree requires no more system calls.
+ * The attributes are stored in memory, or in files if a work directory is passed to {@link com.fathzer.sync4j.Folder#preload(Path)}.
+ * <br>This provider supports the trash feature. The trash is a hidden folder named {@value #TRASH_NAME} located in the root folder
+ * (so, on the same volume as the entries it receives). It is never listed and can't be accessed through {@link #get(String)}.
  */
 public class LocalProvider extends AbstractFileProvider {
     private static final String CREATION_TIME = "creationTime";
     private static final long CREATION_TIME_PRECISION;
+    /** The name of the trash folder in the root folder. */
+    public static final String TRASH_NAME = ".sync4j-trash";
+
+    /**
+     * The default number of threads used to delete folders: the number of available processors, up to 4.
+     * <br>A few threads are enough to hide the latency of the file system, more would slow down the other file operations
+     * of the synchronization.
+     */
+    public static final int DEFAULT_DELETE_PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
 
     final Path rootPath;
+    final Path trashPath;
+    private int deleteParallelism;
+    private ForkJoinPool deletePool;
+    private ForkJoinPool purgePool;
+    private ForkJoinPool scanPool;
 
     static {
         try {
@@ -41,11 +69,99 @@ public class LocalProvider extends AbstractFileProvider {
      * @param rootPath the path of the folder that will be the root of the provider.
      */
     public LocalProvider(Path rootPath) {
-        super(true, List.of(HashAlgorithm.values()), false);
+        super(true, List.of(HashAlgorithm.values()), true);
         this.rootPath = rootPath.toAbsolutePath();
         if (!Files.isDirectory(this.rootPath)) {
             throw new IllegalArgumentException("Root path (" + rootPath + ") must be a directory");
         }
+        this.trashPath = this.rootPath.resolve(TRASH_NAME);
+        this.deleteParallelism = DEFAULT_DELETE_PARALLELISM;
+    }
+
+    /**
+     * Returns the root folder of this provider.
+     * @return an absolute path
+     */
+    public Path getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>The identifier of a local provider contains its root path.
+     */
+    @Override
+    public String getId() {
+        return getClass().getName() + ':' + rootPath;
+    }
+
+    /**
+     * Returns the number of threads used to delete folders.
+     * @return the number of threads used to delete folders
+     * @see #setDeleteParallelism(int)
+     */
+    public int getDeleteParallelism() {
+        return deleteParallelism;
+    }
+
+    /**
+     * Sets the number of threads used to delete folders.
+     * <br>Deleting a folder deletes its whole tree, which can take a long time for large trees.
+     * Such deletions are performed by a fork-join pool shared by all folder deletions of this provider.
+     * <br>The trash is purged by another pool, with the same number of threads, whose threads have the minimum priority.
+     * @param deleteParallelism the number of threads used to delete folders. Default is {@link #DEFAULT_DELETE_PARALLELISM}.
+     * @throws IllegalArgumentException if deleteParallelism is &lt; 1
+     */
+    public synchronized void setDeleteParallelism(int deleteParallelism) {
+        if (deleteParallelism < 1) {
+            throw new IllegalArgumentException("deleteParallelism must be >= 1");
+        }
+        if (deleteParallelism != this.deleteParallelism) {
+            shutdownPools();
+        }
+        this.deleteParallelism = deleteParallelism;
+    }
+
+    synchronized ForkJoinPool deletePool() {
+        if (deletePool == null) {
+            deletePool = new ForkJoinPool(deleteParallelism);
+        }
+        return deletePool;
+    }
+
+    /**
+     * Gets the pool that scans the trees of the preloaded folders.
+     * <br>The scans do not run in the pool of the calling thread (or the common pool), which may be used by other tasks.
+     * @return a fork-join pool with one thread per available processor
+     */
+    synchronized ForkJoinPool scanPool() {
+        if (scanPool == null) {
+            scanPool = new ForkJoinPool();
+        }
+        return scanPool;
+    }
+
+    private synchronized ForkJoinPool purgePool() {
+        if (purgePool == null) {
+            purgePool = new ForkJoinPool(deleteParallelism, pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                // Purging the trash is a background job, it should not slow down the synchronizations
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }, null, false);
+        }
+        return purgePool;
+    }
+
+    private synchronized void shutdownPools() {
+        if (deletePool != null) {
+            deletePool.shutdown();
+            deletePool = null;
+        }
+        if (purgePool != null) {
+            purgePool.shutdown();
+            purgePool = null;
+        }
     }
 
     @Override
@@ -53,16 +169,99 @@ public class LocalProvider extends AbstractFileProvider {
         return CREATION_TIME_PRECISION;
     }
 
+    @Override
+    public boolean isWatchSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean isTrashSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean isMoveSupported() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>This provider supports the direct copy of the files of any local provider.
+     */
+    @Override
+    public boolean isDirectCopySupported(FileProvider source) {
+        return source instanceof LocalProvider;
+    }
+
     @Override
     public Entry get(String path) throws IOException {
-        this.checkPath(path);
+        final List<String> names = this.checkPath(path);
+        if (!names.isEmpty() && TRASH_NAME.equals(names.get(0))) {
+            throw new IllegalArgumentException("Trash folder can't be accessed: " + path);
+        }
         if (path.startsWith("/")) {
             path = path.substring(1);
         }
         return new LocalFile(rootPath.resolve(path), this);
     }
 
+    /**
+     * Converts a local path to the path of the entry in this provider.
+     * @param path a local path inside the root folder
+     * @return the path as accepted by {@link #get(String)}
+     */
+    String toProviderPath(Path path) {
+        final StringBuilder result = new StringBuilder();
+        for (Path name : rootPath.relativize(path.toAbsolutePath())) {
+            if (!name.toString().isEmpty()) {
+                result.append('/').append(name);
+            }
+        }
+        return result.toString();
+    }
+
     void checkWriteable() throws IOException {
         super.checkReadOnly();
     }
+
+    /**
+     * Moves a path to the trash.
+     * @param path the path to move
+     * @throws IOException if an I/O error occurs
+     */
+    void moveToTrash(Path path) throws IOException {
+        Files.createDirectories(trashPath);
+        // Use a unique name, entries with the same name can be trashed from different folders
+        Files.move(path, trashPath.resolve(UUID.randomUUID().toString()), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void purgeTrash(LongConsumer deletedFilesListener, BooleanSupplier cancelled) throws IOException {
+        checkWriteable();
+        if (!Files.isDirectory(trashPath)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(trashPath)) {
+            for (Path trashed : stream) {
+                // Do not follow links, purging a link to a folder should not delete the folder's content
+                if (Files.isDirectory(trashed, LinkOption.NOFOLLOW_LINKS)) {
+                    new ParallelDeleter(purgePool(), deletedFilesListener, cancelled).delete(trashed);
+                } else {
+                    Files.delete(trashed);
+                    deletedFilesListener.accept(1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        shutdownPools();
+        synchronized (this) {
+            if (scanPool != null) {
+                scanPool.shutdown();
+                scanPool = null;
+            }
+        }
+    }
 }
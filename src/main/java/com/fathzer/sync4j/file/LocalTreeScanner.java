@@ -0,0 +1,258 @@
+package com.fathzer.sync4j.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.helper.CompactTree;
+import com.fathzer.sync4j.helper.DiskTree;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A scanner that captures the attributes of all the entries of a local folder tree in a {@link CompactTree} or a {@link DiskTree}.
+ * <br>Like {@link LocalFile}, the scanner follows symbolic links: a link to a file is captured as a file, a link to a folder as a folder.
+ * Broken links, and links to a folder that contains them (which would make the tree infinite), are captured as entries that are neither
+ * a file nor a folder.
+ * <br>Read operations on the returned folder are served from the captured data without any system call; write operations are performed
+ * on the file system (but do not update the captured data).
+ */
+class LocalTreeScanner {
+    private LocalTreeScanner() {
+    }
+
+    /**
+     * The destination of the scanned entries.
+     * @param <T> the type of the reference to a folder in the destination
+     */
+    private interface Sink<T> {
+        /**
+         * Creates the buffer of the children of a folder.
+         * @param parent the reference to the folder
+         * @return a buffer, filled by a single thread
+         */
+        Children<T> children(T parent);
+    }
+
+    /**
+     * The children of a scanned folder.
+     * @param <T> the type of the reference to a folder in the destination
+     */
+    private interface Children<T> {
+        void addFolder(String name, long lastModified) throws IOException;
+        void addFile(String name, long size, long lastModified) throws IOException;
+        void addOther(String name, long lastModified) throws IOException;
+
+        /**
+         * Flushes the children to the destination.
+         * @return the references to the added folders, in the order they were added
+         * @throws IOException if an I/O error occurs
+         */
+        List<T> flush() throws IOException;
+    }
+
+    /**
+     * Scans a folder tree in memory.
+     * <br>Sub-folders are scanned in parallel by the scan pool of the provider. The children of each folder are collected without lock,
+     * then added to the tree at once.
+     * @param folder the folder to scan
+     * @param provider the provider of the folder
+     * @return the preloaded folder
+     * @throws IOException if an I/O error occurs
+     */
+    static Folder scan(@Nonnull Path folder, @Nonnull LocalProvider provider) throws IOException {
+        final BasicFileAttributes attributes = readFolderAttributes(folder);
+        final CompactTree tree = new CompactTree(provider, provider.toProviderPath(folder), attributes.lastModifiedTime().toMillis());
+        scan(folder, attributes, provider, parent -> new Children<Integer>() {
+            private final CompactTree.Chunk chunk = new CompactTree.Chunk();
+            private final List<Integer> folders = new ArrayList<>();
+
+            @Override
+            public void addFolder(String name, long lastModified) {
+                folders.add(chunk.addFolder(name, lastModified));
+            }
+
+            @Override
+            public void addFile(String name, long size, long lastModified) {
+                chunk.addFile(name, size, lastModified);
+            }
+
+            @Override
+            public void addOther(String name, long lastModified) {
+                chunk.addOther(name, lastModified);
+            }
+
+            @Override
+            public List<Integer> flush() {
+                final int first = tree.add(parent, chunk);
+                return folders.stream().map(position -> first + position).toList();
+            }
+        }, CompactTree.ROOT);
+        return tree.root();
+    }
+
+    /**
+     * Scans a folder tree in files of a work directory.
+     * <br>Sub-folders are scanned in parallel by the scan pool of the provider.
+     * @param folder the folder to scan
+     * @param provider the provider of the folder
+     * @param workDirectory the directory where the files of the tree are created
+     * @return the preloaded folder
+     * @throws IOException if an I/O error occurs
+     */
+    static Folder scan(@Nonnull Path folder, @Nonnull LocalProvider provider, @Nonnull Path workDirectory) throws IOException {
+        final BasicFileAttributes attributes = readFolderAttributes(folder);
+        final String rootPath = provider.toProviderPath(folder);
+        try (DiskTree.Writer writer = DiskTree.writer(provider, rootPath, attributes.lastModifiedTime().toMillis(), workDirectory, null)) {
+            scan(folder, attributes, provider, parent -> new Children<String>() {
+                private final List<String> folders = new ArrayList<>();
+
+                @Override
+                public void addFolder(String name, long lastModified) throws IOException {
+                    writer.addFolder(parent, name, lastModified);
+                    folders.add(parent + "/" + name);
+                }
+
+                @Override
+                public void addFile(String name, long size, long lastModified) throws IOException {
+                    writer.addFile(parent, name, size, lastModified, null);
+                }
+
+                @Override
+                public void addOther(String name, long lastModified) throws IOException {
+                    writer.addOther(parent, name, lastModified);
+                }
+
+                @Override
+                public List<String> flush() {
+                    return folders;
+                }
+            }, rootPath);
+            return writer.finish().root();
+        }
+    }
+
+    private static BasicFileAttributes readFolderAttributes(Path folder) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(folder, BasicFileAttributes.class);
+        if (!attributes.isDirectory()) {
+            throw new IOException("Folder does not exist: " + folder);
+        }
+        return attributes;
+    }
+
+    private static <T> void scan(Path folder, BasicFileAttributes attributes, LocalProvider provider, Sink<T> sink, T root) throws IOException {
+        final Path absolute = folder.toAbsolutePath();
+        try {
+            provider.scanPool().invoke(new ScanTask<>(absolute, identity(absolute, attributes), null, provider, sink, root));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Gets an object that identifies a folder, whatever the path (possibly through links) used to reach it.
+     * @param folder a folder
+     * @param attributes the attributes of the folder
+     * @return the file key of the folder, or its real path if the file system has no file keys
+     * @throws IOException if an I/O error occurs
+     */
+    private static Object identity(Path folder, BasicFileAttributes attributes) throws IOException {
+        final Object key = attributes.fileKey();
+        return key == null ? folder.toRealPath() : key;
+    }
+
+    /**
+     * Reads the attributes of an entry, following links.
+     * @param entry an entry
+     * @return the attributes of the entry, or the attributes of the link if it is broken
+     * @throws IOException if an I/O error occurs
+     */
+    private static BasicFileAttributes readAttributes(Path entry) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isSymbolicLink()) {
+            return attributes;
+        }
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class);
+        } catch (NoSuchFileException | FileSystemLoopException e) {
+            return attributes;
+        }
+    }
+
+    /**
+     * The identities of the folders from the scanned root to a folder.
+     */
+    private record Ancestors(Object identity, Ancestors parent) {
+        private boolean contains(Object folderIdentity) {
+            for (Ancestors ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (ancestor.identity.equals(folderIdentity)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class ScanTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Path folder;
+        private final transient Ancestors ancestors;
+        private final transient LocalProvider provider;
+        private final transient Sink<T> sink;
+        private final transient T reference;
+
+        private ScanTask(Path folder, Object identity, Ancestors parentAncestors, LocalProvider provider, Sink<T> sink, T reference) {
+            this.folder = folder;
+            this.ancestors = new Ancestors(identity, parentAncestors);
+            this.provider = provider;
+            this.sink = sink;
+            this.reference = reference;
+        }
+
+        @Override
+        protected void compute() {
+            final List<Path> folders = new ArrayList<>();
+            final List<Object> identities = new ArrayList<>();
+            final List<T> references;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+                final Children<T> children = sink.children(reference);
+                for (Path child : stream) {
+                    if (child.equals(provider.trashPath)) {
+                        continue;
+                    }
+                    final BasicFileAttributes attributes = readAttributes(child);
+                    final String name = child.getFileName().toString();
+                    final long lastModified = attributes.lastModifiedTime().toMillis();
+                    final Object identity = attributes.isDirectory() ? identity(child, attributes) : null;
+                    if (identity != null && !ancestors.contains(identity)) {
+                        children.addFolder(name, lastModified);
+                        folders.add(child);
+                        identities.add(identity);
+                    } else if (attributes.isRegularFile()) {
+                        children.addFile(name, attributes.size(), lastModified);
+                    } else {
+                        children.addOther(name, lastModified);
+                    }
+                }
+                references = children.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            final List<ScanTask<T>> subTasks = new ArrayList<>(folders.size());
+            for (int i = 0; i < folders.size(); i++) {
+                subTasks.add(new ScanTask<>(folders.get(i), identities.get(i), ancestors, provider, sink, references.get(i)));
+            }
+            invokeAll(subTasks);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.fathzer.sync4j.file;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fathzer.sync4j.Folder.ChangeListener;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A recursive watcher of a local folder tree based on a {@link WatchService}.
+ * <br>Every folder of the tree is registered in the watch service (folders created later are registered when their creation is detected).
+ * A daemon thread reports the changes to a {@link ChangeListener}.
+ * <br>When the watch service reports an overflow, or when a new folder is registered (its content may have changed
+ * before registration), the listener is notified that the whole subtree should be checked.
+ */
+class LocalWatcher implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(LocalWatcher.class.getName());
+
+    private final LocalProvider provider;
+    private final ChangeListener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> keys;
+
+    /**
+     * Constructor.
+     * <br>Once the constructor returns, all the folders of the tree are registered.
+     * @param provider the provider of the watched folder
+     * @param root the root of the watched tree
+     * @param listener the listener to notify
+     * @throws IOException if an I/O error occurs
+     */
+    LocalWatcher(@Nonnull LocalProvider provider, @Nonnull Path root, @Nonnull ChangeListener listener) throws IOException {
+        this.provider = Objects.requireNonNull(provider);
+        this.listener = Objects.requireNonNull(listener);
+        this.watchService = root.getFileSystem().newWatchService();
+        this.keys = new ConcurrentHashMap<>();
+        try {
+            registerTree(root);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        final Thread thread = new Thread(this::run, "local-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.equals(provider.trashPath)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                final Path folder = keys.get(key);
+                if (folder != null) {
+                    processEvents(key, folder);
+                }
+                if (!key.reset()) {
+                    // The folder was deleted or is no more accessible
+                    keys.remove(key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // The watcher was closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void processEvents(WatchKey key, Path folder) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Some events were lost
+                listener.changed(provider.toProviderPath(folder), true);
+                return;
+            }
+            final Path child = folder.resolve((Path) event.context());
+            if (child.equals(provider.trashPath)) {
+                continue;
+            }
+            changed = true;
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                registerCreatedFolder(child);
+            }
+        }
+        if (changed) {
+            listener.changed(provider.toProviderPath(folder), false);
+        }
+    }
+
+    private void registerCreatedFolder(Path folder) {
+        try {
+            registerTree(folder);
+        } catch (IOException e) {
+            // The folder may have been deleted just after its creation
+            LOGGER.log(Level.FINE, e, () -> "Unable to watch " + folder);
+        }
+        // Entries may have been created in the folder before it was registered
+        listener.changed(provider.toProviderPath(folder), true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
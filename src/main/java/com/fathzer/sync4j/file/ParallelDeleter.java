@@ -0,0 +1,141 @@
+package com.fathzer.sync4j.file;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A fork-join engine that deletes a folder tree.
+ * <br>Each folder is listed by its own task, sub-folders are deleted by forked tasks and files are deleted by batches
+ * (also forked), so that large flat folders are deleted in parallel too.
+ * A folder is deleted once all its children are deleted.
+ */
+class ParallelDeleter {
+    /** The maximum number of files deleted by a single task. */
+    static final int BATCH_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final LongConsumer deletedFilesListener;
+    private final BooleanSupplier cancelled;
+
+    /**
+     * Constructor.
+     * @param pool the pool that will run the deletion tasks
+     * @param deletedFilesListener a listener called with the number of files deleted by each batch
+     * @param cancelled a supplier that returns true when the deletion should be stopped
+     */
+    ParallelDeleter(@Nonnull ForkJoinPool pool, @Nonnull LongConsumer deletedFilesListener, @Nonnull BooleanSupplier cancelled) {
+        this.pool = Objects.requireNonNull(pool);
+        this.deletedFilesListener = Objects.requireNonNull(deletedFilesListener);
+        this.cancelled = Objects.requireNonNull(cancelled);
+    }
+
+    /**
+     * Deletes a folder and all its content.
+     * <br>This method blocks until the deletion is complete.
+     * @param folder the folder to delete
+     * @throws InterruptedIOException if the deletion was cancelled
+     * @throws IOException if an I/O error occurs
+     */
+    void delete(@Nonnull Path folder) throws IOException {
+        try {
+            pool.invoke(new FolderDeletion(folder));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void checkCancelled(Path path) {
+        if (cancelled.getAsBoolean()) {
+            throw new UncheckedIOException(new InterruptedIOException("Deletion of " + path + " was cancelled"));
+        }
+    }
+
+    private class FolderDeletion extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Path folder;
+
+        private FolderDeletion(Path folder) {
+            this.folder = folder;
+        }
+
+        @Override
+        protected void compute() {
+            checkCancelled(folder);
+            final List<ForkJoinTask<?>> subTasks = new ArrayList<>();
+            try {
+                List<Path> files = new ArrayList<>(BATCH_SIZE);
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+                    for (Path child : stream) {
+                        checkCancelled(folder);
+                        if (Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isDirectory()) {
+                            subTasks.add(new FolderDeletion(child).fork());
+                        } else {
+                            files.add(child);
+                            if (files.size() == BATCH_SIZE) {
+                                subTasks.add(new FilesDeletion(files).fork());
+                                files = new ArrayList<>(BATCH_SIZE);
+                            }
+                        }
+                    }
+                }
+                // The last batch is deleted by this thread
+                new FilesDeletion(files).compute();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                // Wait for all forked tasks, even if one failed, before reporting the error
+                subTasks.forEach(ForkJoinTask::quietlyJoin);
+            }
+            // Rethrows the exception of the first failed task (if any)
+            subTasks.forEach(ForkJoinTask::join);
+            try {
+                Files.delete(folder);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private class FilesDeletion extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient List<Path> files;
+
+        private FilesDeletion(List<Path> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            long deleted = 0;
+            try {
+                for (Path file : files) {
+                    checkCancelled(file);
+                    Files.delete(file);
+                    deleted++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (deleted > 0) {
+                    deletedFilesListener.accept(deleted);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.fathzer.sync4j.helper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A compact representation of a preloaded folder tree, that {@link Folder#preload()} implementations can fill.
+ * <br>Instead of a graph of {@link Entry} objects, the tree is stored in parallel primitive arrays (parent, first child, next sibling,
+ * name reference, size and last modified time), split into pages to avoid large copies when the tree grows.
+ * Names are stored once, UTF-8 encoded, in a deduplicated byte arena.
+ * <br>An entry costs about 32 bytes, plus the bytes of its name if this name was never met before.
+ * <br>The tree is exposed through lightweight flyweight views, created on demand, which implement {@link File} and {@link Folder}.
+ * Views serve the tree structure, sizes and last modified times from the arrays. Other operations (content, hash, creation time,
+ * write operations, etc...) are delegated to the entry returned by the provider for the view's path.
+ * <br>Entries can be added by several threads, but the adds are serialized: each one holds the lock of the tree. Threads that fill the tree
+ * concurrently should collect the children of a folder in a {@link Chunk}, which requires no lock, then add it with {@link #add(int, Chunk)},
+ * which holds the lock once for all the entries of the chunk.
+ * <br>The tree should be fully built before its views are used.
+ */
+public final class CompactTree {
+    /** The index of the root folder. */
+    public static final int ROOT = 0;
+
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int NONE = -1;
+    private static final long FOLDER = -1;
+    private static final long OTHER = -2;
+
+    private final FileProvider provider;
+    private final String rootPath;
+    private int count;
+    private int[][] parents = new int[0][];
+    private int[][] firstChildren = new int[0][];
+    private int[][] nextSiblings = new int[0][];
+    private int[][] names = new int[0][];
+    private long[][] sizes = new long[0][];
+    private long[][] modified = new long[0][];
+
+    private byte[] arena = new byte[4096];
+    private int arenaSize;
+    /** Open addressing hash table of names, values are arena offsets + 1 (0 is an empty slot). */
+    private int[] nameTable = new int[1024];
+    private int distinctNames;
+
+    /**
+     * Creates a tree whose root is a folder.
+     * @param provider the provider of the preloaded folder
+     * @param rootPath the path of the preloaded folder in its provider
+     * @param rootLastModified the last modified time of the preloaded folder
+     */
+    public CompactTree(@Nonnull FileProvider provider, @Nonnull String rootPath, long rootLastModified) {
+        this.provider = Objects.requireNonNull(provider);
+        this.rootPath = Objects.requireNonNull(rootPath);
+        store(NONE, encode(PathUtils.getName(rootPath)), FOLDER, rootLastModified);
+    }
+
+    /**
+     * Adds a folder.
+     * @param parent the index of the parent folder
+     * @param name the name of the folder
+     * @param lastModified the last modified time of the folder
+     * @return the index of the added folder
+     */
+    public int addFolder(int parent, @Nonnull String name, long lastModified) {
+        return add(parent, encode(name), FOLDER, lastModified);
+    }
+
+    /**
+     * Adds a file.
+     * @param parent the index of the parent folder
+     * @param name the name of the file
+     * @param size the size of the file
+     * @param lastModified the last modified time of the file
+     * @return the index of the added file
+     */
+    public int addFile(int parent, @Nonnull String name, long size, long lastModified) {
+        return add(parent, encode(name), checkSize(size), lastModified);
+    }
+
+    /**
+     * Adds an entry that is neither a file nor a folder (for instance a symbolic link).
+     * @param parent the index of the parent folder
+     * @param name the name of the entry
+     * @param lastModified the last modified time of the entry
+     * @return the index of the added entry
+     */
+    public int addOther(int parent, @Nonnull String name, long lastModified) {
+        return add(parent, encode(name), OTHER, lastModified);
+    }
+
+    /**
+     * Adds all the entries of a chunk to a folder.
+     * <br>The entries of the chunk get consecutive indexes, in the order they were added to the chunk.
+     * The chunk is left unchanged, it can be reused.
+     * @param parent the index of the parent folder
+     * @param chunk the entries to add
+     * @return the index of the first entry of the chunk (the index of its i<sup>th</sup> entry is the returned index + i)
+     */
+    public synchronized int add(int parent, @Nonnull Chunk chunk) {
+        checkParent(parent);
+        final int first = count;
+        for (int i = 0; i < chunk.count; i++) {
+            store(parent, chunk.names[i], chunk.sizes[i], chunk.modified[i]);
+        }
+        return first;
+    }
+
+    /**
+     * The entries of a folder, collected before being added to a tree with {@link CompactTree#add(int, Chunk)}.
+     * <br>A chunk is not thread-safe; it is intended to be filled by a single thread, without holding the lock of the tree.
+     */
+    public static final class Chunk {
+        private int count;
+        private byte[][] names = new byte[16][];
+        private long[] sizes = new long[16];
+        private long[] modified = new long[16];
+
+        /**
+         * Adds a folder.
+         * @param name the name of the folder
+         * @param lastModified the last modified time of the folder
+         * @return the position of the folder in this chunk
+         */
+        public int addFolder(@Nonnull String name, long lastModified) {
+            return add(name, FOLDER, lastModified);
+        }
+
+        /**
+         * Adds a file.
+         * @param name the name of the file
+         * @param size the size of the file
+         * @param lastModified the last modified time of the file
+         * @return the position of the file in this chunk
+         */
+        public int addFile(@Nonnull String name, long size, long lastModified) {
+            return add(name, checkSize(size), lastModified);
+        }
+
+        /**
+         * Adds an entry that is neither a file nor a folder (for instance a symbolic link).
+         * @param name the name of the entry
+         * @param lastModified the last modified time of the entry
+         * @return the position of the entry in this chunk
+         */
+        public int addOther(@Nonnull String name, long lastModified) {
+            return add(name, OTHER, lastModified);
+        }
+
+        private int add(String name, long size, long lastModified) {
+            if (count == sizes.length) {
+                final int capacity = count * 2;
+                names = Arrays.copyOf(names, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                modified = Arrays.copyOf(modified, capacity);
+            }
+            names[count] = encode(name);
+            sizes[count] = size;
+            modified[count] = lastModified;
+            return count++;
+        }
+
+        /**
+         * Gets the number of entries in this chunk.
+         * @return a positive or null integer
+         */
+        public int size() {
+            return count;
+        }
+    }
+
+    private static byte[] encode(String name) {
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long checkSize(long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size can't be negative");
+        }
+        return size;
+    }
+
+    private synchronized int add(int parent, byte[] name, long size, long lastModified) {
+        return store(checkParent(parent), name, size, lastModified);
+    }
+
+    private int checkParent(int parent) {
+        if (parent < 0 || parent >= count || sizes[page(parent)][offset(parent)] != FOLDER) {
+            throw new IllegalArgumentException("Parent " + parent + " is not a folder");
+        }
+        return parent;
+    }
+
+    private int store(int parent, byte[] name, long size, long lastModified) {
+        final int index = count;
+        final int page = page(index);
+        if (page == sizes.length) {
+            addPage();
+        }
+        final int offset = offset(index);
+        parents[page][offset] = parent;
+        firstChildren[page][offset] = NONE;
+        names[page][offset] = intern(name);
+        sizes[page][offset] = size;
+        modified[page][offset] = lastModified;
+        if (parent == NONE) {
+            nextSiblings[page][offset] = NONE;
+        } else {
+            // Prepend the new entry to the children of its parent
+            nextSiblings[page][offset] = firstChildren[page(parent)][offset(parent)];
+            firstChildren[page(parent)][offset(parent)] = index;
+        }
+        count++;
+        return index;
+    }
+
+    private void addPage() {
+        final int pages = sizes.length + 1;
+        parents = Arrays.copyOf(parents, pages);
+        parents[pages - 1] = new int[PAGE_SIZE];
+        firstChildren = Arrays.copyOf(firstChildren, pages);
+        firstChildren[pages - 1] = new int[PAGE_SIZE];
+        nextSiblings = Arrays.copyOf(nextSiblings, pages);
+        nextSiblings[pages - 1] = new int[PAGE_SIZE];
+        names = Arrays.copyOf(names, pages);
+        names[pages - 1] = new int[PAGE_SIZE];
+        sizes = Arrays.copyOf(sizes, pages);
+        sizes[pages - 1] = new long[PAGE_SIZE];
+        modified = Arrays.copyOf(modified, pages);
+        modified[pages - 1] = new long[PAGE_SIZE];
+    }
+
+    private static int page(int index) {
+        return index >>> PAGE_BITS;
+    }
+
+    private static int offset(int index) {
+        return index & PAGE_MASK;
+    }
+
+    /**
+     * Gets the number of entries in this tree (including its root).
+     * @return a positive integer
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the number of bytes used to store the distinct names.
+     * @return a positive or null integer
+     */
+    public int namesSize() {
+        return arenaSize;
+    }
+
+    /**
+     * Gets the root folder of this tree.
+     * @return a folder view
+     */
+    @Nonnull
+    public Folder root() {
+        return new View(ROOT);
+    }
+
+    private int intern(byte[] name) {
+        int slot = hash(name, 0, name.length) & (nameTable.length - 1);
+        while (nameTable[slot] != 0) {
+            final int nameOffset = nameTable[slot] - 1;
+            if (equals(nameOffset, name)) {
+                return nameOffset;
+            }
+            slot = (slot + 1) & (nameTable.length - 1);
+        }
+        final int nameOffset = append(name);
+        nameTable[slot] = nameOffset + 1;
+        distinctNames++;
+        if (distinctNames * 2 > nameTable.length) {
+            rehash();
+        }
+        return nameOffset;
+    }
+
+    private int append(byte[] name) {
+        final int required = arenaSize + name.length + 5;
+        if (required > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(required, arena.length + (arena.length >> 1)));
+        }
+        final int nameOffset = arenaSize;
+        // Length is stored as a varint
+        int length = name.length;
+        while (length >= 0x80) {
+            arena[arenaSize++] = (byte) (length | 0x80);
+            length >>>= 7;
+        }
+        arena[arenaSize++] = (byte) length;
+        System.arraycopy(name, 0, arena, arenaSize, name.length);
+        arenaSize += name.length;
+        return nameOffset;
+    }
+
+    private void rehash() {
+        final int[] table = new int[nameTable.length * 2];
+        for (int value : nameTable) {
+            if (value != 0) {
+                final int nameOffset = value - 1;
+                final int start = nameStart(nameOffset);
+                int slot = hash(arena, start, nameLength(nameOffset)) & (table.length - 1);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = value;
+            }
+        }
+        nameTable = table;
+    }
+
+    private int nameLength(int nameOffset) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = arena[nameOffset++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return length;
+    }
+
+    private int nameStart(int nameOffset) {
+        while ((arena[nameOffset] & 0x80) != 0) {
+            nameOffset++;
+        }
+        return nameOffset + 1;
+    }
+
+    private boolean equals(int nameOffset, byte[] name) {
+        return nameLength(nameOffset) == name.length && Arrays.equals(arena, nameStart(nameOffset), nameStart(nameOffset) + name.length, name, 0, name.length);
+    }
+
+    private static int hash(byte[] bytes, int from, int length) {
+        int h = 1;
+        for (int i = from; i < from + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private String name(int index) {
+        final int nameOffset = names[page(index)][offset(index)];
+        return new String(arena, nameStart(nameOffset), nameLength(nameOffset), StandardCharsets.UTF_8);
+    }
+
+    private final class View extends PreloadedEntry {
+        private final int index;
+
+        private View(int index) {
+            super(provider);
+            this.index = index;
+        }
+
+        private long size() {
+            return sizes[page(index)][offset(index)];
+        }
+
+        @Override
+        public boolean isFile() {
+            return size() >= 0;
+        }
+
+        @Override
+        public boolean isFolder() {
+            return size() == FOLDER;
+        }
+
+        @Override
+        public String getName() {
+            return name(index);
+        }
+
+        @Override
+        public Entry getParent() throws IOException {
+            return index == ROOT ? real().getParent() : new View(parents[page(index)][offset(index)]);
+        }
+
+        @Override
+        public String getPath() {
+            final List<String> segments = new ArrayList<>();
+            for (int current = index; current != ROOT; current = parents[page(current)][offset(current)]) {
+                segments.add(name(current));
+            }
+            final StringBuilder result = new StringBuilder(rootPath);
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                result.append('/').append(segments.get(i));
+            }
+            return result.toString();
+        }
+
+        @Override
+        public long getSize() {
+            return Math.max(size(), 0);
+        }
+
+        @Override
+        public long getLastModifiedTime() {
+            return modified[page(index)][offset(index)];
+        }
+
+        @Override
+        public List<Entry> list() throws IOException {
+            if (!isFolder()) {
+                throw new IOException("Not a folder: " + getPath());
+            }
+            final List<Entry> result = new ArrayList<>();
+            for (int child = firstChildren[page(index)][offset(index)]; child != NONE; child = nextSiblings[page(child)][offset(child)]) {
+                result.add(new View(child));
+            }
+            return result;
+        }
+    }
+}
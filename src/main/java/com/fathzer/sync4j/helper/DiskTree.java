@@ -0,0 +1,509 @@
+package com.fathzer.sync4j.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.HashAlgorithm;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * A preloaded folder tree stored in memory-mapped files, for trees that do not fit in memory.
+ * <br>The tree is filled through a {@link Writer}, in any order. Entries are buffered, sorted and spilled to temporary run files when the
+ * buffer is full. Once the tree is completed, the runs are merged in a data file where the entries are sorted by parent path, then name.
+ * So, the children of a folder are stored contiguously, and {@link Folder#list()} reads them sequentially (after a binary search in an
+ * index file that stores the position of each entry).
+ * <br>Only the views returned by {@link Folder#list()} are in memory. Like with {@link CompactTree}, they serve the tree structure and
+ * the captured attributes (size, last modified time and, optionally, hash), all other operations are delegated to the provider.
+ * <br>The files are deleted when the tree is closed.
+ */
+public final class DiskTree implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(DiskTree.class.getName());
+    private static final int DEFAULT_BUFFER_SIZE = 32 * 1024 * 1024;
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final byte FILE = 0;
+    private static final byte FOLDER = 1;
+    private static final byte OTHER = 2;
+    private static final Comparator<byte[]> KEY_COMPARATOR = (r1, r2) -> Arrays.compareUnsigned(r1, Integer.BYTES, Integer.BYTES + keyLength(r1),
+            r2, Integer.BYTES, Integer.BYTES + keyLength(r2));
+
+    private final FileProvider provider;
+    private final String rootPath;
+    private final long rootLastModified;
+    private final HashAlgorithm hashAlgorithm;
+    private final Path dataFile;
+    private final Path indexFile;
+    private final long count;
+    private volatile Mapping mapping;
+
+    /** The memory-mapped segments of the data and index files. */
+    private record Mapping(MappedByteBuffer[] data, MappedByteBuffer[] index) {}
+
+    /**
+     * A writer that fills a {@link DiskTree}.
+     * <br>Paths are the paths of the entries' parent folders in the provider. They should be equal to, or start with, the path of the
+     * tree's root folder.
+     * <br>Entries can be added concurrently.
+     */
+    public static final class Writer implements Closeable {
+        private final FileProvider provider;
+        private final String rootPath;
+        private final long rootLastModified;
+        private final Path directory;
+        private final HashAlgorithm hashAlgorithm;
+        private final List<Path> runs;
+        private final List<byte[]> buffer;
+        private int bufferSize;
+        private int maxBufferSize;
+
+        private Writer(FileProvider provider, String rootPath, long rootLastModified, Path directory, HashAlgorithm hashAlgorithm) {
+            this.provider = Objects.requireNonNull(provider);
+            this.rootPath = Objects.requireNonNull(rootPath);
+            this.rootLastModified = rootLastModified;
+            this.directory = Objects.requireNonNull(directory);
+            this.hashAlgorithm = hashAlgorithm;
+            this.runs = new ArrayList<>();
+            this.buffer = new ArrayList<>();
+            this.maxBufferSize = DEFAULT_BUFFER_SIZE;
+        }
+
+        /**
+         * Sets the maximum number of bytes of entries buffered in memory before they are spilled to disk.
+         * @param maxBufferSize a strictly positive integer
+         * @return this
+         */
+        Writer maxBufferSize(int maxBufferSize) {
+            this.maxBufferSize = maxBufferSize;
+            return this;
+        }
+
+        /**
+         * Adds a folder.
+         * @param parentPath the path of the parent folder
+         * @param name the name of the folder
+         * @param lastModified the last modified time of the folder
+         * @throws IOException if an I/O error occurs
+         */
+        public void addFolder(@Nonnull String parentPath, @Nonnull String name, long lastModified) throws IOException {
+            add(parentPath, name, FOLDER, 0, lastModified, null);
+        }
+
+        /**
+         * Adds a file.
+         * @param parentPath the path of the parent folder
+         * @param name the name of the file
+         * @param size the size of the file
+         * @param lastModified the last modified time of the file
+         * @param hash the hash of the file computed with the writer's hash algorithm, or null if it is unknown
+         * @throws IOException if an I/O error occurs
+         */
+        public void addFile(@Nonnull String parentPath, @Nonnull String name, long size, long lastModified, @Nullable String hash) throws IOException {
+            add(parentPath, name, FILE, size, lastModified, hash);
+        }
+
+        /**
+         * Adds an entry that is neither a file nor a folder (for instance a symbolic link).
+         * @param parentPath the path of the parent folder
+         * @param name the name of the entry
+         * @param lastModified the last modified time of the entry
+         * @throws IOException if an I/O error occurs
+         */
+        public void addOther(@Nonnull String parentPath, @Nonnull String name, long lastModified) throws IOException {
+            add(parentPath, name, OTHER, 0, lastModified, null);
+        }
+
+        private void add(String parentPath, String name, byte type, long size, long lastModified, String hash) throws IOException {
+            if (!parentPath.equals(rootPath) && !parentPath.startsWith(rootPath + "/")) {
+                throw new IllegalArgumentException(parentPath + " is not in " + rootPath);
+            }
+            final byte[] key = key(parentPath, name);
+            final byte[] hashBytes = hash == null ? null : hash.getBytes(StandardCharsets.UTF_8);
+            final ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + key.length + 1 + 2 * Long.BYTES + Integer.BYTES + (hashBytes == null ? 0 : hashBytes.length));
+            record.putInt(key.length).put(key).put(type).putLong(size).putLong(lastModified);
+            if (hashBytes == null) {
+                record.putInt(-1);
+            } else {
+                record.putInt(hashBytes.length).put(hashBytes);
+            }
+            synchronized (this) {
+                buffer.add(record.array());
+                bufferSize += record.capacity();
+                if (bufferSize >= maxBufferSize) {
+                    spill();
+                }
+            }
+        }
+
+        private void spill() throws IOException {
+            buffer.sort(KEY_COMPARATOR);
+            final Path run = Files.createTempFile(directory, "tree", ".run");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+                for (byte[] record : buffer) {
+                    out.writeInt(record.length);
+                    out.write(record);
+                }
+            }
+            buffer.clear();
+            bufferSize = 0;
+        }
+
+        /**
+         * Completes the tree.
+         * <br>The runs are merged in the tree's files, then deleted.
+         * @return the tree
+         * @throws IOException if an I/O error occurs
+         */
+        @Nonnull
+        public synchronized DiskTree finish() throws IOException {
+            if (!buffer.isEmpty()) {
+                spill();
+            }
+            final Path dataFile = Files.createTempFile(directory, "tree", ".data");
+            final Path indexFile = Files.createTempFile(directory, "tree", ".index");
+            try {
+                final long count = merge(dataFile, indexFile);
+                return new DiskTree(this, dataFile, indexFile, count);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(dataFile);
+                Files.deleteIfExists(indexFile);
+                throw e;
+            } finally {
+                close();
+            }
+        }
+
+        private long merge(Path dataFile, Path indexFile) throws IOException {
+            final List<DataInputStream> inputs = new ArrayList<>(runs.size());
+            try (DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile)));
+                    DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+                final PriorityQueue<Head> heads = new PriorityQueue<>((h1, h2) -> KEY_COMPARATOR.compare(h1.record, h2.record));
+                for (Path run : runs) {
+                    final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+                    inputs.add(in);
+                    final byte[] record = next(in);
+                    if (record != null) {
+                        heads.add(new Head(in, record));
+                    }
+                }
+                long position = 0;
+                long count = 0;
+                while (!heads.isEmpty()) {
+                    final Head head = heads.poll();
+                    indexOut.writeLong(position);
+                    dataOut.writeInt(head.record.length);
+                    dataOut.write(head.record);
+                    position += Integer.BYTES + head.record.length;
+                    count++;
+                    final byte[] record = next(head.in);
+                    if (record != null) {
+                        heads.add(new Head(head.in, record));
+                    }
+                }
+                return count;
+            } finally {
+                for (DataInputStream in : inputs) {
+                    in.close();
+                }
+            }
+        }
+
+        private static byte[] next(DataInputStream in) throws IOException {
+            final int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            final byte[] record = new byte[length];
+            in.readFully(record);
+            return record;
+        }
+
+        private record Head(DataInputStream in, byte[] record) {}
+
+        /**
+         * Deletes the runs written by this writer.
+         * <br>This method should be called if the writer is abandoned before {@link #finish()} is called.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+            buffer.clear();
+            bufferSize = 0;
+        }
+    }
+
+    /**
+     * Creates a writer.
+     * @param provider the provider of the preloaded folder
+     * @param rootPath the path of the preloaded folder in its provider
+     * @param rootLastModified the last modified time of the preloaded folder
+     * @param directory the directory where the files of the tree are created
+     * @param hashAlgorithm the algorithm of the hashes passed to {@link Writer#addFile(String, String, long, long, String)}, or null if no hash is passed
+     * @return a new writer
+     */
+    @Nonnull
+    public static Writer writer(@Nonnull FileProvider provider, @Nonnull String rootPath, long rootLastModified, @Nonnull Path directory,
+            @Nullable HashAlgorithm hashAlgorithm) {
+        return new Writer(provider, rootPath, rootLastModified, directory, hashAlgorithm);
+    }
+
+    private DiskTree(Writer writer, Path dataFile, Path indexFile, long count) throws IOException {
+        this.provider = writer.provider;
+        this.rootPath = writer.rootPath;
+        this.rootLastModified = writer.rootLastModified;
+        this.hashAlgorithm = writer.hashAlgorithm;
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.count = count;
+        this.mapping = new Mapping(map(dataFile), map(indexFile));
+    }
+
+    private static MappedByteBuffer[] map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                final long position = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+            }
+            return segments;
+        }
+    }
+
+    private static void read(MappedByteBuffer[] segments, long position, byte[] destination) {
+        int done = 0;
+        while (done < destination.length) {
+            final MappedByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)];
+            final int offset = (int) (position % SEGMENT_SIZE);
+            final int length = Math.min(destination.length - done, segment.capacity() - offset);
+            segment.get(offset, destination, done, length);
+            done += length;
+            position += length;
+        }
+    }
+
+    private static byte[] key(String parentPath, String name) {
+        final byte[] parent = parentPath.getBytes(StandardCharsets.UTF_8);
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        // Parent and name are separated by a 0 (that can't be in a path), so all the children of a folder are sorted before the children
+        // of its sub-folders
+        final byte[] key = new byte[parent.length + 1 + nameBytes.length];
+        System.arraycopy(parent, 0, key, 0, parent.length);
+        System.arraycopy(nameBytes, 0, key, parent.length + 1, nameBytes.length);
+        return key;
+    }
+
+    private static int keyLength(byte[] record) {
+        return ByteBuffer.wrap(record).getInt(0);
+    }
+
+    /**
+     * Gets the number of entries in this tree (excluding its root).
+     * @return a positive or null long
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Gets the root folder of this tree.
+     * @return a folder view
+     */
+    @Nonnull
+    public Folder root() {
+        return new View(rootPath, FOLDER, 0, rootLastModified, null);
+    }
+
+    private byte[] record(long recordIndex) {
+        final Mapping mapped = mapping;
+        if (mapped == null) {
+            throw new IllegalStateException("Tree is closed");
+        }
+        final byte[] position = new byte[Long.BYTES];
+        read(mapped.index(), recordIndex * Long.BYTES, position);
+        final long offset = ByteBuffer.wrap(position).getLong();
+        final byte[] length = new byte[Integer.BYTES];
+        read(mapped.data(), offset, length);
+        final byte[] record = new byte[ByteBuffer.wrap(length).getInt()];
+        read(mapped.data(), offset + Integer.BYTES, record);
+        return record;
+    }
+
+    /** Returns the index of the first record whose key is greater than or equal to the given key. */
+    private long lowerBound(byte[] key) {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            final long middle = (low + high) >>> 1;
+            final byte[] record = record(middle);
+            if (Arrays.compareUnsigned(record, Integer.BYTES, Integer.BYTES + keyLength(record), key, 0, key.length) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private View view(String parentPath, byte[] record) {
+        final ByteBuffer buffer = ByteBuffer.wrap(record);
+        final int keyLength = buffer.getInt();
+        final int nameStart = Integer.BYTES + parentPath.getBytes(StandardCharsets.UTF_8).length + 1;
+        final String name = new String(record, nameStart, Integer.BYTES + keyLength - nameStart, StandardCharsets.UTF_8);
+        buffer.position(Integer.BYTES + keyLength);
+        final byte type = buffer.get();
+        final long size = buffer.getLong();
+        final long lastModified = buffer.getLong();
+        final int hashLength = buffer.getInt();
+        final String hash = hashLength < 0 ? null : new String(record, buffer.position(), hashLength, StandardCharsets.UTF_8);
+        return new View(parentPath + "/" + name, type, size, lastModified, hash);
+    }
+
+    private List<Entry> list(String path) {
+        final byte[] prefix = key(path, "");
+        final List<Entry> result = new ArrayList<>();
+        for (long i = lowerBound(prefix); i < count; i++) {
+            final byte[] record = record(i);
+            if (keyLength(record) < prefix.length || Arrays.compareUnsigned(record, Integer.BYTES, Integer.BYTES + prefix.length, prefix, 0, prefix.length) != 0) {
+                break;
+            }
+            result.add(view(path, record));
+        }
+        return result;
+    }
+
+    private View find(String path) {
+        final String parentPath = PathUtils.getParent(path);
+        final byte[] key = key(parentPath, PathUtils.getName(path));
+        final long i = lowerBound(key);
+        if (i < count) {
+            final byte[] record = record(i);
+            if (Arrays.equals(record, Integer.BYTES, Integer.BYTES + keyLength(record), key, 0, key.length)) {
+                return view(parentPath, record);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deletes the files of this tree.
+     * <br>The views of this tree should not be used once this method is called (their listing throws an {@link IllegalStateException}).
+     * <br>Java has no supported way to unmap a file: this method drops the references to the mapped segments, which are released when
+     * they are garbage collected. Until then, they still use address space and, on systems that can't delete a mapped file (Windows),
+     * the files are deleted when the JVM exits.
+     */
+    @Override
+    public void close() {
+        mapping = null;
+        for (Path file : List.of(dataFile, indexFile)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, e, () -> "Unable to delete " + file + ", it will be deleted when the JVM exits");
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private final class View extends PreloadedEntry {
+        private final String path;
+        private final byte type;
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private View(String path, byte type, long size, long lastModified, String hash) {
+            super(provider);
+            this.path = path;
+            this.type = type;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean isFile() {
+            return type == FILE;
+        }
+
+        @Override
+        public boolean isFolder() {
+            return type == FOLDER;
+        }
+
+        @Override
+        public String getName() {
+            return PathUtils.getName(path);
+        }
+
+        @Override
+        public Entry getParent() throws IOException {
+            if (path.equals(rootPath)) {
+                return real().getParent();
+            }
+            final String parentPath = PathUtils.getParent(path);
+            if (parentPath.equals(rootPath)) {
+                return root();
+            }
+            final View parent = find(parentPath);
+            return parent == null ? provider.get(parentPath) : parent;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public long getLastModifiedTime() {
+            return lastModified;
+        }
+
+        @Override
+        public String getHash(HashAlgorithm hashAlgorithm) throws IOException {
+            return hash != null && hashAlgorithm == DiskTree.this.hashAlgorithm ? hash : super.getHash(hashAlgorithm);
+        }
+
+        @Override
+        public List<Entry> list() throws IOException {
+            if (!isFolder()) {
+                throw new IOException("Not a folder: " + path);
+            }
+            return DiskTree.this.list(path);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.fathzer.sync4j.helper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.HashAlgorithm;
+
+/**
+ * A base class for the views of a preloaded tree.
+ * <br>Subclasses serve the tree structure and the captured attributes. All other operations are delegated to the entry returned by the
+ * provider for the entry's path.
+ */
+abstract class PreloadedEntry implements File, Folder {
+    private final FileProvider provider;
+
+    PreloadedEntry(FileProvider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public abstract String getPath();
+
+    /**
+     * Gets the entry of the provider for this entry's path.
+     * @return an entry
+     * @throws IOException if an I/O error occurs
+     */
+    protected Entry real() throws IOException {
+        return provider.get(getPath());
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public FileProvider getFileProvider() {
+        return provider;
+    }
+
+    @Override
+    public long getCreationTime() throws IOException {
+        return real().asFile().getCreationTime();
+    }
+
+    @Override
+    public String getFileKey() throws IOException {
+        return real().asFile().getFileKey();
+    }
+
+    @Override
+    public String getHash(HashAlgorithm hashAlgorithm) throws IOException {
+        return real().asFile().getHash(hashAlgorithm);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return real().asFile().getInputStream();
+    }
+
+    @Override
+    public Folder preload() {
+        return this;
+    }
+
+    @Override
+    public File copy(String fileName, File content, LongConsumer progressListener) throws IOException {
+        return real().asFolder().copy(fileName, content, progressListener);
+    }
+
+    @Override
+    public File directCopy(String fileName, File content, LongConsumer progressListener) throws IOException {
+        return real().asFolder().directCopy(fileName, real(content), progressListener);
+    }
+
+    @Override
+    public File move(String fileName, File file) throws IOException {
+        return real().asFolder().move(fileName, real(file));
+    }
+
+    /**
+     * Gets the file of the provider for a file that may be a view of a preloaded tree.
+     * <br>Providers' operations on their own files expect the files they returned, not the views of the tree.
+     * @param file a file
+     * @return the file of the provider
+     * @throws IOException if an I/O error occurs
+     */
+    private static File real(File file) throws IOException {
+        return file instanceof PreloadedEntry preloaded ? preloaded.real().asFile() : file;
+    }
+
+    @Override
+    public Folder mkdir(String folderName) throws IOException {
+        return real().asFolder().mkdir(folderName);
+    }
+
+    @Override
+    public void delete() throws IOException {
+        real().delete();
+    }
+
+    @Override
+    public void delete(LongConsumer deletedFilesListener, BooleanSupplier cancelled) throws IOException {
+        final Entry real = real();
+        if (real.isFolder()) {
+            real.asFolder().delete(deletedFilesListener, cancelled);
+        } else {
+            real.delete();
+        }
+    }
+
+    @Override
+    public void moveToTrash() throws IOException {
+        real().moveToTrash();
+    }
+
+    @Override
+    public Closeable watch(ChangeListener listener) throws IOException {
+        return real().asFolder().watch(listener);
+    }
+
+    @Override
+    public String toString() {
+        return "preloaded:" + getPath();
+    }
+}
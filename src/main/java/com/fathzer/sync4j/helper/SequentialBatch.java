@@ -0,0 +1,76 @@
+package com.fathzer.sync4j.helper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fathzer.sync4j.Batch;
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.util.IOLambda.IOSupplier;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A batch that executes its operations one by one.
+ * <br>This is the batch returned by default by {@link com.fathzer.sync4j.FileProvider#batch()}. It does not save any request,
+ * but allows the callers to use the same code whether the provider supports batches or not.
+ */
+public class SequentialBatch implements Batch {
+    private final List<IOSupplier<Entry>> operations = new ArrayList<>();
+    private boolean executed;
+
+    @Override
+    public void delete(@Nonnull File file) {
+        add(() -> {
+            file.delete();
+            return null;
+        });
+    }
+
+    @Override
+    public void mkdir(@Nonnull Folder parent, @Nonnull String folderName) {
+        add(() -> parent.mkdir(folderName));
+    }
+
+    @Override
+    public void copy(@Nonnull Folder parent, @Nonnull String fileName, @Nonnull File content) {
+        add(() -> parent.copy(fileName, content, null));
+    }
+
+    /**
+     * Adds an operation to this batch.
+     * @param operation the operation, it returns the entry it creates or null
+     * @throws IllegalStateException if the batch was already executed
+     */
+    protected void add(@Nonnull IOSupplier<Entry> operation) {
+        if (executed) {
+            throw new IllegalStateException("Batch was already executed");
+        }
+        operations.add(operation);
+    }
+
+    @Override
+    public int size() {
+        return operations.size();
+    }
+
+    @Override
+    @Nonnull
+    public List<Result> execute() throws IOException {
+        if (executed) {
+            throw new IllegalStateException("Batch was already executed");
+        }
+        executed = true;
+        final List<Result> results = new ArrayList<>(operations.size());
+        for (IOSupplier<Entry> operation : operations) {
+            try {
+                results.add(new Result(operation.get(), null));
+            } catch (IOException | RuntimeException e) {
+                results.add(new Result(null, e));
+            }
+        }
+        return results;
+    }
+}
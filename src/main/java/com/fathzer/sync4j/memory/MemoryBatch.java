@@ -0,0 +1,54 @@
+package com.fathzer.sync4j.memory;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.helper.SequentialBatch;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * The batch of a {@link MemoryFileProvider}.
+ * <br>The whole batch is rejected if the provider is read-only, no operation is executed.
+ */
+class MemoryBatch extends SequentialBatch {
+    private final MemoryFileProvider provider;
+
+    MemoryBatch(@Nonnull MemoryFileProvider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public void delete(@Nonnull File file) {
+        checkProvider(file);
+        super.delete(file);
+    }
+
+    @Override
+    public void mkdir(@Nonnull Folder parent, @Nonnull String folderName) {
+        checkProvider(parent);
+        super.mkdir(parent, folderName);
+    }
+
+    @Override
+    public void copy(@Nonnull Folder parent, @Nonnull String fileName, @Nonnull File content) {
+        checkProvider(parent);
+        super.copy(parent, fileName, content);
+    }
+
+    private void checkProvider(Entry entry) {
+        if (entry.getFileProvider() != provider) {
+            throw new IllegalArgumentException("Entry does not belong to this provider: " + entry);
+        }
+    }
+
+    @Override
+    @Nonnull
+    public List<Result> execute() throws IOException {
+        provider.checkWriteOperationsAllowed();
+        return super.execute();
+    }
+}
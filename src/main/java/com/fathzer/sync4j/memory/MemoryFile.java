@@ -125,6 +125,18 @@ public class MemoryFile extends MemoryEntry implements File {
         markDeleted();
     }
 
+    /**
+     * Creates a copy of this file, with the same content and times, at another path.
+     * <br>The copy shares the content array of this file, which is never modified in place.
+     * @param path the path of the copy
+     * @return a new file (it is not attached to its parent folder)
+     */
+    MemoryFile copyTo(@Nonnull String path) {
+        final MemoryFile copy = new MemoryFile(path, provider, null, creationTime, lastModified);
+        copy.content = content;
+        return copy;
+    }
+
     void markDeleted() {
         content = null;
     }
@@ -3,7 +3,9 @@ package com.fathzer.sync4j.memory;
 import java.io.IOException;
 import java.util.List;
 
+import com.fathzer.sync4j.Batch;
 import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.FileProvider;
 import com.fathzer.sync4j.HashAlgorithm;
 import com.fathzer.sync4j.helper.AbstractFileProvider;
 
@@ -55,6 +57,35 @@ public class MemoryFileProvider extends AbstractFileProvider {
         return entry == null ? new MemoryFile(path, this, null, 0, 0) : entry;
     }
 
+    @Override
+    public boolean isMoveSupported() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>This provider supports the direct copy of its own files: the copy shares the content of the original file.
+     */
+    @Override
+    public boolean isDirectCopySupported(@Nonnull FileProvider source) {
+        return source == this;
+    }
+
+    @Override
+    public boolean isBatchSupported() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>The batches of this provider check, before any operation is executed, that the provider is not read-only.
+     */
+    @Override
+    @Nonnull
+    public Batch batch() {
+        return new MemoryBatch(this);
+    }
+
     void checkWriteOperationsAllowed() throws IOException {
         super.checkReadOnly();
     }
@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import java.util.function.LongConsumer;
 
 import com.fathzer.sync4j.Entry;
@@ -94,30 +95,46 @@ public class MemoryFolder extends MemoryEntry implements Folder {
 
     @Override
     public void delete() throws IOException {
+        delete(n -> {}, () -> false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>As an in-memory deletion is very fast, this implementation ignores the cancellation request
+     * and reports all deleted files at once.
+     */
+    @Override
+    public void delete(@Nonnull LongConsumer deletedFilesListener, @Nonnull BooleanSupplier cancelled) throws IOException {
         if (MemoryFileProvider.ROOT_PATH.equals(this.path)) {
             throw new IOException("Cannot delete root folder");
         }
         if (exists.compareAndSet(true, false)) {
             deleteParentReference();
-            deleteRecursively();
+            final long deletedFiles = deleteRecursively();
+            if (deletedFiles > 0) {
+                deletedFilesListener.accept(deletedFiles);
+            }
         }
     }
 
-    private void deleteRecursively() {
+    private long deleteRecursively() {
         MemoryEntry[] entries;
         synchronized (this) {
             entries = this.children.values().toArray(new MemoryEntry[0]);
             this.children.clear();
         }
+        long deletedFiles = 0;
         for (MemoryEntry entry : entries) {
             if (entry.isFile()) {
                 ((MemoryFile)entry).markDeleted();
+                deletedFiles++;
             } else if (entry.isFolder()) {
                 MemoryFolder folder = (MemoryFolder) entry;
                 folder.exists.set(false);
-                folder.deleteRecursively();
+                deletedFiles += folder.deleteRecursively();
             }
         }
+        return deletedFiles;
     }
 
     @Override
@@ -162,6 +179,72 @@ public class MemoryFolder extends MemoryEntry implements Folder {
         return newFile;
     }
 
+    @Override
+    @Nonnull
+    public MemoryFile directCopy(@Nonnull String fileName, @Nonnull File content, LongConsumer progressListener) throws IOException {
+        if (!exists()) {
+            throw new IOException("Folder does not exist: " + path);
+        }
+        checkFileName(fileName);
+        final MemoryFile source = toMemoryFile(content);
+        if (!source.exists()) {
+            throw new IOException("File does not exist: " + source.path);
+        }
+
+        provider.checkWriteOperationsAllowed();
+
+        MemoryFile newFile = source.copyTo(buildChildPath(fileName));
+        synchronized (this) {
+            children.put(fileName, newFile);
+        }
+        if (progressListener != null) {
+            progressListener.accept(newFile.getSize());
+        }
+        return newFile;
+    }
+
+    @Override
+    @Nonnull
+    public MemoryFile move(@Nonnull String fileName, @Nonnull File file) throws IOException {
+        if (!exists()) {
+            throw new IOException("Folder does not exist: " + path);
+        }
+        checkFileName(fileName);
+        final MemoryFile source = toMemoryFile(file);
+        if (!source.exists()) {
+            throw new IOException("File does not exist: " + source.path);
+        }
+
+        provider.checkWriteOperationsAllowed();
+
+        MemoryFile newFile = source.copyTo(buildChildPath(fileName));
+        synchronized (this) {
+            children.put(fileName, newFile);
+        }
+        source.deleteParentReference();
+        source.markDeleted();
+        return newFile;
+    }
+
+    /**
+     * Gets the memory file of a file of this provider.
+     * <br>The file may be a view of the entry (for instance a preloaded entry).
+     * @throws IllegalArgumentException if the file does not belong to this provider
+     */
+    private MemoryFile toMemoryFile(File file) throws IOException {
+        if (file.getFileProvider() != provider) {
+            throw new IllegalArgumentException("File does not belong to this provider: " + file);
+        }
+        if (file instanceof MemoryFile memoryFile) {
+            return memoryFile;
+        }
+        final Entry entry = provider.get(file.getPath());
+        if (!(entry instanceof MemoryFile memoryFile)) {
+            throw new IOException("File does not exist: " + file.getPath());
+        }
+        return memoryFile;
+    }
+
     /**
      * Creates a file in this folder with the given content.
      * <p>
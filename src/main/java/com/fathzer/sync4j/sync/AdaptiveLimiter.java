@@ -0,0 +1,143 @@
+package com.fathzer.sync4j.sync;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A concurrency limiter whose limit is adapted at runtime with an AIMD (additive increase, multiplicative decrease) algorithm.
+ * <br>Operations are observed during time windows. At the end of each window:
+ * <ul>
+ * <li>If the window shows a congestion (an error rate greater than {@value #MAX_ERROR_RATE}, or an average latency greater than
+ * {@value #LATENCY_TOLERANCE} times the best average latency observed), the limit is multiplied by {@value #DECREASE_FACTOR}.</li>
+ * <li>Otherwise, if the limit was reached during the window and the throughput did not decrease after the last increase, the limit
+ * is increased. It is doubled until the first congestion (slow start), then increased by 1.</li>
+ * </ul>
+ * The limit always stays between a floor and a ceiling (if they are equal, the limit is fixed).
+ * <br>The best observed latency slowly drifts up, so that a few exceptionally fast operations do not lead to permanent decreases.
+ */
+class AdaptiveLimiter {
+    static final double DECREASE_FACTOR = 0.7;
+    static final double LATENCY_TOLERANCE = 2.0;
+    static final double MAX_ERROR_RATE = 0.01;
+    private static final double BASELINE_DRIFT = 1.02;
+    private static final long DEFAULT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int floor;
+    private final int ceiling;
+    private final long windowNanos;
+    private final AtomicInteger currentLimit;
+    private int limit;
+    private int inFlight;
+    private boolean slowStart;
+    private double baselineLatency;
+    private double lastThroughput;
+    private boolean increased;
+    // Current window
+    private long windowStart;
+    private int completed;
+    private int failed;
+    private long latencySum;
+    private int maxInFlight;
+
+    /**
+     * Constructor.
+     * @param floor the minimum limit
+     * @param ceiling the maximum limit
+     * @param currentLimit an integer updated with the current limit
+     */
+    AdaptiveLimiter(int floor, int ceiling, @Nonnull AtomicInteger currentLimit) {
+        this(floor, ceiling, currentLimit, DEFAULT_WINDOW_NANOS);
+    }
+
+    AdaptiveLimiter(int floor, int ceiling, @Nonnull AtomicInteger currentLimit, long windowNanos) {
+        if (floor < 1 || ceiling < floor) {
+            throw new IllegalArgumentException("Invalid limits: " + floor + "-" + ceiling);
+        }
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.windowNanos = windowNanos;
+        this.currentLimit = currentLimit;
+        this.limit = floor;
+        this.slowStart = true;
+        this.baselineLatency = Double.NaN;
+        this.windowStart = System.nanoTime();
+        currentLimit.set(limit);
+    }
+
+    /**
+     * Tries to start an operation.
+     * <br>If this method returns true, {@link #release(long, boolean)} must be called when the operation ends.
+     * @return true if the operation can start, false if the limit is reached
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= limit) {
+            return false;
+        }
+        inFlight++;
+        maxInFlight = Math.max(maxInFlight, inFlight);
+        return true;
+    }
+
+    /**
+     * Cancels an operation started by {@link #tryAcquire()} that was finally not performed.
+     */
+    synchronized void cancel() {
+        inFlight--;
+    }
+
+    /**
+     * Signals the end of an operation.
+     * @param latencyNanos the duration of the operation in nanoseconds
+     * @param failure true if the operation failed
+     */
+    synchronized void release(long latencyNanos, boolean failure) {
+        inFlight--;
+        completed++;
+        if (failure) {
+            // Failures are often fast (for instance when the provider throttles requests), they are not representative of the latency
+            failed++;
+        } else {
+            latencySum += latencyNanos;
+        }
+        final long now = System.nanoTime();
+        if (now - windowStart >= windowNanos) {
+            adapt(now);
+        }
+    }
+
+    private void adapt(long now) {
+        final double latency = completed == failed ? Double.NaN : (double) latencySum / (completed - failed);
+        final double throughput = (double) (completed - failed) / (now - windowStart);
+        final boolean congested = (double) failed / completed > MAX_ERROR_RATE
+                || (!Double.isNaN(baselineLatency) && latency > baselineLatency * LATENCY_TOLERANCE);
+        final boolean wasIncreased = increased;
+        increased = false;
+        if (congested) {
+            limit = Math.max(floor, (int) (limit * DECREASE_FACTOR));
+            slowStart = false;
+        } else if (maxInFlight >= limit && limit < ceiling && !(wasIncreased && throughput < lastThroughput)) {
+            limit = Math.min(ceiling, slowStart ? limit * 2 : limit + 1);
+            increased = true;
+        }
+        if (!Double.isNaN(latency)) {
+            baselineLatency = Double.isNaN(baselineLatency) ? latency : Math.min(latency, baselineLatency * BASELINE_DRIFT);
+        }
+        lastThroughput = throughput;
+        currentLimit.set(limit);
+        windowStart = now;
+        completed = 0;
+        failed = 0;
+        latencySum = 0;
+        maxInFlight = inFlight;
+    }
+
+    /**
+     * Gets the current limit.
+     * @return an integer between floor and ceiling
+     */
+    synchronized int limit() {
+        return limit;
+    }
+}
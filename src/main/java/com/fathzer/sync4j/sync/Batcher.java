@@ -0,0 +1,209 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.fathzer.sync4j.Batch;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.sync.parameters.QosClass;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Groups the tasks that perform small write operations in a same destination folder, and executes them in a {@link Batch}.
+ * <br>A group is executed as soon as it reaches its maximum size, or after a maximum delay.
+ * @see com.fathzer.sync4j.sync.parameters.PerformanceParameters#batch(int, Duration)
+ */
+class Batcher implements AutoCloseable {
+    private record Key(FileProvider provider, String path) {}
+    private static final class Item {
+        private final Task<?, ?> task;
+        private boolean completed;
+        private TaskEvent event;
+
+        private Item(Task<?, ?> task) {
+            this.task = task;
+        }
+    }
+    private record Group(Key key, List<Item> items) {}
+
+    private final Context context;
+    private final int maxSize;
+    private final long maxDelay;
+    private final Map<Key, Group> groups = new HashMap<>();
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Constructor.
+     * @param context the context
+     * @param maxSize the maximum number of tasks in a batch
+     * @param maxDelay the maximum time a task waits for other tasks
+     */
+    Batcher(@Nonnull Context context, int maxSize, @Nonnull Duration maxDelay) {
+        this.context = context;
+        this.maxSize = maxSize;
+        this.maxDelay = maxDelay.toNanos();
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new Context.DaemonThreadFactory("sync-batcher"));
+        executor.setRemoveOnCancelPolicy(true);
+        this.timer = executor;
+    }
+
+    /**
+     * Adds a task to the batch of its folder.
+     * <br>Once its batch is executed, the task is ended (see {@link Task#done(Object, Throwable)}).
+     * @param task the task
+     * @return true if the task was added, false if the task can't be executed in a batch
+     * (see {@link Task#batchFolder()}, {@link FileProvider#isBatchSupported()})
+     */
+    boolean add(@Nonnull Task<?, ?> task) {
+        final Key key;
+        try {
+            final Folder folder = task.batchFolder();
+            if (folder == null || !folder.getFileProvider().isBatchSupported()) {
+                return false;
+            }
+            key = new Key(folder.getFileProvider(), folder.getPath());
+        } catch (IOException e) {
+            // The task will be executed alone
+            return false;
+        }
+        Group full = null;
+        synchronized (groups) {
+            final Group group = groups.computeIfAbsent(key, k -> {
+                final Group created = new Group(k, new ArrayList<>());
+                timer.schedule(() -> flush(created), maxDelay, TimeUnit.NANOSECONDS);
+                return created;
+            });
+            group.items().add(new Item(task));
+            if (group.items().size() >= maxSize) {
+                groups.remove(key);
+                full = group;
+            }
+        }
+        if (full != null) {
+            submit(full);
+        }
+        return true;
+    }
+
+    private void flush(Group group) {
+        synchronized (groups) {
+            if (!groups.remove(group.key(), group)) {
+                // The group was already executed because it was full
+                return;
+            }
+        }
+        submit(group);
+    }
+
+    private void submit(Group group) {
+        final Set<FileProvider> providers = new LinkedHashSet<>();
+        group.items().forEach(item -> providers.addAll(item.task.providers()));
+        context.execute(QosClass.SMALL_COPY, context.throttles(providers), () -> execute(group));
+    }
+
+    private void execute(Group group) {
+        try {
+            if (context.isCancelled()) {
+                group.items().forEach(Batcher::cancel);
+                return;
+            }
+            execute(group.key().provider().batch(), group.items());
+        } catch (RuntimeException e) {
+            group.items().forEach(item -> complete(item, new Batch.Result(null, e)));
+        }
+    }
+
+    private void execute(Batch batch, List<Item> items) {
+        final List<Item> added = new ArrayList<>(items.size());
+        for (Item item : items) {
+            item.event = item.task.newEvent();
+            if (item.event != null) {
+                item.event.begin();
+            }
+            item.task.start();
+            try {
+                item.task.batch(batch);
+                added.add(item);
+            } catch (IOException | RuntimeException e) {
+                complete(item, new Batch.Result(null, e));
+            }
+        }
+        List<Batch.Result> results;
+        final long start = System.nanoTime();
+        try {
+            results = batch.execute();
+            if (results.size() != added.size()) {
+                throw new IOException("Batch returned " + results.size() + " results for " + added.size() + " operations");
+            }
+        } catch (IOException | RuntimeException e) {
+            added.forEach(item -> complete(item, new Batch.Result(null, e)));
+            return;
+        } finally {
+            // Each operation waited for the whole batch
+            final long elapsed = System.nanoTime() - start;
+            added.forEach(item -> context.latencies().record(item.task.action().getClass(), item.task.providers(), elapsed));
+        }
+        for (int i = 0; i < added.size(); i++) {
+            complete(added.get(i), results.get(i));
+        }
+    }
+
+    private static void complete(Item item, Batch.Result result) {
+        if (!item.completed) {
+            item.completed = true;
+            complete(item.task, result, item.event);
+        }
+    }
+
+    private static <V> void complete(Task<V, ?> task, Batch.Result result, @Nullable TaskEvent event) {
+        final V value;
+        try {
+            value = task.complete(result);
+        } catch (Exception e) {
+            end(event, false);
+            task.done(null, e);
+            return;
+        }
+        end(event, true);
+        task.done(value, null);
+    }
+
+    private static void end(@Nullable TaskEvent event, boolean completed) {
+        if (event != null) {
+            event.end(completed);
+        }
+    }
+
+    private static void cancel(Item item) {
+        item.completed = true;
+        cancel(item.task);
+    }
+
+    private static <V> void cancel(Task<V, ?> task) {
+        final V value;
+        try {
+            value = task.defaultValue();
+        } catch (IOException e) {
+            task.done(null, e);
+            return;
+        }
+        task.done(value, null);
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,379 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * A durable journal of the progress of a synchronization, used to resume it after a crash.
+ * <br>The journal records the folders whose subtree is fully reconciled, and the copied files.
+ * Records are appended to the journal file, and synced to the disk in batches.
+ * <br>When a synchronization is resumed with the journal:
+ * <ul>
+ * <li>The files of a reconciled folder are not compared again with their destination, unless the list of the source entries of the folder
+ * (names, types, sizes and last modified times) changed in between. Its sub-folders are still walked, with the same rule, so the changes deeper
+ * in the subtree are detected.</li>
+ * <li>A copied file is not compared again with its destination, unless the size or last modified time of the source changed in between,
+ * or the destination size differs from the source size.</li>
+ * </ul>
+ * The journal is deleted when the synchronization completes successfully.
+ * If the journal file is corrupted, the records after the first corrupted one are ignored.
+ * If it was written for another source or destination, it is ignored.
+ */
+class Checkpoint implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(Checkpoint.class.getName());
+    private static final String MAGIC = "sync4j-checkpoint";
+    private static final int VERSION = 1;
+    private static final byte FOLDER = 'F';
+    private static final byte COPY = 'C';
+    static final int DEFAULT_BATCH_SIZE = 256;
+
+    private record CopyState(long size, long modified) {}
+
+    /**
+     * The reconciliation progress of a folder.
+     * <br>A folder is reconciled when its own entries are processed and all the tasks it spawned (including the walk of its sub-folders)
+     * are successfully completed.
+     */
+    final class Node {
+        private final Node parent;
+        private final String path;
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private volatile boolean failed;
+        private volatile boolean record;
+        private volatile long digest;
+
+        private Node(@Nullable Node parent, @Nonnull String path) {
+            this.parent = parent;
+            this.path = path;
+        }
+
+        /**
+         * Creates the node of a sub-folder.
+         * <br>The returned node should be completed by calling its {@link #done(boolean)} method.
+         * @param name the name of the sub-folder
+         * @return a new node
+         */
+        Node child(@Nonnull String name) {
+            pending.incrementAndGet();
+            return new Node(this, path + '/' + name);
+        }
+
+        /**
+         * Tests whether the folder was reconciled by a previous synchronization.
+         * @param digest the digest of the current source entries of the folder
+         * @return true if the folder was reconciled and its direct source entries did not change (the sub-folders may have changed)
+         * @see Checkpoint#digest(List)
+         */
+        boolean isReconciled(long digest) {
+            final Long recorded = folders.get(path);
+            return recorded != null && recorded == digest;
+        }
+
+        /**
+         * Registers a task spawned by the folder.
+         * <br>{@link #done(boolean)} should be called when the task is completed.
+         */
+        void fork() {
+            pending.incrementAndGet();
+        }
+
+        /**
+         * Signals a failure that prevents the folder to be reconciled.
+         */
+        void fail() {
+            failed = true;
+        }
+
+        /**
+         * Signals the entries of the folder are processed.
+         * <br>The folder will be recorded as reconciled once all the tasks it spawned are successfully completed.
+         * @param digest the digest of the source entries of the folder
+         */
+        void processed(long digest) {
+            this.digest = digest;
+            this.record = true;
+        }
+
+        /**
+         * Signals the end of the walk of the folder or the end of a task it spawned.
+         * @param success true if the walk or the task was successful
+         */
+        void done(boolean success) {
+            if (!success) {
+                failed = true;
+            }
+            if (pending.decrementAndGet() == 0) {
+                if (!failed && record) {
+                    append(FOLDER, path, digest, 0);
+                }
+                if (parent != null) {
+                    parent.done(!failed);
+                }
+            }
+        }
+    }
+
+    private final Path file;
+    private final int batchSize;
+    private final Map<String, Long> folders;
+    private final Map<String, CopyState> copies;
+    private final FileChannel channel;
+    private final ByteArrayOutputStream batch;
+    private int batchCount;
+
+    /**
+     * Opens a journal.
+     * @param file the journal file (it is created if it does not exist)
+     * @param source the source folder of the synchronization
+     * @param destination the destination folder of the synchronization
+     * @param batchSize the number of records written to the disk in a row
+     * @throws IOException if the file can't be read or written
+     */
+    Checkpoint(@Nonnull Path file, @Nonnull Folder source, @Nonnull Folder destination, int batchSize) throws IOException {
+        this.file = Objects.requireNonNull(file);
+        this.batchSize = batchSize;
+        this.folders = new ConcurrentHashMap<>();
+        this.copies = new ConcurrentHashMap<>();
+        this.batch = new ByteArrayOutputStream();
+        final String header = StateIndex.id(source) + "\n" + StateIndex.id(destination);
+        final long validLength = load(header);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (validLength < 0) {
+            channel.truncate(0);
+            final DataOutputStream data = new DataOutputStream(batch);
+            data.writeUTF(MAGIC);
+            data.writeInt(VERSION);
+            data.writeUTF(header);
+            writeBatch();
+        } else {
+            // Remove the records that were partially written when the previous synchronization crashed
+            channel.truncate(validLength);
+            channel.position(validLength);
+        }
+    }
+
+    /**
+     * Loads the journal file.
+     * @param header the expected header
+     * @return the length of the valid part of the file, or -1 if the file should be reset
+     * @throws IOException if the file can't be read
+     */
+    private long load(String header) throws IOException {
+        if (!Files.exists(file)) {
+            return -1;
+        }
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (!MAGIC.equals(data.readUTF()) || data.readInt() != VERSION || !header.equals(data.readUTF())) {
+                return stale("it was written for other folders or has an unknown format");
+            }
+            long validLength = MAGIC.length() + 2 + 4 + utfLength(header);
+            while (true) {
+                final long length = readRecord(data);
+                if (length < 0) {
+                    return validLength;
+                }
+                validLength += length;
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            return stale("it is truncated");
+        }
+    }
+
+    private static int utfLength(String header) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(header);
+        return bytes.size();
+    }
+
+    /**
+     * Reads a record.
+     * @param data the input
+     * @return the length of the record or -1 if the end of the valid records is reached
+     * @throws IOException if an I/O error occurs
+     */
+    private long readRecord(DataInputStream data) throws IOException {
+        try {
+            final int length = data.readInt();
+            if (length <= 0 || length > 1 << 20) {
+                return -1;
+            }
+            final byte[] bytes = new byte[length];
+            data.readFully(bytes);
+            final CRC32 crc = new CRC32();
+            crc.update(bytes);
+            if (data.readInt() != (int) crc.getValue()) {
+                return -1;
+            }
+            final DataInputStream rec = new DataInputStream(new ByteArrayInputStream(bytes));
+            final byte type = rec.readByte();
+            final String path = rec.readUTF();
+            final long first = rec.readLong();
+            final long second = rec.readLong();
+            if (type == FOLDER) {
+                folders.put(path, first);
+            } else if (type == COPY) {
+                copies.put(path, new CopyState(first, second));
+            } else {
+                return -1;
+            }
+            return 4L + length + 4L;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private long stale(String reason) {
+        LOGGER.log(Level.WARNING, () -> "Checkpoint " + file + " is ignored because " + reason);
+        folders.clear();
+        copies.clear();
+        return -1;
+    }
+
+    /**
+     * Creates the node of the root folder of the synchronization.
+     * @return a new node
+     */
+    Node root() {
+        return new Node(null, "");
+    }
+
+    /**
+     * Computes the digest of the entries of a folder.
+     * @param entries the entries of a folder
+     * @return a digest that changes if an entry is added, removed, renamed, or changes its type, size or last modified time
+     * @throws IOException if an I/O error occurs
+     */
+    static long digest(@Nonnull List<Entry> entries) throws IOException {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * 2 + 1);
+        long result = entries.size();
+        for (Entry entry : entries) {
+            crc.reset();
+            crc.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+            buffer.clear();
+            if (entry.isFile()) {
+                final File f = entry.asFile();
+                buffer.put((byte) 1).putLong(f.getSize()).putLong(f.getLastModifiedTime());
+            } else {
+                buffer.put(entry.isFolder() ? (byte) 2 : (byte) 3);
+            }
+            buffer.flip();
+            crc.update(buffer);
+            // Order independent combination
+            result += crc.getValue() * 0x9E3779B97F4A7C15L;
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether a file was copied by a previous synchronization.
+     * @param source the source file
+     * @param destination the destination file
+     * @return true if the file was copied and nor the source nor the destination changed in between
+     * @throws IOException if an I/O error occurs
+     */
+    boolean isCopied(@Nonnull File source, @Nonnull File destination) throws IOException {
+        final CopyState state = copies.get(source.getPath());
+        return state != null && state.size() == source.getSize() && state.modified() == source.getLastModifiedTime()
+                && destination.getSize() == state.size();
+    }
+
+    /**
+     * Records a copied file.
+     * @param source the source file
+     * @throws IOException if an I/O error occurs
+     */
+    void copied(@Nonnull File source) throws IOException {
+        append(COPY, source.getPath(), source.getSize(), source.getLastModifiedTime());
+    }
+
+    private synchronized void append(byte type, String path, long first, long second) {
+        if (!channel.isOpen()) {
+            // Tasks may complete after a cancelled synchronization is closed
+            return;
+        }
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream rec = new DataOutputStream(bytes);
+            rec.writeByte(type);
+            rec.writeUTF(path);
+            rec.writeLong(first);
+            rec.writeLong(second);
+            final CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            final DataOutputStream data = new DataOutputStream(batch);
+            data.writeInt(bytes.size());
+            bytes.writeTo(data);
+            data.writeInt((int) crc.getValue());
+            batchCount++;
+            if (batchCount >= batchSize) {
+                writeBatch();
+            }
+        } catch (IOException e) {
+            // The journal is an optimization, a failure should not stop the synchronization
+            LOGGER.log(Level.WARNING, e, () -> "Unable to write checkpoint " + file);
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        batch.reset();
+        batchCount = 0;
+    }
+
+    /**
+     * Writes the pending records and closes the journal.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            try {
+                writeBatch();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes the journal.
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+}
@@ -1,8 +1,10 @@
 package com.fathzer.sync4j.sync;
 
 import java.io.IOException;
+import java.util.List;
 
 import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
 import com.fathzer.sync4j.sync.Event.CompareFileAction;
 import com.fathzer.sync4j.util.IOLambda.IORunnable;
 
@@ -10,7 +12,7 @@ class CompareFileTask extends Task<Boolean, CompareFileAction> {
     private final IORunnable extraAction;
 
     CompareFileTask(Context context, File source, File destination, IORunnable extraAction) {
-        super(context, new CompareFileAction(source, destination), context.statistics().checkedFiles());
+        super(context, new CompareFileAction(source, destination), context.statistics().checkedFilesTally());
         this.extraAction = extraAction;
     }
 
@@ -21,7 +23,20 @@ class CompareFileTask extends Task<Boolean, CompareFileAction> {
 
     @Override
     protected Boolean execute() throws IOException {
+        final StateIndex stateIndex = context().stateIndex();
+        if (stateIndex != null && stateIndex.isUnchanged(action().source(), action().destination())) {
+            // Files are unchanged since the last synchronization, they are still identical
+            return true;
+        }
+        final Checkpoint checkpoint = context().checkpoint();
+        if (checkpoint != null && checkpoint.isCopied(action().source(), action().destination())) {
+            // The file was copied by an interrupted synchronization
+            return true;
+        }
         boolean areSame = context().params().fileComparator().areSame(action().source(), action().destination());
+        if (areSame && stateIndex != null) {
+            stateIndex.record(action().source(), action().destination());
+        }
         if (!areSame && extraAction != null) {
             extraAction.run();
         }
@@ -32,4 +47,14 @@ class CompareFileTask extends Task<Boolean, CompareFileAction> {
     protected Kind kind() {
         return Kind.CHECKER;
     }
+
+    @Override
+    protected List<FileProvider> providers() {
+        return List.of(action().source().getFileProvider(), action().destination().getFileProvider());
+    }
+
+    @Override
+    protected TaskEvent newEvent() {
+        return isRecorded(TaskEvent.CompareFiles.class) ? new TaskEvent.CompareFiles(action().source()) : null;
+    }
 }
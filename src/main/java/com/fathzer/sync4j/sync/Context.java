@@ -1,34 +1,50 @@
 package com.fathzer.sync4j.sync;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.Future;
-import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 import com.fathzer.sync4j.Entry;
 import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
 import com.fathzer.sync4j.Folder;
 import com.fathzer.sync4j.sync.Event.Action;
 import com.fathzer.sync4j.sync.Event.CopyFileAction;
+import com.fathzer.sync4j.sync.Event.MoveFileAction;
+import com.fathzer.sync4j.sync.parameters.EventSubscription;
+import com.fathzer.sync4j.sync.parameters.PerformanceParameters;
+import com.fathzer.sync4j.sync.parameters.QosClass;
+import com.fathzer.sync4j.sync.parameters.QosShare;
 import com.fathzer.sync4j.sync.parameters.SyncParameters;
+import com.fathzer.sync4j.util.IOLambda.IOSupplier;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 
 class Context implements AutoCloseable {
     static class DaemonThreadFactory implements ThreadFactory {
@@ -51,30 +67,40 @@ class Context implements AutoCloseable {
      * A counter of tasks.
      * <br>It is used to count the number of tasks that need to be completed.
      * <br>It is used to wait for all tasks to be completed.
+     * <br>The pending tasks are counted by a single atomic counter: each decrement detects the completion by checking its result against zero,
+     * without summing striped counters.
      */
     static class TaskCounter {
-        private final AtomicLong pendingTasks = new AtomicLong(0);
+        private final AtomicLong pending = new AtomicLong();
         private final CountDownLatch completionLatch = new CountDownLatch(1);
-        private BiConsumer<TaskCounter, Boolean> eventConsumer = (tc, add) -> {};
+        private BiConsumer<TaskCounter, Boolean> eventConsumer;
 
         void increment() {
-            pendingTasks.incrementAndGet();
-            eventConsumer.accept(this, true);
+            pending.incrementAndGet();
+            if (eventConsumer != null) {
+                eventConsumer.accept(this, true);
+            }
         }
 
         void decrement() {
-            if (pendingTasks.decrementAndGet() == 0) {
+            if (pending.decrementAndGet() == 0) {
                 completionLatch.countDown();
             }
-            eventConsumer.accept(this, false);
+            if (eventConsumer != null) {
+                eventConsumer.accept(this, false);
+            }
         }
 
+        /**
+         * Sets a consumer called each time this counter changes (for debugging purpose).
+         * @param eventConsumer a consumer that receives this counter and true if it was incremented, or null to remove the consumer
+         */
         void setEventConsumer(BiConsumer<TaskCounter, Boolean> eventConsumer) {
             this.eventConsumer = eventConsumer;
         }
 
         long getPendingTasks() {
-            return pendingTasks.get();
+            return pending.get();
         }
 
         void await() throws InterruptedException {
@@ -86,24 +112,102 @@ class Context implements AutoCloseable {
         }
     }
 
+    /** The time each thread spent suspended in {@link #awaitResumed()}, it is excluded from the recorded latencies. */
+    private static final ThreadLocal<long[]> PAUSED_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
     private final SyncParameters syncParameters;
-    private final ForkJoinPool walkService;
-    private final ExecutorService checkService;
-    private final ExecutorService copyService;
+    private final Scheduler scheduler;
+    private final Batcher batcher;
+    private final List<EventSubscription> subscriptions;
+    private final Map<Class<? extends Action>, Integer> eventMasks = new ConcurrentHashMap<>();
+    private final EventBus eventBus;
+    private final Map<FileProvider, ProviderThrottle> throttles = new IdentityHashMap<>();
     private final AtomicBoolean cancelled = new AtomicBoolean();
     private final Statistics statistics = new Statistics();
     private final TaskCounter taskCounter = new TaskCounter();
-    private final List<Throwable> exceptions = new LinkedList<>();
+    private final ErrorCollector errors;
+    private final Latencies latencies = new Latencies();
+    private final Runnable statisticsEventHook = StatisticsEvent.register(statistics);
+    private StateIndex stateIndex;
+    private Checkpoint checkpoint;
+    private SyncPlan.Builder plan;
+    private MoveDetector moveDetector;
+    private Path workDirectory;
 
     Context(SyncParameters parameters) {
         this.syncParameters = parameters;
-        this.walkService = new ForkJoinPool(parameters.performance().maxWalkThreads());
-        this.checkService = buildExecutorService(parameters.performance().maxComparisonThreads(), "check");
-        this.copyService = buildExecutorService(parameters.performance().maxCopyThreads(), "copy");
+        this.errors = new ErrorCollector(parameters.maxRecentErrors(), parameters.errorFile());
+        final PerformanceParameters performance = parameters.performance();
+        final Map<QosClass, AdaptiveLimiter> limiters = new EnumMap<>(QosClass.class);
+        final AdaptiveLimiter checkLimiter = buildLimiter(performance.minComparisonThreads(), performance.maxComparisonThreads(),
+                statistics.comparisonConcurrency());
+        final AdaptiveLimiter copyLimiter = buildLimiter(performance.minCopyThreads(), performance.maxCopyThreads(), statistics.copyConcurrency());
+        final Map<QosClass, QosShare> shares = new EnumMap<>(QosClass.class);
+        for (QosClass qos : QosClass.values()) {
+            shares.put(qos, performance.qosShare(qos));
+            final AdaptiveLimiter limiter = switch (qos) {
+                case METADATA -> null;
+                case COMPARE -> checkLimiter;
+                case SMALL_COPY, LARGE_COPY, DELETE -> copyLimiter;
+            };
+            if (limiter != null) {
+                limiters.put(qos, limiter);
+            }
+        }
+        final int threadCount = performance.maxWalkThreads() + performance.maxComparisonThreads() + performance.maxCopyThreads();
+        this.scheduler = new Scheduler(threadCount, shares, limiters, statistics, new DaemonThreadFactory("sync"));
+        this.batcher = performance.maxBatchSize() > 1 && !parameters.dryRun() ?
+                new Batcher(this, performance.maxBatchSize(), performance.maxBatchDelay()) : null;
+        this.subscriptions = parameters.subscriptions();
+        this.eventBus = parameters.eventBufferSize() > 0 && !subscriptions.isEmpty() ?
+                new EventBus(this::dispatch, parameters.eventBufferSize(), parameters.eventOverflowPolicy(), statistics.droppedEvents()) : null;
+    }
+
+    private AdaptiveLimiter buildLimiter(int floor, int threadCount, AtomicInteger currentLimit) {
+        if (threadCount == 0) {
+            currentLimit.set(0);
+            return null;
+        }
+        return new AdaptiveLimiter(syncParameters.performance().adaptiveConcurrency() ? Math.min(floor, threadCount) : threadCount,
+                threadCount, currentLimit);
     }
 
-    private ExecutorService buildExecutorService(int threadCount, String prefix) {
-        return threadCount > 0 ? Executors.newFixedThreadPool(threadCount, new DaemonThreadFactory(prefix)) : null;
+    /**
+     * Gets the limiter of a task.
+     * @param task the task
+     * @return a limiter or null if the task concurrency is only limited by the size of the thread pool
+     */
+    AdaptiveLimiter limiter(Task<?,?> task) {
+        return scheduler.limiter(task.qos());
+    }
+
+    /**
+     * Gets the throttles of the providers a task performs operations on.
+     * @param task the task
+     * @return the throttles that enforce a limit, in their acquisition order
+     */
+    List<ProviderThrottle> throttles(Task<?,?> task) {
+        return throttles(task.providers());
+    }
+
+    /**
+     * Gets the throttles of providers.
+     * @param providers the providers
+     * @return the throttles that enforce a limit, in their acquisition order
+     */
+    List<ProviderThrottle> throttles(Collection<FileProvider> providers) {
+        final List<ProviderThrottle> result = new ArrayList<>(2);
+        synchronized (throttles) {
+            for (FileProvider provider : providers) {
+                final ProviderThrottle throttle = throttles.computeIfAbsent(provider, p -> new ProviderThrottle(throttles.size(),
+                        syncParameters.performance().maxConcurrentOperations(p), syncParameters.performance().maxOperationsPerSecond(p)));
+                if (!throttle.isUnlimited() && !result.contains(throttle)) {
+                    result.add(throttle);
+                }
+            }
+        }
+        result.sort(Comparator.comparingInt(ProviderThrottle::order));
+        return result;
     }
 
     SyncParameters params() {
@@ -114,8 +218,159 @@ class Context implements AutoCloseable {
         return statistics;
     }
 
-    List<Throwable> errors() {
-        return exceptions;
+    /**
+     * Gets the statuses of the events of a type of action that are delivered to a listener.
+     * @param actionType the type of action
+     * @return a mask where the bit {@link #mask(Event.Status)} of a status is set if its events are delivered
+     */
+    int eventMask(Class<? extends Action> actionType) {
+        return eventMasks.computeIfAbsent(actionType, type -> {
+            int result = 0;
+            for (Event.Status status : Event.Status.values()) {
+                final boolean subscribed = subscriptions.stream().anyMatch(s -> s.accepts(type, status));
+                result = subscribed ? result | mask(status) : result;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Gets the bit of a status in an event mask.
+     * @param status the status
+     * @return an integer with only one bit set
+     * @see #eventMask(Class)
+     */
+    static int mask(Event.Status status) {
+        return 1 << status.ordinal();
+    }
+
+    /**
+     * Publishes an event to the listeners that subscribed to it.
+     * @param event the event
+     */
+    void publish(Event event) {
+        if (eventBus == null) {
+            dispatch(event);
+        } else {
+            eventBus.publish(event);
+        }
+    }
+
+    private void dispatch(Event event) {
+        for (EventSubscription subscription : subscriptions) {
+            if (subscription.accepts(event.action().getClass(), event.status())) {
+                subscription.listener().accept(event);
+            }
+        }
+    }
+
+    /**
+     * Gets the state index used for incremental synchronization.
+     * @return the state index, or null if incremental synchronization is disabled
+     */
+    StateIndex stateIndex() {
+        return stateIndex;
+    }
+
+    void stateIndex(StateIndex stateIndex) {
+        this.stateIndex = stateIndex;
+    }
+
+    /**
+     * Gets the checkpoint used to resume an interrupted synchronization.
+     * @return the checkpoint, or null if checkpointing is disabled
+     */
+    Checkpoint checkpoint() {
+        return checkpoint;
+    }
+
+    void checkpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Gets the builder of the plan recorded in plan mode.
+     * @return the plan builder, or null if plan mode is disabled
+     */
+    SyncPlan.Builder plan() {
+        return plan;
+    }
+
+    void plan(SyncPlan.Builder plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * Gets the detector of moved files.
+     * @return the move detector, or null if move detection is disabled
+     */
+    MoveDetector moveDetector() {
+        return moveDetector;
+    }
+
+    void moveDetector(MoveDetector moveDetector) {
+        this.moveDetector = moveDetector;
+    }
+
+    /**
+     * Tests whether the synchronization was successful.
+     * <br>A synchronization is successful if it is completed, not cancelled, without errors, and not in dry run mode.
+     * @return true if the synchronization was successful
+     */
+    boolean isSuccessful() {
+        return taskCounter.getPendingTasks() == 0 && !isCancelled() && errors.count() == 0 && !params().dryRun();
+    }
+
+    /**
+     * Commits the state index if the synchronization was successful.
+     * @throws IOException if an I/O error occurs
+     * @see #isSuccessful()
+     */
+    void commitState() throws IOException {
+        if (stateIndex != null && isSuccessful()) {
+            stateIndex.commit();
+        }
+    }
+
+    /**
+     * Closes the checkpoint.
+     * <br>It is deleted if the synchronization was successful, otherwise its pending records are written to be used by the next synchronization.
+     * @param started true if the synchronization was started
+     * @throws IOException if an I/O error occurs
+     * @see #isSuccessful()
+     */
+    void closeCheckpoint(boolean started) throws IOException {
+        if (checkpoint == null) {
+            return;
+        }
+        if (started && isSuccessful()) {
+            checkpoint.delete();
+        } else {
+            checkpoint.close();
+        }
+    }
+
+    /**
+     * Gets the work directory of this context, where the preloaded trees are spilled.
+     * <br>The directory is created, in the spill directory of the performance parameters, the first time this method is called.
+     * It is deleted when this context is closed.
+     * @return a directory
+     * @throws IOException if an I/O error occurs
+     * @see com.fathzer.sync4j.sync.parameters.PerformanceParameters#spillDirectory(Path)
+     */
+    synchronized Path workDirectory() throws IOException {
+        if (workDirectory == null) {
+            workDirectory = Files.createTempDirectory(syncParameters.performance().spillDirectory(), "sync4j-");
+        }
+        return workDirectory;
+    }
+
+    ErrorCollector errors() {
+        return errors;
+    }
+
+    Latencies latencies() {
+        return latencies;
     }
 
     void skip(Entry entry) {
@@ -139,7 +394,7 @@ class Context implements AutoCloseable {
         if (e instanceof CompletionException) {
             e = e.getCause();
         }
-        exceptions.add(e);
+        errors.add(e, action);
         if (syncParameters.errorManager().test(e, action)) {
             cancel();
         }
@@ -151,73 +406,271 @@ class Context implements AutoCloseable {
      * Asynchronously copies a file to a destination folder.
      * @param src the source file
      * @param destinationFolder the destination folder
+     * @param node the checkpoint node of the folder that spawns the copy, or null if there's no checkpoint
      */
-    void asyncCopy(File src, Folder destinationFolder) {
+    void asyncCopy(File src, Folder destinationFolder, @Nullable Checkpoint.Node node) {
         CopyFileAction action = new CopyFileAction(src, destinationFolder);
-        tryExecute(() -> executeAsync(new CopyFileTask(this, action)), () -> action);
+        final Result<Void> result = tryExecute(() -> {
+            executeAsync(new CopyFileTask(this, action), node, null);
+            return null;
+        }, () -> action);
+        if (result.failed() && node != null) {
+            node.fail();
+        }
     }
 
-    void asyncCheckAndCopy(File src, File destinationFile) {
-        executeAsync(new CompareFileTask(this, src, destinationFile, () -> asyncCopy(src, destinationFile.getParent().asFolder())));
+    void asyncCheckAndCopy(File src, File destinationFile, @Nullable Checkpoint.Node node) {
+        executeAsync(new CompareFileTask(this, src, destinationFile, () -> asyncCopy(src, destinationFile.getParent().asFolder(), node)), node, null);
     }
 
-    Folder createFolder(Folder destination, String name) {
-        final CreateFolderTask task = new CreateFolderTask(this, destination, name);
-        final Result<Folder> result = tryExecute(() -> executeSync(task), task::action);
-        return result.value();
+    /**
+     * Asynchronously moves a destination file, instead of copying a source file.
+     * @param source the source file
+     * @param file the destination file identical to the source file
+     * @param destinationFolder the destination folder where the file is moved with the name of the source file
+     * @param node the checkpoint node of the folder that spawns the move, or null if there's no checkpoint
+     * @param then the function called once the move is done (even if it failed)
+     */
+    void asyncMove(File source, File file, Folder destinationFolder, @Nullable Checkpoint.Node node, Runnable then) {
+        executeAsync(new MoveFileTask(this, new MoveFileAction(source, file, destinationFolder)), node, v -> then.run());
     }
 
-    void asyncDelete(Entry entry) {
-        executeAsync(new DeleteTask(this, entry));
+    /**
+     * Asynchronously creates a folder, then processes it.
+     * <br>The caller does not wait for the folder creation, the processing of the created folder is chained onto its completion.
+     * @param destination the folder where the folder is created
+     * @param name the name of the folder to create
+     * @param then the function called once the creation is done, with the created folder, or null if the creation failed
+     * @param node the checkpoint node of the folder that spawns the creation, or null if there's no checkpoint
+     */
+    void asyncCreateFolder(Folder destination, String name, Consumer<Folder> then, @Nullable Checkpoint.Node node) {
+        executeAsync(new CreateFolderTask(this, destination, name), node, then);
     }
 
-    void deleteThenAsyncCopy(Folder toBeDeleted, Folder toBeDeleteParent, File source) {
-        if (delete(toBeDeleted)) {
-            asyncCopy(source, toBeDeleteParent);
-        }
+    /**
+     * Asynchronously lists a folder.
+     * @param folder the folder to list
+     * @param then the function called with the folder's entries, or null if the listing failed (the error is reported by the task)
+     */
+    void asyncList(Folder folder, Consumer<List<Entry>> then) {
+        executeAsync(new ListTask(this, folder), null, then);
     }
 
-    Folder deleteThenCreate(File toBeDeleted, Folder toBeDeleteParent, Folder source) {
-        return delete(toBeDeleted) ? createFolder(toBeDeleteParent, source.getName()) : null;
+    void asyncDelete(Entry entry, @Nullable Checkpoint.Node node) {
+        executeAsync(new DeleteTask(this, entry), node, null);
     }
 
-    private boolean delete(Entry toBeDeleted) {
+    void deleteThenAsyncCopy(Entry toBeDeleted, Folder toBeDeleteParent, File source, @Nullable Checkpoint.Node node) {
+        if (delete(toBeDeleted)) {
+            asyncCopy(source, toBeDeleteParent, node);
+        } else if (node != null) {
+            node.fail();
+        }
+    }
+
+    /**
+     * Synchronously deletes an entry.
+     * @param toBeDeleted the entry to delete
+     * @return true if the entry was deleted, false if the deletion failed
+     */
+    boolean delete(Entry toBeDeleted) {
         final DeleteTask deleteTask = new DeleteTask(this, toBeDeleted);
         return !tryExecute(() -> executeSync(deleteTask), deleteTask::action).failed();
     }
 
     void cancel() {
         cancelled.set(true);
+        // Pending tasks should be drained, even if the context is paused
+        scheduler.resume();
+    }
+
+    void pause() {
+        scheduler.pause();
+    }
+
+    void resume() {
+        scheduler.resume();
+    }
+
+    boolean isPaused() {
+        return scheduler.isPaused();
+    }
+
+    /**
+     * Waits until this context is not paused.
+     * <br>Long running tasks call this method to suspend themselves while the context is paused.
+     * If the thread is interrupted, this method returns immediately and the interrupt flag is set.
+     */
+    void awaitResumed() {
+        if (!scheduler.isPaused()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            scheduler.awaitResumed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            PAUSED_NANOS.get()[0] += System.nanoTime() - start;
+        }
     }
 
     boolean isCancelled() {
         return cancelled.get();
     }
 
+    /**
+     * Executes a task in the current thread.
+     * <br>The throttles of the providers of the task are acquired, waiting if needed.
+     * @param task the task
+     * @return the result of the task
+     * @throws IOException if an I/O error occurs
+     */
     <V> V executeSync(Task<V, ?> task) throws IOException {
-        if (isCancelled() || (params().dryRun() && (Task.Kind.MODIFIER == task.kind()))) return task.defaultValue();
-        return task.call();
+        return execute(task, true);
+    }
+
+    /**
+     * Executes a task whose throttles were acquired by the scheduler before it started the task (see {@link #admission(Task)}).
+     * @param task the task
+     * @return the result of the task
+     * @throws IOException if an I/O error occurs
+     */
+    <V> V executeAdmitted(Task<V, ?> task) throws IOException {
+        return execute(task, false);
+    }
+
+    private <V> V execute(Task<V, ?> task, boolean throttled) throws IOException {
+        if (isCancelled()) return task.defaultValue();
+        if (params().dryRun() && Task.Kind.MODIFIER == task.kind()) {
+            if (plan != null) {
+                task.plan(plan);
+            }
+            return task.defaultValue();
+        }
+        final List<FileProvider> providers = task.providers();
+        final IOSupplier<V> operations = () -> {
+            final TaskEvent event = task.newEvent();
+            if (event != null) {
+                event.begin();
+            }
+            final long[] paused = PAUSED_NANOS.get();
+            final long pausedBefore = paused[0];
+            final long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                // The time the task was suspended by a pause is not a latency of the provider
+                latencies.record(task.action().getClass(), providers, System.nanoTime() - start - (paused[0] - pausedBefore));
+                if (event != null) {
+                    event.end(task.isCompleted());
+                }
+            }
+        };
+        return throttled ? throttled(throttles(providers), operations) : operations.get();
+    }
+
+    /**
+     * Gets the throttles the scheduler acquires before it starts a task.
+     * @param task the task
+     * @return the throttles of the providers of the task, in their acquisition order (empty if the task does not perform any operation)
+     */
+    private List<ProviderThrottle> admission(Task<?,?> task) {
+        if (params().dryRun() && Task.Kind.MODIFIER == task.kind()) {
+            return List.of();
+        }
+        return throttles(task);
     }
 
+    /**
+     * Performs operations on providers once their throttles are acquired.
+     * <br>This method waits for the throttles, it should only be used for operations that are performed inside a running task.
+     * Tasks executed by the scheduler should declare their throttles when they are submitted (see {@link #execute(QosClass, List, Runnable)}).
+     * @param providerThrottles the throttles of the providers, in their acquisition order
+     * @param operations the operations
+     * @return the result of the operations
+     * @throws IOException if an I/O error occurs, or if the thread is interrupted while waiting for a provider
+     */
+    <V> V throttled(List<ProviderThrottle> providerThrottles, IOSupplier<V> operations) throws IOException {
+        if (providerThrottles.isEmpty()) {
+            return operations.get();
+        }
+        int acquired = 0;
+        try {
+            for (ProviderThrottle throttle : providerThrottles) {
+                throttle.acquire();
+                acquired++;
+            }
+            return operations.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a provider");
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                providerThrottles.get(i).release();
+            }
+        }
+    }
+
+    /**
+     * Executes a task asynchronously and gets its result.
+     * <br>This method creates futures, it should only be used when the caller needs the result of the task.
+     * Other callers should use {@link #executeAsync(Task, Checkpoint.Node, Consumer)}.
+     * @param task the task
+     * @return the future result of the task (null if the task failed)
+     */
     protected <V> CompletableFuture<V> executeAsync(Task<V, ?> task) {
         if (task.onlySynchronous()) {
             throw new UnsupportedOperationException("Task " + this + " is only synchronous");
         }
-        return CompletableFuture.supplyAsync(buildAsyncSupplier(task), executorService(task))
-            .exceptionally(e -> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final Supplier<V> supplier = buildAsyncSupplier(task);
+        scheduler.execute(task.qos(), admission(task), () -> {
+            try {
+                future.complete(supplier.get());
+            } catch (CompletionException e) {
+                future.completeExceptionally(e);
+                // Let the scheduler know the task failed
+                throw e;
+            }
+        });
+        return future.exceptionally(e -> {
                 processError(e, task.action());
                 return null;
             }
         );
     }
 
-    ExecutorService executorService(Task<?,?> task) {
-        final ExecutorService executorService = switch (task.kind()) {
-            case WALKER -> walkService;
-            case CHECKER -> checkService;
-            case MODIFIER -> copyService;
-        };
-        return executorService == null ? walkService : executorService;
+    /**
+     * Executes a task asynchronously on behalf of a folder tracked by the checkpoint.
+     * <br>No future is created: the task itself is scheduled, it reports its errors to this context, then calls its continuation.
+     * @param task the task
+     * @param node the checkpoint node of the folder that spawns the task, or null if there's no checkpoint
+     * @param then the function called with the result of the task (null if it failed) once it is executed, or null
+     */
+    private <V> void executeAsync(Task<V, ?> task, @Nullable Checkpoint.Node node, @Nullable Consumer<V> then) {
+        if (task.onlySynchronous()) {
+            throw new UnsupportedOperationException("Task " + this + " is only synchronous");
+        }
+        if (node == null) {
+            task.then(then);
+        } else {
+            node.fork();
+            task.then(result -> {
+                try {
+                    if (then != null) {
+                        then.accept(result);
+                    }
+                } finally {
+                    node.done(task.isCompleted());
+                }
+            });
+        }
+        // The task decrements the counter once its continuation is called
+        taskCounter.increment();
+        if (batcher == null || isCancelled() || !batcher.add(task)) {
+            scheduler.execute(task.qos(), admission(task), task);
+        }
     }
 
     /**
@@ -231,7 +684,7 @@ class Context implements AutoCloseable {
     private <V> Supplier<V> buildAsyncSupplier(Task<V, ?> task) {
         final Supplier<V> supplier = () -> {
             try {
-                return executeSync(task);
+                return executeAdmitted(task);
             } catch (Exception e) {
                 throw new CompletionException(e);
             } finally {
@@ -242,8 +695,48 @@ class Context implements AutoCloseable {
         return supplier;
     }
 
-    Future<Void> submit(RecursiveAction action) {
-        return walkService.submit(action);
+    /**
+     * Purges the trash of a provider in a low priority background thread.
+     * <br>The purge is stopped if this context is cancelled.
+     * @param provider the provider whose trash should be purged
+     * @return a future that completes when the purge is done
+     */
+    CompletableFuture<Void> purgeTrash(FileProvider provider) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                provider.purgeTrash(n -> {}, this::isCancelled);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, r -> {
+            final Thread thread = new DaemonThreadFactory("trash-purger").newThread(r);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        });
+    }
+
+    void submit(Runnable task) {
+        scheduler.execute(QosClass.METADATA, task);
+    }
+
+    /**
+     * Executes a job on the scheduler of this context.
+     * @param qos the quality of service class of the job
+     * @param job the job
+     */
+    void execute(QosClass qos, Runnable job) {
+        scheduler.execute(qos, job);
+    }
+
+    /**
+     * Executes a job that performs operations on throttled providers on the scheduler of this context.
+     * <br>The job is started once the throttles are acquired, without blocking a thread of the scheduler.
+     * @param qos the quality of service class of the job
+     * @param providerThrottles the throttles of the providers, in their acquisition order (see {@link #throttles(Collection)})
+     * @param job the job
+     */
+    void execute(QosClass qos, List<ProviderThrottle> providerThrottles, Runnable job) {
+        scheduler.execute(qos, providerThrottles, job);
     }
 
     TaskCounter taskCounter() {
@@ -251,12 +744,29 @@ class Context implements AutoCloseable {
     }
 
     public void close() {
-        walkService.shutdown();
-        if (this.checkService != null) {
-            this.checkService.shutdown();
+        if (batcher != null) {
+            batcher.close();
         }
-        if (this.copyService != null) {
-            this.copyService.shutdown();
+        scheduler.shutdown();
+        if (eventBus != null) {
+            eventBus.close();
+        }
+        errors.close();
+        StatisticsEvent.unregister(statisticsEventHook);
+        deleteWorkDirectory();
+    }
+
+    private synchronized void deleteWorkDirectory() {
+        if (workDirectory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(workDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+            workDirectory = null;
+        } catch (IOException e) {
+            Logger.getLogger(Context.class.getName()).log(Level.WARNING, e, () -> "Unable to delete " + workDirectory);
         }
     }
 }
@@ -0,0 +1,215 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.helper.PathUtils;
+import com.fathzer.sync4j.sync.Context.DaemonThreadFactory;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A synchronization that continuously replicates the changes of the source folder to the destination folder.
+ * <br>The source folder's provider must support the watch feature (see {@link FileProvider#isWatchSupported()}).
+ * <br>Once started, a full synchronization is performed, then the changes reported by the source folder are coalesced during a debounce window
+ * and only the changed folders are synchronized (their sub-folders are not walked, unless changes may have been missed in them).
+ * So, the cost of the synchronization depends on the change rate, not on the tree size.
+ * <br>Each batch of changes is synchronized with the same parameters, in a fresh context (statistics are not accumulated between batches).
+ */
+public class ContinuousSynchronization implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ContinuousSynchronization.class.getName());
+
+    private final Folder source;
+    private final Folder destination;
+    private final SyncParameters parameters;
+    private final Duration debounce;
+    private final String sourcePath;
+    private final String destinationPath;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Boolean> pendingChanges;
+    private final ErrorCollector errors;
+    private boolean flushScheduled;
+    private Closeable watch;
+    private volatile Context current;
+
+    /**
+     * Creates a new continuous synchronization.
+     * @param source the source folder
+     * @param destination the destination folder
+     * @param parameters the parameters
+     * @param debounce the time to wait after a change is detected before synchronizing it (and all the changes detected in the meantime)
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the source provider does not support the watch feature or if debounce is negative
+     */
+    public ContinuousSynchronization(@Nonnull Folder source, @Nonnull Folder destination, @Nonnull SyncParameters parameters, @Nonnull Duration debounce) throws IOException {
+        this.source = Objects.requireNonNull(source);
+        this.destination = Objects.requireNonNull(destination);
+        this.parameters = Objects.requireNonNull(parameters);
+        this.debounce = Objects.requireNonNull(debounce);
+        if (!source.getFileProvider().isWatchSupported()) {
+            throw new IllegalArgumentException("Source provider does not support watch");
+        }
+        if (debounce.isNegative()) {
+            throw new IllegalArgumentException("Debounce can't be negative");
+        }
+        this.sourcePath = source.getPath();
+        this.destinationPath = destination.getPath();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("continuous-sync"));
+        this.pendingChanges = new HashMap<>();
+        this.errors = new ErrorCollector(parameters.maxRecentErrors(), null);
+    }
+
+    /**
+     * Starts watching the source folder and performs a full synchronization.
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the synchronization is already started
+     */
+    public synchronized void start() throws IOException {
+        if (watch != null) {
+            throw new IllegalStateException("Already started");
+        }
+        // Start watching before the full synchronization to not miss changes made during it
+        watch = source.watch(this::changed);
+        changed(sourcePath, true);
+    }
+
+    private void changed(String path, boolean subtree) {
+        synchronized (pendingChanges) {
+            pendingChanges.merge(path, subtree, Boolean::logicalOr);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, debounce.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void flush() {
+        final Map<String, Boolean> changes;
+        synchronized (pendingChanges) {
+            changes = coalesce(pendingChanges);
+            pendingChanges.clear();
+            flushScheduled = false;
+        }
+        try {
+            synchronize(changes);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unexpected error during synchronization", e);
+            addError(e);
+        }
+    }
+
+    /**
+     * Removes the changes that are included in a subtree change.
+     * @param changes the changes (path -&gt; subtree flag)
+     * @return the coalesced changes, sorted by path
+     */
+    static Map<String, Boolean> coalesce(Map<String, Boolean> changes) {
+        final List<String> subtrees = changes.entrySet().stream().filter(Map.Entry::getValue).map(Map.Entry::getKey).toList();
+        final Map<String, Boolean> result = new TreeMap<>();
+        changes.forEach((path, subtree) -> {
+            if (subtrees.stream().noneMatch(root -> path.startsWith(root + "/"))) {
+                result.put(path, subtree);
+            }
+        });
+        return result;
+    }
+
+    private void synchronize(Map<String, Boolean> changes) {
+        try (Context context = new Context(parameters)) {
+            current = context;
+            context.taskCounter().increment();
+            try {
+                for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+                    if (context.isCancelled()) {
+                        break;
+                    }
+                    submit(context, change.getKey().substring(sourcePath.length()), change.getValue());
+                }
+            } finally {
+                context.taskCounter().decrement();
+            }
+            context.taskCounter().await();
+            errors.addAll(context.errors());
+        } catch (IOException e) {
+            addError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            current = null;
+        }
+    }
+
+    private void submit(Context context, String relativePath, boolean subtree) throws IOException {
+        boolean recursive = subtree;
+        String path = relativePath;
+        while (true) {
+            final Entry src = source.getFileProvider().get(sourcePath + path);
+            final Entry dst = destination.getFileProvider().get(destinationPath + path);
+            if (src.isFolder() && dst.isFolder()) {
+                context.submit(new WalkTask(context, src.asFolder(), dst.asFolder(), null, recursive));
+                return;
+            }
+            if (PathUtils.isRoot(path)) {
+                return;
+            }
+            // The folder was deleted in the source or does not exist in the destination, its parent will fix it
+            path = PathUtils.getParent(path);
+            recursive = false;
+        }
+    }
+
+    private void addError(Throwable e) {
+        errors.add(e, null);
+    }
+
+    /**
+     * Gets the most recent errors that occurred since the synchronization was started.
+     * @return an immutable snapshot of the list of errors (empty if no error occurred)
+     * @see #getErrorCollector()
+     */
+    public List<Throwable> getErrors() {
+        return errors.getRecentErrors();
+    }
+
+    /**
+     * Gets the errors that occurred since the synchronization was started, with their counts by exception type and action kind.
+     * @return the error collector
+     */
+    public ErrorCollector getErrorCollector() {
+        return errors;
+    }
+
+    /**
+     * Stops watching the source folder and cancels the running synchronization (if any).
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (watch != null) {
+                watch.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to stop watching " + source, e);
+        }
+        final Context context = current;
+        if (context != null) {
+            context.cancel();
+        }
+        scheduler.shutdownNow();
+    }
+}
@@ -1,27 +1,104 @@
 package com.fathzer.sync4j.sync;
 
 import java.io.IOException;
+import java.util.List;
 
+import com.fathzer.sync4j.Batch;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
 import com.fathzer.sync4j.sync.Event.CopyFileAction;
+import com.fathzer.sync4j.sync.parameters.QosClass;
 
 import jakarta.annotation.Nonnull;
 
 class CopyFileTask extends Task<Void, CopyFileAction> {
+    private final long size;
     private long bytesCopied;
 
     CopyFileTask(@Nonnull Context context, @Nonnull CopyFileAction action) throws IOException {
-        super(context, action, context.statistics().copiedFiles());
-        context.statistics().copiedBytes().total().addAndGet(action.source().getSize());
+        super(context, action, context.statistics().copiedFilesTally());
+        this.size = action.source().getSize();
+        context.statistics().copiedBytesTally().addTotal(size);
     }
 
     public Void execute() throws IOException {
-        action().destination().copy(action().source().getName(), action().source(), this::progress);
+        record(copy(action().source(), action().destination()));
+        return null;
+    }
+
+    private void record(File copy) throws IOException {
+        final StateIndex stateIndex = context().stateIndex();
+        if (stateIndex != null) {
+            stateIndex.record(action().source(), copy);
+        }
+        final Checkpoint checkpoint = context().checkpoint();
+        if (checkpoint != null) {
+            checkpoint.copied(action().source());
+        }
+    }
+
+    /**
+     * Copies the file, preferably with a direct copy performed by the destination provider.
+     * <br>The content is streamed if the destination provider does not support the direct copy of the source file.
+     */
+    private File copy(File source, Folder destination) throws IOException {
+        if (destination.getFileProvider().isDirectCopySupported(source.getFileProvider())) {
+            try {
+                return destination.directCopy(source.getName(), source, this::progress);
+            } catch (UnsupportedOperationException e) {
+                // This file can't be directly copied
+            }
+        }
+        return destination.copy(source.getName(), source, this::progress);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>Only the copies of small files (see {@link QosClass#SMALL_COPY}) can be executed in a batch.
+     */
+    @Override
+    protected Folder batchFolder() {
+        return qos() == QosClass.SMALL_COPY ? action().destination() : null;
+    }
+
+    @Override
+    protected void batch(Batch batch) {
+        batch.copy(action().destination(), action().source().getName(), action().source());
+    }
+
+    @Override
+    protected Void batched(Batch.Result result) throws IOException {
+        progress(size);
+        record(result.entry().asFile());
         return null;
     }
 
     private void progress(long bytes) {
-        context().statistics().copiedBytes().done().addAndGet(bytes-bytesCopied);
+        // Suspend the copy at a chunk boundary when the synchronization is paused
+        context().awaitResumed();
+        context().statistics().copiedBytesTally().addDone(bytes-bytesCopied);
         bytesCopied = bytes;
         action().progressListener().accept(bytes);
     }
+
+    @Override
+    protected QosClass qos() {
+        return size < context().params().performance().largeCopyThreshold() ? QosClass.SMALL_COPY : QosClass.LARGE_COPY;
+    }
+
+    @Override
+    protected List<FileProvider> providers() {
+        return List.of(action().source().getFileProvider(), action().destination().getFileProvider());
+    }
+
+    @Override
+    protected TaskEvent newEvent() {
+        return isRecorded(TaskEvent.CopyFile.class) ? new TaskEvent.CopyFile(action().source(), size) : null;
+    }
+
+    @Override
+    protected void plan(SyncPlan.Builder plan) throws IOException {
+        plan.copy(action().source(), action().destination());
+    }
 }
@@ -1,14 +1,17 @@
 package com.fathzer.sync4j.sync;
 
 import java.io.IOException;
+import java.util.List;
 
+import com.fathzer.sync4j.Batch;
+import com.fathzer.sync4j.FileProvider;
 import com.fathzer.sync4j.Folder;
 import com.fathzer.sync4j.sync.Event.CreateFolderAction;
 
 class CreateFolderTask extends Task<Folder, CreateFolderAction> {
 
     CreateFolderTask(Context context, Folder destination, String name) {
-        super(context, new CreateFolderAction(destination, name), context.statistics().createdFolders());
+        super(context, new CreateFolderAction(destination, name), context.statistics().createdFoldersTally());
     }
 
     @Override
@@ -22,8 +25,32 @@ class CreateFolderTask extends Task<Folder, CreateFolderAction> {
     }
 
     @Override
-    protected boolean onlySynchronous() {
-        // Prevent the task to be executed asynchronously
-        return true;
+    protected Folder batchFolder() {
+        return action().folder();
+    }
+
+    @Override
+    protected void batch(Batch batch) {
+        batch.mkdir(action().folder(), action().name());
+    }
+
+    @Override
+    protected Folder batched(Batch.Result result) {
+        return result.entry().asFolder();
+    }
+
+    @Override
+    protected List<FileProvider> providers() {
+        return List.of(action().folder().getFileProvider());
+    }
+
+    @Override
+    protected TaskEvent newEvent() {
+        return isRecorded(TaskEvent.CreateFolder.class) ? new TaskEvent.CreateFolder(action().folder(), action().name()) : null;
+    }
+
+    @Override
+    protected void plan(SyncPlan.Builder plan) throws IOException {
+        plan.mkdir(action().folder(), action().name());
     }
 }
@@ -1,21 +1,75 @@
 package com.fathzer.sync4j.sync;
 
 import java.io.IOException;
+import java.util.List;
 
+import com.fathzer.sync4j.Batch;
 import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
 import com.fathzer.sync4j.sync.Event.DeleteEntryAction;
+import com.fathzer.sync4j.sync.Statistics.Tally;
+import com.fathzer.sync4j.sync.parameters.QosClass;
 
 class DeleteTask extends Task<Void, DeleteEntryAction> {
     private final Entry entry;
 
     DeleteTask(Context context, Entry entry) {
-        super(context, new DeleteEntryAction(entry), entry.isFile() ? context.statistics().deletedFiles() : context.statistics().deletedFolders());
+        super(context, new DeleteEntryAction(entry), entry.isFile() ? context.statistics().deletedFilesTally() : context.statistics().deletedFoldersTally());
         this.entry = entry;
     }
 
     @Override
     public Void execute() throws IOException {
-        entry.delete();
+        if (context().params().performance().useTrash() && entry.getFileProvider().isTrashSupported()) {
+            entry.moveToTrash();
+        } else if (entry.isFolder()) {
+            // Files deleted with the folder are reported one by one in the deleted files statistics
+            final Tally deletedFiles = context().statistics().deletedFilesTally();
+            entry.asFolder().delete(count -> {
+                deletedFiles.addTotal(count);
+                deletedFiles.addDone(count);
+            }, context()::isCancelled);
+        } else {
+            entry.delete();
+        }
         return null;
     }
+
+    /**
+     * {@inheritDoc}
+     * <br>Only the deletions of files can be executed in a batch (folders are deleted with their content, and the trash is not used in batches).
+     */
+    @Override
+    protected Folder batchFolder() throws IOException {
+        if (!entry.isFile() || (context().params().performance().useTrash() && entry.getFileProvider().isTrashSupported())) {
+            return null;
+        }
+        return entry.getParent().asFolder();
+    }
+
+    @Override
+    protected void batch(Batch batch) throws IOException {
+        batch.delete(entry.asFile());
+    }
+
+    @Override
+    protected QosClass qos() {
+        return QosClass.DELETE;
+    }
+
+    @Override
+    protected List<FileProvider> providers() {
+        return List.of(entry.getFileProvider());
+    }
+
+    @Override
+    protected TaskEvent newEvent() {
+        return isRecorded(TaskEvent.DeleteEntry.class) ? new TaskEvent.DeleteEntry(entry) : null;
+    }
+
+    @Override
+    protected void plan(SyncPlan.Builder plan) throws IOException {
+        plan.delete(entry);
+    }
 }
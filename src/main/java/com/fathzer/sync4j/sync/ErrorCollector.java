@@ -0,0 +1,181 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fathzer.sync4j.sync.Event.Action;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * The errors that occurred during a synchronization.
+ * <br>The number of errors is counted exactly, by exception type and by kind of action, but only the most recent errors are retained,
+ * so that a synchronization where a lot of entries fail does not keep all their stack traces in memory.
+ * <br>All the errors can also be written to a file.
+ * <br>This class is thread-safe, errors are collected without locking (except when they are written to a file).
+ * @see com.fathzer.sync4j.sync.parameters.SyncParameters#maxRecentErrors(int)
+ * @see com.fathzer.sync4j.sync.parameters.SyncParameters#errorFile(Path)
+ */
+public final class ErrorCollector {
+    private static final Logger LOGGER = Logger.getLogger(ErrorCollector.class.getName());
+
+    private final LongAdder count = new LongAdder();
+    private final Map<Class<? extends Throwable>, LongAdder> countByType = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Action>, LongAdder> countByAction = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Throwable> recent;
+    private final AtomicLong added = new AtomicLong();
+    private final Path file;
+    private PrintWriter sink;
+    private boolean sinkClosed;
+
+    /**
+     * Constructor.
+     * @param maxRecentErrors the maximum number of errors retained
+     * @param file the file where all the errors are appended, or null to not write the errors to a file
+     */
+    ErrorCollector(int maxRecentErrors, @Nullable Path file) {
+        this.recent = new AtomicReferenceArray<>(maxRecentErrors);
+        this.file = file;
+    }
+
+    /**
+     * Adds an error.
+     * @param error the error
+     * @param action the action that failed, or null if the error is not related to an action
+     */
+    void add(@Nonnull Throwable error, @Nullable Action action) {
+        count(error.getClass(), action == null ? null : action.getClass(), 1);
+        retain(error);
+        if (file != null) {
+            write(error, action);
+        }
+    }
+
+    /**
+     * Adds the errors of another collector.
+     * <br>The counts of the other collector are added to this collector's counts, and its recent errors are retained by this collector.
+     * They are not written to this collector's file.
+     * @param other the other collector
+     */
+    void addAll(@Nonnull ErrorCollector other) {
+        other.countByType.forEach((type, n) -> count(type, null, n.sum()));
+        other.countByAction.forEach((action, n) -> countByAction.computeIfAbsent(action, k -> new LongAdder()).add(n.sum()));
+        other.getRecentErrors().forEach(this::retain);
+    }
+
+    private void count(Class<? extends Throwable> type, @Nullable Class<? extends Action> action, long n) {
+        count.add(n);
+        countByType.computeIfAbsent(type, k -> new LongAdder()).add(n);
+        if (action != null) {
+            countByAction.computeIfAbsent(action, k -> new LongAdder()).add(n);
+        }
+    }
+
+    private void retain(Throwable error) {
+        if (recent.length() > 0) {
+            recent.set((int) (added.getAndIncrement() % recent.length()), error);
+        }
+    }
+
+    private synchronized void write(Throwable error, @Nullable Action action) {
+        if (sinkClosed) {
+            return;
+        }
+        try {
+            if (sink == null) {
+                sink = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            }
+            sink.println(Instant.now() + " " + (action == null ? "" : action + " ") + "failed");
+            error.printStackTrace(sink);
+        } catch (IOException e) {
+            // Errors are still counted and the most recent ones are retained
+            sinkClosed = true;
+            LOGGER.log(Level.WARNING, e, () -> "Unable to write errors to " + file);
+        }
+    }
+
+    /**
+     * Flushes and closes the error file, if any.
+     * <br>The errors added after this method is called are not written to the file.
+     */
+    synchronized void close() {
+        sinkClosed = true;
+        if (sink != null) {
+            sink.close();
+            sink = null;
+        }
+    }
+
+    /**
+     * Gets the number of errors.
+     * @return a positive or null number
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the number of errors by exception type.
+     * @return an immutable map (exception class -&gt; number of errors)
+     */
+    @Nonnull
+    public Map<Class<? extends Throwable>, Long> countByType() {
+        return snapshot(countByType);
+    }
+
+    /**
+     * Gets the number of errors by kind of action.
+     * <br>Errors that are not related to an action are not counted in this map.
+     * @return an immutable map (action class -&gt; number of errors)
+     */
+    @Nonnull
+    public Map<Class<? extends Action>, Long> countByAction() {
+        return snapshot(countByAction);
+    }
+
+    private static <K> Map<K, Long> snapshot(Map<K, LongAdder> counts) {
+        final Map<K, Long> result = new HashMap<>();
+        counts.forEach((key, n) -> result.put(key, n.sum()));
+        return Map.copyOf(result);
+    }
+
+    /**
+     * Gets the most recent errors.
+     * <br>If errors are added while this method is called, the returned list may not contain the very last of them.
+     * @return an immutable list of the most recent errors, from the oldest to the newest
+     * @see com.fathzer.sync4j.sync.parameters.SyncParameters#maxRecentErrors(int)
+     */
+    @Nonnull
+    public List<Throwable> getRecentErrors() {
+        final long end = added.get();
+        final List<Throwable> result = new ArrayList<>();
+        for (long i = Math.max(0, end - recent.length()); i < end; i++) {
+            final Throwable error = recent.get((int) (i % recent.length()));
+            if (error != null) {
+                result.add(error);
+            }
+        }
+        return List.copyOf(result);
+    }
+
+    @Override
+    public String toString() {
+        return "ErrorCollector [count=" + count() + ", countByType=" + countByType() + ", countByAction=" + countByAction() + "]";
+    }
+}
@@ -211,6 +211,49 @@ public class Event {
         }
     }
 
+    /**
+     * Action to move a file of the destination to a destination folder, instead of copying a source file.
+     * @see com.fathzer.sync4j.sync.parameters.SyncParameters#detectMoves(boolean)
+     */
+    public static final class MoveFileAction implements Action {
+        private final File source;
+        private final File file;
+        private final Folder destination;
+        MoveFileAction(@Nonnull File source, @Nonnull File file, @Nonnull Folder destination) {
+            this.source = Objects.requireNonNull(source);
+            this.file = Objects.requireNonNull(file);
+            this.destination = Objects.requireNonNull(destination);
+        }
+        /**
+         * Returns the source file the moved file is identical to.
+         * @return the source file
+         */
+        @Nonnull
+        public File source() {
+            return source;
+        }
+        /**
+         * Returns the destination file to move.
+         * @return A file instance
+         */
+        @Nonnull
+        public File file() {
+            return file;
+        }
+        /**
+         * Returns the destination folder, where the file is moved with the name of the source file.
+         * @return A folder instance
+         */
+        @Nonnull
+        public Folder destination() {
+            return destination;
+        }
+        @Override
+        public String toString() {
+            return getClass().getSimpleName()+"{file=" + file +", destination=" + destination + ", name=" + source.getName() + '}';
+        }
+    }
+
     /**
      * Action to delete an entry.
      */
@@ -264,4 +307,27 @@ public class Event {
             super(folder);
         }
     }
+
+    /**
+     * Action to check a step of a {@link SyncPlan} before it is executed.
+     * <br>It is only used to report the errors that occur while checking that the entries did not change since the plan was computed.
+     */
+    public static final class CheckPlanStepAction implements Action {
+        private final SyncPlan.Step step;
+        CheckPlanStepAction(@Nonnull SyncPlan.Step step) {
+            this.step = Objects.requireNonNull(step);
+        }
+        /**
+         * Returns the step to check.
+         * @return A step
+         */
+        @Nonnull
+        public SyncPlan.Step step() {
+            return step;
+        }
+        @Override
+        public String toString() {
+            return getClass().getSimpleName()+"{step=" + step +'}';
+        }
+    }
 }
@@ -0,0 +1,208 @@
+package com.fathzer.sync4j.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fathzer.sync4j.sync.parameters.OverflowPolicy;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Delivers events to a listener on a dedicated thread.
+ * <br>Events are published in a bounded lock-free ring buffer, then the delivery thread drains them in batches.
+ * @see com.fathzer.sync4j.sync.parameters.SyncParameters#asyncEvents(int, OverflowPolicy)
+ */
+class EventBus implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(EventBus.class.getName());
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long BLOCKED_WAIT = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Consumer<Event> listener;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong dropped;
+    // The ring buffer: a slot can be written when its sequence is equal to the write position, and read when it is equal to the read position + 1
+    private final AtomicReferenceArray<Event> events;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     * @param listener the listener events are delivered to
+     * @param capacity the minimum capacity of the buffer
+     * @param overflowPolicy the policy applied when the buffer is full
+     * @param dropped the counter of events that are not delivered
+     */
+    EventBus(@Nonnull Consumer<Event> listener, int capacity, @Nonnull OverflowPolicy overflowPolicy, @Nonnull AtomicLong dropped) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be strictly positive");
+        }
+        this.listener = Objects.requireNonNull(listener);
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+        this.dropped = Objects.requireNonNull(dropped);
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.thread = new Context.DaemonThreadFactory("sync-events").newThread(this::drain);
+        thread.start();
+    }
+
+    /**
+     * Publishes an event.
+     * <br>If this bus is closed, the event is delivered by the calling thread.
+     * @param event the event
+     */
+    void publish(@Nonnull Event event) {
+        if (closed) {
+            deliver(event);
+            return;
+        }
+        while (!offer(event)) {
+            if (closed) {
+                // The delivery thread may be stopped
+                deliver(event);
+                return;
+            }
+            switch (overflowPolicy) {
+                case DROP_OLDEST -> {
+                    if (poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                case COALESCE -> {
+                    if (!event.status().isTerminal()) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    waitForRoom();
+                }
+                case BLOCK -> waitForRoom();
+            }
+        }
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void waitForRoom() {
+        LockSupport.unpark(thread);
+        LockSupport.parkNanos(this, BLOCKED_WAIT);
+    }
+
+    private boolean offer(Event event) {
+        long position = writePosition.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long delta = sequences.get(index) - position;
+            if (delta == 0) {
+                if (writePosition.compareAndSet(position, position + 1)) {
+                    events.lazySet(index, event);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = writePosition.get();
+            } else if (delta < 0) {
+                // The buffer is full
+                return false;
+            } else {
+                // Another thread wrote the slot
+                position = writePosition.get();
+            }
+        }
+    }
+
+    private Event poll() {
+        long position = readPosition.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long delta = sequences.get(index) - (position + 1);
+            if (delta == 0) {
+                if (readPosition.compareAndSet(position, position + 1)) {
+                    final Event event = events.get(index);
+                    events.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return event;
+                }
+                position = readPosition.get();
+            } else if (delta < 0) {
+                // The buffer is empty
+                return null;
+            } else {
+                // Another thread read the slot
+                position = readPosition.get();
+            }
+        }
+    }
+
+    private void drain() {
+        final List<Event> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            Event event;
+            while (batch.size() < MAX_BATCH_SIZE && (event = poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                waiting = true;
+                event = poll();
+                if (event != null) {
+                    batch.add(event);
+                } else if (closed) {
+                    waiting = false;
+                    return;
+                } else {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+            } else {
+                batch.forEach(this::deliver);
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(Event event) {
+        try {
+            listener.accept(event);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Event listener failed to process " + event);
+        }
+    }
+
+    /**
+     * Delivers the pending events, then stops the delivery thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Deliver the events published while the bus was closing
+        for (Event event = poll(); event != null; event = poll()) {
+            deliver(event);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.fathzer.sync4j.sync;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.fathzer.sync4j.sync.Latencies.Latency;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A histogram of latencies, in nanoseconds.
+ * <br>Values are counted in log-linear buckets: each power of two range is divided in 32 buckets of the same width,
+ * so the values of a bucket differ by at most 1/32 (about 3%), whatever the magnitude of the latency.
+ * <br>Recording a value does not lock anything and does not allocate memory.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * @param nanos the latency in nanoseconds (negative values are recorded as 0)
+     */
+    void record(long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Gets the highest value counted in a bucket.
+     * @param index the index of the bucket
+     * @return a value
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index >> SUB_BUCKET_BITS) - 1;
+        final long mantissa = (index & (SUB_BUCKETS - 1)) + (long) SUB_BUCKETS;
+        // For the last bucket, the shift overflows to Long.MIN_VALUE, then the subtraction to Long.MAX_VALUE
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Gets the summary of the recorded latencies.
+     * <br>The latencies recorded while this method is called may not be taken into account.
+     * @return a summary
+     */
+    @Nonnull
+    Latency summary() {
+        final long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        final long highest = max.get();
+        return new Latency(count, Duration.ofNanos(percentile(snapshot, count, 50, highest)), Duration.ofNanos(percentile(snapshot, count, 99, highest)),
+                Duration.ofNanos(highest));
+    }
+
+    private static long percentile(long[] counts, long count, double percentile, long max) {
+        final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (cumulated >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return 0;
+    }
+}
@@ -4,12 +4,13 @@ import java.io.IOException;
 import java.util.List;
 
 import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.FileProvider;
 import com.fathzer.sync4j.Folder;
 import com.fathzer.sync4j.sync.Event.ListAction;
 
 class ListTask extends Task<List<Entry>, ListAction> {
     ListTask(Context context, Folder folder) {
-        super(context, new ListAction(folder), context.statistics().listedFolders());
+        super(context, new ListAction(folder), context.statistics().listedFoldersTally());
     }
 
     @Override
@@ -21,4 +22,14 @@ class ListTask extends Task<List<Entry>, ListAction> {
     protected Kind kind() {
         return Kind.WALKER;
     }
+
+    @Override
+    protected List<FileProvider> providers() {
+        return List.of(action().folder().getFileProvider());
+    }
+
+    @Override
+    protected TaskEvent newEvent() {
+        return isRecorded(TaskEvent.ListFolder.class) ? new TaskEvent.ListFolder(action().folder()) : null;
+    }
 }
@@ -0,0 +1,329 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.sync.parameters.QosClass;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Detects the files that were moved or renamed in the source, in order to move them in the destination instead of copying them again.
+ * <br>The copies of the files missing in the destination and the deletions of the destination entries missing in the source are deferred
+ * until all the folders are walked. Then, the folders to delete are listed by asynchronous tasks, and each file to copy is matched against
+ * the files to delete (including the files of the folders to delete) that have the same size and are identical according to the file
+ * comparator (so, by default, that have the same last modified time). The copies of files with no same size file to delete are started
+ * at once, the others are matched by asynchronous comparison tasks.
+ * <br>Matched files are moved. A folder to delete that contains moved files is deleted once the moves are completed. Unmatched copies
+ * and deletions are executed as usual.
+ * @see com.fathzer.sync4j.sync.parameters.SyncParameters#detectMoves(boolean)
+ */
+class MoveDetector {
+    private record Copy(File source, Folder destination, Checkpoint.Node node) {}
+    private record Candidate(File file, long lastModified, Deletion deletion) {}
+
+    private static final class Deletion {
+        private final Entry entry;
+        private final boolean folder;
+        private final Checkpoint.Node node;
+        /** The number of moves from this deletion that are not ended, plus one while the copies are matched. */
+        private final AtomicInteger pendingMoves = new AtomicInteger(1);
+        private volatile boolean moved;
+
+        private Deletion(Entry entry, Checkpoint.Node node) {
+            this.entry = entry;
+            this.folder = entry.isFolder();
+            this.node = node;
+        }
+    }
+
+    /**
+     * The files to delete, indexed by size, then by last modified time.
+     * <br>The files that have the same last modified time as a copied file are compared first: with the default comparator, they are
+     * the only ones that can match.
+     */
+    private static final class Candidates {
+        private final Map<Long, Map<Long, List<Candidate>>> bySize = new HashMap<>();
+
+        synchronized void add(long size, Candidate candidate) {
+            bySize.computeIfAbsent(size, s -> new HashMap<>()).computeIfAbsent(candidate.lastModified(), d -> new ArrayList<>()).add(candidate);
+        }
+
+        synchronized boolean hasSize(long size) {
+            return bySize.containsKey(size);
+        }
+
+        /**
+         * Gets the candidates that have a size.
+         * @param size the size
+         * @param lastModified the last modified time of the copied file
+         * @return the candidates, starting with those that have the same last modified time
+         */
+        synchronized List<Candidate> get(long size, long lastModified) {
+            final Map<Long, List<Candidate>> byDate = bySize.get(size);
+            if (byDate == null) {
+                return List.of();
+            }
+            final List<Candidate> sameDate = byDate.get(lastModified);
+            final List<Candidate> result = sameDate == null ? new ArrayList<>() : new ArrayList<>(sameDate);
+            byDate.forEach((date, candidates) -> {
+                if (date != lastModified) {
+                    result.addAll(candidates);
+                }
+            });
+            return result;
+        }
+
+        /**
+         * Takes a candidate, a file can be moved only once.
+         * @param size the size of the candidate
+         * @param candidate the candidate
+         * @return true if the candidate was taken, false if it was already taken
+         */
+        synchronized boolean take(long size, Candidate candidate) {
+            final Map<Long, List<Candidate>> byDate = bySize.get(size);
+            final List<Candidate> candidates = byDate == null ? null : byDate.get(candidate.lastModified());
+            if (candidates == null || !candidates.remove(candidate)) {
+                return false;
+            }
+            if (candidates.isEmpty()) {
+                byDate.remove(candidate.lastModified());
+                if (byDate.isEmpty()) {
+                    bySize.remove(size);
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Context context;
+    private final AtomicInteger pendingWalks = new AtomicInteger();
+    private final Queue<Copy> copies = new ConcurrentLinkedQueue<>();
+    private final Queue<Deletion> deletions = new ConcurrentLinkedQueue<>();
+    private final Candidates candidates = new Candidates();
+    /** The number of folders to delete that are being listed, plus one while the listings are started. */
+    private final AtomicInteger pendingListings = new AtomicInteger(1);
+    /** The number of copies that are being matched, plus one while the matches are started. */
+    private final AtomicInteger pendingMatches = new AtomicInteger(1);
+
+    MoveDetector(@Nonnull Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Signals a walk is started.
+     * <br>The deferred operations are resolved when all the started walks are ended. The first call keeps the synchronization pending.
+     */
+    void walkStarted() {
+        if (pendingWalks.getAndIncrement() == 0) {
+            context.taskCounter().increment();
+        }
+    }
+
+    /**
+     * Signals a walk is ended.
+     */
+    void walkEnded() {
+        if (pendingWalks.decrementAndGet() == 0) {
+            try {
+                resolve();
+            } finally {
+                context.taskCounter().decrement();
+            }
+        }
+    }
+
+    /**
+     * Defers the copy of a file missing in the destination.
+     * @param source the source file
+     * @param destination the destination folder
+     * @param node the checkpoint node of the folder that spawns the copy, or null if there's no checkpoint
+     */
+    void copy(@Nonnull File source, @Nonnull Folder destination, @Nullable Checkpoint.Node node) {
+        if (node != null) {
+            node.fork();
+        }
+        copies.add(new Copy(source, destination, node));
+    }
+
+    /**
+     * Defers the deletion of a destination entry missing in the source.
+     * @param entry the entry to delete
+     * @param node the checkpoint node of the folder that spawns the deletion, or null if there's no checkpoint
+     */
+    void delete(@Nonnull Entry entry, @Nullable Checkpoint.Node node) {
+        if (node != null) {
+            node.fork();
+        }
+        deletions.add(new Deletion(entry, node));
+    }
+
+    private void resolve() {
+        if (context.isCancelled()) {
+            releaseAll();
+            return;
+        }
+        if (!copies.isEmpty()) {
+            for (Deletion deletion : deletions) {
+                collect(deletion.entry, deletion);
+            }
+        }
+        listed();
+    }
+
+    /**
+     * Collects the files to delete.
+     * <br>The folders are listed asynchronously, the copies are matched once all the listings are ended.
+     * @param entry an entry to delete, or contained in a folder to delete
+     * @param deletion the deletion the entry comes from
+     */
+    private void collect(Entry entry, Deletion deletion) {
+        if (entry.isFile()) {
+            final File file = entry.asFile();
+            try {
+                final long lastModified = file.getLastModifiedTime();
+                candidates.add(file.getSize(), new Candidate(file, lastModified, deletion));
+            } catch (IOException e) {
+                // The file can't be moved, it will be deleted
+            }
+        } else if (entry.isFolder()) {
+            pendingListings.incrementAndGet();
+            context.asyncList(entry.asFolder(), children -> {
+                try {
+                    if (children != null && !context.isCancelled()) {
+                        children.forEach(child -> collect(child, deletion));
+                    }
+                } finally {
+                    listed();
+                }
+            });
+        }
+    }
+
+    private void listed() {
+        if (pendingListings.decrementAndGet() == 0) {
+            match();
+        }
+    }
+
+    private void match() {
+        if (context.isCancelled()) {
+            releaseAll();
+            return;
+        }
+        for (Copy copy : copies) {
+            if (hasCandidates(copy)) {
+                pendingMatches.incrementAndGet();
+                context.taskCounter().increment();
+                final List<FileProvider> providers = List.of(copy.source().getFileProvider(), copy.destination().getFileProvider());
+                context.execute(QosClass.COMPARE, context.throttles(providers), () -> {
+                    try {
+                        match(copy);
+                    } finally {
+                        matched();
+                        context.taskCounter().decrement();
+                    }
+                });
+            } else {
+                // No file to delete can match, the copy is started at once
+                context.asyncCopy(copy.source(), copy.destination(), copy.node());
+                release(copy.node(), true);
+            }
+        }
+        matched();
+    }
+
+    private boolean hasCandidates(Copy copy) {
+        try {
+            return candidates.hasSize(copy.source().getSize());
+        } catch (IOException e) {
+            // The file will be copied
+            return false;
+        }
+    }
+
+    private void match(Copy copy) {
+        final Candidate candidate = find(copy);
+        if (candidate == null) {
+            context.asyncCopy(copy.source(), copy.destination(), copy.node());
+        } else {
+            final Deletion deletion = candidate.deletion();
+            deletion.moved = true;
+            deletion.pendingMoves.incrementAndGet();
+            context.asyncMove(copy.source(), candidate.file(), copy.destination(), copy.node(), () -> {
+                if (deletion.pendingMoves.decrementAndGet() == 0) {
+                    deleteMovedFolder(deletion);
+                }
+            });
+        }
+        release(copy.node(), true);
+    }
+
+    private Candidate find(Copy copy) {
+        try {
+            final long size = copy.source().getSize();
+            for (Candidate candidate : candidates.get(size, copy.source().getLastModifiedTime())) {
+                if (context.params().fileComparator().areSame(copy.source(), candidate.file())
+                        && candidates.take(size, candidate)) {
+                    return candidate;
+                }
+            }
+        } catch (IOException e) {
+            // The file will be copied
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the deletions once all the copies are matched.
+     */
+    private void matched() {
+        if (pendingMatches.decrementAndGet() != 0) {
+            return;
+        }
+        for (Deletion deletion : deletions) {
+            if (!deletion.moved) {
+                context.asyncDelete(deletion.entry, deletion.node);
+                release(deletion.node, true);
+            } else if (!deletion.folder) {
+                // The file was moved (its type can't be tested anymore, it may already be moved)
+                release(deletion.node, true);
+            } else if (deletion.pendingMoves.decrementAndGet() == 0) {
+                // All the files the folder contains are already moved
+                deleteMovedFolder(deletion);
+            }
+        }
+    }
+
+    private void deleteMovedFolder(Deletion deletion) {
+        if (deletion.folder) {
+            context.asyncDelete(deletion.entry, deletion.node);
+            release(deletion.node, true);
+        }
+    }
+
+    /**
+     * Releases the checkpoint nodes of the deferred operations of a cancelled synchronization.
+     */
+    private void releaseAll() {
+        copies.forEach(copy -> release(copy.node(), false));
+        deletions.forEach(deletion -> release(deletion.node, false));
+    }
+
+    private static void release(Checkpoint.Node node, boolean success) {
+        if (node != null) {
+            node.done(success);
+        }
+    }
+}
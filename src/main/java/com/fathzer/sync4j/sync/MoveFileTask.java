@@ -0,0 +1,46 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.sync.Event.MoveFileAction;
+import com.fathzer.sync4j.sync.parameters.QosClass;
+
+import jakarta.annotation.Nonnull;
+
+class MoveFileTask extends Task<Void, MoveFileAction> {
+    MoveFileTask(@Nonnull Context context, @Nonnull MoveFileAction action) {
+        super(context, action, context.statistics().movedFilesTally());
+    }
+
+    @Override
+    public Void execute() throws IOException {
+        final File moved = action().destination().move(action().source().getName(), action().file());
+        final StateIndex stateIndex = context().stateIndex();
+        if (stateIndex != null) {
+            stateIndex.record(action().source(), moved);
+        }
+        final Checkpoint checkpoint = context().checkpoint();
+        if (checkpoint != null) {
+            checkpoint.copied(action().source());
+        }
+        return null;
+    }
+
+    @Override
+    protected QosClass qos() {
+        return QosClass.METADATA;
+    }
+
+    @Override
+    protected List<FileProvider> providers() {
+        return List.of(action().destination().getFileProvider());
+    }
+
+    @Override
+    protected TaskEvent newEvent() {
+        return isRecorded(TaskEvent.MoveFile.class) ? new TaskEvent.MoveFile(action().file()) : null;
+    }
+}
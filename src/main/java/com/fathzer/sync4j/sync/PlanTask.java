@@ -0,0 +1,196 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.sync.Event.CheckPlanStepAction;
+import com.fathzer.sync4j.sync.SyncPlan.Step;
+import com.fathzer.sync4j.sync.SyncPlan.Type;
+import com.fathzer.sync4j.util.IOLambda.IORunnable;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Executes a {@link SyncPlan}.
+ * <br>The steps of a folder created by the plan are started once the folder is created: the creation is asynchronous and the steps
+ * it contains are chained onto its completion. Other steps are started in the plan order by this task. Deletions of entries that are
+ * re-created by a later step are executed before the next steps are started, other steps are checked and executed in parallel.
+ * <br>Before a step is executed, the metadata it was based on is checked: a copied source file, or a deleted destination file,
+ * should have the size and last modified time recorded in the plan, and a deleted destination folder should still be a folder.
+ * If they changed, the step is not executed, and an error is reported with a {@link CheckPlanStepAction}.
+ */
+class PlanTask implements Runnable {
+    private final Context context;
+    private final Folder source;
+    private final String sourceRoot;
+    private final Folder destination;
+    private final String destinationRoot;
+    private final SyncPlan plan;
+    private final Map<String, Folder> folders = new ConcurrentHashMap<>();
+    /** Paths re-created by the plan, their deletion should be completed before the next steps are executed. */
+    private final Set<String> created;
+    /** The steps of the folders created by the plan, by folder path. */
+    private final Map<String, List<Step>> children = new HashMap<>();
+    /** The steps that are not in a folder created by the plan. */
+    private final List<Step> roots = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * @param context the context
+     * @param source the source folder
+     * @param destination the destination folder
+     * @param plan the plan to execute
+     * @throws IOException if an I/O error occurs
+     */
+    PlanTask(@Nonnull Context context, @Nonnull Folder source, @Nonnull Folder destination, @Nonnull SyncPlan plan) throws IOException {
+        this.context = Objects.requireNonNull(context);
+        this.source = Objects.requireNonNull(source);
+        this.sourceRoot = source.getPath();
+        this.destination = Objects.requireNonNull(destination);
+        this.destinationRoot = destination.getPath();
+        this.plan = Objects.requireNonNull(plan);
+        this.created = plan.steps().stream().filter(step -> step.type() != Type.DELETE).map(Step::path).collect(Collectors.toSet());
+        final Set<String> createdFolders = plan.steps().stream().filter(step -> step.type() == Type.MKDIR).map(Step::path).collect(Collectors.toSet());
+        for (Step step : plan.steps()) {
+            final String parent = parent(step.path());
+            if (createdFolders.contains(parent)) {
+                children.computeIfAbsent(parent, p -> new ArrayList<>()).add(step);
+            } else {
+                roots.add(step);
+            }
+        }
+    }
+
+    private static String parent(String path) {
+        return path.substring(0, path.lastIndexOf('/'));
+    }
+
+    /**
+     * Submits this task to the context.
+     */
+    void submit() {
+        context.taskCounter().increment();
+        context.submit(this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            folders.put("", destination);
+            execute(roots);
+        } finally {
+            context.taskCounter().decrement();
+        }
+    }
+
+    /**
+     * Starts steps in the plan order.
+     * @param steps the steps
+     */
+    private void execute(List<Step> steps) {
+        for (Step step : steps) {
+            if (context.isCancelled()) return;
+            if (step.type() == Type.MKDIR) {
+                check(step, () -> mkdir(step));
+            } else if (step.type() == Type.DELETE && created.contains(step.path())) {
+                check(step, () -> delete(step, true));
+            } else {
+                check(step, () -> submit(step));
+            }
+        }
+    }
+
+    private void submit(Step step) {
+        context.taskCounter().increment();
+        context.submit(() -> {
+            try {
+                if (!context.isCancelled()) {
+                    check(step, () -> {
+                        if (step.type() == Type.COPY) {
+                            copy(step);
+                        } else {
+                            delete(step, false);
+                        }
+                    });
+                }
+            } finally {
+                context.taskCounter().decrement();
+            }
+        });
+    }
+
+    private void check(Step step, IORunnable action) {
+        try {
+            action.run();
+        } catch (IOException | RuntimeException e) {
+            context.processError(e, new CheckPlanStepAction(step));
+        }
+    }
+
+    private void mkdir(Step step) throws IOException {
+        final Entry entry = destination.getFileProvider().get(destinationRoot + step.path());
+        if (entry.isFolder()) {
+            // Folder was already created
+            folders.put(step.path(), entry.asFolder());
+            execute(children.getOrDefault(step.path(), List.of()));
+            return;
+        }
+        if (entry.exists()) {
+            throw new IOException(step.path() + " was created in the destination since the plan was computed");
+        }
+        final String parent = parent(step.path());
+        context.asyncCreateFolder(folder(parent), step.path().substring(parent.length() + 1), createdFolder -> {
+            // If the creation failed, the error is reported and the steps of the folder are skipped
+            if (createdFolder != null) {
+                folders.put(step.path(), createdFolder);
+                execute(children.getOrDefault(step.path(), List.of()));
+            }
+        }, null);
+    }
+
+    private void copy(Step step) throws IOException {
+        final Entry entry = source.getFileProvider().get(sourceRoot + step.path());
+        if (!entry.isFile() || entry.asFile().getSize() != step.size() || entry.asFile().getLastModifiedTime() != step.lastModifiedTime()) {
+            throw new IOException(step.path() + " changed in the source since the plan was computed");
+        }
+        final File file = entry.asFile();
+        context.asyncCopy(file, folder(parent(step.path())), null);
+    }
+
+    private void delete(Step step, boolean sync) throws IOException {
+        final Entry entry = destination.getFileProvider().get(destinationRoot + step.path());
+        final boolean unchanged = step.isFolder() ? entry.isFolder() :
+            entry.isFile() && entry.asFile().getSize() == step.size() && entry.asFile().getLastModifiedTime() == step.lastModifiedTime();
+        if (!unchanged) {
+            throw new IOException(step.path() + " changed in the destination since the plan was computed");
+        }
+        if (sync) {
+            context.delete(entry);
+        } else {
+            context.asyncDelete(entry, null);
+        }
+    }
+
+    private Folder folder(String path) throws IOException {
+        Folder folder = folders.get(path);
+        if (folder == null) {
+            final Entry entry = destination.getFileProvider().get(destinationRoot + path);
+            if (!entry.isFolder()) {
+                throw new IOException(path + " is not a folder in the destination");
+            }
+            folder = entry.asFolder();
+            folders.put(path, folder);
+        }
+        return folder;
+    }
+}
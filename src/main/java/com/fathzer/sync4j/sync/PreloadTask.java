@@ -1,22 +1,35 @@
 package com.fathzer.sync4j.sync;
 
 import java.io.IOException;
+import java.util.List;
 
+import com.fathzer.sync4j.FileProvider;
 import com.fathzer.sync4j.Folder;
 import com.fathzer.sync4j.sync.Event.PreloadAction;
 
 class PreLoadTask extends Task<Folder, PreloadAction> {
     PreLoadTask(Context context, Folder action) {
-        super(context, new PreloadAction(action), context.statistics().preloadedFolders());
+        super(context, new PreloadAction(action), context.statistics().preloadedFoldersTally());
     }
 
     @Override
     protected Folder execute() throws IOException {
-        return action().folder().preload();
+        return context().params().performance().spillDirectory() == null ? action().folder().preload()
+                : action().folder().preload(context().workDirectory());
     }
 
     @Override
     protected Kind kind() {
         return Kind.WALKER;
     }
+
+    @Override
+    protected List<FileProvider> providers() {
+        return List.of(action().folder().getFileProvider());
+    }
+
+    @Override
+    protected TaskEvent newEvent() {
+        return isRecorded(TaskEvent.PreloadFolder.class) ? new TaskEvent.PreloadFolder(action().folder()) : null;
+    }
 }
@@ -0,0 +1,115 @@
+package com.fathzer.sync4j.sync;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces the concurrency and rate limits of a provider.
+ * <br>Tasks executed by the {@link Scheduler} are admitted with {@link #tryAcquire(Runnable)}, which never blocks: a task that exceeds
+ * the concurrency limit is retried (in arrival order) when an operation ends, a task that exceeds the rate limit gets the time it can
+ * start at. Synchronous operations performed inside a running task use {@link #acquire()}, which waits until the operation can start.
+ */
+class ProviderThrottle {
+    /** The value returned by {@link #tryAcquire(Runnable)} when the concurrency limit is reached. */
+    static final long WAIT_RELEASE = -1;
+
+    private final int order;
+    private final int maxConcurrentOperations;
+    private final long intervalNanos;
+    private final Queue<Runnable> waiters = new ArrayDeque<>();
+    private int running;
+    private long nextStart;
+
+    /**
+     * Constructor.
+     * @param order the acquisition order of this throttle. When an operation involves several providers, their throttles are acquired
+     * in increasing order, in order to prevent dead locks.
+     * @param maxConcurrentOperations the maximum number of concurrent operations (0 for no limit)
+     * @param maxOperationsPerSecond the maximum number of operations per second (0 for no limit)
+     */
+    ProviderThrottle(int order, int maxConcurrentOperations, double maxOperationsPerSecond) {
+        this.order = order;
+        this.maxConcurrentOperations = maxConcurrentOperations > 0 ? maxConcurrentOperations : Integer.MAX_VALUE;
+        this.intervalNanos = maxOperationsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxOperationsPerSecond) : 0;
+        this.nextStart = System.nanoTime();
+    }
+
+    int order() {
+        return order;
+    }
+
+    /**
+     * Tests whether this throttle enforces no limit.
+     * @return true if this throttle never delays an operation
+     */
+    boolean isUnlimited() {
+        return maxConcurrentOperations == Integer.MAX_VALUE && intervalNanos == 0;
+    }
+
+    /**
+     * Tries to acquire this throttle without waiting.
+     * <br>If this method does not return {@link #WAIT_RELEASE}, the throttle is acquired: the operation should not start before the
+     * returned delay, and {@link #release()} must be called when it ends.
+     * @param retry the function called once, by the next {@link #release()}, if the concurrency limit is reached
+     * @return {@link #WAIT_RELEASE} if the concurrency limit is reached (<i>retry</i> is then registered), or the number of nanoseconds
+     * to wait before the operation starts (0 if it can start immediately)
+     */
+    synchronized long tryAcquire(Runnable retry) {
+        if (running >= maxConcurrentOperations) {
+            waiters.add(retry);
+            return WAIT_RELEASE;
+        }
+        running++;
+        return reserve();
+    }
+
+    /**
+     * Waits until an operation can start.
+     * <br>If this method returns normally, {@link #release()} must be called when the operation ends.
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    void acquire() throws InterruptedException {
+        final long delay;
+        synchronized (this) {
+            while (running >= maxConcurrentOperations) {
+                wait();
+            }
+            running++;
+            delay = reserve();
+        }
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                release();
+                throw e;
+            }
+        }
+    }
+
+    private long reserve() {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        final long start = nextStart - now > 0 ? nextStart : now;
+        nextStart = start + intervalNanos;
+        return start - now;
+    }
+
+    /**
+     * Signals the end of an operation.
+     */
+    void release() {
+        final Runnable waiter;
+        synchronized (this) {
+            running--;
+            waiter = waiters.poll();
+            notify();
+        }
+        if (waiter != null) {
+            waiter.run();
+        }
+    }
+}
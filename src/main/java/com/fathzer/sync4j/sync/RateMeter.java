@@ -0,0 +1,58 @@
+package com.fathzer.sync4j.sync;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fathzer.sync4j.sync.Statistics.Rate;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * Exponentially weighted moving averages of the rate of a growing count, over 1 second, 10 seconds and 1 minute windows.
+ * <br>This meter has no background thread: it is updated with the current count each time the rate is read.
+ * The averages take into account the time elapsed since the previous update, so the rate can be read at any frequency.
+ * <br>This class is thread-safe.
+ */
+final class RateMeter {
+    private static final long[] WINDOWS = {TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(10), TimeUnit.MINUTES.toNanos(1)};
+    // Updates closer than this interval are ignored, the rate measured on such a short time is meaningless
+    private static final long MIN_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final double[] rates = new double[WINDOWS.length];
+    private long lastTime;
+    private long lastCount;
+    private boolean initialized;
+
+    /**
+     * Constructor.
+     * @param start the time, in nanoseconds (see {@link System#nanoTime()}), when the count is 0
+     */
+    RateMeter(long start) {
+        this.lastTime = start;
+    }
+
+    /**
+     * Updates the averages, then returns them.
+     * @param now the current time, in nanoseconds (see {@link System#nanoTime()})
+     * @param count the current count
+     * @return the rates, per second
+     */
+    @Nonnull
+    synchronized Rate update(long now, long count) {
+        final long elapsed = now - lastTime;
+        if (elapsed >= MIN_INTERVAL) {
+            final double rate = (double) (count - lastCount) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+            for (int i = 0; i < WINDOWS.length; i++) {
+                if (initialized) {
+                    rates[i] += (1 - Math.exp(-(double) elapsed / WINDOWS[i])) * (rate - rates[i]);
+                } else {
+                    // Do not start from 0, the longest averages would underestimate the rate for minutes
+                    rates[i] = rate;
+                }
+            }
+            initialized = true;
+            lastTime = now;
+            lastCount = count;
+        }
+        return new Rate(rates[0], rates[1], rates[2]);
+    }
+}
@@ -0,0 +1,501 @@
+package com.fathzer.sync4j.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fathzer.sync4j.sync.Statistics.QosStatistics;
+import com.fathzer.sync4j.sync.parameters.QosClass;
+import com.fathzer.sync4j.sync.parameters.QosShare;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A pool of threads that executes tasks of several quality of service classes.
+ * <br>Each class has its own lock-free queue. Every thread serves every queue, so a thread that is not needed by a class is used by the others.
+ * When a thread is available, it picks the next task according to the {@link QosShare} of the classes.
+ * <br>Threads that find no task to execute park themselves. Submitting a task unparks one of them, only if no other thread is already
+ * searching a task. A thread that starts a task unparks another one if other tasks are queued and no thread is searching.
+ * No lock is taken to submit or select a task.
+ * <br>A class can also have an {@link AdaptiveLimiter} that limits its number of running tasks. A limiter can be shared by several classes.
+ * Tasks that throw an exception are reported as failed to the limiter. Tasks throw a {@link CompletionException} once they reported their error,
+ * other exceptions and errors are unexpected: they are logged, and the thread goes on with the next task.
+ * <br>A task can also require the {@link ProviderThrottle}s of the providers it works on. They are acquired without waiting, in their order,
+ * once a thread is reserved for the task. If a throttle is not available, the thread goes on with another task, and the task is deferred:
+ * it is queued again when the throttle is released, or after the delay imposed by its rate limit.
+ * <br>The scheduler can be paused: running tasks are completed, but no new task is started until it is resumed.
+ */
+class Scheduler {
+    private static final Logger LOGGER = Logger.getLogger(Scheduler.class.getName());
+
+    private static final class Lane {
+        private final int minThreads;
+        private final int maxThreads;
+        private final int weight;
+        private final AdaptiveLimiter limiter;
+        private final QosStatistics statistics;
+        private final Queue<Job> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger running = new AtomicInteger();
+
+        private Lane(QosShare share, int threadCount, AdaptiveLimiter limiter, QosStatistics statistics) {
+            this.minThreads = Math.min(share.minThreads(), threadCount);
+            this.maxThreads = share.maxThreads() == 0 ? threadCount : Math.min(share.maxThreads(), threadCount);
+            this.weight = share.weight();
+            this.limiter = limiter;
+            this.statistics = statistics;
+        }
+
+        private boolean isBetterThan(Lane other) {
+            final int count = running.get();
+            final int otherCount = other.running.get();
+            final boolean urgent = count < minThreads;
+            if (urgent != otherCount < other.minThreads) {
+                return urgent;
+            }
+            // Compare running/weight ratios without division
+            return (long) count * other.weight < (long) otherCount * weight;
+        }
+
+        /**
+         * Reserves a thread of this lane, and a slot of its limiter.
+         * @return true if the reservation succeeded
+         */
+        private boolean reserve() {
+            int count;
+            do {
+                count = running.get();
+                if (count >= maxThreads) {
+                    return false;
+                }
+            } while (!running.compareAndSet(count, count + 1));
+            if (limiter == null || limiter.tryAcquire()) {
+                return true;
+            }
+            running.decrementAndGet();
+            return false;
+        }
+
+        private void cancelReservation() {
+            if (limiter != null) {
+                limiter.cancel();
+            }
+            running.decrementAndGet();
+        }
+    }
+
+    private static final class Job {
+        private final Lane lane;
+        private final Runnable task;
+        private final List<ProviderThrottle> throttles;
+        private final long submitted;
+        /** The number of throttles already acquired. */
+        private int acquired;
+
+        private Job(Lane lane, Runnable task, List<ProviderThrottle> throttles, long submitted) {
+            this.lane = lane;
+            this.task = task;
+            this.throttles = throttles;
+            this.submitted = submitted;
+        }
+    }
+
+    /** A worker thread, that can be parked when it has nothing to do. */
+    private static final class Worker {
+        private final AtomicBoolean parked = new AtomicBoolean();
+        /** True if the worker is in the queue of parked workers (it may be there while it is not parked anymore). */
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private Thread thread;
+    }
+
+    private final Lane[] lanes;
+    private final List<Worker> workers;
+    private final Queue<Worker> parkedWorkers = new ConcurrentLinkedQueue<>();
+    /** The number of workers that are neither parked nor running a task, they will look for a task before parking. */
+    private final AtomicInteger searching = new AtomicInteger();
+    /** The number of tasks refused by a throttle, that are not queued until they are retried. */
+    private final AtomicInteger deferred = new AtomicInteger();
+    private final ThreadFactory threadFactory;
+    private ScheduledThreadPoolExecutor timer;
+    private volatile boolean shutdown;
+    private volatile boolean paused;
+    /** True if a queued task could not be started because its class was saturated. */
+    private volatile boolean saturated;
+    private final Lock pauseLock = new ReentrantLock();
+    private final Condition resumed = pauseLock.newCondition();
+
+    /**
+     * Constructor.
+     * @param threadCount the number of threads
+     * @param shares the share of each class
+     * @param limiters the limiters of the classes (classes without a limiter are absent from the map)
+     * @param statistics the statistics where the scheduling metrics are reported
+     * @param threadFactory the factory used to create the threads
+     */
+    Scheduler(int threadCount, @Nonnull Map<QosClass, QosShare> shares, @Nonnull Map<QosClass, AdaptiveLimiter> limiters,
+            @Nonnull Statistics statistics, @Nonnull ThreadFactory threadFactory) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be >= 1");
+        }
+        final QosClass[] classes = QosClass.values();
+        this.lanes = new Lane[classes.length];
+        for (QosClass qos : classes) {
+            lanes[qos.ordinal()] = new Lane(Objects.requireNonNull(shares.get(qos)), threadCount, limiters.get(qos), statistics.qos(qos));
+        }
+        this.threadFactory = threadFactory;
+        this.workers = new ArrayList<>(threadCount);
+        searching.set(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final Worker worker = new Worker();
+            worker.thread = threadFactory.newThread(() -> work(worker));
+            workers.add(worker);
+        }
+        workers.forEach(worker -> worker.thread.start());
+    }
+
+    /**
+     * Gets the limiter of a class.
+     * @param qos a class
+     * @return a limiter or null if the class has no limiter
+     */
+    AdaptiveLimiter limiter(@Nonnull QosClass qos) {
+        return lanes[qos.ordinal()].limiter;
+    }
+
+    /**
+     * Submits a task.
+     * @param qos the class of the task
+     * @param task the task
+     * @throws RejectedExecutionException if this scheduler is shut down
+     */
+    void execute(@Nonnull QosClass qos, @Nonnull Runnable task) {
+        execute(qos, List.of(), task);
+    }
+
+    /**
+     * Submits a task that performs operations on throttled providers.
+     * @param qos the class of the task
+     * @param throttles the throttles acquired before the task is started (and released once it ends), in their acquisition order
+     * @param task the task
+     * @throws RejectedExecutionException if this scheduler is shut down
+     */
+    void execute(@Nonnull QosClass qos, @Nonnull List<ProviderThrottle> throttles, @Nonnull Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Scheduler is shut down");
+        }
+        final Lane lane = lanes[qos.ordinal()];
+        lane.statistics.queued().incrementAndGet();
+        enqueue(new Job(lane, Objects.requireNonNull(task), throttles, System.nanoTime()));
+    }
+
+    private void enqueue(Job job) {
+        job.lane.queue.add(job);
+        if (searching.get() == 0) {
+            // If a worker is searching, it will find the task (or wake up another worker if it finds another task)
+            unparkOne();
+        }
+    }
+
+    /**
+     * Unparks a parked worker, if any.
+     */
+    private void unparkOne() {
+        Worker worker;
+        while ((worker = parkedWorkers.poll()) != null) {
+            worker.queued.set(false);
+            // A worker that found a task after it was queued remains in the queue, but it is not parked anymore
+            if (worker.parked.compareAndSet(true, false)) {
+                searching.incrementAndGet();
+                LockSupport.unpark(worker.thread);
+                return;
+            }
+        }
+    }
+
+    private void unparkAll() {
+        workers.forEach(worker -> {
+            if (worker.parked.compareAndSet(true, false)) {
+                searching.incrementAndGet();
+            }
+            LockSupport.unpark(worker.thread);
+        });
+    }
+
+    /**
+     * Shuts down this scheduler.
+     * <br>Tasks already submitted are executed, but new tasks are rejected.
+     */
+    void shutdown() {
+        shutdown = true;
+        synchronized (this) {
+            if (timer != null) {
+                // Delayed tasks are still retried
+                timer.shutdown();
+            }
+        }
+        unparkAll();
+        signalResumed();
+    }
+
+    boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Pauses this scheduler.
+     * <br>Running tasks are completed, but queued and new tasks are not started until {@link #resume()} is called.
+     */
+    void pause() {
+        paused = true;
+    }
+
+    /**
+     * Resumes this scheduler.
+     */
+    void resume() {
+        paused = false;
+        unparkAll();
+        signalResumed();
+    }
+
+    private void signalResumed() {
+        pauseLock.lock();
+        try {
+            resumed.signalAll();
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Waits until this scheduler is not paused.
+     * <br>It allows long running tasks to suspend themselves while the scheduler is paused. It returns immediately if the scheduler is shut down.
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    void awaitResumed() throws InterruptedException {
+        if (!paused) {
+            return;
+        }
+        pauseLock.lock();
+        try {
+            while (paused && !shutdown) {
+                resumed.await();
+            }
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    int threadCount() {
+        return workers.size();
+    }
+
+    private void work(Worker worker) {
+        // The worker is counted as searching when it is created, and when it ends a task
+        while (true) {
+            Lane lane = select();
+            if (lane == null) {
+                if (shutdown && (paused || isIdle())) {
+                    // Tasks queued in a paused scheduler are discarded when it is shut down
+                    searching.decrementAndGet();
+                    // Workers parked while the last tasks were running have to end too
+                    unparkOne();
+                    return;
+                }
+                // Register as parked, then search again, a task submitted in between may not have unparked a worker
+                worker.parked.set(true);
+                if (worker.queued.compareAndSet(false, true)) {
+                    parkedWorkers.add(worker);
+                }
+                searching.decrementAndGet();
+                lane = select();
+                if (lane == null) {
+                    LockSupport.park(this);
+                    if (worker.parked.compareAndSet(true, false)) {
+                        // Spurious wake up, no unparking thread counted this worker as searching
+                        searching.incrementAndGet();
+                    }
+                    if (Thread.interrupted()) {
+                        searching.decrementAndGet();
+                        return;
+                    }
+                    continue;
+                }
+                if (!worker.parked.compareAndSet(true, false)) {
+                    // The worker was unparked, and counted as searching, while it found a task by itself
+                    searching.decrementAndGet();
+                }
+            } else {
+                searching.decrementAndGet();
+            }
+            final Job job = lane.queue.poll();
+            if (job == null || !admit(job)) {
+                // Another worker took the task, or the task was deferred by a throttle
+                lane.cancelReservation();
+                searching.incrementAndGet();
+                continue;
+            }
+            if (searching.get() == 0 && !isIdle()) {
+                // No worker will find the other queued tasks
+                unparkOne();
+            }
+            run(lane, job);
+            searching.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("java:S1181")
+    private void run(Lane lane, Job job) {
+        lane.statistics.queued().decrementAndGet();
+        lane.statistics.running().incrementAndGet();
+        final long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            job.task.run();
+        } catch (CompletionException e) {
+            // The task already reported its error
+            failed = true;
+        } catch (Throwable e) {
+            // Do not let an unexpected exception or error kill the thread, the other tasks would wait forever
+            failed = true;
+            LOGGER.log(Level.SEVERE, e, () -> "Unexpected failure of task " + job.task);
+        } finally {
+            final long end = System.nanoTime();
+            if (lane.limiter != null) {
+                lane.limiter.release(end - start, failed);
+            }
+            lane.statistics.queueTime().addAndGet(start - job.submitted);
+            lane.statistics.executionTime().addAndGet(end - start);
+            lane.statistics.running().decrementAndGet();
+            lane.statistics.completed().incrementAndGet();
+            release(job.throttles, job.acquired);
+            lane.running.decrementAndGet();
+            if (saturated) {
+                // The end of this task may allow a task of a saturated class to start, while this worker is busy with another one
+                saturated = false;
+                unparkOne();
+            }
+        }
+    }
+
+    /**
+     * Acquires the throttles of a task.
+     * <br>If a throttle is not available, the task is deferred until it is queued again. It keeps the throttles it already acquired: as
+     * all tasks acquire them in the same order, it can't prevent the task that holds the missing throttle from ending.
+     * @param job the task
+     * @return true if the task can start, false if it was deferred
+     */
+    private boolean admit(Job job) {
+        final List<ProviderThrottle> throttles = job.throttles;
+        if (job.acquired == throttles.size()) {
+            return true;
+        }
+        // Counted before a throttle can queue the task again
+        deferred.incrementAndGet();
+        while (job.acquired < throttles.size()) {
+            final long delay = throttles.get(job.acquired).tryAcquire(() -> requeue(job));
+            if (delay == ProviderThrottle.WAIT_RELEASE) {
+                // The job may already be queued again, it should not be modified anymore
+                return false;
+            }
+            job.acquired++;
+            if (delay > 0) {
+                retryLater(job, delay);
+                return false;
+            }
+        }
+        deferred.decrementAndGet();
+        return true;
+    }
+
+    private static void release(List<ProviderThrottle> throttles, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            throttles.get(i).release();
+        }
+    }
+
+    private synchronized void retryLater(Job job, long delay) {
+        if (timer == null || timer.isShutdown()) {
+            timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+        }
+        timer.schedule(() -> requeue(job), delay, TimeUnit.NANOSECONDS);
+        if (shutdown) {
+            // The timer thread ends once the task is retried
+            timer.shutdown();
+        }
+    }
+
+    private void requeue(Job job) {
+        // The task is queued before it is not counted as deferred, in order to never look idle
+        enqueue(job);
+        deferred.decrementAndGet();
+    }
+
+    private boolean isIdle() {
+        if (deferred.get() != 0) {
+            return false;
+        }
+        for (Lane lane : lanes) {
+            if (!lane.queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Selects the class of the next task to execute.
+     * <br>If a class is selected, a thread of the class and a slot of its limiter are reserved.
+     * @return a class or null if no task can be executed now (or if the scheduler is paused)
+     */
+    private Lane select() {
+        if (paused) {
+            return null;
+        }
+        // The classes that can't start a task, as a bit mask
+        int rejected = 0;
+        while (true) {
+            int best = -1;
+            for (int i = 0; i < lanes.length; i++) {
+                final Lane lane = lanes[i];
+                if ((rejected & (1 << i)) != 0 || lane.queue.isEmpty()) {
+                    continue;
+                }
+                if (lane.running.get() >= lane.maxThreads) {
+                    rejected |= 1 << i;
+                } else if (best < 0 || lane.isBetterThan(lanes[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                if (rejected != 0) {
+                    saturated = true;
+                }
+                return null;
+            }
+            if (lanes[best].reserve()) {
+                return lanes[best];
+            }
+            rejected |= 1 << best;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * A persistent index of the state of the files at the end of the previous successful synchronization.
+ * <br>For each file that was found identical in the source and the destination (or that was copied), the index records
+ * the source size, last modified time and file key, and the destination size and last modified time.
+ * <br>If none of these attributes changed since the previous synchronization, the files are still identical
+ * and there's no need to call the file comparator.
+ * <br>The index is written in a temporary file that atomically replaces the previous index when {@link #commit()} is called.
+ * If the index file is missing, corrupted, or was written for another source or destination, it is ignored (all files are compared).
+ */
+class StateIndex {
+    private static final Logger LOGGER = Logger.getLogger(StateIndex.class.getName());
+    private static final String MAGIC = "sync4j-state";
+    private static final int VERSION = 1;
+
+    /**
+     * The state of a file pair.
+     * @param sourceSize the size of the source file
+     * @param sourceModified the last modified time of the source file
+     * @param sourceKey the key of the source file (null if the provider has no file key)
+     * @param destinationSize the size of the destination file
+     * @param destinationModified the last modified time of the destination file
+     */
+    record FileState(long sourceSize, long sourceModified, @Nullable String sourceKey, long destinationSize, long destinationModified) {
+        static FileState of(@Nonnull File source, @Nonnull File destination) throws IOException {
+            return new FileState(source.getSize(), source.getLastModifiedTime(), source.getFileKey(), destination.getSize(), destination.getLastModifiedTime());
+        }
+    }
+
+    private final Path file;
+    private final String sourceId;
+    private final String destinationId;
+    private final Map<String, FileState> previous;
+    private final Map<String, FileState> current;
+
+    /**
+     * Loads an index.
+     * @param file the index file
+     * @param source the source folder of the synchronization
+     * @param destination the destination folder of the synchronization
+     * @throws IOException if the file can't be read
+     */
+    StateIndex(@Nonnull Path file, @Nonnull Folder source, @Nonnull Folder destination) throws IOException {
+        this.file = Objects.requireNonNull(file);
+        this.sourceId = id(source);
+        this.destinationId = id(destination);
+        this.previous = load();
+        this.current = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets a stable identifier of a folder.
+     * <br>Unlike {@link Object#toString()}, the identifier does not depend on the state of the provider (for instance, its read-only flag).
+     * @param folder a folder
+     * @return the identifier of the provider (see {@link FileProvider#getId()}) and the path of the folder
+     * @throws IOException if an I/O error occurs
+     */
+    static String id(@Nonnull Folder folder) throws IOException {
+        return folder.getFileProvider().getId() + ':' + folder.getPath();
+    }
+
+    private Map<String, FileState> load() throws IOException {
+        final CRC32 crc = new CRC32();
+        try (InputStream in = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), crc)) {
+            final DataInputStream data = new DataInputStream(in);
+            if (!MAGIC.equals(data.readUTF()) || data.readInt() != VERSION) {
+                return stale("it has an unknown format");
+            }
+            if (!sourceId.equals(data.readUTF()) || !destinationId.equals(data.readUTF())) {
+                return stale("it was written for other folders");
+            }
+            final int count = data.readInt();
+            final Map<String, FileState> result = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                final String path = data.readUTF();
+                final long sourceSize = data.readLong();
+                final long sourceModified = data.readLong();
+                final String sourceKey = data.readBoolean() ? data.readUTF() : null;
+                result.put(path, new FileState(sourceSize, sourceModified, sourceKey, data.readLong(), data.readLong()));
+            }
+            final long expectedCrc = crc.getValue();
+            if (data.readLong() != expectedCrc) {
+                return stale("it is corrupted");
+            }
+            return result;
+        } catch (NoSuchFileException e) {
+            return Map.of();
+        } catch (EOFException | UTFDataFormatException e) {
+            return stale("it is truncated");
+        }
+    }
+
+    private Map<String, FileState> stale(String reason) {
+        LOGGER.log(Level.WARNING, () -> "State index " + file + " is ignored because " + reason);
+        return Map.of();
+    }
+
+    /**
+     * Tests whether a pair of files is unchanged since the previous synchronization.
+     * <br>If it is, the pair is recorded in the new state.
+     * @param source the source file
+     * @param destination the destination file
+     * @return true if the files are unchanged (so, they are still identical)
+     * @throws IOException if an I/O error occurs
+     */
+    boolean isUnchanged(@Nonnull File source, @Nonnull File destination) throws IOException {
+        final String path = source.getPath();
+        final FileState state = previous.get(path);
+        if (state == null) {
+            return false;
+        }
+        final FileState actual = FileState.of(source, destination);
+        if (!state.equals(actual)) {
+            return false;
+        }
+        current.put(path, actual);
+        return true;
+    }
+
+    /**
+     * Records a pair of identical files in the new state.
+     * @param source the source file
+     * @param destination the destination file
+     * @throws IOException if an I/O error occurs
+     */
+    void record(@Nonnull File source, @Nonnull File destination) throws IOException {
+        current.put(source.getPath(), FileState.of(source, destination));
+    }
+
+    /**
+     * Gets the number of file pairs recorded in the new state.
+     * @return a positive or null integer
+     */
+    int size() {
+        return current.size();
+    }
+
+    /**
+     * Writes the new state.
+     * <br>The state is written in a temporary file, synced to the disk, then atomically moved to the index file.
+     * @throws IOException if an I/O error occurs
+     */
+    void commit() throws IOException {
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final CRC32 crc = new CRC32();
+            final OutputStream out = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), crc);
+            final DataOutputStream data = new DataOutputStream(out);
+            data.writeUTF(MAGIC);
+            data.writeInt(VERSION);
+            data.writeUTF(sourceId);
+            data.writeUTF(destinationId);
+            final Map<String, FileState> snapshot = Map.copyOf(current);
+            data.writeInt(snapshot.size());
+            for (Map.Entry<String, FileState> entry : snapshot.entrySet()) {
+                final FileState state = entry.getValue();
+                data.writeUTF(entry.getKey());
+                data.writeLong(state.sourceSize());
+                data.writeLong(state.sourceModified());
+                data.writeBoolean(state.sourceKey() != null);
+                if (state.sourceKey() != null) {
+                    data.writeUTF(state.sourceKey());
+                }
+                data.writeLong(state.destinationSize());
+                data.writeLong(state.destinationModified());
+            }
+            data.flush();
+            data.writeLong(crc.getValue());
+            data.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,14 +1,27 @@
 package com.fathzer.sync4j.sync;
 
-import java.util.Objects;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fathzer.sync4j.sync.parameters.QosClass;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 
 /**
  * Tracks and manages statistics for synchronization operations.
  * This class provides counters and metrics to monitor the progress and status
  * of file synchronization processes.
+ * <p>
+ * The counters are updated by all the threads of the synchronization. Use {@link #snapshot()} to read them consistently while the synchronization is running.
+ * <br>The synchronization threads do not update the {@link Counter}s directly, they accumulate their updates in striped adders that do not
+ * contend when a lot of threads update them. These updates are added to the counters when they are read through this class (the counter
+ * accessors, {@link #snapshot()}, {@link #toString()}...).
+ * </p>
  */
 public class Statistics {
     /**
@@ -33,7 +46,7 @@ public class Statistics {
          * Creates a new counter with total and done set to 0.
          */
         Counter() {
-            this(Objects.requireNonNull(new AtomicLong()), Objects.requireNonNull(new AtomicLong()));
+            this(new AtomicLong(), new AtomicLong());
         }
         /**
          * Creates a new counter with the specified total and done values.
@@ -45,6 +58,19 @@ public class Statistics {
             this(new AtomicLong(total), new AtomicLong(done));
         }
 
+        /**
+         * Gets the current values of this counter.
+         * <br>Done is read before total, and the synchronization always increments total before done, so the returned done never
+         * exceeds the returned total, unless more was done than expected (for instance, the copied bytes exceed the expected bytes
+         * when a source file grows while it is copied). Such an overrun is reported as is.
+         * @return the current values of this counter
+         */
+        @Nonnull
+        public Progress progress() {
+            final long completed = done.get();
+            return new Progress(total.get(), completed);
+        }
+
         @Override
         public int hashCode() {
             final int prime = 31;
@@ -64,57 +90,245 @@ public class Statistics {
         }
     }
 
-    private Counter preloadedFolders = new Counter();
-    private Counter listedFolders = new Counter();
-    private Counter checkedFiles = new Counter();
-    private Counter deletedFiles = new Counter();
-    private Counter copiedFiles = new Counter();
-    private Counter copiedBytes = new Counter();
-    private Counter deletedFolders = new Counter();
-    private Counter createdFolders = new Counter();
+    /**
+     * The values of a {@link Counter} at a given time.
+     *
+     * @param total The total number of tasks to be processed
+     * @param done The number of tasks that have been completed
+     */
+    public record Progress(long total, long done) {
+        /**
+         * Gets the number of tasks that are not completed.
+         * @return a positive or null number, or a negative number if more was done than expected (see {@link Counter#progress()})
+         */
+        public long remaining() {
+            return total - done;
+        }
+    }
+
+    /**
+     * Throughput rates, in units per second, averaged over different time windows.
+     * <br>The averages are exponentially weighted: recent measures weigh more than older ones, the weight of a measure is divided by e
+     * each time the window duration elapses.
+     *
+     * @param oneSecond The rate averaged over 1 second
+     * @param tenSeconds The rate averaged over 10 seconds
+     * @param oneMinute The rate averaged over 1 minute
+     */
+    public record Rate(double oneSecond, double tenSeconds, double oneMinute) {}
+
+    /**
+     * An immutable view of the counters of a {@link Statistics} at a given time.
+     * <br>Each counter is read in a consistent way (see {@link Counter#progress()}), but, as the counters are not read atomically,
+     * a snapshot taken while the synchronization is running may contain, for instance, a copied file whose bytes are not yet counted.
+     * <br>The rates are measured between the successive snapshots.
+     *
+     * @param preloadedFolders The progress of folder preloading
+     * @param listedFolders The progress of folder listing
+     * @param checkedFiles The progress of file checking
+     * @param deletedFiles The progress of file deletion
+     * @param copiedFiles The progress of file copying
+     * @param copiedBytes The progress of byte copying
+     * @param deletedFolders The progress of folder deletion
+     * @param createdFolders The progress of folder creation
+     * @param movedFiles The progress of file moving
+     * @param skippedFiles The number of skipped files
+     * @param skippedFolders The number of skipped folders
+     * @param droppedEvents The number of dropped events
+     * @param copiedBytesRate The number of bytes copied per second
+     * @param copiedFilesRate The number of files copied per second
+     * @param checkedFilesRate The number of files checked per second
+     * @param listedFoldersRate The number of folders listed per second
+     * @param eta The estimated time needed to copy the remaining bytes, or null if it can't be estimated (see {@link Statistics#snapshot()})
+     */
+    public record Snapshot(
+        @Nonnull Progress preloadedFolders,
+        @Nonnull Progress listedFolders,
+        @Nonnull Progress checkedFiles,
+        @Nonnull Progress deletedFiles,
+        @Nonnull Progress copiedFiles,
+        @Nonnull Progress copiedBytes,
+        @Nonnull Progress deletedFolders,
+        @Nonnull Progress createdFolders,
+        @Nonnull Progress movedFiles,
+        long skippedFiles,
+        long skippedFolders,
+        long droppedEvents,
+        @Nonnull Rate copiedBytesRate,
+        @Nonnull Rate copiedFilesRate,
+        @Nonnull Rate checkedFilesRate,
+        @Nonnull Rate listedFoldersRate,
+        @Nullable Duration eta) {}
+
+    /**
+     * The scheduling metrics of a quality of service class.
+     *
+     * @param queued The number of tasks waiting for a thread
+     * @param running The number of tasks being executed
+     * @param completed The number of completed tasks
+     * @param queueTime The total time, in nanoseconds, spent by the completed tasks waiting for a thread
+     * @param executionTime The total execution time, in nanoseconds, of the completed tasks
+     */
+    public record QosStatistics(
+        @Nonnull AtomicInteger queued,
+        @Nonnull AtomicInteger running,
+        @Nonnull AtomicLong completed,
+        @Nonnull AtomicLong queueTime,
+        @Nonnull AtomicLong executionTime) {
+        /**
+         * Creates new metrics with all values set to 0.
+         */
+        QosStatistics() {
+            this(new AtomicInteger(), new AtomicInteger(), new AtomicLong(), new AtomicLong(), new AtomicLong());
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + queued.get();
+            result = prime * result + running.get();
+            result = prime * result + Long.hashCode(completed.get());
+            result = prime * result + Long.hashCode(queueTime.get());
+            result = prime * result + Long.hashCode(executionTime.get());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            QosStatistics other = (QosStatistics) obj;
+            return queued.get() == other.queued.get() && running.get() == other.running.get() && completed.get() == other.completed.get()
+                    && queueTime.get() == other.queueTime.get() && executionTime.get() == other.executionTime.get();
+        }
+    }
+
+    /**
+     * The updater of a {@link Counter} used by the synchronization threads.
+     * <br>The updates are accumulated in {@link LongAdder}s, and added to the counter when it is read.
+     */
+    static final class Tally {
+        private final Counter counter = new Counter();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder done = new LongAdder();
+
+        /**
+         * Adds to the total of the counter.
+         * @param value the value to add
+         */
+        void addTotal(long value) {
+            total.add(value);
+        }
+
+        /**
+         * Adds to the done of the counter.
+         * <br>The total should be incremented before.
+         * @param value the value to add
+         */
+        void addDone(long value) {
+            done.add(value);
+        }
+
+        /**
+         * Adds the accumulated updates to the counter, then gets it.
+         * @return the counter
+         */
+        synchronized Counter counter() {
+            // Done is collected before total, and added after, so the counter never exposes a done whose total is not yet added
+            final long doneDelta = done.sumThenReset();
+            final long totalDelta = total.sumThenReset();
+            if (totalDelta != 0) {
+                counter.total().addAndGet(totalDelta);
+            }
+            if (doneDelta != 0) {
+                counter.done().addAndGet(doneDelta);
+            }
+            return counter;
+        }
+
+        Progress progress() {
+            return counter().progress();
+        }
+    }
+
+    private final Tally preloadedFolders = new Tally();
+    private final Tally listedFolders = new Tally();
+    private final Tally checkedFiles = new Tally();
+    private final Tally deletedFiles = new Tally();
+    private final Tally copiedFiles = new Tally();
+    private final Tally copiedBytes = new Tally();
+    private final Tally deletedFolders = new Tally();
+    private final Tally createdFolders = new Tally();
+    private final Tally movedFiles = new Tally();
     private AtomicLong skippedFiles = new AtomicLong();
     private AtomicLong skippedFolders = new AtomicLong();
+    private AtomicLong droppedEvents = new AtomicLong();
+    private AtomicInteger comparisonConcurrency = new AtomicInteger();
+    private AtomicInteger copyConcurrency = new AtomicInteger();
+    private final Map<QosClass, QosStatistics> qos = buildQosStatistics();
+    private final long start = System.nanoTime();
+    private final RateMeter copiedBytesRate = new RateMeter(start);
+    private final RateMeter discoveredBytesRate = new RateMeter(start);
+    private final RateMeter copiedFilesRate = new RateMeter(start);
+    private final RateMeter checkedFilesRate = new RateMeter(start);
+    private final RateMeter listedFoldersRate = new RateMeter(start);
+
+    private static Map<QosClass, QosStatistics> buildQosStatistics() {
+        final Map<QosClass, QosStatistics> result = new EnumMap<>(QosClass.class);
+        for (QosClass qosClass : QosClass.values()) {
+            result.put(qosClass, new QosStatistics());
+        }
+        return result;
+    }
 
     /**
      * Returns the counter of preloaded folders.
      * @return the counter of preloaded folders
      */
-    public Counter preloadedFolders() { return preloadedFolders; }
+    public Counter preloadedFolders() { return preloadedFolders.counter(); }
     /**
      * Returns the counter of listed folders.
      * @return the counter of listed folders
      */
-    public Counter listedFolders() { return listedFolders; }
+    public Counter listedFolders() { return listedFolders.counter(); }
     /**
      * Returns the counter of checked files.
      * @return the counter of checked files
      */
-    public Counter checkedFiles() { return checkedFiles; }
+    public Counter checkedFiles() { return checkedFiles.counter(); }
     /**
      * Returns the counter of deleted folders.
      * @return the counter of deleted folders
      */
-    public Counter deletedFolders() { return deletedFolders; }
+    public Counter deletedFolders() { return deletedFolders.counter(); }
     /**
      * Returns the counter of deleted files.
      * @return the counter of deleted files
      */
-    public Counter deletedFiles() { return deletedFiles; }
+    public Counter deletedFiles() { return deletedFiles.counter(); }
     /**
      * Returns the counter of copied files.
      * @return the counter of copied files
      */
-    public Counter copiedFiles() { return copiedFiles; }
+    public Counter copiedFiles() { return copiedFiles.counter(); }
     /**
      * Returns the counter of copied bytes.
      * @return the counter of copied bytes
      */
-    public Counter copiedBytes() { return copiedBytes; }
+    public Counter copiedBytes() { return copiedBytes.counter(); }
     /**
      * Returns the counter of created folders.
      * @return the counter of created folders
      */
-    public Counter createdFolders() { return createdFolders; }
+    public Counter createdFolders() { return createdFolders.counter(); }
+    /**
+     * Returns the counter of moved files.
+     * @return the counter of moved files
+     * @see com.fathzer.sync4j.sync.parameters.SyncParameters#detectMoves(boolean)
+     */
+    public Counter movedFiles() { return movedFiles.counter(); }
     /**
      * Returns the number of skipped files.
      * @return the number of skipped files
@@ -125,27 +339,111 @@ public class Statistics {
      * @return the number of skipped folders
      */
     public AtomicLong skippedFolders() { return skippedFolders; }
+    /**
+     * Returns the number of events that were not delivered to the event listener because its buffer was full.
+     * @return the number of dropped events
+     * @see com.fathzer.sync4j.sync.parameters.SyncParameters#asyncEvents(int, com.fathzer.sync4j.sync.parameters.OverflowPolicy)
+     */
+    public AtomicLong droppedEvents() { return droppedEvents; }
+    /**
+     * Returns the current maximum number of concurrent comparisons.
+     * <br>In adaptive concurrency mode, this value changes during the synchronization.
+     * @return the current maximum number of concurrent comparisons (0 if comparisons are only limited by the size of the thread pool)
+     * @see com.fathzer.sync4j.sync.parameters.PerformanceParameters#adaptiveConcurrency(boolean)
+     */
+    public AtomicInteger comparisonConcurrency() { return comparisonConcurrency; }
+    /**
+     * Returns the current maximum number of concurrent copies.
+     * <br>In adaptive concurrency mode, this value changes during the synchronization.
+     * @return the current maximum number of concurrent copies (0 if copies are only limited by the size of the thread pool)
+     * @see com.fathzer.sync4j.sync.parameters.PerformanceParameters#adaptiveConcurrency(boolean)
+     */
+    public AtomicInteger copyConcurrency() { return copyConcurrency; }
+    /**
+     * Returns the scheduling metrics of a quality of service class.
+     * @param qosClass a quality of service class
+     * @return the metrics of the class
+     */
+    public QosStatistics qos(@Nonnull QosClass qosClass) { return qos.get(qosClass); }
+
+    // The updaters of the counters, used by the synchronization threads
+    Tally preloadedFoldersTally() { return preloadedFolders; }
+    Tally listedFoldersTally() { return listedFolders; }
+    Tally checkedFilesTally() { return checkedFiles; }
+    Tally deletedFoldersTally() { return deletedFolders; }
+    Tally deletedFilesTally() { return deletedFiles; }
+    Tally copiedFilesTally() { return copiedFiles; }
+    Tally copiedBytesTally() { return copiedBytes; }
+    Tally createdFoldersTally() { return createdFolders; }
+    Tally movedFilesTally() { return movedFiles; }
+
+    /**
+     * Gets the current values of the counters, and the throughput rates.
+     * <br>This method does not lock anything used by the synchronization threads, and has no background thread, it can be called at high frequency
+     * to report the progress. The rates are updated each time this method is called.
+     * <br>The estimated time of arrival is the time needed to copy the remaining bytes. While the synchronization is walking the trees, the total
+     * of bytes to copy grows, so the estimation is based on the copy rate minus the rate at which bytes to copy are discovered (both averaged
+     * over 10 seconds). If the bytes are discovered faster than they are copied, the time can't be estimated.
+     * @return an immutable snapshot
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        return snapshot(System.nanoTime());
+    }
+
+    /**
+     * Gets the current values of the counters, and the throughput rates.
+     * @param now the current time, in nanoseconds (see {@link System#nanoTime()})
+     * @return an immutable snapshot
+     */
+    Snapshot snapshot(long now) {
+        final Progress bytes = copiedBytes.progress();
+        final Progress files = copiedFiles.progress();
+        final Progress checked = checkedFiles.progress();
+        final Progress listed = listedFolders.progress();
+        final Rate bytesRate = copiedBytesRate.update(now, bytes.done());
+        final Rate discoveryRate = discoveredBytesRate.update(now, bytes.total());
+        return new Snapshot(preloadedFolders.progress(), listed, checked, deletedFiles.progress(),
+                files, bytes, deletedFolders.progress(), createdFolders.progress(), movedFiles.progress(),
+                skippedFiles.get(), skippedFolders.get(), droppedEvents.get(),
+                bytesRate, copiedFilesRate.update(now, files.done()), checkedFilesRate.update(now, checked.done()), listedFoldersRate.update(now, listed.done()),
+                eta(bytes.remaining(), bytesRate.tenSeconds() - discoveryRate.tenSeconds()));
+    }
+
+    @Nullable
+    private static Duration eta(long remaining, double rate) {
+        if (remaining <= 0) {
+            return Duration.ZERO;
+        }
+        return rate > 0 ? Duration.ofMillis((long) Math.ceil(remaining * 1000.0 / rate)) : null;
+    }
     @Override
     public String toString() {
-        return "Statistics [preloadedFolders=" + preloadedFolders + ", listedFolders=" + listedFolders + ", checkedFiles=" + checkedFiles + ", deletedFiles=" + deletedFiles + ", copiedFiles="
-                + copiedFiles + ", copiedBytes=" + copiedBytes + ", deletedFolders=" + deletedFolders
-                + ", createdFolders=" + createdFolders + ", skippedFiles=" + skippedFiles
-                + ", skippedFolders=" + skippedFolders + "]";
+        return "Statistics [preloadedFolders=" + preloadedFolders() + ", listedFolders=" + listedFolders() + ", checkedFiles=" + checkedFiles() + ", deletedFiles=" + deletedFiles() + ", copiedFiles="
+                + copiedFiles() + ", copiedBytes=" + copiedBytes() + ", deletedFolders=" + deletedFolders()
+                + ", createdFolders=" + createdFolders() + ", movedFiles=" + movedFiles() + ", skippedFiles=" + skippedFiles
+                + ", skippedFolders=" + skippedFolders + ", droppedEvents=" + droppedEvents + ", comparisonConcurrency=" + comparisonConcurrency
+                + ", copyConcurrency=" + copyConcurrency + ", qos=" + qos + "]";
     }
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + preloadedFolders.hashCode();
-        result = prime * result + listedFolders.hashCode();
-        result = prime * result + checkedFiles.hashCode();
-        result = prime * result + deletedFiles.hashCode();
-        result = prime * result + copiedFiles.hashCode();
-        result = prime * result + copiedBytes.hashCode();
-        result = prime * result + deletedFolders.hashCode();
-        result = prime * result + createdFolders.hashCode();
+        result = prime * result + preloadedFolders().hashCode();
+        result = prime * result + listedFolders().hashCode();
+        result = prime * result + checkedFiles().hashCode();
+        result = prime * result + deletedFiles().hashCode();
+        result = prime * result + copiedFiles().hashCode();
+        result = prime * result + copiedBytes().hashCode();
+        result = prime * result + deletedFolders().hashCode();
+        result = prime * result + createdFolders().hashCode();
+        result = prime * result + movedFiles().hashCode();
         result = prime * result + Long.hashCode(skippedFiles.get());
         result = prime * result + Long.hashCode(skippedFolders.get());
+        result = prime * result + Long.hashCode(droppedEvents.get());
+        result = prime * result + comparisonConcurrency.get();
+        result = prime * result + copyConcurrency.get();
+        result = prime * result + qos.hashCode();
         return result;
     }
 
@@ -155,15 +453,19 @@ public class Statistics {
         if (obj == null) return false;
         if (getClass() != obj.getClass()) return false;
         Statistics other = (Statistics) obj;
-        if (!preloadedFolders.equals(other.preloadedFolders)) return false;
-        if (!listedFolders.equals(other.listedFolders)) return false;
-        if (!checkedFiles.equals(other.checkedFiles)) return false;
-        if (!deletedFiles.equals(other.deletedFiles)) return false;
-        if (!copiedFiles.equals(other.copiedFiles)) return false;
-        if (!copiedBytes.equals(other.copiedBytes)) return false;
-        if (!deletedFolders.equals(other.deletedFolders)) return false;
-        if (!createdFolders.equals(other.createdFolders)) return false;
-        return skippedFiles.get() == other.skippedFiles.get() && skippedFolders.get() == other.skippedFolders.get();
+        if (!preloadedFolders().equals(other.preloadedFolders())) return false;
+        if (!listedFolders().equals(other.listedFolders())) return false;
+        if (!checkedFiles().equals(other.checkedFiles())) return false;
+        if (!deletedFiles().equals(other.deletedFiles())) return false;
+        if (!copiedFiles().equals(other.copiedFiles())) return false;
+        if (!copiedBytes().equals(other.copiedBytes())) return false;
+        if (!deletedFolders().equals(other.deletedFolders())) return false;
+        if (!createdFolders().equals(other.createdFolders())) return false;
+        if (!movedFiles().equals(other.movedFiles())) return false;
+        if (comparisonConcurrency.get() != other.comparisonConcurrency.get() || copyConcurrency.get() != other.copyConcurrency.get()) return false;
+        if (!qos.equals(other.qos)) return false;
+        return skippedFiles.get() == other.skippedFiles.get() && skippedFolders.get() == other.skippedFolders.get()
+                && droppedEvents.get() == other.droppedEvents.get();
     }
    
 }
@@ -0,0 +1,96 @@
+package com.fathzer.sync4j.sync;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A periodic JDK Flight Recorder event that records a {@link Statistics#snapshot() snapshot} of the statistics of a running synchronization.
+ * <br>The event is emitted every second by default, its period can be changed with the standard JFR settings
+ * (for instance <code>com.fathzer.sync4j.Statistics#period=10 s</code>).
+ * The statistics are not read when no recording is running.
+ */
+@Name("com.fathzer.sync4j.Statistics")
+@Label("Synchronization Statistics")
+@Category("sync4j")
+@Period("1 s")
+@StackTrace(false)
+class StatisticsEvent extends jdk.jfr.Event {
+    @Label("Listed Folders")
+    long listedFolders;
+
+    @Label("Checked Files")
+    long checkedFiles;
+
+    @Label("Copied Files")
+    long copiedFiles;
+
+    @Label("Files To Copy")
+    long filesToCopy;
+
+    @Label("Copied Bytes")
+    @DataAmount
+    long copiedBytes;
+
+    @Label("Bytes To Copy")
+    @DataAmount
+    long bytesToCopy;
+
+    @Label("Deleted Files")
+    long deletedFiles;
+
+    @Label("Copy Rate")
+    @Description("The number of bytes copied per second, averaged over 10 seconds")
+    @DataAmount
+    @Frequency
+    double copyRate;
+
+    @Label("Estimated Remaining Time")
+    @Description("The estimated time needed to copy the remaining bytes, or -1 if it can't be estimated")
+    @Timespan(Timespan.MILLISECONDS)
+    long eta;
+
+    /**
+     * Starts emitting the events of a synchronization.
+     * @param statistics the statistics of the synchronization
+     * @return the hook to pass to {@link #unregister(Runnable)} once the synchronization is closed
+     */
+    static Runnable register(Statistics statistics) {
+        final Runnable hook = () -> emit(statistics);
+        FlightRecorder.addPeriodicEvent(StatisticsEvent.class, hook);
+        return hook;
+    }
+
+    /**
+     * Stops emitting the events of a synchronization.
+     * @param hook the hook returned by {@link #register(Statistics)}
+     */
+    static void unregister(Runnable hook) {
+        FlightRecorder.removePeriodicEvent(hook);
+    }
+
+    private static void emit(Statistics statistics) {
+        final StatisticsEvent event = new StatisticsEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        final Statistics.Snapshot snapshot = statistics.snapshot();
+        event.listedFolders = snapshot.listedFolders().done();
+        event.checkedFiles = snapshot.checkedFiles().done();
+        event.copiedFiles = snapshot.copiedFiles().done();
+        event.filesToCopy = snapshot.copiedFiles().total();
+        event.copiedBytes = snapshot.copiedBytes().done();
+        event.bytesToCopy = snapshot.copiedBytes().total();
+        event.deletedFiles = snapshot.deletedFiles().done();
+        event.copyRate = snapshot.copiedBytesRate().tenSeconds();
+        event.eta = snapshot.eta() == null ? -1 : snapshot.eta().toMillis();
+        event.commit();
+    }
+}
@@ -0,0 +1,190 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * The actions a synchronization would perform, computed by a synchronization in plan mode.
+ * <br>A plan can be saved, reviewed, and executed later by a {@link Synchronization} created with
+ * {@link Synchronization#Synchronization(Folder, Folder, SyncPlan, com.fathzer.sync4j.sync.parameters.SyncParameters)}.
+ * <br>The steps are ordered: a folder is created before the entries it contains, and an entry that is replaced is deleted before it is re-created.
+ * Paths are relative to the source and destination folders of the synchronization (for instance <code>/docs/file.txt</code>).
+ * @param steps the steps of the plan
+ * @see com.fathzer.sync4j.sync.parameters.SyncParameters#planMode(boolean)
+ */
+public record SyncPlan(@Nonnull List<Step> steps) {
+    private static final String MAGIC = "sync4j-plan";
+    private static final int VERSION = 1;
+
+    /**
+     * The type of a step.
+     */
+    public enum Type {
+        /** Creates a folder in the destination. */
+        MKDIR,
+        /** Copies a source file to the destination. */
+        COPY,
+        /** Deletes an entry of the destination. */
+        DELETE
+    }
+
+    /**
+     * A step of a plan.
+     * <br>The size and last modified time are the metadata the step was based on: the ones of the source file for a {@link Type#COPY},
+     * the ones of the destination file for a {@link Type#DELETE}. They are checked again when the plan is executed.
+     * @param type the type of the step
+     * @param path the path of the entry, relative to the synchronized folders
+     * @param size the size of the file, or -1 if the step is about a folder
+     * @param lastModifiedTime the last modified time of the file, or -1 if the step is about a folder
+     */
+    public record Step(@Nonnull Type type, @Nonnull String path, long size, long lastModifiedTime) {
+        /**
+         * Constructor.
+         * @param type the type of the step
+         * @param path the path of the entry, relative to the synchronized folders
+         * @param size the size of the file, or -1 if the step is about a folder
+         * @param lastModifiedTime the last modified time of the file, or -1 if the step is about a folder
+         * @throws IllegalArgumentException if path is empty
+         */
+        public Step {
+            Objects.requireNonNull(type);
+            if (Objects.requireNonNull(path).isEmpty()) {
+                throw new IllegalArgumentException("path can't be empty");
+            }
+        }
+
+        /**
+         * Tests whether this step is about a folder.
+         * @return true if the step creates or deletes a folder
+         */
+        public boolean isFolder() {
+            return size < 0;
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param steps the steps of the plan
+     */
+    public SyncPlan {
+        steps = List.copyOf(steps);
+    }
+
+    /**
+     * Writes this plan.
+     * @param out the output stream (it is not closed by this method)
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(@Nonnull OutputStream out) throws IOException {
+        final CRC32 crc = new CRC32();
+        final DataOutputStream data = new DataOutputStream(new CheckedOutputStream(out, crc));
+        data.writeUTF(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(steps.size());
+        for (Step step : steps) {
+            data.writeByte(step.type().ordinal());
+            data.writeUTF(step.path());
+            data.writeLong(step.size());
+            data.writeLong(step.lastModifiedTime());
+        }
+        data.flush();
+        data.writeLong(crc.getValue());
+        data.flush();
+    }
+
+    /**
+     * Reads a plan written by {@link #write(OutputStream)}.
+     * @param in the input stream (it is not closed by this method)
+     * @return a plan
+     * @throws IOException if an I/O error occurs, or if the plan is corrupted
+     */
+    @Nonnull
+    public static SyncPlan read(@Nonnull InputStream in) throws IOException {
+        final CRC32 crc = new CRC32();
+        final DataInputStream data = new DataInputStream(new CheckedInputStream(in, crc));
+        try {
+            if (!MAGIC.equals(data.readUTF()) || data.readInt() != VERSION) {
+                throw new IOException("Not a synchronization plan");
+            }
+            final Type[] types = Type.values();
+            final int count = data.readInt();
+            final List<Step> steps = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                final int type = data.readByte();
+                if (type < 0 || type >= types.length) {
+                    throw new IOException("Plan is corrupted");
+                }
+                steps.add(new Step(types[type], data.readUTF(), data.readLong(), data.readLong()));
+            }
+            final long expectedCrc = crc.getValue();
+            if (data.readLong() != expectedCrc) {
+                throw new IOException("Plan is corrupted");
+            }
+            return new SyncPlan(steps);
+        } catch (EOFException | UTFDataFormatException | IllegalArgumentException e) {
+            throw new IOException("Plan is truncated or corrupted", e);
+        }
+    }
+
+    /**
+     * A thread safe builder of plans, that records the steps in the order they are decided.
+     */
+    static class Builder {
+        private final String destinationRoot;
+        private final Queue<Step> steps = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Constructor.
+         * @param destination the destination folder of the synchronization
+         * @throws IOException if an I/O error occurs
+         */
+        Builder(@Nonnull Folder destination) throws IOException {
+            this.destinationRoot = destination.getPath();
+        }
+
+        void mkdir(@Nonnull Folder parent, @Nonnull String name) throws IOException {
+            steps.add(new Step(Type.MKDIR, relative(parent) + '/' + name, -1, -1));
+        }
+
+        void copy(@Nonnull File source, @Nonnull Folder destination) throws IOException {
+            steps.add(new Step(Type.COPY, relative(destination) + '/' + source.getName(), source.getSize(), source.getLastModifiedTime()));
+        }
+
+        void delete(@Nonnull Entry entry) throws IOException {
+            final String path = relative(entry);
+            if (entry.isFile()) {
+                final File file = entry.asFile();
+                steps.add(new Step(Type.DELETE, path, file.getSize(), file.getLastModifiedTime()));
+            } else {
+                steps.add(new Step(Type.DELETE, path, -1, -1));
+            }
+        }
+
+        private String relative(Entry entry) throws IOException {
+            return entry.getPath().substring(destinationRoot.length());
+        }
+
+        SyncPlan build() {
+            return new SyncPlan(new ArrayList<>(steps));
+        }
+    }
+}
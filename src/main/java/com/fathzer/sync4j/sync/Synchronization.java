@@ -7,6 +7,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.fathzer.sync4j.Folder;
 import com.fathzer.sync4j.sync.parameters.SyncParameters;
@@ -22,6 +24,8 @@ public class Synchronization implements AutoCloseable {
     private Folder source;
     private Folder destination;
     private final Context context;
+    private final PlanTask planTask;
+    private boolean started;
 
     /**
      * Creates a new synchronizer.
@@ -32,28 +36,79 @@ public class Synchronization implements AutoCloseable {
      */
     public Synchronization(@Nonnull Folder source, @Nonnull Folder destination, @Nonnull SyncParameters parameters) throws IOException {
         this(new Context(parameters), source, destination);
+        if (parameters.stateFile() != null) {
+            context.stateIndex(new StateIndex(parameters.stateFile(), source, destination));
+        }
+        if (parameters.checkpointFile() != null && !parameters.dryRun()) {
+            context.checkpoint(new Checkpoint(parameters.checkpointFile(), source, destination, Checkpoint.DEFAULT_BATCH_SIZE));
+        }
+        if (parameters.planMode() && parameters.dryRun()) {
+            context.plan(new SyncPlan.Builder(destination));
+        } else if (parameters.detectMoves() && destination.getFileProvider().isMoveSupported()) {
+            context.moveDetector(new MoveDetector(context));
+        }
+    }
+
+    /**
+     * Creates a new synchronizer that executes a plan.
+     * <br>The folders are not listed and compared, the steps of the plan are executed with the parallelism allowed by the
+     * performance parameters. Only the metadata of the entries touched by the plan is checked before executing a step
+     * (see {@link SyncPlan.Step}); if it changed since the plan was computed, the step is skipped and an error is reported.
+     * <br>The state file, checkpoint file and fast list mode are ignored.
+     * @param source the source folder
+     * @param destination the destination folder
+     * @param plan the plan, computed by a synchronization in plan mode of the same folders
+     * @param parameters the parameters
+     * @throws IOException if an I/O error occurs
+     * @see SyncParameters#planMode(boolean)
+     */
+    public Synchronization(@Nonnull Folder source, @Nonnull Folder destination, @Nonnull SyncPlan plan, @Nonnull SyncParameters parameters)
+            throws IOException {
+        this(new Context(parameters), source, destination, plan);
     }
 
     Synchronization(@Nonnull Context context, @Nonnull Folder source, @Nonnull Folder destination) {
         this.source = Objects.requireNonNull(source);
         this.destination = Objects.requireNonNull(destination);
         this.context = Objects.requireNonNull(context);
+        this.planTask = null;
+    }
+
+    Synchronization(@Nonnull Context context, @Nonnull Folder source, @Nonnull Folder destination, @Nonnull SyncPlan plan) throws IOException {
+        this.source = Objects.requireNonNull(source);
+        this.destination = Objects.requireNonNull(destination);
+        this.context = Objects.requireNonNull(context);
+        this.planTask = new PlanTask(context, source, destination, plan);
     }
 
     /**
      * Starts the synchronization.
      */
     public void start() {
+        started = true;
         context.taskCounter().increment();
+        final MoveDetector moveDetector = context.moveDetector();
+        if (moveDetector != null) {
+            // Prevent moves from being resolved before the root folder is walked
+            moveDetector.walkStarted();
+        }
         try {
+            if (planTask != null) {
+                planTask.submit();
+                return;
+            }
             if (context.params().performance().fastList()) {
                 doPreload();
             }
             if (context.isCancelled()) return;
-            context.submit(new WalkTask(context, source, destination, null));
+            final Checkpoint checkpoint = context.checkpoint();
+            context.submit(new WalkTask(context, source, destination, null, true, checkpoint == null ? null : checkpoint.root()));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } finally {
+            if (moveDetector != null) {
+                moveDetector.walkEnded();
+            }
             context.taskCounter().decrement();
         }
     }
@@ -95,6 +150,38 @@ public class Synchronization implements AutoCloseable {
         context.cancel();
     }
 
+    /**
+     * Pauses the synchronization.
+     * <br>Running tasks are completed, but no new task is started until {@link #resume()} is called. Copies that report their progress
+     * (see {@link com.fathzer.sync4j.Folder#copy(String, com.fathzer.sync4j.File, java.util.function.LongConsumer)}) are suspended at their next progress report.
+     * <br>The pending tasks remain queued, and the statistics remain stable while the synchronization is paused.
+     * <br>{@link #waitFor()} keeps waiting until the synchronization is resumed and finished, {@link #waitFor(long, TimeUnit)} returns false
+     * if the synchronization is not finished before the timeout.
+     * <br>Cancelling a paused synchronization resumes it, in order to discard the pending tasks.
+     * Closing a paused synchronization discards the pending tasks.
+     * <br>In fast list mode, starting a paused synchronization blocks until it is resumed, because folders are preloaded during the start.
+     */
+    public void pause() {
+        context.pause();
+    }
+
+    /**
+     * Resumes a paused synchronization.
+     * <br>This method does nothing if the synchronization is not paused.
+     */
+    public void resume() {
+        context.resume();
+    }
+
+    /**
+     * Returns true if the synchronization is paused.
+     * @return true if the synchronization is paused
+     * @see #pause()
+     */
+    public boolean isPaused() {
+        return context.isPaused();
+    }
+
     /**
      * Returns true if the synchronization is cancelled.
      * @return true if the synchronization is cancelled
@@ -123,16 +210,86 @@ public class Synchronization implements AutoCloseable {
     }
 
     /**
-     * Gets the list of errors that occurred during the synchronization.
-     * @return the list of errors (empty if no error occurred)
+     * Gets the plan recorded by this synchronization.
+     * <br>The plan is complete once the synchronization is finished (see {@link #waitFor()}).
+     * If the synchronization is cancelled or if errors occurred, the plan may be incomplete.
+     * @return the plan, or null if the synchronization is not in plan mode
+     * @see SyncParameters#planMode(boolean)
+     */
+    public SyncPlan getPlan() {
+        final SyncPlan.Builder plan = context.plan();
+        return plan == null ? null : plan.build();
+    }
+
+    /**
+     * Purges the trash of the destination provider in a low priority background thread.
+     * <br>This method should be called once the synchronization is completed, when it was run in trash mode.
+     * As the trash is persistent, it also purges the entries trashed by previous synchronizations.
+     * <br>The purge is stopped if this synchronization is cancelled.
+     * <br>If the destination provider does not support the trash feature, this method does nothing.
+     * @return a future that completes when the purge is done
+     * @see com.fathzer.sync4j.sync.parameters.PerformanceParameters#useTrash(boolean)
+     */
+    public CompletableFuture<Void> purgeTrash() {
+        return context.purgeTrash(destination.getFileProvider());
+    }
+
+    /**
+     * Gets the most recent errors that occurred during the synchronization.
+     * @return an immutable snapshot of the list of errors (empty if no error occurred)
+     * @see #getErrorCollector()
+     * @see SyncParameters#maxRecentErrors(int)
      */
     public List<Throwable> getErrors() {
+        return context.errors().getRecentErrors();
+    }
+
+    /**
+     * Gets the errors that occurred during the synchronization, with their counts by exception type and action kind.
+     * @return the error collector
+     */
+    public ErrorCollector getErrorCollector() {
         return context.errors();
     }
 
+    /**
+     * Gets the latencies of the operations performed during the synchronization, by kind of action and by provider.
+     * @return the latencies
+     */
+    public Latencies getLatencies() {
+        return context.latencies();
+    }
+
+    /**
+     * Closes the synchronization.
+     * <br>If an incremental synchronization state file is set in the parameters and the synchronization was successful,
+     * the state is committed.
+     * <br>If a checkpoint file is set in the parameters, it is deleted if the synchronization was successful, otherwise it is kept
+     * to resume the synchronization later.
+     * <br>The temporary files of the preloaded trees spilled to disk (if any) are deleted.
+     * @see SyncParameters#stateFile(java.nio.file.Path)
+     * @see SyncParameters#checkpointFile(java.nio.file.Path)
+     */
     @Override
     public void close() {
-        context.close();
+        try {
+            if (started) {
+                context.commitState();
+            }
+        } catch (IOException e) {
+            Logger.getLogger(Synchronization.class.getName()).log(Level.WARNING, "Unable to write synchronization state", e);
+        } finally {
+            closeCheckpoint();
+            context.close();
+        }
+    }
+
+    private void closeCheckpoint() {
+        try {
+            context.closeCheckpoint(started);
+        } catch (IOException e) {
+            Logger.getLogger(Synchronization.class.getName()).log(Level.WARNING, "Unable to write synchronization checkpoint", e);
+        }
     }
 }
 
@@ -3,20 +3,44 @@ package com.fathzer.sync4j.sync;
 import static com.fathzer.sync4j.sync.Event.Status.*;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import com.fathzer.sync4j.Batch;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
 
 import com.fathzer.sync4j.sync.Event.Action;
-import com.fathzer.sync4j.sync.Statistics.Counter;
+import com.fathzer.sync4j.sync.Statistics.Tally;
+import com.fathzer.sync4j.sync.parameters.QosClass;
 
 import jakarta.annotation.Nonnull;
+import jdk.jfr.EventType;
 
-abstract class Task<V, A extends Action> {
+/**
+ * A unit of work of a synchronization.
+ * <br>A task is executed synchronously by {@link Context#executeSync(Task)}, or asynchronously as a {@link Runnable}: in such a case,
+ * the scheduler acquires the throttles of its providers before running it, and it reports its errors to its context, then calls its continuation.
+ * @param <V> the type of the result of the task
+ * @param <A> the type of the action of the task
+ */
+abstract class Task<V, A extends Action> implements Runnable {
     enum Kind {
         WALKER,
         CHECKER,
         MODIFIER
     }
 
+    // The cache is not in TaskEvent, JFR fails to register event classes that have static members
+    private static final ClassValue<EventType> EVENT_TYPES = new ClassValue<>() {
+        @Override
+        protected EventType computeValue(Class<?> type) {
+            return EventType.getEventType(type.asSubclass(jdk.jfr.Event.class));
+        }
+    };
+
     @Nonnull
     private final Context context;
     @Nonnull
@@ -24,15 +48,18 @@ abstract class Task<V, A extends Action> {
     @Nonnull
     private Event.Status status;
     @Nonnull
-    private final Counter counter;
+    private final Tally tally;
+    private final int eventMask;
+    private Consumer<V> then;
     
     @SuppressWarnings("java:S2637")
-    protected Task(@Nonnull Context context, @Nonnull A action, @Nonnull Counter counter) {
+    protected Task(@Nonnull Context context, @Nonnull A action, @Nonnull Tally tally) {
         this.context = Objects.requireNonNull(context, "Context cannot be null");
         this.action = Objects.requireNonNull(action, "Action cannot be null");
+        this.eventMask = context.eventMask(action.getClass());
         broadcast(PLANNED);
-        this.counter = Objects.requireNonNull(counter, "Counter cannot be null");
-        counter.total().incrementAndGet();
+        this.tally = Objects.requireNonNull(tally, "Tally cannot be null");
+        tally.addTotal(1);
     }
 
     protected Context context() {
@@ -45,7 +72,9 @@ abstract class Task<V, A extends Action> {
 
     private void broadcast(@Nonnull Event.Status status) {
         this.status = Objects.requireNonNull(status, "Status cannot be null");
-        context.params().eventListener().accept(new Event(action, status));
+        if ((eventMask & Context.mask(status)) != 0) {
+            context.publish(new Event(action, status));
+        }
     }
 
     protected abstract V execute() throws IOException;
@@ -58,15 +87,185 @@ abstract class Task<V, A extends Action> {
         return Kind.MODIFIER;
     }
 
+    /**
+     * Gets the quality of service class of this task.
+     * <br>By default, walkers are {@link QosClass#METADATA} tasks, checkers are {@link QosClass#COMPARE} tasks and modifiers are
+     * {@link QosClass#SMALL_COPY} tasks.
+     * @return a quality of service class
+     */
+    protected QosClass qos() {
+        return switch (kind()) {
+            case WALKER -> QosClass.METADATA;
+            case CHECKER -> QosClass.COMPARE;
+            case MODIFIER -> QosClass.SMALL_COPY;
+        };
+    }
+
+    /**
+     * Gets the providers this task performs operations on.
+     * <br>The limits of these providers are enforced when the task is executed.
+     * @return a list of providers
+     * @see com.fathzer.sync4j.sync.parameters.PerformanceParameters#providerLimits(FileProvider, int, double)
+     */
+    protected List<FileProvider> providers() {
+        return List.of();
+    }
+
+    /**
+     * Creates the JDK Flight Recorder event that records an execution of this task.
+     * <br>Implementations should not create the event if it is disabled (see {@link #isRecorded(Class)}).
+     * @return a new event, or null if this task is not recorded (the default) or its event is disabled
+     */
+    protected TaskEvent newEvent() {
+        return null;
+    }
+
+    /**
+     * Tests whether a JDK Flight Recorder event is enabled in a running recording.
+     * <br>The event types are cached, this method is cheap enough to be called before creating each event.
+     * @param eventClass the event class
+     * @return true if the event is enabled
+     */
+    static boolean isRecorded(@Nonnull Class<? extends TaskEvent> eventClass) {
+        return EVENT_TYPES.get(eventClass).isEnabled();
+    }
+
+    /**
+     * Records the step this task would perform in a plan.
+     * <br>This method is called, instead of {@link #execute()}, on tasks of kind {@link Kind#MODIFIER} in plan mode. By default, it does nothing.
+     * @param plan the plan builder
+     * @throws IOException if an I/O error occurs
+     */
+    protected void plan(@Nonnull SyncPlan.Builder plan) throws IOException {
+        // Does not modify anything
+    }
+
+    /**
+     * Gets the destination folder whose operations can be grouped with the one of this task in a batch.
+     * <br>By default, tasks can't be executed in a batch.
+     * @return a folder, or null if this task can't be executed in a batch
+     * @throws IOException if an I/O error occurs
+     * @see com.fathzer.sync4j.sync.parameters.PerformanceParameters#batch(int, java.time.Duration)
+     */
+    protected Folder batchFolder() throws IOException {
+        return null;
+    }
+
+    /**
+     * Adds the operation of this task, instead of executing it, to a batch.
+     * <br>This method is only called on tasks that have a {@link #batchFolder()}.
+     * @param batch the batch
+     * @throws IOException if an I/O error occurs
+     */
+    protected void batch(@Nonnull Batch batch) throws IOException {
+        throw new UnsupportedOperationException("Task " + this + " can't be executed in a batch");
+    }
+
+    /**
+     * Completes this task with the result of its operation in a batch.
+     * <br>By default, it returns null.
+     * @param result the successful result of the operation
+     * @return the result of the task
+     * @throws IOException if an I/O error occurs
+     */
+    protected V batched(@Nonnull Batch.Result result) throws IOException {
+        return null;
+    }
+
+    /**
+     * Tests whether this task was successfully executed.
+     * @return true if the task was executed without error
+     */
+    boolean isCompleted() {
+        return status == COMPLETED;
+    }
+
     protected boolean onlySynchronous() {
         return false;
     }
 
+    /**
+     * Sets the continuation of this task executed asynchronously.
+     * @param then the function called with the result of this task (null if it failed) once it is executed, or null
+     */
+    final void then(Consumer<V> then) {
+        this.then = then;
+    }
+
+    /**
+     * Executes this task asynchronously.
+     * <br>The task should have been counted as pending by the task counter of its context. It is counted as completed once its continuation is called.
+     */
+    @Override
+    public final void run() {
+        final V result;
+        try {
+            result = context.executeAdmitted(this);
+        } catch (Exception e) {
+            done(null, e);
+            // Let the scheduler know the task failed
+            throw new CompletionException(e);
+        }
+        done(result, null);
+    }
+
+    /**
+     * Ends this task executed asynchronously.
+     * <br>The error, if any, is reported to the context, then the continuation is called and the task is counted as completed.
+     * An exception thrown by the continuation is reported to the context as an error of this task's action.
+     * @param result the result of the task
+     * @param error the error that made the task fail, or null if it succeeded
+     */
+    final void done(V result, Throwable error) {
+        try {
+            if (error != null) {
+                context.processError(error, action);
+            }
+            if (then != null) {
+                then.accept(error == null ? result : null);
+            }
+        } catch (RuntimeException e) {
+            context.processError(e, action);
+        } finally {
+            context.taskCounter().decrement();
+        }
+    }
+
+    /**
+     * Signals this task is started in a batch.
+     * <br>It should then be completed by {@link #complete(Batch.Result)}.
+     */
+    final void start() {
+        broadcast(STARTED);
+    }
+
+    /**
+     * Completes this task started in a batch.
+     * @param result the result of the operation of this task
+     * @return the result of the task
+     * @throws Exception if the operation failed
+     */
+    final V complete(@Nonnull Batch.Result result) throws Exception {
+        try {
+            if (result.failed()) {
+                throw result.error();
+            }
+            V value = batched(result);
+            tally.addDone(1);
+            broadcast(COMPLETED);
+            return value;
+        } finally {
+            if (status != COMPLETED) {
+                broadcast(FAILED);
+            }
+        }
+    }
+
     final V call() throws IOException {
         try {
             broadcast(STARTED);
             V result = execute();
-            counter.done().incrementAndGet();
+            tally.addDone(1);
             broadcast(COMPLETED);
             return result;
         } finally {
@@ -0,0 +1,143 @@
+package com.fathzer.sync4j.sync;
+
+import java.io.IOException;
+
+import com.fathzer.sync4j.Entry;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event that records the execution of a task.
+ * <br>These events are enabled, disabled or filtered by duration with the standard JFR settings of their names
+ * (for instance <code>com.fathzer.sync4j.Copy#threshold=10 ms</code>). Tasks do not create their event when it is disabled
+ * (see {@link Task#isRecorded(Class)}), so they cost nothing when no recording is running. The entry path is computed only if the event is committed.
+ */
+@Category("sync4j")
+@StackTrace(false)
+abstract class TaskEvent extends jdk.jfr.Event {
+    @Label("Path")
+    @Description("The path of the processed entry")
+    String path;
+
+    @Label("Provider")
+    @Description("The class of the provider of the processed entry")
+    String provider;
+
+    @Label("Bytes")
+    @Description("The number of bytes to copy, 0 if the task does not copy a file")
+    @DataAmount
+    long bytes;
+
+    @Label("Outcome")
+    @Description("COMPLETED or FAILED")
+    String outcome;
+
+    // Transient fields are not recorded
+    private final transient Entry entry;
+
+    TaskEvent(Entry entry) {
+        this.entry = entry;
+    }
+
+    /**
+     * Ends this event, then commits it if it is enabled and lasted more than its threshold.
+     * @param completed true if the task is completed
+     */
+    void end(boolean completed) {
+        end();
+        if (shouldCommit()) {
+            try {
+                path = path(entry);
+            } catch (IOException e) {
+                path = entry.getName();
+            }
+            provider = entry.getFileProvider().getClass().getName();
+            outcome = completed ? Event.Status.COMPLETED.name() : Event.Status.FAILED.name();
+            commit();
+        }
+    }
+
+    /**
+     * Gets the path recorded by this event.
+     * @param entry the entry passed to the constructor
+     * @return a path
+     * @throws IOException if an I/O error occurs
+     */
+    String path(Entry entry) throws IOException {
+        return entry.getPath();
+    }
+
+    @Name("com.fathzer.sync4j.List")
+    @Label("List Folder")
+    static class ListFolder extends TaskEvent {
+        ListFolder(Entry folder) {
+            super(folder);
+        }
+    }
+
+    @Name("com.fathzer.sync4j.Preload")
+    @Label("Preload Folder")
+    static class PreloadFolder extends TaskEvent {
+        PreloadFolder(Entry folder) {
+            super(folder);
+        }
+    }
+
+    @Name("com.fathzer.sync4j.Compare")
+    @Label("Compare Files")
+    @Description("Compares a source file with its destination, the recorded entry is the source file")
+    static class CompareFiles extends TaskEvent {
+        CompareFiles(Entry source) {
+            super(source);
+        }
+    }
+
+    @Name("com.fathzer.sync4j.Copy")
+    @Label("Copy File")
+    @Description("Copies a source file to a destination folder, the recorded entry is the source file")
+    static class CopyFile extends TaskEvent {
+        CopyFile(Entry source, long bytes) {
+            super(source);
+            this.bytes = bytes;
+        }
+    }
+
+    @Name("com.fathzer.sync4j.Move")
+    @Label("Move File")
+    @Description("Moves a destination file instead of copying a source file, the recorded entry is the moved file")
+    static class MoveFile extends TaskEvent {
+        MoveFile(Entry file) {
+            super(file);
+        }
+    }
+
+    @Name("com.fathzer.sync4j.CreateFolder")
+    @Label("Create Folder")
+    static class CreateFolder extends TaskEvent {
+        private final transient String name;
+
+        CreateFolder(Entry parent, String name) {
+            super(parent);
+            this.name = name;
+        }
+
+        @Override
+        String path(Entry parent) throws IOException {
+            final String parentPath = parent.getPath();
+            return parentPath.endsWith("/") ? parentPath + name : parentPath + "/" + name;
+        }
+    }
+
+    @Name("com.fathzer.sync4j.Delete")
+    @Label("Delete Entry")
+    static class DeleteEntry extends TaskEvent {
+        DeleteEntry(Entry entry) {
+            super(entry);
+        }
+    }
+}
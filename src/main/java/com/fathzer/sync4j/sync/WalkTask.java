@@ -6,64 +6,171 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.RecursiveAction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.fathzer.sync4j.Entry;
 import com.fathzer.sync4j.File;
 import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.sync.Event.ListAction;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 
-class WalkTask extends RecursiveAction {
-	private static final long serialVersionUID = 1L;
-	
-    private final transient Context context;
-    private final transient Folder sourceFolder;
-    private final transient Folder destinationFolder;
-    private transient List<Entry> destinationList;
+class WalkTask implements Runnable {
+    private final Context context;
+    private final Folder sourceFolder;
+    private final Folder destinationFolder;
+    private List<Entry> destinationList;
+    private final boolean recursive;
+    private final Checkpoint.Node node;
+    private final MoveDetector moveDetector;
+    private Long digest;
+    private boolean reconciled;
 
     WalkTask(@Nonnull Context context, @Nonnull Folder sourceFolder, @Nonnull Folder destinationFolder, List<Entry> destinationList) {
+        this(context, sourceFolder, destinationFolder, destinationList, true);
+    }
+
+    WalkTask(@Nonnull Context context, @Nonnull Folder sourceFolder, @Nonnull Folder destinationFolder, List<Entry> destinationList, boolean recursive) {
+        this(context, sourceFolder, destinationFolder, destinationList, recursive, null);
+    }
+
+    /**
+     * Constructor.
+     * @param context the context
+     * @param sourceFolder the source folder
+     * @param destinationFolder the destination folder
+     * @param destinationList the content of the destination folder, or null if it should be listed
+     * @param recursive false to not walk the sub-folders that exist in both the source and the destination.
+     * <br>Sub-folders missing in the destination are always walked.
+     * @param node the checkpoint node of the source folder, or null if there's no checkpoint
+     */
+    WalkTask(@Nonnull Context context, @Nonnull Folder sourceFolder, @Nonnull Folder destinationFolder, List<Entry> destinationList, boolean recursive,
+            @Nullable Checkpoint.Node node) {
         this.context = context;
         context.taskCounter().increment();
         this.sourceFolder = Objects.requireNonNull(sourceFolder);
         this.destinationFolder = Objects.requireNonNull(destinationFolder);
         this.destinationList = destinationList;
+        this.recursive = recursive;
+        this.node = node;
+        this.moveDetector = context.moveDetector();
+        if (moveDetector != null) {
+            moveDetector.walkStarted();
+        }
     }
 
     @Override
-    protected void compute() {
+    public void run() {
+        try {
+            walk();
+        } catch (RuntimeException e) {
+            // The folder is partially processed, the synchronization should not be considered as successful
+            context.processError(e, new ListAction(sourceFolder));
+        }
+    }
+
+    private void walk() {
+        boolean success = false;
         try {
             List<Entry> sourceList = list(sourceFolder);
-            if (destinationList == null && sourceList != null) {
-                destinationList = list(destinationFolder);
-            }
-            if (sourceList == null || destinationList == null) {
+            if (sourceList == null) {
                 // An error occurred during folder listing, do not process the folders
                 return;
             }
-            Map<String, Entry> destinationMap = destinationList.stream().collect(Collectors.toMap(Entry::getName, Function.identity()));
-            Set<String> destinationNames = new HashSet<>(destinationMap.keySet());
-            for (Entry srcEntry : sourceList) {
-                if (context.isCancelled()) return;
-                if (!context.params().filter().test(srcEntry)) {
-                    context.skip(srcEntry);
-                    continue;
+            // If the folder was reconciled by an interrupted synchronization, its files are not compared again,
+            // but its sub-folders are still walked, because their content may have changed in between
+            reconciled = isReconciled(sourceList);
+            if (reconciled && destinationList == null) {
+                // The destination matched the unchanged source entries, it is not listed again and nothing has to be deleted
+                walkReconciled(sourceList);
+            } else {
+                if (destinationList == null) {
+                    destinationList = list(destinationFolder);
                 }
-                processEntry(destinationMap, destinationNames, srcEntry);
+                if (destinationList == null) {
+                    // An error occurred during folder listing, do not process the folders
+                    return;
+                }
+                walk(sourceList);
             }
             if (context.isCancelled()) return;
-            // Remaining destination entries have to be deleted
-            for (String name : destinationNames) {
-                Entry entry = destinationMap.get(name);
-                context.asyncDelete(entry);
+            if (node != null && digest != null) {
+                node.processed(digest);
             }
+            success = true;
         } finally {
+            if (node != null) {
+                node.done(success);
+            }
+            if (moveDetector != null) {
+                moveDetector.walkEnded();
+            }
             context.taskCounter().decrement();
         }
     }
 
+    /**
+     * Walks the source entries against the destination entries.
+     * @param sourceList the entries of the source folder
+     */
+    private void walk(List<Entry> sourceList) {
+        Map<String, Entry> destinationMap = destinationList.stream().collect(Collectors.toMap(Entry::getName, Function.identity()));
+        Set<String> destinationNames = new HashSet<>(destinationMap.keySet());
+        for (Entry srcEntry : sourceList) {
+            if (context.isCancelled()) return;
+            if (!context.params().filter().test(srcEntry)) {
+                context.skip(srcEntry);
+                continue;
+            }
+            processEntry(destinationMap, destinationNames, srcEntry);
+        }
+        if (context.isCancelled()) return;
+        // Remaining destination entries have to be deleted
+        for (String name : destinationNames) {
+            Entry entry = destinationMap.get(name);
+            if (moveDetector != null) {
+                moveDetector.delete(entry, node);
+            } else {
+                context.asyncDelete(entry, node);
+            }
+        }
+    }
+
+    /**
+     * Walks the source entries of a folder reconciled by an interrupted synchronization.
+     * @param sourceList the entries of the source folder
+     */
+    private void walkReconciled(List<Entry> sourceList) {
+        for (Entry srcEntry : sourceList) {
+            if (context.isCancelled()) return;
+            if (!context.params().filter().test(srcEntry)) {
+                context.skip(srcEntry);
+                continue;
+            }
+            processReconciledEntry(srcEntry);
+        }
+    }
+
+    /**
+     * Tests whether the source folder was reconciled by an interrupted synchronization.
+     * @param sourceList the entries of the source folder
+     * @return true if the folder was reconciled and its entries did not change
+     */
+    private boolean isReconciled(List<Entry> sourceList) {
+        if (node == null) {
+            return false;
+        }
+        try {
+            digest = Checkpoint.digest(sourceList);
+            return node.isReconciled(digest);
+        } catch (IOException e) {
+            // The folder will be processed, but it can't be recorded as reconciled
+            return false;
+        }
+    }
+
     @SuppressWarnings("java:S1168")
     protected List<Entry> list(Folder folder) {
         final ListTask task = new ListTask(context, folder);
@@ -75,16 +182,52 @@ class WalkTask extends RecursiveAction {
         }
     }
 
+    /**
+     * Processes an entry of a reconciled folder.
+     * <br>Its files did not change, so only the destinations of its sub-folders are looked up, by path.
+     * @param srcEntry the source entry
+     */
+    private void processReconciledEntry(Entry srcEntry) {
+        if (!srcEntry.isFolder()) {
+            // The file did not change since the folder was reconciled (or the entry is neither a file nor a folder, it can't be copied)
+            context.skip(srcEntry);
+        } else {
+            final Folder src = srcEntry.asFolder();
+            final Entry destinationEntry;
+            try {
+                destinationEntry = destinationFolder.getFileProvider().get(destinationFolder.getPath() + '/' + src.getName());
+            } catch (IOException e) {
+                context.processError(e, new ListAction(destinationFolder));
+                if (node != null) {
+                    node.fail();
+                }
+                return;
+            }
+            if (destinationEntry.exists()) {
+                processExistingDestinationEntry(Map.of(src.getName(), destinationEntry), srcEntry);
+            } else {
+                asyncCreateThenWalk(src);
+            }
+        }
+    }
+
     private void processEntry(Map<String, Entry> destinationMap, Set<String> destinationNames, Entry srcEntry) {
-        if (destinationNames.remove(srcEntry.getName())) {
+        final boolean exists = destinationNames.remove(srcEntry.getName());
+        if (!srcEntry.isFile() && !srcEntry.isFolder()) {
+            // Neither a file nor a folder (for instance a broken link), it can't be copied and its destination is left as is
+            context.skip(srcEntry);
+        } else if (exists) {
             // Destination entry exists
             processExistingDestinationEntry(destinationMap, srcEntry);
         } else {
             if (srcEntry.isFile()) {
-                context.asyncCopy(srcEntry.asFile(), destinationFolder);
+                if (moveDetector != null) {
+                    moveDetector.copy(srcEntry.asFile(), destinationFolder, node);
+                } else {
+                    context.asyncCopy(srcEntry.asFile(), destinationFolder, node);
+                }
             } else {
-                Folder destinationEntry = context.createFolder(destinationFolder, srcEntry.getName());
-                spawnEmptyFolderTask(srcEntry.asFolder(), destinationEntry);
+                asyncCreateThenWalk(srcEntry.asFolder());
             }
         }
     }
@@ -93,25 +236,57 @@ class WalkTask extends RecursiveAction {
         Entry destinationEntry = destinationMap.get(srcEntry.getName());
         if (srcEntry.isFile()) {
             final File src = srcEntry.asFile();
-            if (destinationEntry.isFile()) {
-                context.asyncCheckAndCopy(src, destinationEntry.asFile());
+            if (reconciled && destinationEntry.isFile()) {
+                // The file did not change since the folder was reconciled
+                context.skip(src);
+            } else if (destinationEntry.isFile()) {
+                context.asyncCheckAndCopy(src, destinationEntry.asFile(), node);
             } else {
-                // Destination entry is a folder
-                context.deleteThenAsyncCopy(destinationEntry.asFolder(), destinationFolder, src);
+                // Destination entry is a folder (or neither a file nor a folder)
+                context.deleteThenAsyncCopy(destinationEntry, destinationFolder, src, node);
             }
         } else {
             final Folder src = srcEntry.asFolder();
             if (destinationEntry.isFolder()) {
-                new WalkTask(context, src, destinationEntry.asFolder(), null).fork();
+                if (recursive) {
+                    context.submit(new WalkTask(context, src, destinationEntry.asFolder(), null, true, child(src)));
+                } else if (node != null) {
+                    // The subtree is not walked, so it is not reconciled
+                    node.fail();
+                }
             } else {
                 // Destination entry is a file
                 // Delete the file and create the folder
-                destinationEntry = context.deleteThenCreate(destinationEntry.asFile(), destinationFolder, src);
-                spawnEmptyFolderTask(src, destinationEntry.asFolder());
+                if (context.delete(destinationEntry)) {
+                    asyncCreateThenWalk(src);
+                } else if (node != null) {
+                    node.fail();
+                }
             }
         }
     }
 
+    /**
+     * Asynchronously creates the destination folder of a source folder, then walks the source folder.
+     * <br>The walk of the current folder goes on while the folder is created.
+     * @param src the source folder
+     */
+    private void asyncCreateThenWalk(Folder src) {
+        if (moveDetector != null) {
+            // Moves can't be resolved before the new folder is walked
+            moveDetector.walkStarted();
+        }
+        context.asyncCreateFolder(destinationFolder, src.getName(), created -> {
+            try {
+                spawnEmptyFolderTask(src, created);
+            } finally {
+                if (moveDetector != null) {
+                    moveDetector.walkEnded();
+                }
+            }
+        }, node);
+    }
+
     /**
      * Spawns a new task to process the folder with empty destination folder (to not call list for nothing)
      * @param src the source folder
@@ -119,7 +294,13 @@ class WalkTask extends RecursiveAction {
      */
     void spawnEmptyFolderTask(Folder src, Folder destination) {
         if (destination!=null) {
-            new WalkTask(context, src, destination, List.of()).fork();
+            context.submit(new WalkTask(context, src, destination, List.of(), true, child(src)));
+        } else if (node != null) {
+            node.fail();
         }
     }
+
+    private Checkpoint.Node child(Folder src) {
+        return node == null ? null : node.child(src.getName());
+    }
 }
@@ -0,0 +1,43 @@
+package com.fathzer.sync4j.sync.parameters;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.fathzer.sync4j.sync.Event;
+import com.fathzer.sync4j.sync.Event.Action;
+import com.fathzer.sync4j.sync.Event.Status;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * A subscription of a listener to some events.
+ * @param actionType the type of the actions whose events are delivered (sub-types included), {@link Action} to receive the events of all actions
+ * @param statuses the statuses of the events that are delivered
+ * @param listener the listener
+ * @see SyncParameters#subscribe(Class, Set, Consumer)
+ */
+public record EventSubscription(@Nonnull Class<? extends Action> actionType, @Nonnull Set<Status> statuses, @Nonnull Consumer<Event> listener) {
+    /**
+     * Constructor.
+     * @param actionType the type of the actions whose events are delivered
+     * @param statuses the statuses of the events that are delivered
+     * @param listener the listener
+     */
+    public EventSubscription {
+        Objects.requireNonNull(actionType);
+        Objects.requireNonNull(listener);
+        statuses = statuses.isEmpty() ? Set.of() : Set.copyOf(EnumSet.copyOf(statuses));
+    }
+
+    /**
+     * Tests whether this subscription receives the events of a type of action with a status.
+     * @param type the type of action
+     * @param status the status
+     * @return true if the events are delivered to the listener
+     */
+    public boolean accepts(@Nonnull Class<? extends Action> type, @Nonnull Status status) {
+        return statuses.contains(status) && actionType.isAssignableFrom(type);
+    }
+}
@@ -0,0 +1,19 @@
+package com.fathzer.sync4j.sync.parameters;
+
+/**
+ * What to do when an event is published while the event buffer is full.
+ * @see SyncParameters#asyncEvents(int, OverflowPolicy)
+ */
+public enum OverflowPolicy {
+    /** The thread that publishes the event waits until the listener has consumed enough events. No event is lost. */
+    BLOCK,
+    /** The oldest event of the buffer is dropped. */
+    DROP_OLDEST,
+    /**
+     * The progress events ({@link com.fathzer.sync4j.sync.Event.Status#PLANNED PLANNED} and {@link com.fathzer.sync4j.sync.Event.Status#STARTED STARTED})
+     * are dropped, the terminal ones ({@link com.fathzer.sync4j.sync.Event.Status#COMPLETED COMPLETED} and
+     * {@link com.fathzer.sync4j.sync.Event.Status#FAILED FAILED}) wait until there's room in the buffer.
+     * <br>The listener may then receive the final status of an action without its previous statuses, but it never misses how an action ended.
+     */
+    COALESCE
+}
@@ -1,13 +1,35 @@
 package com.fathzer.sync4j.sync.parameters;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.fathzer.sync4j.FileProvider;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
 /**
  * Parameters to control the performance of the synchronizer.
  */
 public class PerformanceParameters {
     private boolean fastList;
+    private boolean useTrash;
+    private Path spillDirectory;
     private int maxWalkThreads;
     private int maxCopyThreads;
     private int maxComparisonThreads;
+    private boolean adaptiveConcurrency;
+    private int minCopyThreads;
+    private int minComparisonThreads;
+    private final Map<FileProvider, ProviderLimits> providerLimits;
+    private final Map<QosClass, QosShare> qosShares;
+    private long largeCopyThreshold;
+    private int maxBatchSize;
+    private Duration maxBatchDelay;
     
     /**
      * Creates a new instance of PerformanceParameters.
@@ -18,7 +40,21 @@ public class PerformanceParameters {
         this.maxWalkThreads = 1;
         this.maxCopyThreads = 1;
         this.maxComparisonThreads = 1;
+        this.minCopyThreads = 1;
+        this.minComparisonThreads = 1;
+        this.providerLimits = new IdentityHashMap<>();
+        this.qosShares = new EnumMap<>(QosClass.class);
+        this.qosShares.put(QosClass.METADATA, new QosShare(1, 0, 4));
+        this.qosShares.put(QosClass.COMPARE, new QosShare(0, 0, 2));
+        this.qosShares.put(QosClass.SMALL_COPY, new QosShare(0, 0, 2));
+        this.qosShares.put(QosClass.LARGE_COPY, new QosShare(0, 0, 1));
+        this.qosShares.put(QosClass.DELETE, new QosShare(0, 0, 1));
+        this.largeCopyThreshold = 1024L * 1024L;
+        this.maxBatchSize = 100;
+        this.maxBatchDelay = Duration.ofMillis(20);
     }
+
+    private record ProviderLimits(int maxConcurrentOperations, double maxOperationsPerSecond) {}
     
     /**
      * Returns true if the synchronizer should use the fast list mode.
@@ -42,6 +78,54 @@ public class PerformanceParameters {
         return this;
     }
 
+    /**
+     * Returns the directory where preloaded trees are spilled.
+     * @return a directory or null if preloaded trees are kept in memory
+     * @see #spillDirectory(Path)
+     */
+    @Nullable
+    public Path spillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Sets the directory where preloaded trees are spilled.
+     * <br>In fast list mode, if this directory is set, preloaded trees are stored in temporary files of this directory instead of memory
+     * (if the provider supports it). This allows to use the fast list mode with trees that do not fit in memory.
+     * <br>The temporary files are deleted when the synchronization is closed.
+     * @param spillDirectory a directory or null to keep preloaded trees in memory. Default is null.
+     * @return this
+     * @see com.fathzer.sync4j.Folder#preload(Path)
+     */
+    public PerformanceParameters spillDirectory(@Nullable Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+        return this;
+    }
+
+    /**
+     * Returns true if the synchronizer should move deleted entries to the trash.
+     * @return true if the synchronizer should move deleted entries to the trash
+     * @see #useTrash(boolean)
+     */
+    public boolean useTrash() {
+        return useTrash;
+    }
+
+    /**
+     * Sets the trash mode.
+     * <br>In trash mode, if the destination provider supports the trash feature, the entries to delete are moved, in constant time,
+     * to the provider's trash instead of being deleted. This removes the deletion of large trees from the synchronization critical path.
+     * <br>The trash should then be purged, typically by calling {@link com.fathzer.sync4j.sync.Synchronization#purgeTrash()} once the
+     * synchronization is completed.
+     * @param useTrash true if the synchronizer should use the trash mode. Default is false.
+     * @return this
+     * @see com.fathzer.sync4j.FileProvider#isTrashSupported()
+     */
+    public PerformanceParameters useTrash(boolean useTrash) {
+        this.useTrash = useTrash;
+        return this;
+    }
+
     /**
      * Returns the maximum number of threads used to walk folders.
      * @return the maximum number of threads used to walk folders.
@@ -53,6 +137,8 @@ public class PerformanceParameters {
     
     /**
      * Sets the maximum number of threads used to walk folders.
+     * <br>The synchronization uses a single pool of threads whose size is the sum of {@link #maxWalkThreads()}, {@link #maxCopyThreads()}
+     * and {@link #maxComparisonThreads()}. Threads that are not used to copy or compare files are used to walk folders (and vice versa).
      * @param maxWalkThreads the maximum number of threads used to walk folders. Default is 1.
      * @return this
      */
@@ -75,8 +161,10 @@ public class PerformanceParameters {
     
     /**
      * Sets the maximum number of threads used to copy files.
+     * <br>This limit applies to all the tasks that modify the destination (see {@link QosClass#SMALL_COPY}, {@link QosClass#LARGE_COPY}
+     * and {@link QosClass#DELETE}).
      * @param maxCopyThreads the maximum number of threads used to copy files.
-     * Default is 1 (copies are made using the walk threads).
+     * Default is 1. 0 means copies have no dedicated threads and are only limited by the size of the pool.
      * @return this
      */
     public PerformanceParameters maxCopyThreads(int maxCopyThreads) {
@@ -99,7 +187,7 @@ public class PerformanceParameters {
     /**
      * Sets the maximum number of threads used to compare files.
      * @param maxComparisonThreads the maximum number of threads used to compare files.
-     * Default is 1 (comparisons are made using the walk threads).
+     * Default is 1. 0 means comparisons have no dedicated threads and are only limited by the size of the pool.
      * @return this
      */
     public PerformanceParameters maxComparisonThreads(int maxComparisonThreads) {
@@ -109,4 +197,210 @@ public class PerformanceParameters {
         this.maxComparisonThreads = maxComparisonThreads;
         return this;
     }
+
+    /**
+     * Returns true if the synchronizer should adapt the copy and comparison concurrency at runtime.
+     * @return true if the adaptive concurrency mode is enabled
+     * @see #adaptiveConcurrency(boolean)
+     */
+    public boolean adaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * Sets the adaptive concurrency mode.
+     * <br>In adaptive mode, the number of copies (and comparisons) performed concurrently is adjusted at runtime, using an AIMD algorithm
+     * on the observed throughput, latency and error rate. It stays between {@link #minCopyThreads(int)} and {@link #maxCopyThreads(int)}
+     * (or between {@link #minComparisonThreads(int)} and {@link #maxComparisonThreads(int)}).
+     * <br>This mode has no effect if {@link #maxCopyThreads()} (or {@link #maxComparisonThreads()}) is 0.
+     * <br>The current limits are available in {@link com.fathzer.sync4j.sync.Statistics}.
+     * @param adaptiveConcurrency true to enable the adaptive concurrency mode. Default is false.
+     * @return this
+     */
+    public PerformanceParameters adaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        return this;
+    }
+
+    /**
+     * Returns the minimum number of concurrent copies in adaptive concurrency mode.
+     * @return a strictly positive integer
+     * @see #minCopyThreads(int)
+     */
+    public int minCopyThreads() {
+        return minCopyThreads;
+    }
+
+    /**
+     * Sets the minimum number of concurrent copies in adaptive concurrency mode.
+     * @param minCopyThreads the minimum number of concurrent copies. Default is 1.
+     * If it is greater than {@link #maxCopyThreads()}, {@link #maxCopyThreads()} is used.
+     * @return this
+     * @see #adaptiveConcurrency(boolean)
+     */
+    public PerformanceParameters minCopyThreads(int minCopyThreads) {
+        if (minCopyThreads < 1) {
+            throw new IllegalArgumentException("minCopyThreads must be >= 1");
+        }
+        this.minCopyThreads = minCopyThreads;
+        return this;
+    }
+
+    /**
+     * Returns the minimum number of concurrent comparisons in adaptive concurrency mode.
+     * @return a strictly positive integer
+     * @see #minComparisonThreads(int)
+     */
+    public int minComparisonThreads() {
+        return minComparisonThreads;
+    }
+
+    /**
+     * Sets the minimum number of concurrent comparisons in adaptive concurrency mode.
+     * @param minComparisonThreads the minimum number of concurrent comparisons. Default is 1.
+     * If it is greater than {@link #maxComparisonThreads()}, {@link #maxComparisonThreads()} is used.
+     * @return this
+     * @see #adaptiveConcurrency(boolean)
+     */
+    public PerformanceParameters minComparisonThreads(int minComparisonThreads) {
+        if (minComparisonThreads < 1) {
+            throw new IllegalArgumentException("minComparisonThreads must be >= 1");
+        }
+        this.minComparisonThreads = minComparisonThreads;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of operations that can be performed concurrently on a provider.
+     * @param provider a provider
+     * @return a positive or null integer (0 means there is no limit)
+     * @see #providerLimits(FileProvider, int, double)
+     */
+    public int maxConcurrentOperations(@Nonnull FileProvider provider) {
+        final ProviderLimits limits = providerLimits.get(provider);
+        return limits == null ? provider.getMaxConcurrentOperations() : limits.maxConcurrentOperations();
+    }
+
+    /**
+     * Returns the maximum number of operations per second that can be performed on a provider.
+     * @param provider a provider
+     * @return a positive or null number (0 means there is no limit)
+     * @see #providerLimits(FileProvider, int, double)
+     */
+    public double maxOperationsPerSecond(@Nonnull FileProvider provider) {
+        final ProviderLimits limits = providerLimits.get(provider);
+        return limits == null ? provider.getMaxOperationsPerSecond() : limits.maxOperationsPerSecond();
+    }
+
+    /**
+     * Sets the limits of a provider.
+     * <br>All the operations performed on a provider (listing, comparison, copy, deletion, etc...) share these limits.
+     * Operations that exceed them are queued until they can be performed.
+     * <br>By default, the limits declared by the provider ({@link FileProvider#getMaxConcurrentOperations()} and
+     * {@link FileProvider#getMaxOperationsPerSecond()}) are used.
+     * @param provider a provider
+     * @param maxConcurrentOperations the maximum number of operations that can be performed concurrently on the provider (0 means there is no limit)
+     * @param maxOperationsPerSecond the maximum number of operations per second (0 means there is no limit)
+     * @return this
+     */
+    public PerformanceParameters providerLimits(@Nonnull FileProvider provider, int maxConcurrentOperations, double maxOperationsPerSecond) {
+        if (maxConcurrentOperations < 0) {
+            throw new IllegalArgumentException("maxConcurrentOperations must be >= 0");
+        }
+        if (!(maxOperationsPerSecond >= 0) || Double.isInfinite(maxOperationsPerSecond)) {
+            throw new IllegalArgumentException("maxOperationsPerSecond must be a finite number >= 0");
+        }
+        providerLimits.put(provider, new ProviderLimits(maxConcurrentOperations, maxOperationsPerSecond));
+        return this;
+    }
+
+    /**
+     * Returns the share of the synchronization threads allocated to a quality of service class.
+     * @param qos a quality of service class
+     * @return the share of the class
+     * @see #qosShare(QosClass, QosShare)
+     */
+    @Nonnull
+    public QosShare qosShare(@Nonnull QosClass qos) {
+        return qosShares.get(qos);
+    }
+
+    /**
+     * Sets the share of the synchronization threads allocated to a quality of service class.
+     * <br>By default, {@link QosClass#METADATA} has a weight of 4 and a minimum of 1 thread (so that listing a folder never waits
+     * for all the pending copies), {@link QosClass#COMPARE} and {@link QosClass#SMALL_COPY} have a weight of 2, and the other classes
+     * have a weight of 1.
+     * <br>Please note that copies, deletions and comparisons are also limited by {@link #maxCopyThreads()} and {@link #maxComparisonThreads()}.
+     * @param qos a quality of service class
+     * @param share the share of the class
+     * @return this
+     */
+    public PerformanceParameters qosShare(@Nonnull QosClass qos, @Nonnull QosShare share) {
+        qosShares.put(Objects.requireNonNull(qos), Objects.requireNonNull(share));
+        return this;
+    }
+
+    /**
+     * Returns the size from which a copy belongs to the {@link QosClass#LARGE_COPY} class.
+     * @return a size in bytes
+     * @see #largeCopyThreshold(long)
+     */
+    public long largeCopyThreshold() {
+        return largeCopyThreshold;
+    }
+
+    /**
+     * Sets the size from which a copy belongs to the {@link QosClass#LARGE_COPY} class.
+     * @param largeCopyThreshold a size in bytes. Default is 1MB.
+     * @return this
+     */
+    public PerformanceParameters largeCopyThreshold(long largeCopyThreshold) {
+        if (largeCopyThreshold < 0) {
+            throw new IllegalArgumentException("largeCopyThreshold must be >= 0");
+        }
+        this.largeCopyThreshold = largeCopyThreshold;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of operations grouped in a batch.
+     * @return a strictly positive integer
+     * @see #batch(int, Duration)
+     */
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Returns the maximum time an operation waits for other operations to be grouped with.
+     * @return a duration
+     * @see #batch(int, Duration)
+     */
+    @Nonnull
+    public Duration maxBatchDelay() {
+        return maxBatchDelay;
+    }
+
+    /**
+     * Sets how the write operations are grouped in batches.
+     * <br>If the destination provider supports the batch feature, the file deletions, the folder creations and the copies of small files
+     * (see {@link #largeCopyThreshold(long)}) of a same destination folder are grouped and executed as a single {@link com.fathzer.sync4j.Batch}.
+     * A batch is executed as soon as it contains <code>maxBatchSize</code> operations, or <code>maxBatchDelay</code> after its first operation
+     * was added.
+     * @param maxBatchSize the maximum number of operations of a batch. Default is 100. 1 disables the batches.
+     * @param maxBatchDelay the maximum time an operation waits for other operations. Default is 20ms.
+     * @return this
+     * @see com.fathzer.sync4j.FileProvider#isBatchSupported()
+     */
+    public PerformanceParameters batch(int maxBatchSize, @Nonnull Duration maxBatchDelay) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be >= 1");
+        }
+        if (maxBatchDelay.isNegative()) {
+            throw new IllegalArgumentException("maxBatchDelay must be >= 0");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = maxBatchDelay;
+        return this;
+    }
 }
@@ -0,0 +1,20 @@
+package com.fathzer.sync4j.sync.parameters;
+
+/**
+ * A quality of service class.
+ * <br>All the tasks of a synchronization are executed by a single pool of threads. Each task belongs to a class that determines
+ * the share of the threads it can use.
+ * @see PerformanceParameters#qosShare(QosClass, QosShare)
+ */
+public enum QosClass {
+    /** Listing and preloading of folders, creation of folders, moves of files. */
+    METADATA,
+    /** Comparison of files. */
+    COMPARE,
+    /** Copy of files smaller than {@link PerformanceParameters#largeCopyThreshold()}. */
+    SMALL_COPY,
+    /** Copy of files whose size is greater than or equal to {@link PerformanceParameters#largeCopyThreshold()}. */
+    LARGE_COPY,
+    /** Deletion of files and folders. */
+    DELETE
+}
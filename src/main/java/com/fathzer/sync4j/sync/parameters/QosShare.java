@@ -0,0 +1,34 @@
+package com.fathzer.sync4j.sync.parameters;
+
+/**
+ * The share of the synchronization threads allocated to a {@link QosClass}.
+ * <br>When a thread is available, it executes a task of a class that has pending tasks, in the following order of preference:
+ * <ol>
+ * <li>A class that uses less than its minimum number of threads.</li>
+ * <li>A class that uses less than its maximum number of threads, with the lowest ratio between the number of threads it uses and its weight.</li>
+ * </ol>
+ * Threads are never reserved, if a class has no pending tasks, its threads are used by the other classes.
+ * @param minThreads the number of threads the class gets in priority when it has pending tasks (&gt;= 0)
+ * @param maxThreads the maximum number of threads the class can use (0 means all the threads)
+ * @param weight the weight of the class (&gt;= 1)
+ */
+public record QosShare(int minThreads, int maxThreads, int weight) {
+    /**
+     * Constructor.
+     * @param minThreads the number of threads the class gets in priority when it has pending tasks (&gt;= 0)
+     * @param maxThreads the maximum number of threads the class can use (0 means all the threads)
+     * @param weight the weight of the class (&gt;= 1)
+     * @throws IllegalArgumentException if an argument is invalid
+     */
+    public QosShare {
+        if (minThreads < 0) {
+            throw new IllegalArgumentException("minThreads must be >= 0");
+        }
+        if (maxThreads < 0 || (maxThreads > 0 && maxThreads < minThreads)) {
+            throw new IllegalArgumentException("maxThreads must be 0 or >= minThreads");
+        }
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must be >= 1");
+        }
+    }
+}
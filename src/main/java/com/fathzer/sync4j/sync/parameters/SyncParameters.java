@@ -1,7 +1,11 @@
 package com.fathzer.sync4j.sync.parameters;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -11,8 +15,10 @@ import java.util.logging.Logger;
 import com.fathzer.sync4j.Entry;
 import com.fathzer.sync4j.sync.Event;
 import com.fathzer.sync4j.sync.Event.Action;
+import com.fathzer.sync4j.sync.Event.Status;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 
 /**
  * Parameters to control the synchronizer.
@@ -20,12 +26,23 @@ import jakarta.annotation.Nonnull;
  * Please note that modifying the parameters after the synchronizer has been created may have unpredictable effect. 
  */
 public class SyncParameters {
+    private static final Consumer<Event> NO_LISTENER = event -> {};
+
     private boolean dryRun;
+    private boolean planMode;
+    private boolean detectMoves;
     private Predicate<Entry> filter;
     private FileComparator fileComparator;
     private PerformanceParameters performance;
     private Consumer<Event> eventListener;
+    private final List<EventSubscription> subscriptions;
+    private int eventBufferSize;
+    private OverflowPolicy eventOverflowPolicy;
     private BiPredicate<Throwable, Action> errorManager;
+    private Path stateFile;
+    private Path checkpointFile;
+    private int maxRecentErrors;
+    private Path errorFile;
     
     /**
      * Creates a new instance of SyncParameters.
@@ -33,12 +50,16 @@ public class SyncParameters {
      * Default file comparator is {@link FileComparator#SIZE} and {@link FileComparator#MOD_DATE}.
      * Default performance parameters is created by the default constructor of {@link PerformanceParameters}.
      * Default filter is <code>entry -> true</code>. 
+     * Default maximum number of retained errors is 1000.
      */
     public SyncParameters() {
         this.fileComparator = FileComparator.of(List.of(FileComparator.SIZE, FileComparator.MOD_DATE));
         this.performance = new PerformanceParameters();
         this.filter = entry -> true;
-        this.eventListener = event -> {};
+        this.eventListener = NO_LISTENER;
+        this.subscriptions = new ArrayList<>();
+        this.eventOverflowPolicy = OverflowPolicy.BLOCK;
+        this.maxRecentErrors = 1000;
         this.errorManager = (ex, a) -> {
             Logger logger = Logger.getLogger(SyncParameters.class.getName());
             logger.log(Level.SEVERE, ex, () -> a.toString() + " failed with " + ex.getMessage());
@@ -124,6 +145,62 @@ public class SyncParameters {
         return this;
     }
     
+    /**
+     * Gets the plan mode.
+     * @return true if the synchronizer records the plan of the synchronization
+     * @see #planMode(boolean)
+     */
+    public boolean planMode() {
+        return planMode;
+    }
+
+    /**
+     * Sets the plan mode.
+     * <br>In plan mode, the synchronizer runs in dry run mode, and records the actions it would perform in a
+     * {@link com.fathzer.sync4j.sync.SyncPlan} (see {@link com.fathzer.sync4j.sync.Synchronization#getPlan()}).
+     * The plan can be executed later without listing and comparing the folders again.
+     * <br>Setting plan mode to true also sets dry run mode to true. Plan mode has no effect if dry run mode is set to false afterwards.
+     * <br>Default is false.
+     * @param planMode true if the synchronizer should record the plan of the synchronization
+     * @return this
+     */
+    @Nonnull
+    public SyncParameters planMode(boolean planMode) {
+        this.planMode = planMode;
+        if (planMode) {
+            this.dryRun = true;
+        }
+        return this;
+    }
+
+    /**
+     * Gets the move detection mode.
+     * @return true if moved files are detected
+     * @see #detectMoves(boolean)
+     */
+    public boolean detectMoves() {
+        return detectMoves;
+    }
+
+    /**
+     * Sets the move detection mode.
+     * <br>When a file is moved or renamed in the source (for instance when a folder is renamed), the synchronizer
+     * sees a file to copy and a file to delete in the destination.
+     * In move detection mode, the copies and deletions are deferred until all the folders are walked. Then, the files to copy are matched
+     * with the files to delete that have the same size and are identical according to the {@link #fileComparator()}. Matched files are
+     * moved in the destination instead of being copied again.
+     * <br>Move detection requires the destination provider to support moves (see {@link com.fathzer.sync4j.FileProvider#isMoveSupported()}),
+     * it is ignored otherwise, and in plan mode. Please note that the files of the folders to delete are listed in order to be matched.
+     * <br>Default is false.
+     * @param detectMoves true to detect moved files
+     * @return this
+     */
+    @Nonnull
+    public SyncParameters detectMoves(boolean detectMoves) {
+        this.detectMoves = detectMoves;
+        return this;
+    }
+
     /**
      * Gets the event listener.
      * @return the event listener
@@ -138,6 +215,7 @@ public class SyncParameters {
      * Sets the event listener.
      * <br>
      * The event listener is called when an event occurs during the execution of a task.
+     * It receives all the events, use {@link #subscribe(Class, Set, Consumer)} to receive only some of them.
      * <br>
      * Default is <code>event -> {}</code> (no event listener).
      * @param eventListener the event listener
@@ -149,6 +227,85 @@ public class SyncParameters {
         return this;
     }
 
+    /**
+     * Subscribes a listener to some events.
+     * <br>
+     * The listener is only called for the events of the given type of actions with the given statuses. The events that no listener
+     * subscribed to are not even created, so, for instance, a listener of the completed copies and of the failures does not slow down
+     * the synchronization of files that are identical.
+     * <br>
+     * The listener is called in addition to the {@link #eventListener(Consumer) event listener} and to the listeners of the other subscriptions.
+     * @param actionType the type of the actions whose events are delivered (sub-types included), {@link Action} to receive the events of all actions
+     * @param statuses the statuses of the events that are delivered
+     * @param listener the listener
+     * @return this
+     */
+    @Nonnull
+    public SyncParameters subscribe(@Nonnull Class<? extends Action> actionType, @Nonnull Set<Status> statuses, @Nonnull Consumer<Event> listener) {
+        subscriptions.add(new EventSubscription(actionType, statuses, listener));
+        return this;
+    }
+
+    /**
+     * Gets the subscriptions to events.
+     * @return an immutable list of subscriptions, that contains a subscription to all events of the {@link #eventListener(Consumer) event listener},
+     * if one is set, followed by the subscriptions registered with {@link #subscribe(Class, Set, Consumer)}
+     */
+    @Nonnull
+    public List<EventSubscription> subscriptions() {
+        final List<EventSubscription> result = new ArrayList<>(subscriptions.size() + 1);
+        if (eventListener != NO_LISTENER) {
+            result.add(new EventSubscription(Action.class, EnumSet.allOf(Status.class), eventListener));
+        }
+        result.addAll(subscriptions);
+        return List.copyOf(result);
+    }
+
+    /**
+     * Gets the size of the buffer of events delivered asynchronously.
+     * @return the buffer size, 0 if events are delivered synchronously
+     * @see #asyncEvents(int, OverflowPolicy)
+     */
+    public int eventBufferSize() {
+        return eventBufferSize;
+    }
+
+    /**
+     * Gets the policy applied when the buffer of events delivered asynchronously is full.
+     * @return the overflow policy
+     * @see #asyncEvents(int, OverflowPolicy)
+     */
+    @Nonnull
+    public OverflowPolicy eventOverflowPolicy() {
+        return eventOverflowPolicy;
+    }
+
+    /**
+     * Sets how events are delivered to the event listener.
+     * <br>
+     * By default, the event listener is called by the thread that executes the task, so a slow listener slows down the synchronization.
+     * When a buffer size is set, events are published in a buffer, and the listener is called, in the publication order, by a dedicated thread.
+     * When the buffer is full, the overflow policy is applied. The number of events that are not delivered is available in
+     * {@link com.fathzer.sync4j.sync.Statistics#droppedEvents()}.
+     * <br>
+     * Pending events are delivered when the synchronization is closed.
+     * <br>
+     * Default is 0 (synchronous delivery) with {@link OverflowPolicy#BLOCK}.
+     * @param bufferSize the maximum number of events waiting to be delivered (it is rounded up to a power of 2), or 0 for synchronous delivery
+     * @param overflowPolicy the policy applied when the buffer is full
+     * @return this
+     * @throws IllegalArgumentException if bufferSize is negative
+     */
+    @Nonnull
+    public SyncParameters asyncEvents(int bufferSize, @Nonnull OverflowPolicy overflowPolicy) {
+        if (bufferSize < 0) {
+            throw new IllegalArgumentException("Buffer size must be positive or null");
+        }
+        this.eventOverflowPolicy = Objects.requireNonNull(overflowPolicy);
+        this.eventBufferSize = bufferSize;
+        return this;
+    }
+
     /**
      * Gets the error manager.
      * @return the error manager
@@ -176,4 +333,124 @@ public class SyncParameters {
         this.errorManager = Objects.requireNonNull(errorManager);
         return this;
     }
+
+    /**
+     * Gets the state file.
+     * @return the state file or null if incremental synchronization is disabled
+     * @see #stateFile(Path)
+     */
+    @Nullable
+    public Path stateFile() {
+        return stateFile;
+    }
+
+    /**
+     * Sets the state file used for incremental synchronization.
+     * <br>
+     * When a state file is set, the synchronizer records, at the end of each successful synchronization (no error, not cancelled, not in dry run mode),
+     * the size, last modified time and file key of the source files and the size and last modified time of the destination files.
+     * During the next synchronization, files whose attributes did not change are considered identical without calling the {@link #fileComparator()}.
+     * <br>
+     * The state is ignored if it was written for another source or destination folder, or if it is corrupted.
+     * The state file should be deleted if the file comparator is changed.
+     * <br>
+     * Default is null (incremental synchronization is disabled).
+     * @param stateFile the state file (it is created if it does not exist), or null to disable incremental synchronization
+     * @return this
+     */
+    @Nonnull
+    public SyncParameters stateFile(@Nullable Path stateFile) {
+        this.stateFile = stateFile;
+        return this;
+    }
+
+    /**
+     * Gets the checkpoint file.
+     * @return the checkpoint file or null if checkpointing is disabled
+     * @see #checkpointFile(Path)
+     */
+    @Nullable
+    public Path checkpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Sets the checkpoint file used to resume an interrupted synchronization.
+     * <br>
+     * When a checkpoint file is set, the synchronizer journals its progress: the folders whose whole subtree is reconciled,
+     * and the copied files. The journal is written in batches and synced to the disk, so it survives a crash of the application.
+     * <br>
+     * A new synchronization of the same folders with the same checkpoint file still walks all the folders, but does not compare
+     * the files of the reconciled folders again, unless the entries (names, types, sizes and last modified times) of the folder changed
+     * in the source, and does not compare the copied files again, unless the source file changed or the destination file has not the source size.
+     * Please note that changes made only to the destination are not detected: the checkpoint file should be deleted if the destination
+     * may have been modified since the interruption, or if the filter or the file comparator is changed.
+     * <br>
+     * The checkpoint file is deleted when the synchronization is successful (no error, not cancelled). It is ignored in dry run mode,
+     * if it was written for another source or destination folder, and the records after a corrupted one are ignored.
+     * <br>
+     * Default is null (checkpointing is disabled).
+     * @param checkpointFile the checkpoint file (it is created if it does not exist), or null to disable checkpointing
+     * @return this
+     */
+    @Nonnull
+    public SyncParameters checkpointFile(@Nullable Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of errors retained by the synchronization.
+     * @return a positive or null integer
+     * @see #maxRecentErrors(int)
+     */
+    public int maxRecentErrors() {
+        return maxRecentErrors;
+    }
+
+    /**
+     * Sets the maximum number of errors retained by the synchronization.
+     * <br>
+     * All errors are counted, by exception type and by kind of action, but only the most recent ones are kept in memory
+     * (see {@link com.fathzer.sync4j.sync.ErrorCollector}). Use {@link #errorFile(Path)} to keep all of them.
+     * <br>
+     * Default is 1000.
+     * @param maxRecentErrors the maximum number of errors retained (0 to retain no error)
+     * @return this
+     * @throws IllegalArgumentException if maxRecentErrors is negative
+     */
+    @Nonnull
+    public SyncParameters maxRecentErrors(int maxRecentErrors) {
+        if (maxRecentErrors < 0) {
+            throw new IllegalArgumentException("Max recent errors must be positive or null");
+        }
+        this.maxRecentErrors = maxRecentErrors;
+        return this;
+    }
+
+    /**
+     * Gets the error file.
+     * @return the error file or null if errors are not written to a file
+     * @see #errorFile(Path)
+     */
+    @Nullable
+    public Path errorFile() {
+        return errorFile;
+    }
+
+    /**
+     * Sets the file where the errors of the synchronization are written.
+     * <br>
+     * Each error is appended to the file with its date, the action that failed and its stack trace. The file is created the first time
+     * an error occurs. If the file can't be written, a warning is logged and the errors are no more written to the file.
+     * <br>
+     * Default is null (errors are not written to a file).
+     * @param errorFile the error file, or null to not write the errors to a file
+     * @return this
+     */
+    @Nonnull
+    public SyncParameters errorFile(@Nullable Path errorFile) {
+        this.errorFile = errorFile;
+        return this;
+    }
 }
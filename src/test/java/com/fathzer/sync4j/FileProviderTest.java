@@ -10,6 +10,8 @@ import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.fathzer.sync4j.helper.SequentialBatch;
+
 class FileProviderTest {
     
     private TestFileProvider provider;
@@ -50,7 +52,43 @@ class FileProviderTest {
     void testDefaultIsFastListSupported() {
         assertFalse(provider.isFastListSupported(), "Default implementation should return false");
     }
+
+    @Test
+    void testDefaultGetId() {
+        assertEquals(TestFileProvider.class.getName(), provider.getId(), "Default implementation should return the class name");
+    }
     
+    @Test
+    void testDefaultBatch() throws IOException {
+        assertFalse(provider.isBatchSupported(), "Default implementation should return false");
+        final Batch batch = provider.batch();
+        assertTrue(batch instanceof SequentialBatch);
+
+        // Given a batch with a failing operation
+        final Folder folder = mock(Folder.class);
+        final Folder created = mock(Folder.class);
+        when(folder.mkdir("ok")).thenReturn(created);
+        when(folder.mkdir("ko")).thenThrow(new IOException("ko"));
+        final File file = mock(File.class);
+        batch.mkdir(folder, "ok");
+        batch.mkdir(folder, "ko");
+        batch.delete(file);
+        assertEquals(3, batch.size());
+
+        // When executed, all operations are executed one by one
+        final List<Batch.Result> results = batch.execute();
+
+        // Then the results are reported per operation
+        assertEquals(3, results.size());
+        assertSame(created, results.get(0).entry());
+        assertFalse(results.get(0).failed());
+        assertTrue(results.get(1).failed());
+        assertEquals("ko", results.get(1).error().getMessage());
+        assertFalse(results.get(2).failed());
+        verify(file).delete();
+        assertThrows(IllegalStateException.class, batch::execute, "A batch can be executed only once");
+    }
+
     @Test
     void testDefaultClose() {
         assertDoesNotThrow(() -> provider.close(), "Default close should not throw exception");
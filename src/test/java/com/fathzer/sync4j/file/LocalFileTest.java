@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
@@ -110,6 +111,21 @@ class LocalFileTest extends AbstractFileProviderTest {
         assertEquals(Arrays.asList(HashAlgorithm.values()), provider.getSupportedHash());
     }
 
+    @Test
+    void testId() throws IOException {
+        // The identifier depends on the root path, not on the state of the provider
+        final String id = provider.getId();
+        provider.setReadOnly(true);
+        assertEquals(id, provider.getId());
+        provider.setReadOnly(false);
+        try (LocalProvider other = new LocalProvider(tempDir)) {
+            assertEquals(id, other.getId());
+        }
+        try (LocalProvider other = new LocalProvider(Files.createDirectory(tempDir.resolve("other")))) {
+            assertNotEquals(id, other.getId());
+        }
+    }
+
     @Test
     void testCreationTimePrecision() throws IOException {
         Path path = tempDir.resolve("creationTimeTest");
@@ -239,4 +255,108 @@ class LocalFileTest extends AbstractFileProviderTest {
             assertTrue(entry.getName().isEmpty());
         }
     }
+
+    @Test
+    void testTrash() throws IOException {
+        assertTrue(provider.isTrashSupported());
+        Folder folder = root.mkdir("folder");
+        folder.mkdir("sub").copy("file.txt", createMockFile("content"), null);
+        File file = root.copy("file.txt", createMockFile("content"), null);
+
+        // Move entries to trash
+        folder.moveToTrash();
+        file.moveToTrash();
+        assertFalse(folder.exists());
+        assertFalse(file.exists());
+        // Moving a non existing entry does nothing
+        file.moveToTrash();
+        assertThrows(IOException.class, () -> root.moveToTrash());
+
+        // Trash is hidden
+        final Path trash = tempDir.resolve(LocalProvider.TRASH_NAME);
+        assertTrue(Files.isDirectory(trash));
+        assertTrue(root.list().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> provider.get("/" + LocalProvider.TRASH_NAME));
+
+        // Purge the trash
+        AtomicLong deleted = new AtomicLong();
+        provider.purgeTrash(deleted::addAndGet, () -> false);
+        assertEquals(2, deleted.get());
+        try (var stream = Files.list(trash)) {
+            assertEquals(0, stream.count());
+        }
+
+        // Read only provider can't trash
+        Folder other = root.mkdir("other");
+        provider.setReadOnly(true);
+        assertThrows(IOException.class, other::moveToTrash);
+        provider.setReadOnly(false);
+    }
+
+    @Test
+    void testMove() throws IOException {
+        assertTrue(provider.isMoveSupported());
+        Folder folder = root.mkdir("folder");
+        File file = root.copy("file.txt", createMockFile("content"), null);
+        final long lastModified = file.getLastModifiedTime();
+
+        // Move and rename a file
+        File moved = folder.move("renamed.txt", file);
+        assertFalse(file.exists());
+        assertEquals("renamed.txt", moved.getName());
+        assertEquals("content", Files.readString(tempDir.resolve("folder/renamed.txt")));
+        assertEquals(lastModified, moved.getLastModifiedTime());
+
+        // File of another provider can't be moved
+        File mock = createMockFile("other");
+        assertThrows(IllegalArgumentException.class, () -> root.move("other.txt", mock));
+
+        // Read only provider can't move
+        provider.setReadOnly(true);
+        assertThrows(IOException.class, () -> root.move("file.txt", moved));
+        provider.setReadOnly(false);
+    }
+
+    @Test
+    void testDirectCopy() throws IOException {
+        assertTrue(provider.isDirectCopySupported(provider));
+        assertFalse(provider.isDirectCopySupported(mock(FileProvider.class)));
+        Folder folder = root.mkdir("folder");
+        File file = root.copy("file.txt", createMockFile("content"), null);
+
+        // Copy a file
+        final AtomicLong progress = new AtomicLong();
+        File copy = folder.directCopy("copy.txt", file, progress::set);
+        assertTrue(file.exists());
+        assertEquals("content", Files.readString(tempDir.resolve("folder/copy.txt")));
+        assertEquals(file.getLastModifiedTime(), copy.getLastModifiedTime());
+        assertEquals(7, progress.get());
+
+        // File of another file system provider can't be directly copied
+        File mock = createMockFile("other");
+        assertThrows(IllegalArgumentException.class, () -> root.directCopy("other.txt", mock, null));
+
+        // Read only provider can't copy
+        provider.setReadOnly(true);
+        assertThrows(IOException.class, () -> root.directCopy("copy.txt", file, null));
+        provider.setReadOnly(false);
+    }
+
+    @Test
+    void testDirectCopyProgress() throws IOException {
+        // Given a file of two chunks and a half
+        final byte[] content = new byte[(int) (LocalFile.DIRECT_COPY_CHUNK_SIZE * 5 / 2)];
+        Arrays.fill(content, (byte) 'x');
+        Files.write(tempDir.resolve("big.bin"), content);
+        final File file = provider.get("/big.bin").asFile();
+
+        // When it is directly copied
+        final List<Long> progress = new ArrayList<>();
+        root.mkdir("folder").directCopy("big.bin", file, progress::add);
+
+        // Then the progress is reported after each chunk
+        final long chunk = LocalFile.DIRECT_COPY_CHUNK_SIZE;
+        assertEquals(List.of(0L, chunk, 2 * chunk, (long) content.length), progress);
+        assertArrayEquals(content, Files.readAllBytes(tempDir.resolve("folder/big.bin")));
+    }
 }
@@ -0,0 +1,100 @@
+package com.fathzer.sync4j.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.util.IOLambda.IOSupplier;
+
+/**
+ * Compares the preload of a local tree with the per-folder listing used when fast-list is disabled.
+ * <br>The tree is walked once before the measures, so that both methods run with a warm file system cache. Then, both methods are
+ * measured several times, alternating which one runs first, and the best time of each method is reported.
+ * <br>This benchmark is disabled by default, run it with <code>-Dsync4j.benchmark=true</code>.
+ * The number of entries can be set with <code>-Dsync4j.benchmark.entries=1000000</code> (default is one million).
+ */
+@EnabledIfSystemProperty(named = "sync4j.benchmark", matches = "true")
+class LocalPreloadBenchmarkTest {
+    private static final Logger LOGGER = Logger.getLogger(LocalPreloadBenchmarkTest.class.getName());
+    private static final int FILES_PER_FOLDER = 100;
+    private static final int ROUNDS = 4;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void benchmark() throws Exception {
+        final int entries = Integer.getInteger("sync4j.benchmark.entries", 1_000_000);
+        populate(entries);
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            final Folder root = provider.get("").asFolder();
+            // Warm up the file system cache
+            final long count = walk(root);
+            assertTrue(count > entries);
+
+            long listing = Long.MAX_VALUE;
+            long preload = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                if (round % 2 == 0) {
+                    listing = Math.min(listing, measure(count, () -> walk(root)));
+                    preload = Math.min(preload, measure(count, () -> walk(root.preload())));
+                } else {
+                    preload = Math.min(preload, measure(count, () -> walk(root.preload())));
+                    listing = Math.min(listing, measure(count, () -> walk(root)));
+                }
+            }
+            final long listingMs = listing / 1_000_000;
+            final long preloadMs = preload / 1_000_000;
+            LOGGER.info(() -> String.format("%d entries: per-folder listing %d ms, preload %d ms (best of %d rounds)", count, listingMs,
+                    preloadMs, ROUNDS));
+        }
+    }
+
+    /**
+     * Measures a walk.
+     * @param expected the number of entries the walk should find
+     * @param walk the walk
+     * @return the duration of the walk in nanoseconds
+     */
+    private long measure(long expected, IOSupplier<Long> walk) throws IOException {
+        final long start = System.nanoTime();
+        final long count = walk.get();
+        final long duration = System.nanoTime() - start;
+        assertEquals(expected, count);
+        return duration;
+    }
+
+    private void populate(int entries) throws IOException {
+        Path folder = tempDir;
+        for (int i = 0; i < entries; i++) {
+            if (i % FILES_PER_FOLDER == 0) {
+                folder = Files.createDirectories(tempDir.resolve(Integer.toString(i / (FILES_PER_FOLDER * FILES_PER_FOLDER))).resolve(Integer.toString(i / FILES_PER_FOLDER)));
+            }
+            Files.createFile(folder.resolve("file" + i));
+        }
+    }
+
+    /** Walks a tree the way the synchronizer does: list folders and read size and date of files. */
+    private long walk(Folder folder) throws IOException {
+        long count = 0;
+        for (Entry entry : folder.list()) {
+            count++;
+            if (entry.isFile()) {
+                entry.asFile().getSize();
+                entry.asFile().getLastModifiedTime();
+            } else if (entry.isFolder()) {
+                count += walk(entry.asFolder());
+            }
+        }
+        return count;
+    }
+}
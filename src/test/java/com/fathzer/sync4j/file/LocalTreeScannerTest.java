@@ -0,0 +1,165 @@
+package com.fathzer.sync4j.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.sync.Synchronization;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+class LocalTreeScannerTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testPreload() throws IOException {
+        Files.createDirectories(tempDir.resolve("folder/sub"));
+        Files.writeString(tempDir.resolve("folder/sub/file.txt"), "content");
+        Files.setLastModifiedTime(tempDir.resolve("folder/sub/file.txt"), FileTime.fromMillis(123456000));
+        Files.writeString(tempDir.resolve("root.txt"), "root content");
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            assertTrue(provider.isFastListSupported());
+            // Trash is not preloaded
+            provider.get("/root.txt").moveToTrash();
+            Files.writeString(tempDir.resolve("root.txt"), "root content");
+
+            final Folder root = provider.get("").asFolder().preload();
+            assertSame(root, root.preload());
+
+            // Remove the tree to check preloaded data is not read from the file system
+            provider.get("/folder").delete();
+            Files.delete(tempDir.resolve("root.txt"));
+
+            final Map<String, Entry> children = root.list().stream().collect(Collectors.toMap(Entry::getName, Function.identity()));
+            assertEquals(2, children.size());
+            final File rootFile = children.get("root.txt").asFile();
+            assertTrue(rootFile.exists());
+            assertEquals("root content".length(), rootFile.getSize());
+            assertEquals("/root.txt", rootFile.getPath());
+            assertThrows(IOException.class, ((Folder) rootFile)::list);
+
+            final Folder folder = children.get("folder").asFolder();
+            assertFalse(folder.isFile());
+            final List<Entry> sub = folder.list().get(0).asFolder().list();
+            assertEquals(1, sub.size());
+            final File file = sub.get(0).asFile();
+            assertEquals("file.txt", file.getName());
+            assertEquals(7, file.getSize());
+            assertEquals(123456000, file.getLastModifiedTime());
+        }
+    }
+
+    @Test
+    void testPreloadInScanPool() throws Exception {
+        // Given a tree preloaded from a task of another fork-join pool
+        Files.createDirectories(tempDir.resolve("a/b"));
+        Files.createDirectories(tempDir.resolve("c"));
+        final ForkJoinPool callerPool = new ForkJoinPool(1);
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            final Folder root = callerPool.submit(() -> provider.get("").asFolder().preload()).get();
+
+            // Then the tree is scanned by the pool of the provider, not by the pool of the caller
+            assertEquals(2, root.list().size());
+            final ForkJoinPool scanPool = provider.scanPool();
+            assertTrue(scanPool.getPoolSize() > 0, "Scan pool should have been used");
+            provider.close();
+            assertTrue(scanPool.isShutdown());
+        } finally {
+            callerPool.shutdown();
+        }
+    }
+
+    @Test
+    void testPreloadMissingFolder() throws IOException {
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            final Folder missing = (LocalFile) provider.get("/missing");
+            assertThrows(IOException.class, missing::preload);
+            Files.writeString(tempDir.resolve("file.txt"), "content");
+            final Folder file = (LocalFile) provider.get("/file.txt");
+            assertThrows(IOException.class, file::preload);
+        }
+    }
+
+    @Test
+    void testPreloadLinks() throws Exception {
+        // Given a source with links to a file, to a folder, to its root and a broken link
+        final Path target = Files.createDirectories(tempDir.resolve("target"));
+        Files.writeString(target.resolve("linked.txt"), "linked");
+        final Path sourceDir = Files.createDirectories(tempDir.resolve("source"));
+        Files.createSymbolicLink(sourceDir.resolve("file.txt"), target.resolve("linked.txt"));
+        Files.createSymbolicLink(sourceDir.resolve("folder"), target);
+        Files.createSymbolicLink(sourceDir.resolve("loop"), sourceDir);
+        Files.createSymbolicLink(sourceDir.resolve("broken"), tempDir.resolve("missing"));
+        final Path destinationDir = Files.createDirectories(tempDir.resolve("destination"));
+        try (LocalProvider source = new LocalProvider(sourceDir); LocalProvider destination = new LocalProvider(destinationDir)) {
+            // When
+            final Folder root = source.get("").asFolder().preload();
+
+            // Then links are followed like with the non preloaded entries
+            final Map<String, Entry> children = root.list().stream().collect(Collectors.toMap(Entry::getName, Function.identity()));
+            assertEquals(6, children.get("file.txt").asFile().getSize());
+            assertEquals(1, children.get("folder").asFolder().list().size());
+            assertFalse(children.get("loop").isFolder(), "Loops should not be followed");
+            assertFalse(children.get("loop").isFile());
+            assertFalse(children.get("broken").isFolder());
+            assertFalse(children.get("broken").isFile());
+
+            // When
+            final SyncParameters parameters = new SyncParameters();
+            parameters.performance().fastList(true);
+            try (Synchronization synchronization = new Synchronization(source.get("").asFolder(), destination.get("").asFolder(), parameters)) {
+                synchronization.start();
+                synchronization.waitFor();
+
+                // Then
+                assertTrue(synchronization.getErrors().isEmpty(), () -> synchronization.getErrors().toString());
+            }
+            assertEquals("linked", Files.readString(destinationDir.resolve("file.txt")));
+            assertEquals("linked", Files.readString(destinationDir.resolve("folder/linked.txt")));
+            assertFalse(Files.exists(destinationDir.resolve("loop")));
+            assertFalse(Files.exists(destinationDir.resolve("broken")));
+        }
+    }
+
+    @Test
+    void testSpilledPreload() throws Exception {
+        final Path sourceDir = Files.createDirectories(tempDir.resolve("source/folder/sub"));
+        Files.writeString(sourceDir.resolve("file.txt"), "content");
+        Files.writeString(tempDir.resolve("source/root.txt"), "root content");
+        final Path destinationDir = Files.createDirectories(tempDir.resolve("destination"));
+        final Path spillDir = Files.createDirectories(tempDir.resolve("spill"));
+        try (LocalProvider source = new LocalProvider(tempDir.resolve("source")); LocalProvider destination = new LocalProvider(destinationDir)) {
+            final SyncParameters parameters = new SyncParameters();
+            parameters.performance().fastList(true).spillDirectory(spillDir);
+            try (Synchronization synchronization = new Synchronization(source.get("").asFolder(), destination.get("").asFolder(), parameters)) {
+                synchronization.start();
+                synchronization.waitFor();
+                assertTrue(synchronization.getErrors().isEmpty());
+                assertEquals(2, synchronization.getStatistics().preloadedFolders().done().get());
+                try (Stream<Path> files = Files.list(spillDir)) {
+                    assertEquals(1, files.count(), "Work directory should exist during the synchronization");
+                }
+            }
+            assertEquals("content", Files.readString(destinationDir.resolve("folder/sub/file.txt")));
+            assertEquals("root content", Files.readString(destinationDir.resolve("root.txt")));
+            try (Stream<Path> files = Files.list(spillDir)) {
+                assertEquals(0, files.count(), "Work directory should be deleted when the synchronization is closed");
+            }
+        }
+    }
+}
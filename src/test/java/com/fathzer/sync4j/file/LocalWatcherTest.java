@@ -0,0 +1,71 @@
+package com.fathzer.sync4j.file;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.Folder;
+
+class LocalWatcherTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testWatch() throws IOException {
+        Files.createDirectories(tempDir.resolve("folder/sub"));
+        final Map<String, Boolean> changes = new ConcurrentHashMap<>();
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            assertTrue(provider.isWatchSupported());
+            final Folder root = provider.get("").asFolder();
+            try (Closeable watch = root.watch((path, subtree) -> changes.merge(path, subtree, Boolean::logicalOr))) {
+                // File created in an existing sub-folder
+                Files.writeString(tempDir.resolve("folder/sub/file.txt"), "content");
+                await().atMost(Duration.ofSeconds(10)).until(() -> changes.containsKey("/folder/sub"));
+                assertFalse(changes.get("/folder/sub"));
+
+                // Folder created => parent changed and the new folder's subtree should be checked
+                changes.clear();
+                Files.createDirectory(tempDir.resolve("new"));
+                await().atMost(Duration.ofSeconds(10)).until(() -> changes.containsKey("") && changes.containsKey("/new"));
+                assertTrue(changes.get("/new"));
+
+                // The new folder is watched
+                changes.clear();
+                Files.writeString(tempDir.resolve("new/file.txt"), "content");
+                await().atMost(Duration.ofSeconds(10)).until(() -> changes.containsKey("/new"));
+
+                // Trash is ignored
+                changes.clear();
+                provider.get("/new/file.txt").moveToTrash();
+                await().atMost(Duration.ofSeconds(10)).until(() -> changes.containsKey("/new"));
+                assertFalse(changes.containsKey(""));
+            }
+        }
+    }
+
+    @Test
+    void testWatchMissingFolder() throws IOException {
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            final LocalFile missing = (LocalFile) provider.get("/missing");
+            assertThrows(IOException.class, () -> missing.watch((path, subtree) -> {}));
+        }
+    }
+
+    @Test
+    void testToProviderPath() {
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            assertEquals("", provider.toProviderPath(tempDir));
+            assertEquals("/a/b", provider.toProviderPath(tempDir.resolve("a").resolve("b")));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.fathzer.sync4j.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelDeleterTest {
+    @TempDir
+    private Path tempDir;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private Path populate(int folders, int filesPerFolder) throws IOException {
+        final Path root = Files.createDirectory(tempDir.resolve("root"));
+        for (int i = 0; i < folders; i++) {
+            final Path folder = Files.createDirectories(root.resolve("folder" + i).resolve("sub"));
+            for (int j = 0; j < filesPerFolder; j++) {
+                Files.writeString(folder.resolve("file" + j + ".txt"), "content");
+            }
+        }
+        // Files at the root, more than a batch
+        for (int j = 0; j < ParallelDeleter.BATCH_SIZE + 1; j++) {
+            Files.createFile(root.resolve("rootFile" + j));
+        }
+        return root;
+    }
+
+    @Test
+    void testDelete() throws IOException {
+        final Path root = populate(5, 10);
+        final AtomicLong deleted = new AtomicLong();
+
+        new ParallelDeleter(pool, deleted::addAndGet, () -> false).delete(root);
+
+        assertFalse(Files.exists(root));
+        assertEquals(5 * 10 + ParallelDeleter.BATCH_SIZE + 1, deleted.get());
+    }
+
+    @Test
+    void testCancelled() throws IOException {
+        final Path root = populate(2, 2);
+        final AtomicLong deleted = new AtomicLong();
+
+        final ParallelDeleter deleter = new ParallelDeleter(pool, deleted::addAndGet, () -> true);
+        assertThrows(InterruptedIOException.class, () -> deleter.delete(root));
+
+        assertTrue(Files.exists(root));
+        assertEquals(0, deleted.get());
+    }
+
+    @Test
+    void testMissingFolder() {
+        final Path missing = tempDir.resolve("missing");
+        final ParallelDeleter deleter = new ParallelDeleter(pool, n -> {}, () -> false);
+        assertThrows(IOException.class, () -> deleter.delete(missing));
+    }
+
+    @Test
+    void testLocalProvider() throws IOException {
+        final Path root = populate(3, 3);
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            assertEquals(LocalProvider.DEFAULT_DELETE_PARALLELISM, provider.getDeleteParallelism());
+            assertThrows(IllegalArgumentException.class, () -> provider.setDeleteParallelism(0));
+            provider.setDeleteParallelism(3);
+            assertEquals(3, provider.getDeleteParallelism());
+
+            final AtomicLong deleted = new AtomicLong();
+            provider.get("/root").asFolder().delete(deleted::addAndGet, () -> false);
+            assertFalse(Files.exists(root));
+            assertEquals(3 * 3 + ParallelDeleter.BATCH_SIZE + 1, deleted.get());
+        }
+    }
+
+    @Test
+    void testSymbolicLinks() throws IOException {
+        // Given a folder outside the deleted trees, and links to it
+        final Path target = Files.createDirectory(tempDir.resolve("target"));
+        final Path precious = Files.writeString(target.resolve("precious.txt"), "content");
+        final Path root = populate(1, 1);
+        Files.createSymbolicLink(root.resolve("linkInTree"), target);
+        final Path link = Files.createSymbolicLink(tempDir.resolve("link"), target);
+
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            // When a link to a folder is deleted, only the link is deleted
+            provider.get("/link").delete();
+            assertFalse(Files.exists(link, LinkOption.NOFOLLOW_LINKS));
+            assertTrue(Files.exists(precious));
+
+            // When a tree that contains a link to a folder is deleted, the content of the linked folder is not deleted
+            provider.get("/root").asFolder().delete();
+            assertFalse(Files.exists(root));
+            assertTrue(Files.exists(precious));
+        }
+    }
+
+    @Test
+    void testPurgeTrashedLink() throws IOException {
+        // Given a link to a folder moved to the trash
+        final Path target = Files.createDirectory(tempDir.resolve("target"));
+        final Path precious = Files.writeString(target.resolve("precious.txt"), "content");
+        Files.createSymbolicLink(tempDir.resolve("link"), target);
+
+        try (LocalProvider provider = new LocalProvider(tempDir)) {
+            provider.get("/link").moveToTrash();
+
+            // When the trash is purged
+            final AtomicLong deleted = new AtomicLong();
+            provider.purgeTrash(deleted::addAndGet, () -> false);
+
+            // Then only the link is deleted
+            assertEquals(1, deleted.get());
+            assertTrue(Files.exists(precious));
+            try (var stream = Files.list(provider.trashPath)) {
+                assertEquals(0, stream.count());
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.fathzer.sync4j.helper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+
+class CompactTreeTest {
+    @Test
+    void testTree() throws IOException {
+        try (MemoryFileProvider provider = new MemoryFileProvider()) {
+            // Given
+            final MemoryFolder folder = (MemoryFolder) provider.get("").asFolder();
+            folder.mkdir("dir").createFile("file.txt", "content".getBytes());
+            final CompactTree tree = new CompactTree(provider, "", 1000);
+            final int dir = tree.addFolder(CompactTree.ROOT, "dir", 2000);
+            tree.addFile(dir, "file.txt", 7, 3000);
+            tree.addFile(CompactTree.ROOT, "file.txt", 5, 4000);
+            tree.addOther(CompactTree.ROOT, "link", 5000);
+
+            // When
+            final Folder root = tree.root();
+
+            // Then
+            assertEquals(5, tree.size());
+            assertEquals(1 + 1 + "dir".length() + 1 + "file.txt".length() + 1 + "link".length(), tree.namesSize(), "Names should be deduplicated");
+            assertSame(root, root.preload());
+            assertEquals(1000, ((File) root).getLastModifiedTime());
+            final Map<String, Entry> children = root.list().stream().collect(Collectors.toMap(Entry::getName, Function.identity()));
+            assertEquals(3, children.size());
+            final Entry link = children.get("link");
+            assertFalse(link.isFile());
+            assertFalse(link.isFolder());
+            assertEquals(5, children.get("file.txt").asFile().getSize());
+            final Folder dirFolder = children.get("dir").asFolder();
+            assertEquals("/dir", dirFolder.getPath());
+            assertEquals(2000, ((File) dirFolder).getLastModifiedTime());
+            final List<Entry> dirChildren = dirFolder.list();
+            assertEquals(1, dirChildren.size());
+            final File file = dirChildren.get(0).asFile();
+            assertEquals("/dir/file.txt", file.getPath());
+            assertEquals(3000, file.getLastModifiedTime());
+            assertEquals("dir", file.getParent().getName());
+            assertSame(provider, file.getFileProvider());
+            assertThrows(IOException.class, ((Folder) file)::list);
+
+            // Content is read from the provider
+            try (InputStream in = file.getInputStream()) {
+                assertEquals("content", new String(in.readAllBytes()));
+            }
+        }
+    }
+
+    @Test
+    void testLargeTree() throws IOException {
+        try (MemoryFileProvider provider = new MemoryFileProvider()) {
+            // Given a tree larger than a page
+            final CompactTree tree = new CompactTree(provider, "/root", 0);
+            final int count = 200_000;
+            for (int i = 0; i < count; i++) {
+                tree.addFile(CompactTree.ROOT, "file" + (i % 1000), i, i);
+            }
+
+            // Then
+            assertEquals(count + 1, tree.size());
+            final List<Entry> children = tree.root().list();
+            assertEquals(count, children.size());
+            final File last = children.get(0).asFile();
+            assertEquals(count - 1, last.getSize());
+            assertEquals("/root/file" + ((count - 1) % 1000), last.getPath());
+        }
+    }
+
+    @Test
+    void testChunk() throws IOException {
+        try (MemoryFileProvider provider = new MemoryFileProvider()) {
+            // Given
+            final CompactTree tree = new CompactTree(provider, "", 0);
+            final CompactTree.Chunk chunk = new CompactTree.Chunk();
+            final int dirPosition = chunk.addFolder("dir", 1000);
+            chunk.addFile("file.txt", 5, 2000);
+            chunk.addOther("link", 3000);
+            final CompactTree.Chunk dirChunk = new CompactTree.Chunk();
+            for (int i = 0; i < 100; i++) {
+                dirChunk.addFile("file" + i, i, i);
+            }
+
+            // When
+            final int first = tree.add(CompactTree.ROOT, chunk);
+            tree.add(first + dirPosition, dirChunk);
+
+            // Then
+            assertEquals(3, chunk.size());
+            assertEquals(1 + 3 + 100, tree.size());
+            final Map<String, Entry> children = tree.root().list().stream().collect(Collectors.toMap(Entry::getName, Function.identity()));
+            assertEquals(Set.of("dir", "file.txt", "link"), children.keySet());
+            assertEquals(5, children.get("file.txt").asFile().getSize());
+            assertFalse(children.get("link").isFile());
+            final Folder dir = children.get("dir").asFolder();
+            assertEquals(1000, ((File) dir).getLastModifiedTime());
+            final List<Entry> dirChildren = dir.list();
+            assertEquals(100, dirChildren.size());
+            assertEquals("/dir/file99", dirChildren.get(0).getPath());
+            assertThrows(IllegalArgumentException.class, () -> tree.add(first + 1, chunk), "A file can't be a parent");
+            assertThrows(IllegalArgumentException.class, () -> chunk.addFile("negative", -1, 0));
+        }
+    }
+
+    @SuppressWarnings("resource")
+    @Test
+    void testInvalidParent() {
+        final CompactTree tree = new CompactTree(new MemoryFileProvider(), "", 0);
+        final int file = tree.addFile(CompactTree.ROOT, "file", 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> tree.addFile(file, "child", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> tree.addFolder(12, "child", 0));
+        assertThrows(IllegalArgumentException.class, () -> tree.addFile(CompactTree.ROOT, "child", -1, 0));
+    }
+}
@@ -0,0 +1,109 @@
+package com.fathzer.sync4j.helper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.HashAlgorithm;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+
+class DiskTreeTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testTree() throws IOException {
+        try (MemoryFileProvider provider = new MemoryFileProvider()) {
+            // Given entries added in any order, with a small buffer to force several runs
+            final MemoryFolder folder = (MemoryFolder) provider.get("").asFolder();
+            folder.mkdir("dir").createFile("file.txt", "content".getBytes());
+            final DiskTree tree;
+            try (DiskTree.Writer writer = DiskTree.writer(provider, "", 1000, tempDir, HashAlgorithm.SHA1).maxBufferSize(64)) {
+                writer.addFile("/dir", "file.txt", 7, 3000, "hash");
+                writer.addOther("", "link", 5000);
+                writer.addFolder("/dir", "sub", 6000);
+                writer.addFile("", "file.txt", 5, 4000, null);
+                writer.addFolder("", "dir", 2000);
+                writer.addFile("/dir/sub", "deep.txt", 1, 7000, null);
+                writer.addFolder("", "dir2", 8000);
+                assertThrows(IllegalArgumentException.class, () -> writer.addFolder("other", "x", 0));
+                tree = writer.finish();
+            }
+            // Runs are deleted once the tree is completed
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertEquals(2, files.count());
+            }
+
+            // When
+            final Folder root = tree.root();
+
+            // Then
+            assertEquals(7, tree.size());
+            assertSame(root, root.preload());
+            assertEquals(1000, ((File) root).getLastModifiedTime());
+            final Map<String, Entry> children = root.list().stream().collect(Collectors.toMap(Entry::getName, Function.identity()));
+            assertEquals(4, children.size());
+            final Entry link = children.get("link");
+            assertFalse(link.isFile());
+            assertFalse(link.isFolder());
+            assertEquals(5, children.get("file.txt").asFile().getSize());
+            assertTrue(children.get("dir2").asFolder().list().isEmpty());
+            final Folder dir = children.get("dir").asFolder();
+            assertEquals("/dir", dir.getPath());
+            assertEquals(2000, ((File) dir).getLastModifiedTime());
+            final Map<String, Entry> dirChildren = dir.list().stream().collect(Collectors.toMap(Entry::getName, Function.identity()));
+            assertEquals(2, dirChildren.size());
+            final File file = dirChildren.get("file.txt").asFile();
+            assertEquals("/dir/file.txt", file.getPath());
+            assertEquals(3000, file.getLastModifiedTime());
+            assertEquals("hash", file.getHash(HashAlgorithm.SHA1));
+            assertEquals("dir", file.getParent().getName());
+            assertSame(provider, file.getFileProvider());
+            assertThrows(IOException.class, ((Folder) file)::list);
+            final List<Entry> deep = dirChildren.get("sub").asFolder().list();
+            assertEquals(1, deep.size());
+            assertEquals("/dir/sub/deep.txt", deep.get(0).getPath());
+            final Entry sub = deep.get(0).getParent();
+            assertEquals("/dir/sub", sub.getPath());
+            assertEquals(6000, ((File) sub).getLastModifiedTime());
+            assertEquals(2000, ((File) sub.getParent()).getLastModifiedTime());
+
+            // Content is read from the provider
+            try (InputStream in = file.getInputStream()) {
+                assertEquals("content", new String(in.readAllBytes()));
+            }
+
+            // Files are deleted when the tree is closed
+            tree.close();
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertEquals(0, files.count());
+            }
+            // The mapped files are no longer readable
+            assertThrows(IllegalStateException.class, root::list);
+        }
+    }
+
+    @Test
+    void testEmptyTree() throws IOException {
+        try (MemoryFileProvider provider = new MemoryFileProvider();
+                DiskTree tree = DiskTree.writer(provider, "/root", 0, tempDir, null).finish()) {
+            assertEquals(0, tree.size());
+            assertTrue(tree.root().list().isEmpty());
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 import org.mockito.Mockito;
 
+import com.fathzer.sync4j.Batch;
 import com.fathzer.sync4j.File;
 import com.fathzer.sync4j.FileProvider;
 import com.fathzer.sync4j.Folder;
@@ -174,4 +175,89 @@ class MemoryFileProviderTest extends AbstractFileProviderTest {
         root().removeChild(name, file);
         assertSame(other, provider.get("/" + name), "removeChild should have done nothing");
     }
+
+    @Test
+    void testMove() throws IOException {
+        assertTrue(provider.isMoveSupported());
+        MemoryFolder folder = root().mkdir("folder");
+        MemoryFile file = root().createFile("file.txt", "content".getBytes(StandardCharsets.UTF_8));
+        final long lastModified = file.getLastModifiedTime();
+
+        // Move and rename a file
+        MemoryFile moved = folder.move("renamed.txt", file);
+        assertFalse(file.exists());
+        assertFalse(provider.get("/file.txt").exists());
+        assertTrue(provider.get("/folder/renamed.txt").isFile());
+        assertEquals(lastModified, moved.getLastModifiedTime());
+        try (InputStream is = moved.getInputStream()) {
+            assertArrayEquals("content".getBytes(StandardCharsets.UTF_8), is.readAllBytes());
+        }
+
+        // File of another provider can't be moved
+        MemoryFile other = ((MemoryFolder) new MemoryFileProvider().get("").asFolder()).createFile("other.txt", new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> root().move("other.txt", other));
+        // Non existing file can't be moved
+        assertThrows(IOException.class, () -> root().move("file.txt", file));
+    }
+
+    @Test
+    void testDirectCopy() throws IOException {
+        assertTrue(provider.isDirectCopySupported(provider));
+        assertFalse(provider.isDirectCopySupported(new MemoryFileProvider()));
+        MemoryFolder folder = root().mkdir("folder");
+        MemoryFile file = root().createFile("file.txt", "content".getBytes(StandardCharsets.UTF_8));
+
+        // Copy a file
+        final long[] progress = new long[1];
+        MemoryFile copy = folder.directCopy("copy.txt", file, p -> progress[0] = p);
+        assertTrue(file.exists());
+        assertTrue(provider.get("/folder/copy.txt").isFile());
+        assertEquals(file.getLastModifiedTime(), copy.getLastModifiedTime());
+        assertEquals(7, progress[0]);
+
+        // Changing the original file does not change the copy
+        file.setContent("changed".getBytes(StandardCharsets.UTF_8));
+        try (InputStream is = copy.getInputStream()) {
+            assertArrayEquals("content".getBytes(StandardCharsets.UTF_8), is.readAllBytes());
+        }
+
+        // File of another provider can't be directly copied
+        MemoryFile other = ((MemoryFolder) new MemoryFileProvider().get("").asFolder()).createFile("other.txt", new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> root().directCopy("other.txt", other, null));
+    }
+
+    @Test
+    void testBatch() throws IOException {
+        assertTrue(provider.isBatchSupported());
+        MemoryFile obsolete = root().createFile("obsolete.txt", new byte[0]);
+        MemoryFile content = ((MemoryFolder) new MemoryFileProvider().get("").asFolder()).createFile("content.txt", "content".getBytes(StandardCharsets.UTF_8));
+
+        // Operations are executed with per-operation results
+        Batch batch = provider.batch();
+        batch.mkdir(root(), "folder");
+        batch.copy(root(), "copy.txt", content);
+        batch.delete(obsolete);
+        batch.mkdir(root(), "folder");
+        List<Batch.Result> results = batch.execute();
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).entry().isFolder());
+        assertEquals("copy.txt", results.get(1).entry().getName());
+        assertFalse(results.get(2).failed());
+        assertTrue(results.get(3).failed(), "Folder already exists");
+        assertTrue(provider.get("/folder").isFolder());
+        assertTrue(provider.get("/copy.txt").isFile());
+        assertFalse(provider.get("/obsolete.txt").exists());
+
+        // Entries of other providers are rejected
+        Batch other = provider.batch();
+        assertThrows(IllegalArgumentException.class, () -> other.delete(content));
+
+        // Nothing is executed by a read-only provider
+        Batch readOnly = provider.batch();
+        readOnly.mkdir(root(), "other");
+        provider.setReadOnly(true);
+        assertThrows(IOException.class, readOnly::execute);
+        provider.setReadOnly(false);
+        assertFalse(provider.get("/other").exists());
+    }
 }
@@ -0,0 +1,142 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveLimiterTest {
+    @Test
+    void testAimd() throws InterruptedException {
+        // Given a limiter that adapts its limit after each operation
+        AtomicInteger current = new AtomicInteger();
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 8, current, 0);
+        assertEquals(1, current.get());
+
+        // Slow start doubles the limit
+        assertTrue(limiter.tryAcquire());
+        limiter.release(100, false);
+        assertEquals(2, limiter.limit());
+        assertEquals(2, current.get());
+
+        // Errors decrease the limit
+        assertTrue(limiter.tryAcquire());
+        limiter.release(100, true);
+        assertEquals(1, limiter.limit());
+
+        // After the first congestion, the limit is increased by 1
+        assertTrue(limiter.tryAcquire());
+        limiter.release(100, false);
+        assertEquals(2, limiter.limit());
+
+        // Latency inflation decreases the limit
+        assertTrue(limiter.tryAcquire());
+        limiter.release(1000, false);
+        assertEquals(1, limiter.limit());
+        assertEquals(1, current.get());
+
+        // Limit is not increased if it was not reached
+        limiter = new AdaptiveLimiter(2, 8, current, 0);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(100, false);
+        assertEquals(2, limiter.limit());
+
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(0, 8, current));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(3, 2, current));
+    }
+
+    @Test
+    void testTryAcquire() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, new AtomicInteger());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire(), "Second acquire should fail");
+        limiter.release(100, false);
+        assertTrue(limiter.tryAcquire(), "Second acquire should succeed after release");
+        limiter.cancel();
+        assertTrue(limiter.tryAcquire(), "Acquire should succeed after cancel");
+    }
+
+    /**
+     * A simulated remote service that serves {@code capacity} requests concurrently.
+     * <br>Beyond its capacity, requests are queued (their latency grows), and beyond twice its capacity, requests are throttled.
+     */
+    private static class ThrottlingService {
+        private final int capacity;
+        private final long baseLatencyMillis;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger throttled = new AtomicInteger();
+
+        ThrottlingService(int capacity, long baseLatencyMillis) {
+            this.capacity = capacity;
+            this.baseLatencyMillis = baseLatencyMillis;
+        }
+
+        void call() throws IOException, InterruptedException {
+            final int current = inFlight.incrementAndGet();
+            try {
+                if (current > 2 * capacity) {
+                    throttled.incrementAndGet();
+                    throw new IOException("Too many requests");
+                }
+                Thread.sleep(baseLatencyMillis * Math.max(capacity, current) / capacity);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    void testConvergesToServiceCapacity() throws InterruptedException {
+        // Given a service with a capacity of 4 and workers that could run 32 concurrent requests
+        final int capacity = 4;
+        final ThrottlingService service = new ThrottlingService(capacity, 5);
+        final AtomicInteger current = new AtomicInteger();
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(1, 32, current, TimeUnit.MILLISECONDS.toNanos(50));
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger maxLimit = new AtomicInteger();
+
+        // When
+        final List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            final Thread worker = new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        if (!limiter.tryAcquire()) {
+                            Thread.sleep(1);
+                            continue;
+                        }
+                        final long start = System.nanoTime();
+                        boolean failed = false;
+                        try {
+                            service.call();
+                        } catch (IOException e) {
+                            failed = true;
+                        } finally {
+                            limiter.release(System.nanoTime() - start, failed);
+                        }
+                        maxLimit.accumulateAndGet(current.get(), Math::max);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        Thread.sleep(2000);
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Then the limit grew above the floor, but stays close to the service capacity
+        assertTrue(maxLimit.get() >= capacity, "Limit should reach the service capacity, max was " + maxLimit.get());
+        assertTrue(current.get() <= 3 * capacity, "Limit should stay close to the service capacity, was " + current.get());
+    }
+}
@@ -0,0 +1,138 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.Batch;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+class BatcherTest {
+    /** A memory provider that records the size of the executed batches. */
+    private static class BatchRecorder extends MemoryFileProvider {
+        private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Batch batch() {
+            final Batch batch = super.batch();
+            return new Batch() {
+                @Override
+                public void delete(File file) {
+                    batch.delete(file);
+                }
+
+                @Override
+                public void mkdir(Folder parent, String folderName) {
+                    batch.mkdir(parent, folderName);
+                }
+
+                @Override
+                public void copy(Folder parent, String fileName, File content) {
+                    batch.copy(parent, fileName, content);
+                }
+
+                @Override
+                public int size() {
+                    return batch.size();
+                }
+
+                @Override
+                public List<Result> execute() throws IOException {
+                    batchSizes.add(batch.size());
+                    return batch.execute();
+                }
+            };
+        }
+    }
+
+    private BatchRecorder destinationProvider;
+    private MemoryFolder source;
+    private MemoryFolder destination;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        destinationProvider = new BatchRecorder();
+        source = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        destination = (MemoryFolder) destinationProvider.get("").asFolder();
+        for (int i = 0; i < 10; i++) {
+            source.createFile("file" + i + ".txt", ("content" + i).getBytes());
+            destination.createFile("obsolete" + i + ".txt", new byte[0]);
+        }
+        source.mkdir("folder").createFile("file.txt", "content".getBytes());
+    }
+
+    private Synchronization synchronize(SyncParameters parameters) throws Exception {
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+            return synchronization;
+        }
+    }
+
+    @Test
+    void testBatches() throws Exception {
+        // Given a long delay, batches are executed when they are full
+        final SyncParameters parameters = new SyncParameters();
+        parameters.performance().batch(5, Duration.ofMillis(500));
+
+        // When synchronized
+        final Synchronization synchronization = synchronize(parameters);
+
+        // Then the copies and deletions of the root folder are grouped
+        assertTrue(synchronization.getErrors().isEmpty());
+        assertEquals(List.of(5, 5, 5, 5), destinationProvider.batchSizes.subList(0, 4));
+        final Statistics statistics = synchronization.getStatistics();
+        assertEquals(11, statistics.copiedFiles().done().get());
+        assertEquals(10, statistics.deletedFiles().done().get());
+        assertEquals(statistics.copiedBytes().total().get(), statistics.copiedBytes().done().get());
+        assertTrue(destinationProvider.get("/file9.txt").isFile());
+        assertTrue(destinationProvider.get("/folder/file.txt").isFile());
+        assertFalse(destinationProvider.get("/obsolete0.txt").exists());
+    }
+
+    @Test
+    void testDelay() throws Exception {
+        // Given batches larger than the number of operations, batches are executed after the delay
+        final SyncParameters parameters = new SyncParameters();
+        parameters.performance().batch(1000, Duration.ofMillis(10));
+        final Synchronization synchronization = synchronize(parameters);
+        assertTrue(synchronization.getErrors().isEmpty());
+        assertEquals(22, destinationProvider.batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(destinationProvider.batchSizes.size() < 22);
+        assertTrue(destinationProvider.get("/folder/file.txt").isFile());
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        final SyncParameters parameters = new SyncParameters();
+        parameters.performance().batch(1, Duration.ZERO);
+        assertTrue(synchronize(parameters).getErrors().isEmpty());
+        assertTrue(destinationProvider.batchSizes.isEmpty());
+        assertTrue(destinationProvider.get("/file9.txt").isFile());
+    }
+
+    @Test
+    void testFailedBatch() throws Exception {
+        // Given a read-only destination, the whole batches fail
+        destinationProvider.setReadOnly(true);
+        final SyncParameters parameters = new SyncParameters().errorManager((e, a) -> false);
+        parameters.performance().batch(1000, Duration.ofMillis(10));
+        final Synchronization synchronization = synchronize(parameters);
+
+        // Then every operation is reported as failed
+        // (10 copies, 10 deletions and the creation of the folder)
+        assertEquals(21, synchronization.getErrors().size());
+        assertEquals(0, synchronization.getStatistics().copiedFiles().done().get());
+        assertEquals(10, synchronization.getStatistics().copiedFiles().total().get());
+    }
+}
@@ -0,0 +1,208 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.memory.MemoryFile;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+import com.fathzer.sync4j.sync.parameters.FileComparator;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+class CheckpointTest {
+    @TempDir
+    private Path tempDir;
+
+    private Path checkpointFile;
+    private MemoryFolder source;
+    private MemoryFolder destination;
+
+    @SuppressWarnings("resource")
+    @BeforeEach
+    void setUp() throws IOException {
+        checkpointFile = tempDir.resolve("checkpoint");
+        source = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        destination = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+    }
+
+    @Test
+    void testRecordAndReload() throws IOException {
+        MemoryFolder folder = source.mkdir("folder");
+        MemoryFile src = folder.createFile("file.txt", "content".getBytes());
+        MemoryFile dst = destination.createFile("file.txt", "content".getBytes());
+        final long digest = Checkpoint.digest(List.of(src));
+
+        // Given records in a batch larger than the number of records
+        Checkpoint checkpoint = new Checkpoint(checkpointFile, source, destination, 10);
+        assertFalse(checkpoint.isCopied(src, dst));
+        checkpoint.copied(src);
+        final Checkpoint.Node root = checkpoint.root();
+        final Checkpoint.Node node = root.child("folder");
+        node.processed(digest);
+        node.done(true);
+        final long length = Files.size(checkpointFile);
+        // Then records are not written before close
+        checkpoint.close();
+        assertTrue(Files.size(checkpointFile) > length);
+
+        // When reloaded, records are available
+        checkpoint = new Checkpoint(checkpointFile, source, destination, 1);
+        assertTrue(checkpoint.isCopied(src, dst));
+        assertTrue(checkpoint.root().child("folder").isReconciled(digest));
+        // Root is not reconciled because it was not processed
+        assertFalse(checkpoint.root().isReconciled(digest));
+        // Modified folder is detected
+        assertFalse(checkpoint.root().child("folder").isReconciled(Checkpoint.digest(List.of(src, dst))));
+        // Modified destination is detected
+        dst.setContent("other content".getBytes());
+        assertFalse(checkpoint.isCopied(src, dst));
+        // Modified source is detected
+        dst.setContent("content".getBytes());
+        src.setLastModifiedTime(src.getLastModifiedTime() + 1000);
+        assertFalse(checkpoint.isCopied(src, dst));
+        checkpoint.delete();
+        assertFalse(Files.exists(checkpointFile));
+    }
+
+    @Test
+    void testFailedSubtreeIsNotRecorded() throws IOException {
+        try (Checkpoint checkpoint = new Checkpoint(checkpointFile, source, destination, 1)) {
+            // Given a folder whose walk is completed, with a pending task
+            final Checkpoint.Node root = checkpoint.root();
+            root.processed(1);
+            final Checkpoint.Node child = root.child("child");
+            child.processed(2);
+            child.fork();
+            child.done(true);
+            root.done(true);
+            // When the task fails
+            child.done(false);
+        }
+        // Then neither the folder nor its parent are reconciled
+        try (Checkpoint checkpoint = new Checkpoint(checkpointFile, source, destination, 1)) {
+            final Checkpoint.Node root = checkpoint.root();
+            assertFalse(root.isReconciled(1));
+            assertFalse(root.child("child").isReconciled(2));
+        }
+    }
+
+    @Test
+    void testDigest() throws IOException {
+        MemoryFile file = source.createFile("file.txt", "content".getBytes());
+        MemoryFolder folder = source.mkdir("folder");
+        final long digest = Checkpoint.digest(List.<Entry>of(file, folder));
+        assertEquals(digest, Checkpoint.digest(List.<Entry>of(folder, file)));
+        assertNotEquals(digest, Checkpoint.digest(List.<Entry>of(file)));
+        file.setContent("new content".getBytes());
+        assertNotEquals(digest, Checkpoint.digest(List.<Entry>of(file, folder)));
+    }
+
+    @Test
+    void testTornAndStaleJournal() throws IOException {
+        MemoryFile src = source.createFile("file.txt", "content".getBytes());
+        MemoryFile other = source.createFile("other.txt", "other".getBytes());
+        MemoryFile dst = destination.createFile("file.txt", "content".getBytes());
+        MemoryFile otherDst = destination.createFile("other.txt", "other".getBytes());
+        try (Checkpoint checkpoint = new Checkpoint(checkpointFile, source, destination, 1)) {
+            checkpoint.copied(src);
+            checkpoint.copied(other);
+        }
+
+        // Given a journal whose last record was partially written
+        byte[] bytes = Files.readAllBytes(checkpointFile);
+        Files.write(checkpointFile, Arrays.copyOf(bytes, bytes.length - 3));
+
+        // Then the valid records are kept, and the torn one is removed
+        try (Checkpoint checkpoint = new Checkpoint(checkpointFile, source, destination, 1)) {
+            assertTrue(checkpoint.isCopied(src, dst));
+            assertFalse(checkpoint.isCopied(other, otherDst));
+            checkpoint.copied(other);
+        }
+        try (Checkpoint checkpoint = new Checkpoint(checkpointFile, source, destination, 1)) {
+            assertTrue(checkpoint.isCopied(src, dst));
+            assertTrue(checkpoint.isCopied(other, otherDst));
+        }
+
+        // Journal written for other folders is ignored
+        MemoryFolder sub = source.mkdir("sub");
+        try (Checkpoint checkpoint = new Checkpoint(checkpointFile, sub, destination, 1)) {
+            assertFalse(checkpoint.isCopied(src, dst));
+        }
+        try (Checkpoint checkpoint = new Checkpoint(checkpointFile, source, destination, 1)) {
+            assertFalse(checkpoint.isCopied(src, dst));
+        }
+
+        // Truncated header is ignored
+        Files.write(checkpointFile, new byte[] {0, 17, 's'});
+        try (Checkpoint checkpoint = new Checkpoint(checkpointFile, source, destination, 1)) {
+            assertFalse(checkpoint.isCopied(src, dst));
+        }
+    }
+
+    @Test
+    void testResume() throws Exception {
+        // Given a synchronization that fails on a file of the root folder
+        MemoryFolder folder = source.mkdir("folder");
+        folder.createFile("same.txt", "same".getBytes());
+        folder.createFile("new.txt", "new".getBytes());
+        final MemoryFolder destinationFolder = destination.mkdir("folder");
+        destinationFolder.createFile("same.txt", "same".getBytes());
+        final MemoryFolder sub = folder.mkdir("sub");
+        sub.createFile("deep.txt", "deep".getBytes());
+        destinationFolder.mkdir("sub").createFile("deep.txt", "deep".getBytes());
+        source.createFile("copied.txt", "copied".getBytes());
+        source.createFile("bad.txt", "bad".getBytes());
+        destination.createFile("bad.txt", "bad".getBytes());
+        final Set<String> compared = ConcurrentHashMap.newKeySet();
+        final SyncParameters parameters = new SyncParameters().checkpointFile(checkpointFile).errorManager((e, a) -> false);
+        parameters.fileComparator((f1, f2) -> {
+            compared.add(f1.getName());
+            if ("bad.txt".equals(f1.getName())) {
+                throw new IOException("Comparison failed");
+            }
+            return FileComparator.SIZE.areSame(f1, f2);
+        });
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+            assertEquals(1, synchronization.getErrors().size());
+        }
+        assertEquals(Set.of("same.txt", "deep.txt", "bad.txt"), compared);
+        assertTrue(Files.exists(checkpointFile));
+
+        // When a file is added deep in a reconciled folder, then the synchronization is resumed
+        sub.createFile("late.txt", "late".getBytes());
+        compared.clear();
+        parameters.fileComparator((f1, f2) -> {
+            compared.add(f1.getName());
+            return true;
+        });
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+            assertTrue(synchronization.getErrors().isEmpty());
+            // Then the files of the reconciled folder are skipped, the copied file is not compared again,
+            // and the file added in the sub-folder of the reconciled folder is copied
+            assertEquals(2, synchronization.getStatistics().skippedFiles().get());
+            assertEquals(1, synchronization.getStatistics().copiedFiles().total().get());
+            // The destination of the reconciled folder is not listed (3 source folders and 2 destination folders are listed)
+            assertEquals(5, synchronization.getStatistics().listedFolders().done().get());
+        }
+        assertEquals(Set.of("bad.txt", "deep.txt"), compared);
+        assertTrue(destination.getFileProvider().get("/folder/sub/late.txt").exists());
+        // The journal is deleted once the synchronization is successful
+        assertFalse(Files.exists(checkpointFile));
+    }
+}
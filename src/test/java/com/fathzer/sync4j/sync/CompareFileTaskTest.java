@@ -92,4 +92,31 @@ class CompareFileTaskTest {
         assertFalse(result);
         assertTrue(extraActionCalled.get());
     }
+
+    @Test
+    void testExecuteWithStateIndex() throws IOException {
+        // Given
+        StateIndex stateIndex = mock(StateIndex.class);
+        when(context.stateIndex()).thenReturn(stateIndex);
+        AtomicBoolean comparatorCalled = new AtomicBoolean(false);
+        context.params().fileComparator((f1, f2) -> {
+            comparatorCalled.set(true);
+            return true;
+        });
+        CompareFileTask task = new CompareFileTask(context, source, destination, null);
+
+        // When files are unchanged since last synchronization
+        when(stateIndex.isUnchanged(source, destination)).thenReturn(true);
+        // Then comparator is not called
+        assertTrue(task.execute());
+        assertFalse(comparatorCalled.get());
+        verify(stateIndex, never()).record(source, destination);
+
+        // When files changed
+        when(stateIndex.isUnchanged(source, destination)).thenReturn(false);
+        // Then comparator is called and identical files are recorded
+        assertTrue(task.execute());
+        assertTrue(comparatorCalled.get());
+        verify(stateIndex).record(source, destination);
+    }
 }
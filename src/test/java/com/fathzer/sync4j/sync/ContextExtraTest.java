@@ -3,12 +3,27 @@ package com.fathzer.sync4j.sync;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.awaitility.Awaitility.await;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.Test;
 
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+import com.fathzer.sync4j.sync.Event.Action;
+import com.fathzer.sync4j.sync.Event.CopyFileAction;
+import com.fathzer.sync4j.sync.Event.DeleteEntryAction;
+import com.fathzer.sync4j.sync.Event.Status;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
 class ContextExtraTest {
     
     @Test
@@ -110,6 +125,46 @@ class ContextExtraTest {
         assertFalse(waiter.isAlive(), "Waiter thread should have completed");
     }
     
+    @Test
+    void testTaskCounterConcurrency() throws InterruptedException {
+        // Given a pending task that spawns a lot of tasks started and completed by several threads
+        final Context.TaskCounter counter = new Context.TaskCounter();
+        counter.increment();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                executor.execute(() -> {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment();
+                        counter.decrement();
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then the counter is not released while the first task is pending
+        assertEquals(1, counter.getPendingTasks());
+        final Thread waiter = new Thread(() -> {
+            try {
+                counter.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        await().atMost(Duration.ofMillis(500)).until(() -> waiter.getState() == Thread.State.WAITING);
+
+        // When the first task is completed, the counter is released
+        counter.decrement();
+        waiter.join(1000);
+        assertFalse(waiter.isAlive());
+        assertEquals(0, counter.getPendingTasks());
+    }
+
     @Test
     void testTaskCounterAwaitInterrupted() throws InterruptedException {
         Context.TaskCounter counter = new Context.TaskCounter();
@@ -136,4 +191,78 @@ class ContextExtraTest {
         assertFalse(waiter.isAlive(), "Waiter thread should have completed");
         assertTrue(waiter.isInterrupted(), "Waiter thread should be interrupted");
     }
+
+    @Test
+    void testConcurrencyStatistics() throws IOException {
+        SyncParameters parameters = new SyncParameters();
+        parameters.performance().maxCopyThreads(8).maxComparisonThreads(0);
+        try (MemoryFileProvider provider = new MemoryFileProvider()) {
+            try (Context context = new Context(parameters)) {
+                // Static limits are exposed
+                assertEquals(8, context.statistics().copyConcurrency().get());
+                assertEquals(0, context.statistics().comparisonConcurrency().get());
+                assertEquals(8, context.limiter(new DeleteTask(context, provider.get(""))).limit());
+            }
+
+            parameters.performance().adaptiveConcurrency(true).minCopyThreads(2).maxComparisonThreads(4).minComparisonThreads(6);
+            try (Context context = new Context(parameters)) {
+                // Adaptive limits start at the floor, which can't exceed the ceiling
+                assertEquals(2, context.statistics().copyConcurrency().get());
+                assertEquals(4, context.statistics().comparisonConcurrency().get());
+                assertEquals(2, context.limiter(new DeleteTask(context, provider.get(""))).limit());
+            }
+        }
+    }
+
+    @Test
+    void testProviderThrottles() throws IOException {
+        SyncParameters parameters = new SyncParameters();
+        try (MemoryFileProvider limited = new MemoryFileProvider(); MemoryFileProvider unlimited = new MemoryFileProvider();
+                MemoryFileProvider other = new MemoryFileProvider()) {
+            parameters.performance().providerLimits(limited, 2, 0).providerLimits(other, 0, 100);
+            try (Context context = new Context(parameters)) {
+                // Providers without limits are not throttled
+                assertTrue(context.throttles(new DeleteTask(context, unlimited.get(""))).isEmpty());
+
+                // Throttles are shared by all the tasks of a provider
+                final ProviderThrottle otherThrottle = context.throttles(new ListTask(context, other.get("").asFolder())).get(0);
+                final ProviderThrottle limitedThrottle = context.throttles(new DeleteTask(context, limited.get(""))).get(0);
+                assertSame(limitedThrottle, context.throttles(new ListTask(context, limited.get("").asFolder())).get(0));
+
+                // Throttles of a task are always returned in the same order
+                final CompareFileTask task = new CompareFileTask(context,
+                        ((MemoryFolder) limited.get("").asFolder()).createFile("a", new byte[0]),
+                        ((MemoryFolder) other.get("").asFolder()).createFile("b", new byte[0]), null);
+                assertEquals(List.of(otherThrottle, limitedThrottle), context.throttles(task));
+            }
+        }
+    }
+
+    @Test
+    void testEventMask() throws IOException {
+        // Given listeners of the completed copies and of the failures
+        final List<Event> events = new ArrayList<>();
+        SyncParameters parameters = new SyncParameters()
+                .subscribe(CopyFileAction.class, Set.of(Status.COMPLETED), events::add)
+                .subscribe(Action.class, Set.of(Status.FAILED), events::add);
+        try (MemoryFileProvider provider = new MemoryFileProvider(); Context context = new Context(parameters)) {
+            // Then only the subscribed statuses are in the masks
+            assertEquals(Context.mask(Status.COMPLETED) | Context.mask(Status.FAILED), context.eventMask(CopyFileAction.class));
+            assertEquals(Context.mask(Status.FAILED), context.eventMask(DeleteEntryAction.class));
+
+            // When a task is created, then its PLANNED event is not published
+            new DeleteTask(context, provider.get(""));
+            assertTrue(events.isEmpty());
+
+            // Only the subscribed events are delivered
+            final Event failed = new Event(new DeleteEntryAction(provider.get("")), Status.FAILED);
+            context.publish(failed);
+            assertEquals(List.of(failed), events);
+        }
+
+        // Given no listener, no status is in the masks
+        try (Context context = new Context(new SyncParameters())) {
+            assertEquals(0, context.eventMask(CopyFileAction.class));
+        }
+    }
 }
@@ -8,7 +8,6 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -17,9 +16,15 @@ import static com.fathzer.sync4j.util.PrivateFields.getFieldValue;
 import org.junit.jupiter.api.Test;
 
 import com.fathzer.sync4j.Entry;
+import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
 import com.fathzer.sync4j.sync.Context.Result;
 import com.fathzer.sync4j.sync.Event.Action;
+import com.fathzer.sync4j.sync.Event.CopyFileAction;
 import com.fathzer.sync4j.sync.Task.Kind;
+import com.fathzer.sync4j.sync.parameters.QosClass;
 import com.fathzer.sync4j.sync.parameters.SyncParameters;
 
 class ContextTest {
@@ -28,30 +33,28 @@ class ContextTest {
     void test() {
         // When
         SyncParameters parameters = new SyncParameters();
-        ExecutorService walkService;
-        ExecutorService checkService;
-        ExecutorService copyService;
+        Scheduler scheduler;
         try (Context context = new Context(parameters)) {
             // Then - Use reflection to access private fields
             assertSame(parameters, context.params());
-            assertEquals(new Statistics(), context.statistics());
-            assertTrue(context.errors().isEmpty());
+            final Statistics expected = new Statistics();
+            expected.comparisonConcurrency().set(1);
+            expected.copyConcurrency().set(1);
+            assertEquals(expected, context.statistics());
+            assertEquals(0, context.errors().count());
             assertFalse(context.isCancelled());
             assertEquals(0, context.taskCounter().getPendingTasks());
 
-            walkService = getFieldValue(context, "walkService", ExecutorService.class);
-            checkService = getFieldValue(context, "checkService", ExecutorService.class);
-            copyService = getFieldValue(context, "copyService", ExecutorService.class);
-
-            assertNotNull(walkService);
-            assertNotNull(checkService);
-            assertNotNull(copyService);
+            scheduler = getFieldValue(context, "scheduler", Scheduler.class);
+            // One pool for walkers, checkers and modifiers
+            assertEquals(3, scheduler.threadCount());
+            assertNotNull(scheduler.limiter(QosClass.COMPARE));
+            assertSame(scheduler.limiter(QosClass.SMALL_COPY), scheduler.limiter(QosClass.DELETE));
+            assertNull(scheduler.limiter(QosClass.METADATA));
         }
 
-        // Verify close shutdown the executor services
-        assertTrue(walkService.isShutdown());
-        assertTrue(checkService.isShutdown());
-        assertTrue(copyService.isShutdown());
+        // Verify close shutdown the scheduler
+        assertTrue(scheduler.isShutdown());
 
         // Verify that creating Context with null parameters throws NPE
         assertThrows(NullPointerException.class, () -> new Context(null));
@@ -62,16 +65,18 @@ class ContextTest {
         // When
         SyncParameters parameters = new SyncParameters();
         parameters.performance().maxComparisonThreads(0).maxCopyThreads(0);
-        ExecutorService walkService;
+        Scheduler scheduler;
         try (Context context = new Context(parameters)) {
-            walkService = getFieldValue(context, "walkService", ExecutorService.class);
-            assertNull(getFieldValue(context, "checkService", Object.class));
-            assertNull(getFieldValue(context, "copyService", Object.class));
-            assertNotNull(walkService);
+            scheduler = getFieldValue(context, "scheduler", Scheduler.class);
+            assertEquals(1, scheduler.threadCount());
+            // Checkers and modifiers are only limited by the pool size
+            for (QosClass qos : QosClass.values()) {
+                assertNull(scheduler.limiter(qos));
+            }
         }
 
-        // Verify close shutdown the walk service
-        assertTrue(walkService.isShutdown());
+        // Verify close shutdown the scheduler
+        assertTrue(scheduler.isShutdown());
     }
 
     @Test
@@ -145,7 +150,7 @@ class ContextTest {
             context.processError(expectedException, expectedAction);
             assertTrue(called.get());
             assertFalse(context.isCancelled());
-            assertEquals(List.of(expectedException), context.errors());
+            assertEquals(List.of(expectedException), context.errors().getRecentErrors());
 
             // check processError cancels the context if the error manager returns true
             // And put exceptions encapsulated in CompletionException in errors.
@@ -159,7 +164,7 @@ class ContextTest {
             context.processError(new CompletionException(expectedException), expectedAction);
             assertTrue(called.get());
             assertTrue(context.isCancelled());
-            assertEquals(List.of(expectedException, expectedException), context.errors());
+            assertEquals(List.of(expectedException, expectedException), context.errors().getRecentErrors());
         }
     }
 
@@ -206,41 +211,36 @@ class ContextTest {
     }
 
     @Test
-    void testExecutorService() {
-        // When multiple executor services are used
+    void testQos() throws IOException {
         SyncParameters parameters = new SyncParameters();
+        parameters.performance().largeCopyThreshold(5);
         try (Context context = new Context(parameters)) {
             @SuppressWarnings("unchecked")
             Task<String, ? extends Action> task = mock(Task.class);
 
+            // Then the class is derived from the kind of the task
             when(task.kind()).thenReturn(Kind.WALKER);
-            // Then
-            assertEquals(getFieldValue(context, "walkService", ExecutorService.class), context.executorService(task));
-
-            when(task.kind()).thenReturn(Kind.CHECKER);
-            assertEquals(getFieldValue(context, "checkService", ExecutorService.class), context.executorService(task));
-
-            when(task.kind()).thenReturn(Kind.MODIFIER);
-            assertEquals(getFieldValue(context, "copyService", ExecutorService.class), context.executorService(task));
-        }
-
-        // When only one executor service is used
-        parameters = new SyncParameters();
-        parameters.performance().maxCopyThreads(0).maxComparisonThreads(0);
-        try (Context context = new Context(parameters)) {
-            @SuppressWarnings("unchecked")
-            Task<String, ? extends Action> task = mock(Task.class);
-            ExecutorService service = getFieldValue(context, "walkService", ExecutorService.class);
-
-            when(task.kind()).thenReturn(Kind.WALKER);
-            // Then
-            assertEquals(service, context.executorService(task));
+            when(task.qos()).thenCallRealMethod();
+            assertEquals(QosClass.METADATA, task.qos());
+            assertNull(context.limiter(task));
 
             when(task.kind()).thenReturn(Kind.CHECKER);
-            assertEquals(service, context.executorService(task));
+            assertEquals(QosClass.COMPARE, task.qos());
+            assertNotNull(context.limiter(task));
 
             when(task.kind()).thenReturn(Kind.MODIFIER);
-            assertEquals(service, context.executorService(task));
+            assertEquals(QosClass.SMALL_COPY, task.qos());
+
+            // Copies are split by size, deletions have their own class
+            try (MemoryFileProvider provider = new MemoryFileProvider()) {
+                final MemoryFolder root = (MemoryFolder) provider.get("").asFolder();
+                final File small = root.createFile("small", new byte[4]);
+                final File large = root.createFile("large", new byte[5]);
+                final Folder destination = root.mkdir("dest");
+                assertEquals(QosClass.SMALL_COPY, new CopyFileTask(context, new CopyFileAction(small, destination)).qos());
+                assertEquals(QosClass.LARGE_COPY, new CopyFileTask(context, new CopyFileAction(large, destination)).qos());
+                assertEquals(QosClass.DELETE, new DeleteTask(context, small).qos());
+            }
         }
     }
 
@@ -254,6 +254,7 @@ class ContextTest {
             @SuppressWarnings("unchecked")
             Task<String, Action> task = mock(Task.class);
             when(task.kind()).thenReturn(Kind.MODIFIER);
+            when(task.qos()).thenReturn(QosClass.SMALL_COPY);
             when(task.action()).thenReturn(action);
             // Verify counter is incremented before task execution
             doAnswer(invocation -> {
@@ -292,7 +293,7 @@ class ContextTest {
             
             // Then - exception was handled and default value returned
             assertNull(result);
-            assertEquals(List.of(expectedException.get()), context.errors());
+            assertEquals(List.of(expectedException.get()), context.errors().getRecentErrors());
         }
     }
 }
@@ -0,0 +1,72 @@
+package com.fathzer.sync4j.sync;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.Folder;
+import com.fathzer.sync4j.file.LocalProvider;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+class ContinuousSynchronizationTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testCoalesce() {
+        assertEquals(Map.of("/a", true, "/c", false), ContinuousSynchronization.coalesce(Map.of("/a", true, "/a/b", false, "/a/b/c", true, "/c", false)));
+        assertEquals(Map.of("", true), ContinuousSynchronization.coalesce(Map.of("", true, "/a", false)));
+        assertEquals(Map.of("", false, "/a", false), ContinuousSynchronization.coalesce(Map.of("", false, "/a", false)));
+    }
+
+    @Test
+    void testUnsupportedSource() throws IOException {
+        try (MemoryFileProvider provider = new MemoryFileProvider()) {
+            final Folder folder = provider.get("").asFolder();
+            final SyncParameters parameters = new SyncParameters();
+            final Duration debounce = Duration.ofMillis(10);
+            assertThrows(IllegalArgumentException.class, () -> new ContinuousSynchronization(folder, folder, parameters, debounce));
+        }
+    }
+
+    @Test
+    void testContinuousSync() throws IOException {
+        Files.createDirectories(tempDir.resolve("folder"));
+        Files.writeString(tempDir.resolve("folder/file.txt"), "content");
+        try (LocalProvider sourceProvider = new LocalProvider(tempDir); MemoryFileProvider destinationProvider = new MemoryFileProvider()) {
+            final SyncParameters parameters = new SyncParameters();
+            parameters.errorManager((e, a) -> false);
+            try (ContinuousSynchronization sync = new ContinuousSynchronization(sourceProvider.get("").asFolder(), destinationProvider.get("").asFolder(), parameters, Duration.ofMillis(50))) {
+                sync.start();
+                assertThrows(IllegalStateException.class, sync::start);
+
+                // Initial full synchronization
+                await().atMost(Duration.ofSeconds(10)).until(() -> destinationProvider.get("/folder/file.txt").isFile());
+
+                // File created
+                Files.writeString(tempDir.resolve("folder/other.txt"), "other");
+                await().atMost(Duration.ofSeconds(10)).until(() -> destinationProvider.get("/folder/other.txt").isFile());
+
+                // Folder tree created
+                Files.createDirectories(tempDir.resolve("new/sub"));
+                Files.writeString(tempDir.resolve("new/sub/file.txt"), "content");
+                await().atMost(Duration.ofSeconds(10)).until(() -> destinationProvider.get("/new/sub/file.txt").isFile());
+
+                // File deleted
+                Files.delete(tempDir.resolve("folder/file.txt"));
+                await().atMost(Duration.ofSeconds(10)).until(() -> !destinationProvider.get("/folder/file.txt").exists());
+
+                assertTrue(sync.getErrors().isEmpty(), "Unexpected errors " + sync.getErrors());
+            }
+        }
+    }
+}
@@ -41,7 +41,7 @@ class CreateFolderTaskTest {
         assertSame(context, task.context());
         assertSame(destinationFolder, task.action().folder());
         assertEquals("test", task.action().name());
-        assertTrue(task.onlySynchronous());
+        assertFalse(task.onlySynchronous());
         
         // Verify statistics were updated
         assertEquals(1, statistics.createdFolders().total().get());
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +13,8 @@ import org.mockito.Mockito;
 
 import com.fathzer.sync4j.Entry;
 import com.fathzer.sync4j.File;
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.Folder;
 import com.fathzer.sync4j.sync.Task.Kind;
 import com.fathzer.sync4j.sync.parameters.SyncParameters;
 
@@ -95,4 +99,55 @@ class DeleteFileTaskTest {
         // Then
         verify(target).delete();
     }
+
+    @Test
+    void testExecuteFolder() throws IOException {
+        // Given
+        Folder folder = mock(Folder.class);
+        when(folder.isFolder()).thenReturn(true);
+        when(folder.asFolder()).thenReturn(folder);
+        doAnswer(invocation -> {
+            LongConsumer listener = invocation.getArgument(0);
+            BooleanSupplier cancelled = invocation.getArgument(1);
+            assertFalse(cancelled.getAsBoolean());
+            listener.accept(3);
+            listener.accept(2);
+            return null;
+        }).when(folder).delete(any(LongConsumer.class), any(BooleanSupplier.class));
+        DeleteTask task = new DeleteTask(context, folder);
+
+        // When
+        task.execute();
+
+        // Then deleted files are reported in statistics
+        verify(folder, never()).delete();
+        assertEquals(5, statistics.deletedFiles().total().get());
+        assertEquals(5, statistics.deletedFiles().done().get());
+        assertEquals(1, statistics.deletedFolders().total().get());
+    }
+
+    @Test
+    void testExecuteWithTrash() throws IOException {
+        // Given
+        context.params().performance().useTrash(true);
+        FileProvider provider = mock(FileProvider.class);
+        when(target.getFileProvider()).thenReturn(provider);
+        DeleteTask task = new DeleteTask(context, target);
+
+        // When provider supports trash
+        when(provider.isTrashSupported()).thenReturn(true);
+        task.execute();
+
+        // Then entry is moved to trash
+        verify(target).moveToTrash();
+        verify(target, never()).delete();
+
+        // When provider does not support trash
+        when(provider.isTrashSupported()).thenReturn(false);
+        task.execute();
+
+        // Then entry is deleted
+        verify(target).moveToTrash();
+        verify(target).delete();
+    }
 }
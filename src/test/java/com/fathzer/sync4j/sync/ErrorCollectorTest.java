@@ -0,0 +1,98 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.sync.Event.DeleteEntryAction;
+import com.fathzer.sync4j.sync.Event.ListAction;
+
+class ErrorCollectorTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testRecentErrors() throws IOException {
+        // Given a collector that retains 3 errors
+        final ErrorCollector collector = new ErrorCollector(3, null);
+        final DeleteEntryAction action = new DeleteEntryAction(new MemoryFileProvider().get(""));
+        final List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final Throwable error = i % 2 == 0 ? new IOException("io" + i) : new IllegalStateException("state" + i);
+            errors.add(error);
+            collector.add(error, i == 4 ? null : action);
+        }
+
+        // Then all the errors are counted, but only the most recent ones are retained
+        assertEquals(5, collector.count());
+        assertEquals(Map.of(IOException.class, 3L, IllegalStateException.class, 2L), collector.countByType());
+        assertEquals(Map.of(DeleteEntryAction.class, 4L), collector.countByAction());
+        assertEquals(errors.subList(2, 5), collector.getRecentErrors());
+        assertThrows(UnsupportedOperationException.class, () -> collector.getRecentErrors().clear());
+
+        // When errors are retained by another collector
+        final ErrorCollector other = new ErrorCollector(10, null);
+        other.add(new IOException(), null);
+        other.addAll(collector);
+        assertEquals(6, other.count());
+        assertEquals(Map.of(IOException.class, 4L, IllegalStateException.class, 2L), other.countByType());
+        assertEquals(Map.of(DeleteEntryAction.class, 4L), other.countByAction());
+        assertEquals(errors.subList(2, 5), other.getRecentErrors().subList(1, 4));
+    }
+
+    @Test
+    void testNoRecentErrors() {
+        final ErrorCollector collector = new ErrorCollector(0, null);
+        collector.add(new IOException(), null);
+        assertEquals(1, collector.count());
+        assertTrue(collector.getRecentErrors().isEmpty());
+    }
+
+    @Test
+    void testConcurrentErrors() throws InterruptedException {
+        final ErrorCollector collector = new ErrorCollector(100, null);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10000; i++) {
+            executor.execute(() -> collector.add(new IOException(), null));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(10000, collector.count());
+        assertEquals(100, collector.getRecentErrors().size());
+    }
+
+    @Test
+    void testFile() throws IOException {
+        // Given a collector that retains no error, but writes them to a file
+        final Path file = tempDir.resolve("errors.log");
+        final ErrorCollector collector = new ErrorCollector(0, file);
+        assertFalse(Files.exists(file));
+        collector.add(new NoSuchFileException("first"), new ListAction(new MemoryFileProvider().get("").asFolder()));
+        collector.add(new IOException("second"), null);
+        collector.close();
+
+        // Then all errors are written to the file
+        final String content = Files.readString(file);
+        assertTrue(content.contains("ListAction"), content);
+        assertTrue(content.contains("java.nio.file.NoSuchFileException: first"), content);
+        assertTrue(content.contains("java.io.IOException: second"), content);
+
+        // When errors are added after the collector is closed, they are not written
+        collector.add(new IOException("third"), null);
+        assertEquals(content, Files.readString(file));
+        assertEquals(3, collector.count());
+    }
+}
@@ -0,0 +1,116 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.sync.Event.Action;
+import com.fathzer.sync4j.sync.Event.Status;
+import com.fathzer.sync4j.sync.parameters.OverflowPolicy;
+
+class EventBusTest {
+    /** A listener that is blocked on the first event until it is released. */
+    private static class BlockedListener implements Consumer<Event> {
+        private final List<Event> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void accept(Event event) {
+            events.add(event);
+            blocked.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private static List<Event> events(int count, Status status) {
+        return IntStream.range(0, count).mapToObj(i -> new Event(new Action() {}, status)).toList();
+    }
+
+    @Test
+    void testOrder() {
+        final List<Event> received = new CopyOnWriteArrayList<>();
+        final List<Event> events = events(1000, Status.PLANNED);
+        try (EventBus bus = new EventBus(received::add, 8, OverflowPolicy.BLOCK, dropped)) {
+            events.forEach(bus::publish);
+        }
+        // All the events are delivered, in their publication order, when the bus is closed
+        assertEquals(events, received);
+        assertEquals(0, dropped.get());
+    }
+
+    @Test
+    void testDropOldest() throws InterruptedException {
+        // Given a bus whose listener is blocked on the first event, and whose buffer is full
+        final BlockedListener listener = new BlockedListener();
+        final List<Event> events = events(7, Status.PLANNED);
+        try (EventBus bus = new EventBus(listener, 4, OverflowPolicy.DROP_OLDEST, dropped)) {
+            bus.publish(events.get(0));
+            assertTrue(listener.blocked.await(5, TimeUnit.SECONDS));
+            events.subList(1, 5).forEach(bus::publish);
+
+            // When other events are published
+            events.subList(5, 7).forEach(bus::publish);
+
+            // Then the oldest events are dropped
+            assertEquals(2, dropped.get());
+            listener.released.countDown();
+        }
+        assertEquals(List.of(events.get(0), events.get(3), events.get(4), events.get(5), events.get(6)), listener.events);
+    }
+
+    @Test
+    void testCoalesce() throws InterruptedException {
+        // Given a bus whose listener is blocked on the first event, and whose buffer is full
+        final BlockedListener listener = new BlockedListener();
+        final List<Event> events = events(5, Status.PLANNED);
+        final Event completed = new Event(new Action() {}, Status.COMPLETED);
+        try (EventBus bus = new EventBus(listener, 4, OverflowPolicy.COALESCE, dropped)) {
+            bus.publish(events.get(0));
+            assertTrue(listener.blocked.await(5, TimeUnit.SECONDS));
+            events.subList(1, 5).forEach(bus::publish);
+
+            // When a progress event is published, it is dropped
+            bus.publish(new Event(new Action() {}, Status.STARTED));
+            assertEquals(1, dropped.get());
+
+            // When a terminal event is published, it waits for room in the buffer
+            final Thread publisher = new Thread(() -> bus.publish(completed));
+            publisher.start();
+            publisher.join(100);
+            assertTrue(publisher.isAlive());
+            listener.released.countDown();
+            publisher.join(5000);
+            assertFalse(publisher.isAlive());
+        }
+        assertEquals(6, listener.events.size());
+        assertEquals(completed, listener.events.get(5));
+        assertEquals(1, dropped.get());
+    }
+
+    @Test
+    void testClosed() {
+        final List<Event> received = new CopyOnWriteArrayList<>();
+        final EventBus bus = new EventBus(received::add, 1, OverflowPolicy.BLOCK, dropped);
+        bus.close();
+        // Events published after the bus is closed are delivered by the calling thread
+        final Event event = events(1, Status.FAILED).get(0);
+        bus.publish(event);
+        assertEquals(List.of(event), received);
+        assertThrows(IllegalArgumentException.class, () -> new EventBus(received::add, 0, OverflowPolicy.BLOCK, dropped));
+    }
+}
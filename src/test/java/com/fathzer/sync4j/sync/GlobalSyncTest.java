@@ -28,6 +28,7 @@ import com.fathzer.sync4j.memory.MemoryFolder;
 import com.fathzer.sync4j.sync.Context.TaskCounter;
 import com.fathzer.sync4j.sync.Event.Action;
 import com.fathzer.sync4j.sync.Event.Status;
+import com.fathzer.sync4j.sync.parameters.OverflowPolicy;
 import com.fathzer.sync4j.sync.parameters.SyncParameters;
 import com.fathzer.sync4j.util.GlobPatternMatcher;
 import com.fathzer.sync4j.util.PrivateFields;
@@ -198,6 +199,26 @@ class GlobalSyncTest {
         checkSame(source, destination);
     }
     
+    @Test
+    void testAsyncEvents() throws Exception {
+        // Given events delivered by a dedicated thread
+        parameters.asyncEvents(4, OverflowPolicy.BLOCK);
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            assertTrue(synchronization.waitFor(5, TimeUnit.SECONDS), "Synchronization did not finish within 5 seconds");
+            checkNoErrors(synchronization);
+        }
+
+        // Then all the events are delivered, in order, once the synchronization is closed
+        events.close();
+        events.checkSuccessfull(true);
+        List<Action> actions = events.stream().map(Event::action).distinct().toList();
+        assertEquals(12, actions.size());
+        actions.forEach(a -> assertEquals(List.of(Event.Status.PLANNED, Event.Status.STARTED, Event.Status.COMPLETED),
+                getStatuses(events, a), "Action " + a + " is not successful"));
+        checkSame(source, destination);
+    }
+    
     @Test
     void testDryRun() throws Exception {
         // Dry run should succeed and changes nothing
@@ -234,6 +255,27 @@ class GlobalSyncTest {
         }
     }
     
+    @Test
+    void testUnexpectedWalkFailure() throws Exception {
+        // Given a filter that unexpectedly fails in the middle of a folder
+        parameters.filter(e -> {
+            if (e.getName().equals("missing.txt")) {
+                throw new IllegalStateException("Unexpected");
+            }
+            return true;
+        });
+
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            // When
+            execute(synchronization);
+
+            // Then the failure is a synchronization error
+            assertEquals(1, synchronization.getErrors().size(), () -> "One error expected but was " + synchronization.getErrors());
+            assertEquals(IllegalStateException.class, synchronization.getErrors().get(0).getClass());
+            assertEquals(Map.of(Event.ListAction.class, 1L), synchronization.getErrorCollector().countByAction());
+        }
+    }
+
     @Test
     void test() throws Exception {
         // Perform some changes in source
@@ -263,6 +305,59 @@ class GlobalSyncTest {
         checkSame(sameFile, sameFile);
     }
     
+    @Test
+    void testNewTree() throws Exception {
+        // Given a deep tree missing in the destination, and a destination file replaced by a source folder
+        MemoryFolder folder = source.mkdir("deep");
+        for (int i = 0; i < 4; i++) {
+            folder.mkdir("empty" + i);
+            folder = folder.mkdir("level" + i);
+            folder.createFile("file.txt", ("file" + i).getBytes());
+        }
+        destination.createFile("folder", "should be replaced by a folder".getBytes());
+
+        // When synchronized
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            // Events are slowed down, and the operations of a batch are started one after the other
+            synchronization.start();
+            assertTrue(synchronization.waitFor(5, TimeUnit.SECONDS), "Synchronization did not finish within 5 seconds");
+            events.close();
+            checkNoErrors(synchronization);
+            events.checkSuccessfull(true);
+            assertEquals(new Statistics.Counter(12, 12), synchronization.getStatistics().createdFolders(), "Created folders");
+            assertEquals(new Statistics.Counter(8, 8), synchronization.getStatistics().copiedFiles(), "Copied files");
+            assertEquals(new Statistics.Counter(1, 1), synchronization.getStatistics().deletedFiles(), "Deleted files");
+        }
+
+        // Then the whole tree is copied
+        checkSame(source, destination);
+    }
+
+    @Test
+    void testPauseAndResume() throws Exception {
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            // When the synchronization is paused before being started
+            synchronization.pause();
+            assertTrue(synchronization.isPaused());
+            synchronization.start();
+
+            // Then nothing is done
+            assertFalse(synchronization.waitFor(200, TimeUnit.MILLISECONDS), "Paused synchronization should not finish");
+            assertEquals(new Statistics.Counter(0, 0), synchronization.getStatistics().listedFolders(), "Listed folders");
+            assertTrue(destination.list().isEmpty());
+
+            // When resumed
+            synchronization.resume();
+            assertFalse(synchronization.isPaused());
+
+            // Then the synchronization completes
+            assertTrue(synchronization.waitFor(5, TimeUnit.SECONDS), "Synchronization did not finish within 5 seconds");
+            events.close();
+            checkNoErrors(synchronization);
+        }
+        checkSame(source, destination);
+    }
+
     private List<Event.Status> getStatuses(List<Event> events, Action action) {
         return events.stream().filter(e -> e.action() == action).map(Event::status).toList();
     }
@@ -0,0 +1,100 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.FileProvider;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+import com.fathzer.sync4j.sync.Event.CopyFileAction;
+import com.fathzer.sync4j.sync.Event.CreateFolderAction;
+import com.fathzer.sync4j.sync.Event.DeleteEntryAction;
+import com.fathzer.sync4j.sync.Event.ListAction;
+import com.fathzer.sync4j.sync.Latencies.Latency;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+class LatenciesTest {
+    @Test
+    void testRecord() {
+        final FileProvider source = new MemoryFileProvider();
+        final FileProvider destination = new MemoryFileProvider();
+        final Latencies latencies = new Latencies();
+
+        // When
+        latencies.record(CopyFileAction.class, List.of(source, destination), 1000);
+        latencies.record(CopyFileAction.class, List.of(destination, destination), 3000);
+        latencies.record(DeleteEntryAction.class, List.of(destination), 2000);
+
+        // Then
+        final Map<Class<? extends Event.Action>, Latency> byAction = latencies.byAction();
+        assertEquals(2, byAction.size());
+        assertEquals(2, byAction.get(CopyFileAction.class).count());
+        assertEquals(3000, byAction.get(CopyFileAction.class).max().toNanos());
+        assertEquals(1, byAction.get(DeleteEntryAction.class).count());
+        final Map<FileProvider, Map<Class<? extends Event.Action>, Latency>> byProvider = latencies.byProvider();
+        assertEquals(1, byProvider.get(source).get(CopyFileAction.class).count());
+        assertNull(byProvider.get(source).get(DeleteEntryAction.class));
+        // An operation on the same provider twice is counted once
+        assertEquals(2, byProvider.get(destination).get(CopyFileAction.class).count());
+        assertEquals(1, byProvider.get(destination).get(DeleteEntryAction.class).count());
+    }
+
+    @Test
+    void testSynchronization() throws Exception {
+        // Given
+        final MemoryFolder source = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        final MemoryFolder destination = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        source.createFile("file.txt", "content".getBytes());
+        source.mkdir("folder").createFile("file.txt", "content".getBytes());
+
+        // When
+        try (Synchronization synchronization = new Synchronization(source, destination, new SyncParameters())) {
+            synchronization.start();
+            synchronization.waitFor();
+
+            // Then
+            final Latencies latencies = synchronization.getLatencies();
+            assertEquals(2, latencies.byAction().get(CopyFileAction.class).count());
+            assertEquals(1, latencies.byAction().get(CreateFolderAction.class).count());
+            assertEquals(2, latencies.byProvider().get(source.getFileProvider()).get(CopyFileAction.class).count());
+            assertEquals(2, latencies.byProvider().get(destination.getFileProvider()).get(CopyFileAction.class).count());
+        }
+    }
+
+    @Test
+    void testPausedTimeIsExcluded() throws Exception {
+        // Given a task that is suspended by a pause of 200ms
+        final MemoryFolder folder = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        try (Context context = new Context(new SyncParameters())) {
+            final Task<Void, ListAction> task = new Task<>(context, new ListAction(folder), context.statistics().listedFoldersTally()) {
+                @Override
+                protected Void execute() {
+                    context.pause();
+                    final Thread resumer = new Thread(() -> {
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        context.resume();
+                    });
+                    resumer.start();
+                    context.awaitResumed();
+                    return null;
+                }
+            };
+
+            // When
+            context.executeSync(task);
+
+            // Then the time the task was suspended is not recorded
+            final Latency latency = context.latencies().byAction().get(ListAction.class);
+            assertEquals(1, latency.count());
+            assertTrue(latency.max().toMillis() < 100, "Latency is " + latency.max());
+        }
+    }
+}
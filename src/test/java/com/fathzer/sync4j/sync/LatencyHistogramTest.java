@@ -0,0 +1,50 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.sync.Latencies.Latency;
+
+class LatencyHistogramTest {
+    @Test
+    void testBuckets() {
+        // Small values have their own bucket
+        for (long value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.highestValue(LatencyHistogram.index(value)));
+        }
+        // Larger values are counted with a precision of 1/32
+        long previous = -1;
+        for (long i = 64; i > 0 && i < Long.MAX_VALUE / 3; i = i * 3 + 1) {
+            final long value = i;
+            final int index = LatencyHistogram.index(value);
+            final long highest = LatencyHistogram.highestValue(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 32, () -> "Error is too high for " + value);
+            assertTrue(index > previous);
+            previous = index;
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.index(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testSummary() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(new Latency(0, Duration.ZERO, Duration.ZERO, Duration.ZERO), histogram.summary());
+
+        // Given 1000 latencies from 1 to 1000 microseconds
+        for (int i = 1000; i > 0; i--) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+
+        // Then
+        final Latency latency = histogram.summary();
+        assertEquals(1001, latency.count());
+        assertEquals(500_000, latency.p50().toNanos(), 500_000 / 32.0);
+        assertEquals(990_000, latency.p99().toNanos(), 990_000 / 32.0);
+        assertEquals(Duration.ofMillis(1), latency.max());
+    }
+}
@@ -0,0 +1,104 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.memory.MemoryFile;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+class MoveDetectorTest {
+    private MemoryFileProvider destinationProvider;
+    private MemoryFolder source;
+    private MemoryFolder destination;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        destinationProvider = new MemoryFileProvider();
+        source = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        destination = (MemoryFolder) destinationProvider.get("").asFolder();
+    }
+
+    private static MemoryFile createFile(MemoryFolder folder, String name, String content, long lastModified) throws IOException {
+        final MemoryFile file = folder.createFile(name, content.getBytes());
+        file.setLastModifiedTime(lastModified);
+        return file;
+    }
+
+    private Statistics synchronize(SyncParameters parameters) throws Exception {
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+            assertTrue(synchronization.getErrors().isEmpty());
+            return synchronization.getStatistics();
+        }
+    }
+
+    private String content(String path) throws IOException {
+        try (InputStream in = destinationProvider.get(path).asFile().getInputStream()) {
+            return new String(in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testRenamedFolder() throws Exception {
+        // Given a folder renamed in the source, and a file renamed in the root folder
+        final MemoryFolder renamed = source.mkdir("renamed");
+        createFile(renamed.mkdir("sub"), "deep.txt", "deep", 1000);
+        createFile(renamed, "file.txt", "content", 2000);
+        createFile(source, "new name.txt", "root", 3000);
+        createFile(source, "new.txt", "new", 4000);
+        final MemoryFolder old = destination.mkdir("old");
+        createFile(old.mkdir("sub"), "deep.txt", "deep", 1000);
+        createFile(old, "file.txt", "content", 2000);
+        createFile(old, "obsolete.txt", "obsolete", 5000);
+        createFile(destination, "old name.txt", "root", 3000);
+
+        // When synchronized with move detection
+        final Statistics statistics = synchronize(new SyncParameters().detectMoves(true));
+
+        // Then files are moved instead of being copied
+        assertEquals(3, statistics.movedFiles().done().get());
+        assertEquals(1, statistics.copiedFiles().total().get());
+        assertEquals("deep", content("/renamed/sub/deep.txt"));
+        assertEquals("content", content("/renamed/file.txt"));
+        assertEquals("root", content("/new name.txt"));
+        assertEquals("new", content("/new.txt"));
+        // And obsolete entries are deleted after the moves
+        assertFalse(destinationProvider.get("/old").exists());
+        assertFalse(destinationProvider.get("/old name.txt").exists());
+        assertEquals(1, statistics.deletedFolders().done().get());
+        // old name.txt was moved, obsolete.txt is deleted with its folder
+        assertEquals(1, statistics.deletedFiles().done().get());
+    }
+
+    @Test
+    void testNotMatchingFiles() throws Exception {
+        // Given files with the same size but different modification times
+        createFile(source, "a.txt", "aaa", 1000);
+        createFile(destination, "b.txt", "bbb", 2000);
+
+        // Then they are not considered as moved
+        final Statistics statistics = synchronize(new SyncParameters().detectMoves(true));
+        assertEquals(0, statistics.movedFiles().total().get());
+        assertEquals(1, statistics.copiedFiles().done().get());
+        assertEquals("aaa", content("/a.txt"));
+        assertFalse(destinationProvider.get("/b.txt").exists());
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        createFile(source, "a.txt", "aaa", 1000);
+        createFile(destination, "b.txt", "aaa", 1000);
+        final Statistics statistics = synchronize(new SyncParameters());
+        assertEquals(0, statistics.movedFiles().total().get());
+        assertEquals(1, statistics.copiedFiles().done().get());
+        assertFalse(destinationProvider.get("/b.txt").exists());
+    }
+}
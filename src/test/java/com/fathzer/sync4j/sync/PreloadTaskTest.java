@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -81,4 +82,22 @@ class PreloadTaskTest {
         // Then
         assertSame(createdFolder, result);
     }
+
+    @Test
+    void testExecuteWithSpillDirectory() throws IOException {
+        // Given
+        Path workDirectory = Path.of("work");
+        context.params().performance().spillDirectory(Path.of("spill"));
+        when(context.workDirectory()).thenReturn(workDirectory);
+        Folder createdFolder = mock(Folder.class);
+        when(folder.preload(workDirectory)).thenReturn(createdFolder);
+        PreLoadTask task = new PreLoadTask(context, folder);
+
+        // When
+        Folder result = task.execute();
+
+        // Then
+        assertSame(createdFolder, result);
+        verify(folder, never()).preload();
+    }
 }
@@ -0,0 +1,114 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ProviderThrottleTest {
+    @Test
+    void testUnlimited() throws InterruptedException {
+        ProviderThrottle throttle = new ProviderThrottle(3, 0, 0);
+        assertEquals(3, throttle.order());
+        assertTrue(throttle.isUnlimited());
+        assertFalse(new ProviderThrottle(0, 1, 0).isUnlimited());
+        assertFalse(new ProviderThrottle(0, 0, 1).isUnlimited());
+        throttle.acquire();
+        throttle.release();
+    }
+
+    @Test
+    void testConcurrencyLimit() throws InterruptedException {
+        // Given a throttle that allows 2 concurrent operations
+        final ProviderThrottle throttle = new ProviderThrottle(0, 2, 0);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        // When 8 threads perform operations
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 5; j++) {
+                        throttle.acquire();
+                        try {
+                            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            Thread.sleep(2);
+                            inFlight.decrementAndGet();
+                        } finally {
+                            throttle.release();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then operations were queued
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void testTryAcquire() {
+        // Given a throttle that allows a single concurrent operation, busy with an operation
+        final ProviderThrottle throttle = new ProviderThrottle(0, 1, 0);
+        final AtomicInteger retries = new AtomicInteger();
+        assertEquals(0, throttle.tryAcquire(retries::incrementAndGet));
+
+        // When another operation tries to start
+        assertEquals(ProviderThrottle.WAIT_RELEASE, throttle.tryAcquire(retries::incrementAndGet));
+
+        // Then it is retried once the first operation ends
+        assertEquals(0, retries.get());
+        throttle.release();
+        assertEquals(1, retries.get());
+        assertEquals(0, throttle.tryAcquire(retries::incrementAndGet));
+        throttle.release();
+        assertEquals(1, retries.get());
+    }
+
+    @Test
+    void testTryAcquireRateLimit() {
+        // Given a throttle that allows 10 operations per second
+        final ProviderThrottle throttle = new ProviderThrottle(0, 0, 10);
+        assertEquals(0, throttle.tryAcquire(() -> fail("Should not be retried")));
+        throttle.release();
+
+        // When other operations try to start immediately
+        final long delay = throttle.tryAcquire(() -> fail("Should not be retried"));
+        final long nextDelay = throttle.tryAcquire(() -> fail("Should not be retried"));
+        throttle.release();
+        throttle.release();
+
+        // Then they are scheduled 100ms apart
+        assertTrue(delay > 0 && delay <= TimeUnit.MILLISECONDS.toNanos(100), "Unexpected delay " + delay);
+        final long gap = nextDelay - delay;
+        assertTrue(gap > TimeUnit.MILLISECONDS.toNanos(50) && gap <= TimeUnit.MILLISECONDS.toNanos(100), "Unexpected gap " + gap);
+    }
+
+    @Test
+    void testRateLimit() throws InterruptedException {
+        // Given a throttle that allows 50 operations per second
+        final ProviderThrottle throttle = new ProviderThrottle(0, 0, 50);
+
+        // When
+        final long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            throttle.acquire();
+            throttle.release();
+        }
+
+        // Then the 11 operations take at least 200ms
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190), "Operations should be delayed");
+    }
+}
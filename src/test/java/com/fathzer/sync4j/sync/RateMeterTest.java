@@ -0,0 +1,36 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.sync.Statistics.Rate;
+
+class RateMeterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void test() {
+        final RateMeter meter = new RateMeter(0);
+
+        // Given a constant rate, all the averages are equal to the rate
+        assertEquals(new Rate(100, 100, 100), meter.update(SECOND, 100));
+        assertEquals(new Rate(100, 100, 100), meter.update(2 * SECOND, 200));
+
+        // When nothing is counted during a second, the shortest averages decrease faster
+        Rate rate = meter.update(3 * SECOND, 200);
+        assertEquals(100 * Math.exp(-1), rate.oneSecond(), 0.001);
+        assertEquals(100 * Math.exp(-0.1), rate.tenSeconds(), 0.001);
+        assertEquals(100 * Math.exp(-1.0 / 60), rate.oneMinute(), 0.001);
+
+        // Updates too close to the previous one are ignored
+        assertEquals(rate, meter.update(3 * SECOND + 1, 1000));
+    }
+
+    @Test
+    void testNoUpdate() {
+        assertEquals(new Rate(0, 0, 0), new RateMeter(0).update(0, 10));
+    }
+}
@@ -0,0 +1,323 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.sync.Statistics.QosStatistics;
+import com.fathzer.sync4j.sync.parameters.PerformanceParameters;
+import com.fathzer.sync4j.sync.parameters.QosClass;
+import com.fathzer.sync4j.sync.parameters.QosShare;
+
+class SchedulerTest {
+    private static Map<QosClass, QosShare> shares(PerformanceParameters parameters) {
+        final Map<QosClass, QosShare> result = new EnumMap<>(QosClass.class);
+        for (QosClass qos : QosClass.values()) {
+            result.put(qos, parameters.qosShare(qos));
+        }
+        return result;
+    }
+
+    private static Scheduler build(int threads, PerformanceParameters parameters, Map<QosClass, AdaptiveLimiter> limiters, Statistics statistics) {
+        return new Scheduler(threads, shares(parameters), limiters, statistics, new Context.DaemonThreadFactory("test"));
+    }
+
+    /** A task that tracks the maximum number of tasks running concurrently. */
+    private static class ConcurrencyProbe {
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger max = new AtomicInteger();
+        private final CountDownLatch done;
+
+        ConcurrencyProbe(int count) {
+            this.done = new CountDownLatch(count);
+        }
+
+        Runnable task() {
+            return () -> {
+                max.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            };
+        }
+
+        int await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Tasks should complete");
+            return max.get();
+        }
+    }
+
+    @Test
+    void testMinShareHasPriority() throws InterruptedException {
+        // Given a single thread busy with a comparison, and comparisons waiting
+        final Statistics statistics = new Statistics();
+        final Scheduler scheduler = build(1, new PerformanceParameters(), Map.of(), statistics);
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            scheduler.execute(QosClass.COMPARE, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            final List<QosClass> order = new CopyOnWriteArrayList<>();
+            final CountDownLatch done = new CountDownLatch(3);
+            scheduler.execute(QosClass.COMPARE, () -> {order.add(QosClass.COMPARE); done.countDown();});
+            scheduler.execute(QosClass.LARGE_COPY, () -> {order.add(QosClass.LARGE_COPY); done.countDown();});
+            // When a listing is submitted
+            scheduler.execute(QosClass.METADATA, () -> {order.add(QosClass.METADATA); done.countDown();});
+            assertEquals(1, statistics.qos(QosClass.METADATA).queued().get());
+            release.countDown();
+
+            // Then it does not wait for the other tasks (metadata has a minimum share of 1)
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of(QosClass.METADATA, QosClass.COMPARE, QosClass.LARGE_COPY), order);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testIdleThreadsAreShared() throws InterruptedException {
+        // Given a pool of 3 threads with only comparisons to run
+        final Scheduler scheduler = build(3, new PerformanceParameters(), Map.of(), new Statistics());
+        try {
+            final ConcurrencyProbe probe = new ConcurrencyProbe(6);
+            for (int i = 0; i < 6; i++) {
+                scheduler.execute(QosClass.COMPARE, probe.task());
+            }
+            // Then all the threads are used
+            assertEquals(3, probe.await());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testMaxShare() throws InterruptedException {
+        // Given a pool of 3 threads where large copies can use only one thread
+        final PerformanceParameters parameters = new PerformanceParameters().qosShare(QosClass.LARGE_COPY, new QosShare(0, 1, 1));
+        final Scheduler scheduler = build(3, parameters, Map.of(), new Statistics());
+        try {
+            final ConcurrencyProbe probe = new ConcurrencyProbe(4);
+            for (int i = 0; i < 4; i++) {
+                scheduler.execute(QosClass.LARGE_COPY, probe.task());
+            }
+            assertEquals(1, probe.await());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testSharedLimiter() throws InterruptedException {
+        // Given a limiter of 2 shared by copies and deletions
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(2, 2, new AtomicInteger());
+        final Scheduler scheduler = build(4, new PerformanceParameters(), Map.of(QosClass.SMALL_COPY, limiter, QosClass.DELETE, limiter),
+                new Statistics());
+        try {
+            final ConcurrencyProbe probe = new ConcurrencyProbe(8);
+            for (int i = 0; i < 4; i++) {
+                scheduler.execute(QosClass.SMALL_COPY, probe.task());
+                scheduler.execute(QosClass.DELETE, probe.task());
+            }
+            assertEquals(2, probe.await());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testPause() throws InterruptedException {
+        final Statistics statistics = new Statistics();
+        final Scheduler scheduler = build(2, new PerformanceParameters(), Map.of(), statistics);
+        try {
+            // Given a paused scheduler
+            scheduler.pause();
+            assertTrue(scheduler.isPaused());
+            final CountDownLatch done = new CountDownLatch(1);
+            scheduler.execute(QosClass.COMPARE, done::countDown);
+
+            // Then tasks stay queued
+            assertFalse(done.await(100, TimeUnit.MILLISECONDS), "Task should not run while paused");
+            assertEquals(1, statistics.qos(QosClass.COMPARE).queued().get());
+
+            // Tasks waiting for the scheduler to be resumed are released by resume
+            final CountDownLatch resumed = new CountDownLatch(1);
+            final Thread waiter = new Thread(() -> {
+                try {
+                    scheduler.awaitResumed();
+                    resumed.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            waiter.start();
+            assertFalse(resumed.await(50, TimeUnit.MILLISECONDS));
+
+            // When
+            scheduler.resume();
+
+            // Then
+            assertFalse(scheduler.isPaused());
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Task should run once resumed");
+            assertTrue(resumed.await(5, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testStatistics() throws InterruptedException {
+        final Statistics statistics = new Statistics();
+        final Scheduler scheduler = build(1, new PerformanceParameters(), Map.of(), statistics);
+        final CountDownLatch done = new CountDownLatch(2);
+        scheduler.execute(QosClass.DELETE, done::countDown);
+        scheduler.execute(QosClass.DELETE, () -> {
+            done.countDown();
+            throw new IllegalStateException("Failure is not fatal for the scheduler");
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+        assertTrue(scheduler.isShutdown());
+        assertThrows(RejectedExecutionException.class, () -> scheduler.execute(QosClass.DELETE, () -> {}));
+
+        final QosStatistics deleteStats = statistics.qos(QosClass.DELETE);
+        // Wait for the statistics of the last task to be updated
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (deleteStats.completed().get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(2, deleteStats.completed().get());
+        assertEquals(0, deleteStats.queued().get());
+        assertEquals(0, deleteStats.running().get());
+        assertTrue(deleteStats.executionTime().get() > 0);
+        assertEquals(0, statistics.qos(QosClass.METADATA).completed().get());
+        assertThrows(IllegalArgumentException.class, () -> build(0, new PerformanceParameters(), Map.of(), statistics));
+    }
+
+    @Test
+    void testManyTinyTasks() throws InterruptedException {
+        // Given 4 threads, and tiny tasks submitted by several threads (some of them by the tasks themselves)
+        final Scheduler scheduler = build(4, new PerformanceParameters(), Map.of(), new Statistics());
+        try {
+            final int count = 100_000;
+            final CountDownLatch done = new CountDownLatch(4 * count);
+            final List<Thread> submitters = new ArrayList<>();
+            for (QosClass qos : List.of(QosClass.METADATA, QosClass.COMPARE)) {
+                final Thread submitter = new Thread(() -> {
+                    for (int i = 0; i < count; i++) {
+                        scheduler.execute(qos, () -> {
+                            done.countDown();
+                            scheduler.execute(QosClass.SMALL_COPY, done::countDown);
+                        });
+                    }
+                });
+                submitter.start();
+                submitters.add(submitter);
+            }
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+
+            // Then no task is lost, even if the threads park and unpark themselves
+            assertTrue(done.await(30, TimeUnit.SECONDS), () -> done.getCount() + " tasks not executed");
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testThrottledTaskDoesNotBlockThread() throws InterruptedException {
+        // Given 2 threads, and a provider that allows a single operation at a time, busy with a task
+        final Scheduler scheduler = build(2, new PerformanceParameters(), Map.of(), new Statistics());
+        try {
+            final List<ProviderThrottle> throttles = List.of(new ProviderThrottle(0, 1, 0));
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final ConcurrencyProbe probe = new ConcurrencyProbe(5);
+            scheduler.execute(QosClass.COMPARE, throttles, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // When other tasks on the provider are submitted, then a task that does not use the provider
+            for (int i = 0; i < 5; i++) {
+                scheduler.execute(QosClass.COMPARE, throttles, probe.task());
+            }
+            final CountDownLatch free = new CountDownLatch(1);
+            scheduler.execute(QosClass.COMPARE, free::countDown);
+
+            // Then the task that does not use the provider is not blocked by the throttled ones
+            assertTrue(free.await(5, TimeUnit.SECONDS), "Free task should not wait for the provider");
+            // and the throttled tasks are started one at a time once the provider is released
+            release.countDown();
+            assertEquals(1, probe.await());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testRateLimitedTasks() throws InterruptedException {
+        // Given a provider that allows 50 operations per second
+        final Scheduler scheduler = build(4, new PerformanceParameters(), Map.of(), new Statistics());
+        try {
+            final List<ProviderThrottle> throttles = List.of(new ProviderThrottle(0, 0, 50));
+            final CountDownLatch done = new CountDownLatch(11);
+
+            // When
+            final long start = System.nanoTime();
+            for (int i = 0; i < 11; i++) {
+                scheduler.execute(QosClass.SMALL_COPY, throttles, done::countDown);
+            }
+
+            // Then the tasks are retried until they are all executed, and the 11 tasks take at least 200ms
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Deferred tasks should be executed");
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190), "Tasks should be delayed");
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testErrorDoesNotKillThread() throws InterruptedException {
+        // Given a single thread
+        final Scheduler scheduler = build(1, new PerformanceParameters(), Map.of(), new Statistics());
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // When a task throws an error
+        scheduler.execute(QosClass.DELETE, () -> {
+            throw new AssertionError("Unexpected error");
+        });
+        scheduler.execute(QosClass.DELETE, done::countDown);
+
+        // Then the thread executes the next task
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,137 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.file.LocalProvider;
+import com.fathzer.sync4j.memory.MemoryFile;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+class StateIndexTest {
+    @TempDir
+    private Path tempDir;
+
+    private Path stateFile;
+    private MemoryFolder source;
+    private MemoryFolder destination;
+
+    @SuppressWarnings("resource")
+    @BeforeEach
+    void setUp() throws IOException {
+        stateFile = tempDir.resolve("state");
+        source = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        destination = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+    }
+
+    @Test
+    void testCommitAndReload() throws IOException {
+        MemoryFile src = source.createFile("file.txt", "content".getBytes());
+        MemoryFile dst = destination.createFile("file.txt", "content".getBytes());
+
+        // No state file => nothing is unchanged
+        StateIndex index = new StateIndex(stateFile, source, destination);
+        assertFalse(index.isUnchanged(src, dst));
+        index.record(src, dst);
+        assertEquals(1, index.size());
+        index.commit();
+        assertTrue(Files.exists(stateFile));
+
+        // Reload => unchanged files are detected and recorded in the new state
+        index = new StateIndex(stateFile, source, destination);
+        assertTrue(index.isUnchanged(src, dst));
+        assertEquals(1, index.size());
+
+        // Modified destination is detected
+        dst.setLastModifiedTime(dst.getLastModifiedTime() + 1000);
+        index = new StateIndex(stateFile, source, destination);
+        assertFalse(index.isUnchanged(src, dst));
+        assertEquals(0, index.size());
+
+        // Modified source is detected
+        dst.setLastModifiedTime(dst.getLastModifiedTime() - 1000);
+        src.setContent("new content".getBytes());
+        index = new StateIndex(stateFile, source, destination);
+        assertFalse(index.isUnchanged(src, dst));
+    }
+
+    @Test
+    void testStaleState() throws IOException {
+        MemoryFile src = source.createFile("file.txt", "content".getBytes());
+        MemoryFile dst = destination.createFile("file.txt", "content".getBytes());
+        StateIndex index = new StateIndex(stateFile, source, destination);
+        index.record(src, dst);
+        index.commit();
+
+        // State written for other folders is ignored
+        MemoryFolder other = source.mkdir("other");
+        index = new StateIndex(stateFile, other, destination);
+        assertFalse(index.isUnchanged(src, dst));
+
+        // Corrupted state is ignored
+        byte[] bytes = Files.readAllBytes(stateFile);
+        bytes[bytes.length - 20] ^= 0x55;
+        Files.write(stateFile, bytes);
+        index = new StateIndex(stateFile, source, destination);
+        assertFalse(index.isUnchanged(src, dst));
+
+        // Truncated state is ignored
+        Files.write(stateFile, new byte[] {0, 12, 's'});
+        index = new StateIndex(stateFile, source, destination);
+        assertFalse(index.isUnchanged(src, dst));
+    }
+
+    @Test
+    void testFolderId() throws IOException {
+        final Path root = Files.createDirectory(tempDir.resolve("root"));
+        final Path otherRoot = Files.createDirectories(tempDir.resolve("other").resolve("folder")).getParent();
+        try (LocalProvider provider = new LocalProvider(root); LocalProvider other = new LocalProvider(otherRoot)) {
+            final String id = StateIndex.id(provider.get("").asFolder().mkdir("folder"));
+            // The id does not depend on the state of the provider
+            provider.setReadOnly(true);
+            assertEquals(id, StateIndex.id(provider.get("/folder").asFolder()));
+            // The id depends on the provider and its root folder
+            assertNotEquals(id, StateIndex.id(other.get("/folder").asFolder()));
+            assertNotEquals(StateIndex.id(source), StateIndex.id(provider.get("").asFolder()));
+        }
+    }
+
+    @Test
+    void testSynchronization() throws Exception {
+        source.createFile("file.txt", "content".getBytes());
+        SyncParameters parameters = new SyncParameters().stateFile(stateFile);
+        parameters.errorManager((e, a) -> true);
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+        }
+        assertTrue(Files.exists(stateFile));
+
+        // Second run should not call the comparator
+        parameters.fileComparator((f1, f2) -> fail("Comparator should not be called"));
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+            assertTrue(synchronization.getErrors().isEmpty());
+            assertEquals(1, synchronization.getStatistics().checkedFiles().done().get());
+        }
+    }
+
+    @Test
+    void testNoCommitWhenNotSuccessful() throws Exception {
+        SyncParameters parameters = new SyncParameters().stateFile(stateFile).dryRun(true);
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+        }
+        assertFalse(Files.exists(stateFile));
+    }
+}
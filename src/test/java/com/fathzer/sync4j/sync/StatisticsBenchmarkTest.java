@@ -0,0 +1,84 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares the throughput of the statistics counters with a single shared atomic counter when a lot of threads update them,
+ * while another thread polls the statistics.
+ * <br>This benchmark is disabled by default, run it with <code>-Dsync4j.benchmark=true</code>.
+ * The number of threads can be set with <code>-Dsync4j.benchmark.threads=32</code> (default is 32).
+ */
+@EnabledIfSystemProperty(named = "sync4j.benchmark", matches = "true")
+class StatisticsBenchmarkTest {
+    private static final Logger LOGGER = Logger.getLogger(StatisticsBenchmarkTest.class.getName());
+    private static final long DURATION_MS = 2000;
+
+    @Test
+    void benchmark() throws Exception {
+        final int threads = Integer.getInteger("sync4j.benchmark.threads", 32);
+        final AtomicLong atomic = new AtomicLong();
+        final Statistics statistics = new Statistics();
+        final Statistics.Tally tally = statistics.copiedBytesTally();
+        // Warm up
+        run(threads, atomic::addAndGet, atomic::get);
+        final long warmUpdates = run(threads, tally::addDone, statistics::snapshot);
+
+        final long atomicUpdates = run(threads, atomic::addAndGet, atomic::get);
+        final long statisticsUpdates = run(threads, tally::addDone, statistics::snapshot);
+        LOGGER.info(() -> String.format("%d threads: AtomicLong %d updates/s, Statistics %d updates/s", threads,
+                atomicUpdates * 1000 / DURATION_MS, statisticsUpdates * 1000 / DURATION_MS));
+
+        // The polled snapshots contain all the updates
+        assertEquals((warmUpdates + statisticsUpdates) * 1024, statistics.snapshot().copiedBytes().done());
+    }
+
+    private long run(int threads, LongConsumer update, Runnable poll) throws InterruptedException {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong updates = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long count = 0;
+                while (!stop.get()) {
+                    update.accept(1024);
+                    count++;
+                }
+                updates.addAndGet(count);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        final Thread poller = new Thread(() -> {
+            while (!stop.get()) {
+                poll.run();
+            }
+        });
+        poller.start();
+        start.countDown();
+        Thread.sleep(DURATION_MS);
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        poller.join();
+        return updates.get();
+    }
+}
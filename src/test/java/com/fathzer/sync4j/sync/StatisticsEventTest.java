@@ -0,0 +1,41 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+class StatisticsEventTest {
+    @Test
+    void test() throws Exception {
+        // Given
+        final Statistics statistics = new Statistics();
+        statistics.copiedBytes().total().addAndGet(100);
+        statistics.copiedBytes().done().addAndGet(40);
+        final BlockingQueue<RecordedEvent> events = new LinkedBlockingQueue<>();
+
+        // When
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("com.fathzer.sync4j.Statistics").withPeriod(Duration.ofMillis(10));
+            recording.onEvent("com.fathzer.sync4j.Statistics", events::add);
+            recording.startAsync();
+            final Runnable hook = StatisticsEvent.register(statistics);
+            try {
+                // Then
+                final RecordedEvent event = events.poll(10, TimeUnit.SECONDS);
+                assertNotNull(event);
+                assertEquals(100, event.getLong("bytesToCopy"));
+                assertEquals(40, event.getLong("copiedBytes"));
+            } finally {
+                StatisticsEvent.unregister(hook);
+            }
+        }
+    }
+}
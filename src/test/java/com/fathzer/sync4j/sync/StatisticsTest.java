@@ -2,6 +2,11 @@ package com.fathzer.sync4j.sync;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -28,6 +33,7 @@ class StatisticsTest {
         
         assertEquals(0, stats.skippedFiles().get());
         assertEquals(0, stats.skippedFolders().get());
+        assertEquals(0, stats.droppedEvents().get());
     }
 
     @Test
@@ -98,6 +104,111 @@ class StatisticsTest {
         assertTrue(str.contains("skippedFiles=2"));
     }
 
+    @Test
+    void testSnapshot() {
+        // Given
+        stats.copiedBytes().total().addAndGet(100);
+        stats.copiedBytes().done().addAndGet(40);
+        stats.listedFolders().total().incrementAndGet();
+        stats.skippedFolders().incrementAndGet();
+
+        // When
+        final Statistics.Snapshot snapshot = stats.snapshot();
+        stats.copiedBytes().done().addAndGet(60);
+
+        // Then the snapshot is not changed by the later updates
+        assertEquals(new Statistics.Progress(100, 40), snapshot.copiedBytes());
+        assertEquals(60, snapshot.copiedBytes().remaining());
+        assertEquals(new Statistics.Progress(1, 0), snapshot.listedFolders());
+        assertEquals(new Statistics.Progress(0, 0), snapshot.movedFiles());
+        assertEquals(1, snapshot.skippedFolders());
+        assertEquals(0, snapshot.skippedFiles());
+        assertEquals(new Statistics.Progress(100, 100), stats.snapshot().copiedBytes());
+    }
+
+    @Test
+    void testEta() {
+        final long start = System.nanoTime();
+        final long second = TimeUnit.SECONDS.toNanos(1);
+
+        // Given bytes discovered faster than they are copied, the time can't be estimated
+        stats.copiedBytes().total().addAndGet(1000);
+        Statistics.Snapshot snapshot = stats.snapshot(start + second);
+        assertNull(snapshot.eta());
+        assertEquals(0, snapshot.copiedBytesRate().oneSecond());
+
+        // When no more bytes are discovered, the time is estimated with the copy rate
+        stats.copiedBytes().done().addAndGet(500);
+        stats.copiedFiles().total().addAndGet(5);
+        stats.copiedFiles().done().addAndGet(5);
+        snapshot = stats.snapshot(start + 100 * second);
+        assertEquals(500.0 / 99, snapshot.copiedBytesRate().tenSeconds(), 0.01);
+        assertEquals(5.0 / 99, snapshot.copiedFilesRate().tenSeconds(), 0.01);
+        final long eta = snapshot.eta().toSeconds();
+        assertTrue(eta >= 98 && eta <= 99, () -> "Eta is " + eta);
+
+        // Then nothing remains to copy
+        stats.copiedBytes().done().addAndGet(500);
+        assertEquals(Duration.ZERO, stats.snapshot(start + 101 * second).eta());
+    }
+
+    @Test
+    void testProgressOverrun() {
+        // Given a copied file that grew while it was copied
+        stats.copiedBytesTally().addTotal(100);
+        stats.copiedBytesTally().addDone(150);
+
+        // Then the progress reports the overrun
+        assertEquals(new Statistics.Progress(100, 150), stats.copiedBytes().progress());
+        final Statistics.Snapshot snapshot = stats.snapshot();
+        assertEquals(-50, snapshot.copiedBytes().remaining());
+        assertEquals(Duration.ZERO, snapshot.eta());
+    }
+
+    @Test
+    void testTally() {
+        // Given updates of a counter by the synchronization threads, and by a caller of the public counter
+        stats.copiedFilesTally().addTotal(3);
+        stats.copiedFilesTally().addDone(2);
+        stats.copiedFiles().total().incrementAndGet();
+
+        // Then the counter contains all the updates
+        assertEquals(new Statistics.Counter(4, 2), stats.copiedFiles());
+        assertEquals(new Statistics.Progress(4, 2), stats.snapshot().copiedFiles());
+        assertTrue(stats.toString().contains("copiedFiles=Counter[total=4, done=2]"));
+    }
+
+    @Test
+    void testSnapshotWhileUpdated() throws InterruptedException {
+        // Given threads that count tasks, total before done
+        final Statistics.Tally counter = stats.copiedFilesTally();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Thread thread = new Thread(() -> {
+                while (!stop.get()) {
+                    counter.addTotal(1);
+                    counter.addDone(1);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Then snapshots never see more done than total tasks
+        try {
+            for (int i = 0; i < 10000; i++) {
+                final Statistics.Progress progress = stats.snapshot().copiedFiles();
+                assertTrue(progress.done() <= progress.total(), progress::toString);
+            }
+        } finally {
+            stop.set(true);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+    }
+
     private void assertCounterInitialized(Statistics.Counter counter) {
         assertNotNull(counter);
         assertNotNull(counter.total());
@@ -113,5 +224,8 @@ class StatisticsTest {
         
         assertEquals(stats1, stats2);
         assertEquals(stats1.hashCode(), stats2.hashCode());
+
+        stats1.droppedEvents().incrementAndGet();
+        assertNotEquals(stats1, stats2);
     }
 }
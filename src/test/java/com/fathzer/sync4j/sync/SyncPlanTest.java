@@ -0,0 +1,139 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fathzer.sync4j.memory.MemoryFile;
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+import com.fathzer.sync4j.sync.Event.CheckPlanStepAction;
+import com.fathzer.sync4j.sync.SyncPlan.Step;
+import com.fathzer.sync4j.sync.SyncPlan.Type;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+class SyncPlanTest {
+    private MemoryFileProvider sourceProvider;
+    private MemoryFileProvider destinationProvider;
+    private MemoryFolder source;
+    private MemoryFolder destination;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sourceProvider = new MemoryFileProvider();
+        destinationProvider = new MemoryFileProvider();
+        source = (MemoryFolder) sourceProvider.get("").asFolder();
+        destination = (MemoryFolder) destinationProvider.get("").asFolder();
+    }
+
+    @Test
+    void testSerialization() throws IOException {
+        final SyncPlan plan = new SyncPlan(List.of(new Step(Type.MKDIR, "/docs", -1, -1), new Step(Type.COPY, "/docs/file.txt", 12, 1000),
+                new Step(Type.DELETE, "/old", -1, -1)));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        plan.write(out);
+        assertEquals(plan, SyncPlan.read(new ByteArrayInputStream(out.toByteArray())));
+
+        // Corrupted plan is rejected
+        final byte[] bytes = out.toByteArray();
+        bytes[bytes.length - 12] ^= 0x55;
+        assertThrows(IOException.class, () -> SyncPlan.read(new ByteArrayInputStream(bytes)));
+        // Truncated plan is rejected
+        assertThrows(IOException.class, () -> SyncPlan.read(new ByteArrayInputStream(out.toByteArray(), 0, 20)));
+        assertThrows(IllegalArgumentException.class, () -> new Step(Type.COPY, "", 0, 0));
+    }
+
+    private SyncPlan computePlan() throws Exception {
+        final SyncParameters parameters = new SyncParameters().planMode(true);
+        assertTrue(parameters.dryRun());
+        try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+            assertTrue(synchronization.getErrors().isEmpty());
+            return synchronization.getPlan();
+        }
+    }
+
+    private List<Throwable> execute(SyncPlan plan) throws Exception {
+        try (Synchronization synchronization = new Synchronization(source, destination, plan, new SyncParameters().errorManager((e, a) -> false))) {
+            synchronization.start();
+            synchronization.waitFor();
+            return synchronization.getErrors();
+        }
+    }
+
+    private byte[] content(String path) throws IOException {
+        try (InputStream in = destinationProvider.get(path).asFile().getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testPlanAndExecute() throws Exception {
+        // Given folders with entries to create, copy, replace and delete
+        source.mkdir("docs").mkdir("sub").createFile("deep.txt", "deep".getBytes());
+        source.createFile("file.txt", "content".getBytes());
+        source.mkdir("replaced");
+        destination.createFile("replaced", "a file".getBytes());
+        destination.createFile("obsolete.txt", "obsolete".getBytes());
+
+        // When the plan is computed
+        final SyncPlan plan = computePlan();
+
+        // Then nothing is modified, and the plan is ordered
+        assertFalse(destinationProvider.get("/docs").exists());
+        final List<Step> steps = plan.steps();
+        assertEquals(7, steps.size());
+        assertTrue(steps.indexOf(new Step(Type.MKDIR, "/docs", -1, -1)) < steps.indexOf(new Step(Type.MKDIR, "/docs/sub", -1, -1)));
+        assertTrue(steps.indexOf(new Step(Type.MKDIR, "/docs/sub", -1, -1)) < steps.indexOf(new Step(Type.COPY, "/docs/sub/deep.txt", 4,
+                sourceProvider.get("/docs/sub/deep.txt").asFile().getLastModifiedTime())));
+        final Step deleteReplaced = steps.stream().filter(s -> s.type() == Type.DELETE && s.path().equals("/replaced")).findAny().orElseThrow();
+        assertFalse(deleteReplaced.isFolder());
+        assertTrue(steps.indexOf(deleteReplaced) < steps.indexOf(new Step(Type.MKDIR, "/replaced", -1, -1)));
+
+        // When the plan is executed
+        assertTrue(execute(plan).isEmpty());
+
+        // Then the destination is synchronized
+        assertArrayEquals("deep".getBytes(), content("/docs/sub/deep.txt"));
+        assertArrayEquals("content".getBytes(), content("/file.txt"));
+        assertTrue(destinationProvider.get("/replaced").isFolder());
+        assertFalse(destinationProvider.get("/obsolete.txt").exists());
+    }
+
+    @Test
+    void testChangedEntriesAreNotTouched() throws Exception {
+        final MemoryFile file = source.createFile("file.txt", "content".getBytes());
+        final MemoryFile obsolete = destination.createFile("obsolete.txt", "obsolete".getBytes());
+        final SyncPlan plan = computePlan();
+        assertEquals(2, plan.steps().size());
+
+        // Given entries modified after the plan was computed
+        file.setContent("new content".getBytes());
+        obsolete.setContent("modified".getBytes());
+
+        // Then they are not touched
+        final List<Throwable> errors = execute(plan);
+        assertEquals(2, errors.size());
+        assertFalse(destinationProvider.get("/file.txt").exists());
+        assertTrue(destinationProvider.get("/obsolete.txt").exists());
+
+        // And the errors are reported with the step
+        final List<Object> actions = new CopyOnWriteArrayList<>();
+        final SyncParameters parameters = new SyncParameters().errorManager((e, a) -> actions.add(a) && false);
+        try (Synchronization synchronization = new Synchronization(source, destination, plan, parameters)) {
+            synchronization.start();
+            synchronization.waitFor();
+        }
+        assertEquals(2, actions.size());
+        assertTrue(actions.stream().allMatch(CheckPlanStepAction.class::isInstance));
+    }
+}
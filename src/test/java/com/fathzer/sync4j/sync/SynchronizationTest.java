@@ -154,11 +154,11 @@ class SynchronizationTest {
             // When
             parameters.performance().fastList(true);
             when(context.isCancelled()).thenReturn(false);
-            when(context.submit(any(WalkTask.class))).thenAnswer(invocation -> {
+            doAnswer(invocation -> {
                 // Warning, the task should decrement the counter (if not it is a task's bug)
                 context.taskCounter().decrement();
-                return CompletableFuture.completedFuture(null);
-            });
+                return null;
+            }).when(context).submit(any(WalkTask.class));
             preloadCalled.set(false);
 
             synchronization.start();
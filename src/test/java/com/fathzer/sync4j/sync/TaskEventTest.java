@@ -0,0 +1,90 @@
+package com.fathzer.sync4j.sync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+import com.fathzer.sync4j.memory.MemoryFolder;
+import com.fathzer.sync4j.sync.parameters.SyncParameters;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class TaskEventTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void test() throws Exception {
+        // Given
+        final MemoryFolder source = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        final MemoryFolder destination = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        source.createFile("file.txt", "content".getBytes());
+        source.mkdir("folder").createFile("other.txt", "other content".getBytes());
+        destination.createFile("obsolete.txt", new byte[0]);
+        final SyncParameters parameters = new SyncParameters();
+        // Batched and not batched operations are recorded
+        parameters.performance().batch(2, Duration.ofMillis(10));
+
+        // When
+        final Path file = tempDir.resolve("sync.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.fathzer.sync4j.List");
+            recording.enable("com.fathzer.sync4j.Copy");
+            recording.enable("com.fathzer.sync4j.CreateFolder");
+            recording.enable("com.fathzer.sync4j.Delete");
+            recording.start();
+            try (Synchronization synchronization = new Synchronization(source, destination, parameters)) {
+                synchronization.start();
+                synchronization.waitFor();
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Then
+        final Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(file).stream()
+                .collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+        final List<RecordedEvent> copies = events.get("com.fathzer.sync4j.Copy");
+        assertEquals(2, copies.size());
+        final RecordedEvent copy = copies.stream().filter(e -> e.getString("path").endsWith("other.txt")).findAny().orElseThrow();
+        assertEquals("/folder/other.txt", copy.getString("path"));
+        assertEquals(MemoryFileProvider.class.getName(), copy.getString("provider"));
+        assertEquals(13, copy.getLong("bytes"));
+        assertEquals("COMPLETED", copy.getString("outcome"));
+        assertEquals("/folder", events.get("com.fathzer.sync4j.CreateFolder").get(0).getString("path"));
+        assertEquals("/obsolete.txt", events.get("com.fathzer.sync4j.Delete").get(0).getString("path"));
+        assertFalse(events.get("com.fathzer.sync4j.List").isEmpty());
+        assertNull(events.get("com.fathzer.sync4j.Compare"));
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        // Given no recording of the copy events
+        final MemoryFolder source = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        final MemoryFolder destination = (MemoryFolder) new MemoryFileProvider().get("").asFolder();
+        try (Context context = new Context(new SyncParameters())) {
+            final CopyFileTask task = new CopyFileTask(context, new Event.CopyFileAction(source.createFile("file.txt", new byte[1]), destination));
+
+            // When / Then the event is created only while it is enabled
+            assertFalse(Task.isRecorded(TaskEvent.CopyFile.class));
+            assertNull(task.newEvent());
+            try (Recording recording = new Recording()) {
+                recording.enable("com.fathzer.sync4j.Copy");
+                recording.start();
+                assertTrue(Task.isRecorded(TaskEvent.CopyFile.class));
+                assertNotNull(task.newEvent());
+            }
+            assertFalse(Task.isRecorded(TaskEvent.CopyFile.class));
+        }
+    }
+}
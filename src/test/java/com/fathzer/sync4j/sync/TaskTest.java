@@ -8,7 +8,6 @@ import static com.fathzer.sync4j.sync.Event.Status.*;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,14 +18,14 @@ class TaskTest {
     
     private Context context;
     private Event.Action action;
-    private Statistics.Counter counter;
+    private Statistics.Tally counter;
     private List<Event.Status> statuses = new LinkedList<>();
     
     // Concrete implementation of Task for testing
     private static class TestTask extends Task<String, Event.Action> {
         private boolean shouldFail;
 
-        TestTask(Context context, Event.Action action, Statistics.Counter counter) {
+        TestTask(Context context, Event.Action action, Statistics.Tally counter) {
             super(context, action, counter);
         }
 
@@ -44,15 +43,18 @@ class TaskTest {
         // Create mocks
         context = mock(Context.class);
         action = mock(Event.Action.class);
-        counter = new Statistics.Counter(new AtomicLong(0), new AtomicLong(0));
+        counter = new Statistics.Tally();
 
         // Setup event listener
         SyncParameters parameters = new SyncParameters();
-        parameters.eventListener(event -> {
+        when(context.params()).thenReturn(parameters);
+        when(context.eventMask(any())).thenReturn(-1);
+        doAnswer(invocation -> {
+            Event event = invocation.getArgument(0);
             assertEquals(action, event.action());
             statuses.add(event.status());
-        });
-        when(context.params()).thenReturn(parameters);
+            return null;
+        }).when(context).publish(any());
 
     }
     
@@ -65,7 +67,7 @@ class TaskTest {
         assertSame(action, task.action());
         
         // Verify counter.total() was incremented
-        assertEquals(1, counter.total().get());
+        assertEquals(1, counter.counter().total().get());
         assertEquals(List.of(PLANNED), statuses);
 
         assertNull(task.defaultValue());
@@ -91,16 +93,16 @@ class TaskTest {
         TestTask task = new TestTask(context, action, counter);
         assertEquals("test", task.call());
         assertEquals(List.of(PLANNED, STARTED, COMPLETED), statuses);
-        assertEquals(1, counter.done().get());
+        assertEquals(1, counter.counter().done().get());
 
         // Test that call() throws IOException when execute() fails
         statuses.clear();
-        Statistics.Counter counter2 = new Statistics.Counter(new AtomicLong(0), new AtomicLong(0));
+        Statistics.Tally counter2 = new Statistics.Tally();
         TestTask task2 = new TestTask(context, action, counter2);
         task2.shouldFail = true;
         assertThrows(IOException.class, task2::call);
         assertEquals(List.of(PLANNED, STARTED, FAILED), statuses);
-        assertEquals(1, counter2.total().get());
-        assertEquals(0, counter2.done().get());
+        assertEquals(1, counter2.counter().total().get());
+        assertEquals(0, counter2.counter().done().get());
     }
 }
@@ -2,8 +2,13 @@ package com.fathzer.sync4j.sync.parameters;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 import org.junit.jupiter.api.Test;
 
+import com.fathzer.sync4j.memory.MemoryFileProvider;
+
 class PerformanceParametersTest {
 
     @Test
@@ -13,6 +18,11 @@ class PerformanceParametersTest {
         
         // Then
         assertFalse(params.fastList(), "Default fastList should be false");
+        assertFalse(params.useTrash(), "Default useTrash should be false");
+        assertNull(params.spillDirectory(), "Default spillDirectory should be null");
+        assertFalse(params.adaptiveConcurrency(), "Default adaptiveConcurrency should be false");
+        assertEquals(1, params.minCopyThreads(), "Default minCopyThreads should be 1");
+        assertEquals(1, params.minComparisonThreads(), "Default minComparisonThreads should be 1");
         assertEquals(1, params.maxWalkThreads(), "Default maxWalkThreads should be 1");
         assertEquals(1, params.maxCopyThreads(), "Default maxCopyThreads should be 1");
         assertEquals(1, params.maxComparisonThreads(), "Default maxComparisonThreads should be 1");
@@ -37,6 +47,45 @@ class PerformanceParametersTest {
         assertFalse(params.fastList(), "fastList should be set to false");
     }
     
+    @Test
+    void testUseTrash() {
+        // Given
+        PerformanceParameters params = new PerformanceParameters();
+
+        // When
+        PerformanceParameters result = params.useTrash(true);
+
+        // Then
+        assertSame(params, result, "Should return this for method chaining");
+        assertTrue(params.useTrash(), "useTrash should be set to true");
+
+        // When
+        params.useTrash(false);
+
+        // Then
+        assertFalse(params.useTrash(), "useTrash should be set to false");
+    }
+
+    @Test
+    void testSpillDirectory() {
+        // Given
+        PerformanceParameters params = new PerformanceParameters();
+        Path directory = Path.of("spill");
+
+        // When
+        PerformanceParameters result = params.spillDirectory(directory);
+
+        // Then
+        assertSame(params, result, "Should return this for method chaining");
+        assertEquals(directory, params.spillDirectory());
+
+        // When
+        params.spillDirectory(null);
+
+        // Then
+        assertNull(params.spillDirectory(), "spillDirectory should be reset");
+    }
+
     @Test
     void testMaxWalkThreads() {
         // Given
@@ -91,6 +140,94 @@ class PerformanceParametersTest {
             "Should throw when maxComparisonThreads is negative");
     }
     
+    @Test
+    void testAdaptiveConcurrency() {
+        // Given
+        PerformanceParameters params = new PerformanceParameters();
+
+        // When
+        PerformanceParameters result = params.adaptiveConcurrency(true).minCopyThreads(2).minComparisonThreads(3);
+
+        // Then
+        assertSame(params, result, "Should return this for method chaining");
+        assertTrue(params.adaptiveConcurrency(), "adaptiveConcurrency should be set to true");
+        assertEquals(2, params.minCopyThreads(), "minCopyThreads should be set to 2");
+        assertEquals(3, params.minComparisonThreads(), "minComparisonThreads should be set to 3");
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class, () -> params.minCopyThreads(0), "minCopyThreads should be >= 1");
+        assertThrows(IllegalArgumentException.class, () -> params.minComparisonThreads(0), "minComparisonThreads should be >= 1");
+    }
+
+    @Test
+    void testProviderLimits() {
+        // Given
+        PerformanceParameters params = new PerformanceParameters();
+        try (MemoryFileProvider provider = new MemoryFileProvider()) {
+            // Then limits declared by the provider are used by default
+            assertEquals(0, params.maxConcurrentOperations(provider), "Memory provider has no concurrency limit");
+            assertEquals(0.0, params.maxOperationsPerSecond(provider), "Memory provider has no rate limit");
+
+            // When
+            PerformanceParameters result = params.providerLimits(provider, 4, 10.0);
+
+            // Then
+            assertSame(params, result, "Should return this for method chaining");
+            assertEquals(4, params.maxConcurrentOperations(provider), "maxConcurrentOperations should be overridden");
+            assertEquals(10.0, params.maxOperationsPerSecond(provider), "maxOperationsPerSecond should be overridden");
+
+            // When/Then
+            assertThrows(IllegalArgumentException.class, () -> params.providerLimits(provider, -1, 0), "maxConcurrentOperations should be >= 0");
+            assertThrows(IllegalArgumentException.class, () -> params.providerLimits(provider, 0, -1), "maxOperationsPerSecond should be >= 0");
+            assertThrows(IllegalArgumentException.class, () -> params.providerLimits(provider, 0, Double.NaN), "maxOperationsPerSecond should be a number");
+        }
+    }
+
+    @Test
+    void testQosShares() {
+        // Given
+        PerformanceParameters params = new PerformanceParameters();
+        assertEquals(new QosShare(1, 0, 4), params.qosShare(QosClass.METADATA), "Metadata has a minimum of one thread by default");
+        assertEquals(1024 * 1024, params.largeCopyThreshold());
+
+        // When
+        PerformanceParameters result = params.qosShare(QosClass.LARGE_COPY, new QosShare(0, 2, 3)).largeCopyThreshold(10);
+
+        // Then
+        assertSame(params, result, "Should return this for method chaining");
+        assertEquals(new QosShare(0, 2, 3), params.qosShare(QosClass.LARGE_COPY));
+        assertEquals(10, params.largeCopyThreshold());
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class, () -> params.largeCopyThreshold(-1));
+        assertThrows(IllegalArgumentException.class, () -> new QosShare(-1, 0, 1), "minThreads should be >= 0");
+        assertThrows(IllegalArgumentException.class, () -> new QosShare(2, 1, 1), "maxThreads should be >= minThreads");
+        assertThrows(IllegalArgumentException.class, () -> new QosShare(0, -1, 1), "maxThreads should be >= 0");
+        assertThrows(IllegalArgumentException.class, () -> new QosShare(0, 0, 0), "weight should be >= 1");
+        assertThrows(NullPointerException.class, () -> params.qosShare(QosClass.DELETE, null));
+    }
+
+    @Test
+    void testBatch() {
+        // Given
+        PerformanceParameters params = new PerformanceParameters();
+        assertEquals(100, params.maxBatchSize());
+        assertEquals(Duration.ofMillis(20), params.maxBatchDelay());
+
+        // When
+        PerformanceParameters result = params.batch(1, Duration.ZERO);
+
+        // Then
+        assertSame(params, result, "Should return this for method chaining");
+        assertEquals(1, params.maxBatchSize());
+        assertEquals(Duration.ZERO, params.maxBatchDelay());
+
+        // When/Then
+        final Duration delay = Duration.ofMillis(-1);
+        assertThrows(IllegalArgumentException.class, () -> params.batch(0, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> params.batch(10, delay));
+    }
+
     @Test
     void testFluentInterface() {
         // When
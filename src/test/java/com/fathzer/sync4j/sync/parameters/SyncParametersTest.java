@@ -2,6 +2,9 @@ package com.fathzer.sync4j.sync.parameters;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -14,6 +17,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import com.fathzer.sync4j.Entry;
 import com.fathzer.sync4j.sync.Event;
 import com.fathzer.sync4j.sync.Event.Action;
+import com.fathzer.sync4j.sync.Event.Status;
 
 @ExtendWith(MockitoExtension.class)
 class SyncParametersTest {
@@ -112,6 +116,54 @@ class SyncParametersTest {
         assertFalse(params.dryRun(), "dryRun should be false");
     }
     
+    @Test
+    void testErrors() {
+        SyncParameters params = new SyncParameters();
+        assertEquals(1000, params.maxRecentErrors());
+        assertNull(params.errorFile());
+
+        assertSame(params, params.maxRecentErrors(0));
+        assertEquals(0, params.maxRecentErrors());
+        assertThrows(IllegalArgumentException.class, () -> params.maxRecentErrors(-1));
+
+        final Path file = Path.of("errors.log");
+        assertSame(params, params.errorFile(file));
+        assertEquals(file, params.errorFile());
+    }
+    
+    @Test
+    void testAsyncEvents() {
+        SyncParameters params = new SyncParameters();
+        assertEquals(0, params.eventBufferSize());
+        assertEquals(OverflowPolicy.BLOCK, params.eventOverflowPolicy());
+
+        assertSame(params, params.asyncEvents(1024, OverflowPolicy.COALESCE));
+        assertEquals(1024, params.eventBufferSize());
+        assertEquals(OverflowPolicy.COALESCE, params.eventOverflowPolicy());
+        assertThrows(IllegalArgumentException.class, () -> params.asyncEvents(-1, OverflowPolicy.BLOCK));
+        assertThrows(NullPointerException.class, () -> params.asyncEvents(1, null));
+    }
+    
+    @Test
+    void testSubscriptions() {
+        SyncParameters params = new SyncParameters();
+        assertTrue(params.subscriptions().isEmpty(), "Default listener should not subscribe to events");
+
+        // When a listener subscribes to events
+        assertSame(params, params.subscribe(Event.CopyFileAction.class, Set.of(Status.COMPLETED), eventListener));
+        assertEquals(List.of(new EventSubscription(Event.CopyFileAction.class, Set.of(Status.COMPLETED), eventListener)), params.subscriptions());
+        EventSubscription subscription = params.subscriptions().get(0);
+        assertTrue(subscription.accepts(Event.CopyFileAction.class, Status.COMPLETED));
+        assertFalse(subscription.accepts(Event.CopyFileAction.class, Status.FAILED));
+        assertFalse(subscription.accepts(Event.DeleteEntryAction.class, Status.COMPLETED));
+
+        // When an event listener is set, it subscribes to all events
+        params.eventListener(eventListener);
+        assertEquals(2, params.subscriptions().size());
+        assertTrue(params.subscriptions().get(0).accepts(Event.DeleteEntryAction.class, Status.PLANNED));
+        assertThrows(NullPointerException.class, () -> params.subscribe(null, Set.of(), eventListener));
+    }
+    
     @Test
     void testEventListener() {
         // Given